@@ -22,6 +22,8 @@ import org.edx.mobile.BuildConfig;
 import org.edx.mobile.authentication.LoginAPI;
 import org.edx.mobile.core.EdxDefaultModule;
 import org.edx.mobile.core.IEdxEnvironment;
+import org.edx.mobile.course.BlockCompletionOutbox;
+import org.edx.mobile.course.CourseStructureSnapshot;
 import org.edx.mobile.event.AppUpdatedEvent;
 import org.edx.mobile.event.NewRelicEvent;
 import org.edx.mobile.http.HttpStatus;
@@ -30,6 +32,7 @@ import org.edx.mobile.model.api.UnacknowledgedNoticeResponse;
 import org.edx.mobile.module.analytics.AnalyticsRegistry;
 import org.edx.mobile.module.analytics.FirebaseAnalytics;
 import org.edx.mobile.module.analytics.SegmentAnalytics;
+import org.edx.mobile.module.prefs.LoginPrefs;
 import org.edx.mobile.module.prefs.PrefManager;
 import org.edx.mobile.module.storage.IStorage;
 import org.edx.mobile.receivers.NetworkConnectivityReceiver;
@@ -77,6 +80,15 @@ public abstract class MainApplication extends MultiDexApplication {
     @Inject
     IStorage iStorage;
 
+    @Inject
+    LoginPrefs loginPrefs;
+
+    @Inject
+    BlockCompletionOutbox blockCompletionOutbox;
+
+    @Inject
+    CourseStructureSnapshot courseStructureSnapshot;
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -91,6 +103,10 @@ public abstract class MainApplication extends MultiDexApplication {
         application = this;
 
         EventBus.getDefault().register(new CrashlyticsCrashReportObserver());
+        EventBus.getDefault().register(loginPrefs);
+        // Reports the pending block completions whenever the connectivity is regained
+        EventBus.getDefault().register(blockCompletionOutbox);
+        EventBus.getDefault().register(courseStructureSnapshot);
 
         if (config.getNewRelicConfig().isEnabled()) {
             EventBus.getDefault().register(new NewRelicObserver());
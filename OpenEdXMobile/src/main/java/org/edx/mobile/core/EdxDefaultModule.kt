@@ -14,13 +14,18 @@ import dagger.hilt.components.SingletonComponent
 import org.edx.mobile.authentication.LoginAPI
 import org.edx.mobile.course.CourseAPI
 import org.edx.mobile.course.CourseService
+import org.edx.mobile.course.CourseStructureSnapshot
+import org.edx.mobile.course.CourseUnitPackager
+import org.edx.mobile.course.CourseUnitPrefetcher
 import org.edx.mobile.discussion.DiscussionService
+import org.edx.mobile.http.authenticator.AccessTokenManager
 import org.edx.mobile.http.provider.OkHttpClientProvider
 import org.edx.mobile.http.provider.RetrofitProvider
+import org.edx.mobile.http.util.BandwidthModel
 import org.edx.mobile.inapppurchases.InAppPurchasesAPI
 import org.edx.mobile.model.course.BlockData
-import org.edx.mobile.model.course.BlockList
 import org.edx.mobile.model.course.BlockType
+import org.edx.mobile.model.course.CourseStructureV1Model
 import org.edx.mobile.module.db.IDatabase
 import org.edx.mobile.module.db.impl.IDatabaseImpl
 import org.edx.mobile.module.download.IDownloadManager
@@ -31,6 +36,7 @@ import org.edx.mobile.module.prefs.LoginPrefs
 import org.edx.mobile.module.storage.IStorage
 import org.edx.mobile.module.storage.Storage
 import org.edx.mobile.player.TranscriptManager
+import org.edx.mobile.player.VideoCache
 import org.edx.mobile.repositorie.CourseDatesRepository
 import org.edx.mobile.repositorie.InAppPurchasesRepository
 import org.edx.mobile.services.CourseManager
@@ -97,10 +103,8 @@ abstract class EdxDefaultModule {
         @Singleton
         @Provides
         fun provideGson(): Gson {
-            return GsonBuilder().registerTypeAdapter(
-                BlockList::class.java,
-                BlockList.Deserializer()
-            ).registerTypeAdapter(BlockType::class.java, BlockType.Deserializer())
+            return GsonBuilder().registerTypeAdapterFactory(CourseStructureV1Model.AdapterFactory())
+                .registerTypeAdapter(BlockType::class.java, BlockType.Deserializer())
                 .registerTypeAdapter(BlockData::class.java, BlockData.Deserializer())
                 .create()
         }
@@ -132,6 +136,8 @@ abstract class EdxDefaultModule {
 
         fun getLoginPrefs(): LoginPrefs
 
+        fun getAccessTokenManager(): AccessTokenManager
+
         fun getEdxCookieManager(): EdxCookieManager
 
         fun getCourseManager(): CourseManager
@@ -148,6 +154,16 @@ abstract class EdxDefaultModule {
 
         fun getCourseAPI(): CourseAPI
 
+        fun getCourseStructureSnapshot(): CourseStructureSnapshot
+
+        fun getCourseUnitPrefetcher(): CourseUnitPrefetcher
+
+        fun getCourseUnitPackager(): CourseUnitPackager
+
+        fun getBandwidthModel(): BandwidthModel
+
+        fun getVideoCache(): VideoCache
+
         fun getUserService(): UserService
 
         fun getGSon(): Gson
@@ -0,0 +1,273 @@
+package org.edx.mobile.course;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.event.NetworkConnectivityChangeEvent;
+import org.edx.mobile.http.HttpStatus;
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.module.db.DataCallback;
+import org.edx.mobile.module.db.IDatabase;
+import org.edx.mobile.module.prefs.LoginPrefs;
+import org.edx.mobile.util.Config;
+import org.edx.mobile.util.NetworkUtil;
+import org.greenrobot.eventbus.Subscribe;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Persistent outbox of the block completions waiting to be reported to the server.
+ * <p>
+ * Completed blocks are recorded in the database right away, so that the completions of learners
+ * watching offline aren't lost, and are reported with as few requests to the completion batch
+ * API as possible: the pending blocks of every course are sent together once per flush interval,
+ * when the connectivity is regained and when the app moves to the background. Failed reports
+ * are retried with an exponential backoff.
+ * <p>
+ * All the methods must be called on the main thread.
+ */
+@Singleton
+public class BlockCompletionOutbox implements ComponentCallbacks2 {
+
+    private static final Logger logger = new Logger(BlockCompletionOutbox.class.getName());
+
+    /* Maximum number of blocks reported with a single request */
+    static final int MAX_BATCH_SIZE = 100;
+    private static final long INITIAL_RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(30);
+
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final IDatabase db;
+    @NonNull
+    private final CourseAPI courseApi;
+    @NonNull
+    private final LoginPrefs loginPrefs;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long flushIntervalMs;
+
+    @NonNull
+    private final Runnable flushRunnable = this::flush;
+    private boolean flushScheduled;
+    private boolean flushing;
+    /* Set if a flush was requested while another one was in progress */
+    private boolean flushRequested;
+    private int consecutiveFailures;
+
+    @Inject
+    public BlockCompletionOutbox(@ApplicationContext @NonNull Context context,
+                                 @NonNull IDatabase db, @NonNull CourseAPI courseApi,
+                                 @NonNull LoginPrefs loginPrefs, @NonNull Config config) {
+        this.context = context;
+        this.db = db;
+        this.courseApi = courseApi;
+        this.loginPrefs = loginPrefs;
+        this.flushIntervalMs = TimeUnit.SECONDS.toMillis(
+                config.getBlockCompletionFlushIntervalSeconds());
+        context.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Records the completion of a block, which is reported on the next flush.
+     *
+     * @param courseId Id of the course the block belongs to.
+     * @param blockId  Id of the completed block.
+     */
+    public void markCompleted(@NonNull String courseId, @NonNull String blockId) {
+        db.addPendingBlockCompletion(courseId, blockId, newWriteCallback());
+        scheduleFlush(flushIntervalMs);
+    }
+
+    /**
+     * Reports all the pending block completions, unless a flush is already in progress or the
+     * device is offline.
+     */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        if (flushing) {
+            flushRequested = true;
+            return;
+        }
+        if (loginPrefs.getHashedUsername() == null || !NetworkUtil.isConnected(context)) {
+            return;
+        }
+        flushing = true;
+        flushRequested = false;
+        db.getPendingBlockCompletions(new DataCallback<Map<String, List<String>>>(true) {
+            @Override
+            public void onResult(Map<String, List<String>> result) {
+                report(result == null ? Collections.emptyMap() : result);
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                logger.error(ex);
+                onFlushDone(false);
+            }
+        });
+    }
+
+    private void report(@NonNull Map<String, List<String>> completions) {
+        final BatchTracker tracker = new BatchTracker();
+        for (Map.Entry<String, List<String>> entry : completions.entrySet()) {
+            final List<String> blockIds = entry.getValue();
+            for (int start = 0; start < blockIds.size(); start += MAX_BATCH_SIZE) {
+                final List<String> batch = blockIds.subList(start,
+                        Math.min(start + MAX_BATCH_SIZE, blockIds.size()));
+                reportBatch(entry.getKey(), batch, tracker);
+            }
+        }
+        tracker.onAllBatchesSent();
+    }
+
+    private void reportBatch(@NonNull final String courseId, @NonNull final List<String> blockIds,
+                             @NonNull final BatchTracker tracker) {
+        tracker.pendingBatches++;
+        courseApi.markBlocksCompletion(courseId, blockIds.toArray(new String[0]))
+                .enqueue(new Callback<JSONObject>() {
+                    @Override
+                    public void onResponse(@NonNull Call<JSONObject> call,
+                                           @NonNull Response<JSONObject> response) {
+                        if (response.isSuccessful() || isRejected(response.code())) {
+                            if (!response.isSuccessful()) {
+                                logger.warn("Discarding block completions rejected with " +
+                                        response.code() + " for course " + courseId);
+                            }
+                            db.removePendingBlockCompletions(courseId, blockIds,
+                                    newWriteCallback());
+                            tracker.onBatchDone(true);
+                        } else {
+                            tracker.onBatchDone(false);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<JSONObject> call, @NonNull Throwable t) {
+                        logger.error(t);
+                        tracker.onBatchDone(false);
+                    }
+                });
+    }
+
+    /**
+     * @return A callback for the outbox writes, which are executed off the main thread and only
+     * need their failures to be logged.
+     */
+    @NonNull
+    private static <T> DataCallback<T> newWriteCallback() {
+        return new DataCallback<T>() {
+            @Override
+            public void onResult(T result) {
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                logger.error(ex);
+            }
+        };
+    }
+
+    /**
+     * @return <code>true</code> if the server won't ever accept a report that was answered with
+     * the given status code, so that retrying it would be pointless.
+     */
+    private static boolean isRejected(int code) {
+        return code >= 400 && code < 500 && code != HttpStatus.UNAUTHORIZED &&
+                code != HttpStatus.REQUEST_TIMEOUT && code != HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    private void onFlushDone(boolean succeeded) {
+        flushing = false;
+        if (succeeded) {
+            consecutiveFailures = 0;
+            if (flushRequested) {
+                flushRequested = false;
+                flush();
+            }
+            return;
+        }
+        final long delay = Math.min(MAX_RETRY_DELAY_MS,
+                INITIAL_RETRY_DELAY_MS << Math.min(consecutiveFailures, 16));
+        consecutiveFailures++;
+        logger.debug("Retrying block completion reports in " + delay + " ms");
+        scheduleFlush(delay);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, delayMs);
+        }
+    }
+
+    /**
+     * Keeps track of the batches of a flush, to find out when all of them have been answered.
+     */
+    private class BatchTracker {
+        int pendingBatches;
+        boolean allBatchesSent;
+        boolean failed;
+
+        void onBatchDone(boolean succeeded) {
+            pendingBatches--;
+            failed |= !succeeded;
+            finishIfDone();
+        }
+
+        void onAllBatchesSent() {
+            allBatchesSent = true;
+            finishIfDone();
+        }
+
+        private void finishIfDone() {
+            if (allBatchesSent && pendingBatches == 0) {
+                onFlushDone(!failed);
+            }
+        }
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void onEvent(NetworkConnectivityChangeEvent event) {
+        if (NetworkUtil.isConnected(context)) {
+            // Don't wait for the backoff to end, the failures were probably due to the network
+            consecutiveFailures = 0;
+            flush();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
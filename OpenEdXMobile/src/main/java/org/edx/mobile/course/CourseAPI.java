@@ -27,22 +27,16 @@ import org.edx.mobile.model.api.ProfileModel;
 import org.edx.mobile.model.api.SectionEntry;
 import org.edx.mobile.model.api.SummaryModel;
 import org.edx.mobile.model.api.VideoResponseModel;
-import org.edx.mobile.model.course.BlockModel;
-import org.edx.mobile.model.course.BlockType;
 import org.edx.mobile.model.course.CourseBannerInfoModel;
 import org.edx.mobile.model.course.CourseComponent;
 import org.edx.mobile.model.course.CourseDates;
 import org.edx.mobile.model.course.CourseDetail;
 import org.edx.mobile.model.course.CourseStatus;
 import org.edx.mobile.model.course.CourseStructureV1Model;
-import org.edx.mobile.model.course.DiscussionBlockModel;
-import org.edx.mobile.model.course.DiscussionData;
 import org.edx.mobile.model.course.HasDownloadEntry;
-import org.edx.mobile.model.course.HtmlBlockModel;
 import org.edx.mobile.model.course.IBlock;
 import org.edx.mobile.model.course.ResetCourseDates;
 import org.edx.mobile.model.course.VideoBlockModel;
-import org.edx.mobile.model.course.VideoData;
 import org.edx.mobile.model.course.VideoInfo;
 import org.edx.mobile.module.prefs.UserPrefs;
 import org.edx.mobile.util.Config;
@@ -71,12 +65,17 @@ public class CourseAPI {
     @NonNull
     private final UserPrefs userPrefs;
 
+    @NonNull
+    private final CourseStructureSnapshot courseStructureSnapshot;
+
     @Inject
     public CourseAPI(@NonNull Config config, @NonNull CourseService courseService,
-                     @NonNull UserPrefs userPrefs) {
+                     @NonNull UserPrefs userPrefs,
+                     @NonNull CourseStructureSnapshot courseStructureSnapshot) {
         this.config = config;
         this.courseService = courseService;
         this.userPrefs = userPrefs;
+        this.courseStructureSnapshot = courseStructureSnapshot;
     }
 
     @NonNull
@@ -235,11 +234,11 @@ public class CourseAPI {
     }
 
     @NonNull
-    public CourseComponent getCourseStructureFromCache(@NonNull String blocksApiVersion, @NonNull String courseId)
+    public CourseStructureV1Model getCourseStructureModelFromCache(@NonNull String blocksApiVersion,
+                                                                   @NonNull String courseId)
             throws Exception {
-        CourseStructureV1Model model = executeStrict(
-                courseService.getCourseStructure("only-if-cached, max-stale", blocksApiVersion, getUsername(), courseId));
-        return (CourseComponent) normalizeCourseStructure(model, courseId);
+        return executeStrict(courseService.getCourseStructure("only-if-cached, max-stale",
+                blocksApiVersion, getUsername(), courseId));
     }
 
     @NonNull
@@ -254,32 +253,51 @@ public class CourseAPI {
         return courseService.updateCoursewareCelebration(courseId, body);
     }
 
+    /**
+     * Keeps a snapshot of a fetched course structure, to speed up loading it on the next cold
+     * open. The snapshot is only rewritten if the structure has changed.
+     */
+    private void saveCourseStructureSnapshot(@NonNull String courseId,
+                                             @NonNull CourseComponent course) {
+        courseStructureSnapshot.writeAsync(config.getApiUrlVersionConfig().getBlocksApiVersion(),
+                courseId, course);
+    }
+
     public static abstract class GetCourseStructureCallback
             extends ErrorHandlingCallback<CourseStructureV1Model> {
         @NonNull
+        private final CourseAPI courseApi;
+        @NonNull
         private final String courseId;
 
-        public GetCourseStructureCallback(@NonNull final Context context,
+        public GetCourseStructureCallback(@NonNull final CourseAPI courseApi,
+                                          @NonNull final Context context,
                                           @NonNull final String courseId,
                                           @Nullable final TaskProgressCallback progressCallback) {
             super(context, progressCallback);
+            this.courseApi = courseApi;
             this.courseId = courseId;
         }
 
-        public GetCourseStructureCallback(@NonNull final Context context,
+        public GetCourseStructureCallback(@NonNull final CourseAPI courseApi,
+                                          @NonNull final Context context,
                                           @NonNull final String courseId,
                                           @Nullable final TaskProgressCallback progressCallback,
                                           @Nullable final ErrorNotification errorNotification,
                                           @Nullable final SnackbarErrorNotification snackbarErrorNotification,
                                           @Nullable final RefreshListener refreshListener) {
             super(context, progressCallback, errorNotification, snackbarErrorNotification, refreshListener);
+            this.courseApi = courseApi;
             this.courseId = courseId;
         }
 
         @Override
         protected final void onResponse(@NonNull final CourseStructureV1Model model) {
             try {
-                onResponse((CourseComponent) normalizeCourseStructure(model, courseId));
+                final CourseComponent courseComponent =
+                        (CourseComponent) normalizeCourseStructure(model, courseId);
+                courseApi.saveCourseStructureSnapshot(courseId, courseComponent);
+                onResponse(courseComponent);
             } catch (CourseContentNotValidException e) {
                 onFailure(e);
             }
@@ -378,6 +396,10 @@ public class CourseAPI {
 
     /**
      * Mapping from raw data structure from getCourseStructure() API
+     * <p>
+     * The tree of components is built while the response is decoded, see
+     * {@link CourseStructureV1Model.AdapterFactory}, so this only checks that it has a root and
+     * sets the course id on it.
      *
      * @param courseStructureV1Model
      * @return
@@ -386,40 +408,14 @@ public class CourseAPI {
     public static IBlock normalizeCourseStructure(
             @NonNull final CourseStructureV1Model courseStructureV1Model,
             @NonNull final String courseId) throws CourseContentNotValidException {
-        BlockModel topBlock = courseStructureV1Model.getBlockById(courseStructureV1Model.root);
-        if (topBlock == null) {
+        final CourseComponent course = courseStructureV1Model.course;
+        if (course == null) {
             throw new CourseContentNotValidException("Server didn't send a proper response for this course: " + courseStructureV1Model.root);
         }
-        CourseComponent course = new CourseComponent(topBlock, null);
         course.setCourseId(courseId);
-        for (BlockModel m : courseStructureV1Model.getDescendants(topBlock)) {
-            normalizeCourseStructure(courseStructureV1Model, m, course);
-        }
         return course;
     }
 
-    private static void normalizeCourseStructure(
-            @NonNull final CourseStructureV1Model courseStructureV1Model,
-            @NonNull final BlockModel block,
-            @NonNull final CourseComponent parent) {
-
-        //TODO this(block.specialExamInfo == null) needs to be fixed as this a quick fix for LEARNER-8570
-        if (block.isContainer() && block.specialExamInfo == null) {
-            CourseComponent child = new CourseComponent(block, parent);
-            for (BlockModel m : courseStructureV1Model.getDescendants(block)) {
-                normalizeCourseStructure(courseStructureV1Model, m, child);
-            }
-        } else {
-            if (BlockType.VIDEO == block.type && block.data instanceof VideoData) {
-                new VideoBlockModel(block, parent);
-            } else if (BlockType.DISCUSSION == block.type && block.data instanceof DiscussionData) {
-                new DiscussionBlockModel(block, parent);
-            } else { //everything else.. we fallback to html component
-                new HtmlBlockModel(block, parent);
-            }
-        }
-    }
-
     /**
      * we map the new course outline data to old data model.
      * TODO : Ideally we should update all the code to match the new data model.
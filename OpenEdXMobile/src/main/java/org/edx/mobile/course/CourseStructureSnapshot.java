@@ -0,0 +1,551 @@
+package org.edx.mobile.course;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.edx.mobile.event.LogoutEvent;
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.model.api.AuthorizationDenialReason;
+import org.edx.mobile.model.api.TranscriptModel;
+import org.edx.mobile.model.course.BlockCount;
+import org.edx.mobile.model.course.BlockData;
+import org.edx.mobile.model.course.BlockModel;
+import org.edx.mobile.model.course.BlockType;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.CourseStructureV1Model;
+import org.edx.mobile.model.course.DiscussionBlockModel;
+import org.edx.mobile.model.course.DiscussionData;
+import org.edx.mobile.model.course.EncodedVideos;
+import org.edx.mobile.model.course.HtmlBlockModel;
+import org.edx.mobile.model.course.IBlock;
+import org.edx.mobile.model.course.SpecialExamInfo;
+import org.edx.mobile.model.course.VideoBlockModel;
+import org.edx.mobile.model.course.VideoData;
+import org.edx.mobile.model.course.VideoInfo;
+import org.edx.mobile.module.prefs.LoginPrefs;
+import org.edx.mobile.util.Sha1Util;
+import org.greenrobot.eventbus.Subscribe;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * Disk cache of course structures in a compact binary format.
+ * <p>
+ * Parsing the JSON of the blocks API is slow for large courses, so after every successful fetch
+ * the components of the normalized {@link CourseComponent} tree are written as the blocks they
+ * were created from, in the order of a depth-first traversal, and on a cold open the tree is
+ * rebuilt directly while stream-decoding the file. Snapshots are keyed by the user, the blocks
+ * API version and the course id, and a snapshot written in a different {@link #FORMAT_VERSION}
+ * is ignored.
+ * <p>
+ * A snapshot is only rewritten when the structure has changed, and the least recently used
+ * snapshots are deleted beyond {@link #MAX_SNAPSHOT_COUNT} snapshots or
+ * {@link #MAX_TOTAL_SIZE} bytes. All the snapshots are deleted on logout.
+ */
+@Singleton
+public class CourseStructureSnapshot {
+
+    private static final Logger logger = new Logger(CourseStructureSnapshot.class.getName());
+
+    private static final int MAGIC = 0x65645853;
+    /**
+     * Must be incremented whenever the encoding below, or the fields of the encoded models change.
+     */
+    @VisibleForTesting
+    static final int FORMAT_VERSION = 1;
+
+    private static final String DIRECTORY_NAME = "course-snapshots";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    @VisibleForTesting
+    static final int MAX_SNAPSHOT_COUNT = 20;
+    @VisibleForTesting
+    static final long MAX_TOTAL_SIZE = 16 * 1024 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte NODE_CONTAINER = 0;
+    private static final byte NODE_LEAF = 1;
+
+    private static final byte DATA_NONE = 0;
+    private static final byte DATA_BLOCK = 1;
+    private static final byte DATA_VIDEO = 2;
+    private static final byte DATA_DISCUSSION = 3;
+
+    @NonNull
+    private final File directory;
+    @NonNull
+    private final LoginPrefs loginPrefs;
+    @NonNull
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+    @Inject
+    public CourseStructureSnapshot(@ApplicationContext @NonNull Context context,
+                                   @NonNull LoginPrefs loginPrefs) {
+        this.directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        this.loginPrefs = loginPrefs;
+    }
+
+    /**
+     * Reads the snapshot of a course structure.
+     * <p>
+     * <b>WARNING:</b> This function does disk I/O and should be called asynchronously.
+     *
+     * @param blocksApiVersion Version of the blocks API the structure was fetched with.
+     * @param courseId         Id of the course.
+     * @return The normalized course structure, or null if there is no valid snapshot of it.
+     */
+    @Nullable
+    public CourseComponent read(@NonNull String blocksApiVersion, @NonNull String courseId) {
+        final File file = getFile(blocksApiVersion, courseId);
+        if (file == null) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            final CourseComponent course = decode(in, courseId);
+            // Marks it as recently used, so that it's the last to be evicted
+            file.setLastModified(System.currentTimeMillis());
+            return course;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // Outdated or corrupt snapshot, the structure will be parsed again and rewritten
+            logger.warn("Discarding the snapshot of " + courseId + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of a course structure on a background thread, replacing any previous
+     * snapshot of the same course unless the structure hasn't changed.
+     *
+     * The tree is read on the background thread, so a completion marked in the meantime may be
+     * included in the snapshot, as it would be in the next fetched structure.
+     *
+     * @param blocksApiVersion Version of the blocks API the structure was fetched with.
+     * @param courseId         Id of the course.
+     * @param course           The normalized course structure.
+     */
+    public void writeAsync(@NonNull String blocksApiVersion, @NonNull String courseId,
+                           @NonNull CourseComponent course) {
+        final String hashedUsername = loginPrefs.getHashedUsername();
+        final File file = getFile(hashedUsername, blocksApiVersion, courseId);
+        if (file == null) {
+            return;
+        }
+        writeExecutor.execute(() -> {
+            if (!hashedUsername.equals(loginPrefs.getHashedUsername())) {
+                // The user has logged out since the structure was fetched
+                return;
+            }
+            // Write to a temporary file first so that readers never see a partial snapshot
+            final File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+            try {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                encode(course, bytes);
+                final byte[] snapshot = bytes.toByteArray();
+                if (hasContent(file, snapshot)) {
+                    // Unchanged, e.g. when the structure was served from the HTTP cache
+                    file.setLastModified(System.currentTimeMillis());
+                    return;
+                }
+                if (!directory.exists() && !directory.mkdirs()) {
+                    throw new IOException("Unable to create " + directory);
+                }
+                try (OutputStream out = new FileOutputStream(tempFile)) {
+                    out.write(snapshot);
+                }
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Unable to rename " + tempFile);
+                }
+                trim();
+            } catch (IOException | RuntimeException e) {
+                logger.error(e);
+                tempFile.delete();
+            }
+        });
+    }
+
+    /**
+     * Deletes the snapshots of all the users on a background thread, after any pending write.
+     */
+    public void clear() {
+        writeExecutor.execute(() -> {
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Callback from EventBus, the application registers the {@link CourseStructureSnapshot}
+     * singleton, so that the snapshots are deleted on a forced logout as well.
+     */
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void onEvent(LogoutEvent event) {
+        clear();
+    }
+
+    /**
+     * @return <code>true</code> if the file exists and has exactly the given content.
+     */
+    private static boolean hasContent(@NonNull File file, @NonNull byte[] content) {
+        if (file.length() != content.length) {
+            return false;
+        }
+        final byte[] fileContent = new byte[content.length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(fileContent);
+        } catch (IOException e) {
+            return false;
+        }
+        return Arrays.equals(content, fileContent);
+    }
+
+    /**
+     * Deletes the least recently used snapshots beyond the maximum count and total size.
+     */
+    private void trim() {
+        final File[] files = directory.listFiles(
+                file -> !file.getName().endsWith(TEMP_FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        // Sorted by the time they were last written or read, the most recent first
+        final long[] lastModified = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(lastModified[b], lastModified[a]));
+        long totalSize = 0;
+        for (int i = 0; i < order.length; i++) {
+            final File file = files[order[i]];
+            totalSize += file.length();
+            if (i >= MAX_SNAPSHOT_COUNT || totalSize > MAX_TOTAL_SIZE) {
+                file.delete();
+            }
+        }
+    }
+
+    @Nullable
+    private File getFile(@NonNull String blocksApiVersion, @NonNull String courseId) {
+        return getFile(loginPrefs.getHashedUsername(), blocksApiVersion, courseId);
+    }
+
+    @Nullable
+    private File getFile(@Nullable String hashedUsername, @NonNull String blocksApiVersion,
+                         @NonNull String courseId) {
+        if (hashedUsername == null) {
+            return null;
+        }
+        return new File(directory, hashedUsername + "_"
+                + Sha1Util.SHA1(blocksApiVersion + "/" + courseId));
+    }
+
+    /**
+     * Encodes the components of a course structure in the order of a depth-first traversal, each
+     * as the block it was created from.
+     */
+    @VisibleForTesting
+    static void encode(@NonNull CourseComponent course, @NonNull OutputStream stream)
+            throws IOException {
+        final DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        // The root is always a container
+        writeBlock(out, course.toBlockModel());
+        writeChildren(out, course);
+        out.flush();
+    }
+
+    private static void writeNode(@NonNull DataOutputStream out,
+                                  @NonNull CourseComponent component) throws IOException {
+        if (isLeaf(component)) {
+            out.writeByte(NODE_LEAF);
+            writeBlock(out, component.toBlockModel());
+        } else {
+            out.writeByte(NODE_CONTAINER);
+            writeBlock(out, component.toBlockModel());
+            writeChildren(out, component);
+        }
+    }
+
+    private static void writeChildren(@NonNull DataOutputStream out,
+                                      @NonNull CourseComponent component) throws IOException {
+        final List<IBlock> children = component.getChildren();
+        out.writeInt(children.size());
+        for (IBlock child : children) {
+            writeNode(out, (CourseComponent) child);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the component was created by
+     * {@link CourseStructureV1Model#newLeafComponent}.
+     */
+    private static boolean isLeaf(@NonNull CourseComponent component) {
+        return component instanceof VideoBlockModel || component instanceof DiscussionBlockModel
+                || component instanceof HtmlBlockModel;
+    }
+
+    private static void writeBlock(@NonNull DataOutputStream out, @NonNull BlockModel block)
+            throws IOException {
+        writeString(out, block.id);
+        writeString(out, block.blockId);
+        writeString(out, block.type == null ? null : block.type.name());
+        writeString(out, block.displayName);
+        out.writeBoolean(block.graded);
+        out.writeBoolean(block.studentViewMultiDevice);
+        writeString(out, block.studentViewUrl);
+        out.writeInt(block.blockCounts == null ? -1 : block.blockCounts.videoCount);
+        writeString(out, block.lmsWebUrl);
+        writeString(out, block.format);
+        writeString(out, block.dueDate);
+        out.writeInt(block.completion);
+        writeString(out, block.authorizationDenialMessage);
+        writeString(out, block.authorizationDenialReason == null ? null :
+                block.authorizationDenialReason.name());
+        out.writeBoolean(block.specialExamInfo != null);
+        if (block.specialExamInfo != null) {
+            writeString(out, block.specialExamInfo.getShortDescription());
+            writeString(out, block.specialExamInfo.getSuggestedIcon());
+            out.writeBoolean(block.specialExamInfo.getInCompletedState());
+        }
+        writeData(out, block.data);
+    }
+
+    private static void writeData(@NonNull DataOutputStream out, @Nullable BlockData data)
+            throws IOException {
+        if (data instanceof VideoData) {
+            final VideoData videoData = (VideoData) data;
+            out.writeByte(DATA_VIDEO);
+            out.writeLong(videoData.duration);
+            out.writeBoolean(videoData.onlyOnWeb);
+            out.writeInt(videoData.transcripts == null ? -1 : videoData.transcripts.size());
+            if (videoData.transcripts != null) {
+                for (Map.Entry<String, String> entry : videoData.transcripts.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue());
+                }
+            }
+            out.writeInt(videoData.allSources == null ? -1 : videoData.allSources.length);
+            if (videoData.allSources != null) {
+                for (String source : videoData.allSources) {
+                    writeString(out, source);
+                }
+            }
+            final EncodedVideos encodedVideos = videoData.encodedVideos;
+            out.writeBoolean(encodedVideos != null);
+            if (encodedVideos != null) {
+                writeVideoInfo(out, encodedVideos.hls);
+                writeVideoInfo(out, encodedVideos.getFallback());
+                writeVideoInfo(out, encodedVideos.getDesktopMp4());
+                writeVideoInfo(out, encodedVideos.mobileHigh);
+                writeVideoInfo(out, encodedVideos.mobileLow);
+                writeVideoInfo(out, encodedVideos.youtube);
+            }
+        } else if (data instanceof DiscussionData) {
+            out.writeByte(DATA_DISCUSSION);
+            writeString(out, ((DiscussionData) data).topicId);
+        } else if (data != null) {
+            out.writeByte(DATA_BLOCK);
+        } else {
+            out.writeByte(DATA_NONE);
+        }
+    }
+
+    private static void writeVideoInfo(@NonNull DataOutputStream out, @Nullable VideoInfo info)
+            throws IOException {
+        out.writeBoolean(info != null);
+        if (info != null) {
+            writeString(out, info.url);
+            out.writeLong(info.fileSize);
+        }
+    }
+
+    private static void writeString(@NonNull DataOutputStream out, @Nullable String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Rebuilds the normalized course structure from its encoded blocks.
+     */
+    @VisibleForTesting
+    @NonNull
+    static CourseComponent decode(@NonNull InputStream stream, @NonNull String courseId)
+            throws IOException {
+        final DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a course structure snapshot");
+        }
+        final int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        final CourseComponent course = new CourseComponent(readBlock(in), null);
+        course.setCourseId(courseId);
+        readChildren(in, course);
+        return course;
+    }
+
+    private static void readChildren(@NonNull DataInputStream in, @NonNull CourseComponent parent)
+            throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final byte node = in.readByte();
+            final BlockModel block = readBlock(in);
+            if (node == NODE_CONTAINER) {
+                readChildren(in, new CourseComponent(block, parent));
+            } else {
+                CourseStructureV1Model.newLeafComponent(block, parent);
+            }
+        }
+    }
+
+    @NonNull
+    private static BlockModel readBlock(@NonNull DataInputStream in) throws IOException {
+        final BlockModel block = new BlockModel();
+        block.id = readString(in);
+        block.blockId = readString(in);
+        block.type = readEnum(BlockType.class, readString(in));
+        block.displayName = readString(in);
+        block.graded = in.readBoolean();
+        block.studentViewMultiDevice = in.readBoolean();
+        block.studentViewUrl = readString(in);
+        final int videoCount = in.readInt();
+        if (videoCount >= 0) {
+            block.blockCounts = new BlockCount();
+            block.blockCounts.videoCount = videoCount;
+        }
+        block.lmsWebUrl = readString(in);
+        block.format = readString(in);
+        block.dueDate = readString(in);
+        block.completion = in.readInt();
+        block.authorizationDenialMessage = readString(in);
+        block.authorizationDenialReason = readEnum(AuthorizationDenialReason.class, readString(in));
+        if (in.readBoolean()) {
+            block.specialExamInfo = new SpecialExamInfo(readString(in), readString(in),
+                    in.readBoolean());
+        }
+        block.data = readData(in);
+        return block;
+    }
+
+    @Nullable
+    private static BlockData readData(@NonNull DataInputStream in) throws IOException {
+        switch (in.readByte()) {
+            case DATA_VIDEO: {
+                final VideoData videoData = new VideoData();
+                videoData.duration = in.readLong();
+                videoData.onlyOnWeb = in.readBoolean();
+                final int transcriptCount = in.readInt();
+                if (transcriptCount >= 0) {
+                    videoData.transcripts = new TranscriptModel();
+                    for (int i = 0; i < transcriptCount; i++) {
+                        videoData.transcripts.put(readString(in), readString(in));
+                    }
+                }
+                final int sourceCount = in.readInt();
+                if (sourceCount >= 0) {
+                    videoData.allSources = new String[sourceCount];
+                    for (int i = 0; i < sourceCount; i++) {
+                        videoData.allSources[i] = readString(in);
+                    }
+                }
+                if (in.readBoolean()) {
+                    final EncodedVideos encodedVideos = new EncodedVideos();
+                    encodedVideos.hls = readVideoInfo(in);
+                    encodedVideos.setFallback(readVideoInfo(in));
+                    encodedVideos.setDesktopMp4(readVideoInfo(in));
+                    encodedVideos.mobileHigh = readVideoInfo(in);
+                    encodedVideos.mobileLow = readVideoInfo(in);
+                    encodedVideos.youtube = readVideoInfo(in);
+                    videoData.encodedVideos = encodedVideos;
+                }
+                return videoData;
+            }
+            case DATA_DISCUSSION: {
+                final DiscussionData discussionData = new DiscussionData();
+                discussionData.topicId = readString(in);
+                return discussionData;
+            }
+            case DATA_BLOCK:
+                return new BlockData();
+            case DATA_NONE:
+                return null;
+            default:
+                throw new IOException("Unknown block data");
+        }
+    }
+
+    @Nullable
+    private static VideoInfo readVideoInfo(@NonNull DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        final VideoInfo info = new VideoInfo();
+        info.url = readString(in);
+        info.fileSize = in.readLong();
+        return info;
+    }
+
+    @Nullable
+    private static String readString(@NonNull DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Nullable
+    private static <E extends Enum<E>> E readEnum(@NonNull Class<E> type, @Nullable String name)
+            throws IOException {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + " " + name);
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package org.edx.mobile.course;
+
+import android.content.Context;
+import android.webkit.CookieManager;
+import android.webkit.MimeTypeMap;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebSettings;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import org.edx.mobile.http.provider.OkHttpClientProvider;
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.HtmlBlockModel;
+import org.edx.mobile.util.NetworkUtil;
+import org.edx.mobile.util.Sha1Util;
+import org.edx.mobile.view.custom.EdxWebView;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.HashingSink;
+import okio.Okio;
+
+/**
+ * Packages the HTML course units for offline use, so that they can be viewed in the web views
+ * along with the downloaded videos.
+ * <p>
+ * The page of each unit, and the scripts, style sheets and images it references, are stored in a
+ * content-addressed store: every response body is written once under its SHA-256 hash, so that
+ * the assets shared by units and courses are only stored once. Each course has a manifest that
+ * maps the URLs of its packaged pages and assets to these objects, and objects are deleted once
+ * no manifest references them anymore.
+ * <p>
+ * {@link #get(WebResourceRequest)} serves the packaged assets, and the packaged pages when the
+ * device is offline, since the pages served online reflect the latest state of the learner.
+ * <p>
+ * Assets larger than {@link #MAX_OBJECT_SIZE} aren't packaged, and the units of a course stop
+ * being packaged once its package reaches {@link #MAX_COURSE_PACKAGE_SIZE}.
+ */
+@Singleton
+public class CourseUnitPackager {
+
+    private static final Logger logger = new Logger(CourseUnitPackager.class.getName());
+
+    private static final String DIRECTORY_NAME = "unit-packages";
+    private static final String OBJECTS_DIRECTORY_NAME = "objects";
+    private static final String MANIFESTS_DIRECTORY_NAME = "courses";
+    private static final String MIME_TYPE_HTML = "text/html";
+    private static final String MIME_TYPE_CSS = "text/css";
+    private static final String MIME_TYPE_DEFAULT = "application/octet-stream";
+
+    /* Fonts and images referenced by the style sheets */
+    private static final Pattern CSS_URL_PATTERN =
+            Pattern.compile("url\\(\\s*[\"']?([^\"')]+)[\"']?\\s*\\)");
+    private static final int MAX_CSS_URLS = 16;
+
+    @VisibleForTesting
+    static final long MAX_OBJECT_SIZE = 10 * 1024 * 1024;
+    @VisibleForTesting
+    static final long MAX_COURSE_PACKAGE_SIZE = 100 * 1024 * 1024;
+
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final OkHttpClientProvider okHttpClientProvider;
+    @NonNull
+    private final Gson gson;
+    @NonNull
+    private final File objectsDirectory;
+    @NonNull
+    private final File manifestsDirectory;
+    @NonNull
+    private final Executor executor;
+
+    /* The fields below are guarded by this, and loaded from the manifests when first needed */
+    @Nullable
+    private Map<String, Manifest> manifests;
+    @Nullable
+    private Map<String, Resource> index;
+
+    @Inject
+    public CourseUnitPackager(@ApplicationContext @NonNull Context context,
+                              @NonNull OkHttpClientProvider okHttpClientProvider,
+                              @NonNull Gson gson) {
+        this(context, okHttpClientProvider, gson, Executors.newSingleThreadExecutor());
+    }
+
+    @VisibleForTesting
+    CourseUnitPackager(@NonNull Context context,
+                       @NonNull OkHttpClientProvider okHttpClientProvider,
+                       @NonNull Gson gson, @NonNull Executor executor) {
+        this.context = context;
+        this.okHttpClientProvider = okHttpClientProvider;
+        this.gson = gson;
+        this.executor = executor;
+        final File directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        this.objectsDirectory = new File(directory, OBJECTS_DIRECTORY_NAME);
+        this.manifestsDirectory = new File(directory, MANIFESTS_DIRECTORY_NAME);
+        // Load the manifests off the main thread, before the web views look the pages up
+        executor.execute(this::getIndex);
+    }
+
+    /**
+     * Packages the HTML units of a course in the background, skipping the units that have already
+     * been packaged. Must be called on the main thread, as the session cookie and user agent of
+     * the web views are read here.
+     *
+     * @param courseId Id of the course.
+     * @param units    The units to package, units that can't be viewed in the app are ignored.
+     */
+    public void addUnits(@NonNull final String courseId, @NonNull List<CourseComponent> units) {
+        final List<HttpUrl> pageUrls = new ArrayList<>();
+        for (CourseComponent unit : units) {
+            if (unit instanceof HtmlBlockModel && unit.isMultiDevice() &&
+                    unit.getBlockUrl() != null) {
+                final HttpUrl url = HttpUrl.parse(unit.getBlockUrl());
+                if (url != null) {
+                    pageUrls.add(url);
+                }
+            }
+        }
+        if (pageUrls.isEmpty()) {
+            return;
+        }
+        final String userAgent = EdxWebView.getUserAgent(context,
+                WebSettings.getDefaultUserAgent(context));
+        executor.execute(() -> {
+            for (HttpUrl url : pageUrls) {
+                if (isPackaged(courseId, url)) {
+                    continue;
+                }
+                if (getPackageSize(courseId) >= MAX_COURSE_PACKAGE_SIZE) {
+                    logger.warn("The package of " + courseId + " is full, skipping its " +
+                            "remaining units");
+                    return;
+                }
+                packagePage(courseId, url, userAgent);
+            }
+        });
+    }
+
+    /**
+     * Removes the packages of units of a course, along with the assets that no other packaged
+     * unit needs.
+     *
+     * @param courseId Id of the course.
+     * @param units    The units to remove.
+     */
+    public void removeUnits(@NonNull final String courseId, @NonNull List<CourseComponent> units) {
+        final Set<String> pageUrls = new HashSet<>();
+        for (CourseComponent unit : units) {
+            if (unit.getBlockUrl() != null) {
+                final HttpUrl url = HttpUrl.parse(unit.getBlockUrl());
+                if (url != null) {
+                    pageUrls.add(url.toString());
+                }
+            }
+        }
+        executor.execute(() -> {
+            synchronized (this) {
+                final Manifest manifest = getManifests().get(courseId);
+                if (manifest == null) {
+                    return;
+                }
+                for (String url : pageUrls) {
+                    final Resource page = manifest.resources.remove(url);
+                    if (page != null && page.subResources != null) {
+                        for (String subResourceUrl : page.subResources) {
+                            if (!manifest.isReferenced(subResourceUrl)) {
+                                manifest.resources.remove(subResourceUrl);
+                            }
+                        }
+                    }
+                }
+                writeManifest(manifest);
+                deleteUnreferencedObjects();
+            }
+        });
+    }
+
+    /**
+     * Removes the packages of all the courses, e.g. when the user logs out.
+     */
+    public void removeAll() {
+        executor.execute(() -> {
+            synchronized (this) {
+                for (Manifest manifest : getManifests().values()) {
+                    getManifestFile(manifest.courseId).delete();
+                }
+                manifests = new HashMap<>();
+                index = new HashMap<>();
+                deleteUnreferencedObjects();
+            }
+        });
+    }
+
+    /**
+     * @param url URL of a page.
+     * @return <code>true</code> if the page has been packaged for any course.
+     */
+    public synchronized boolean isPackaged(@NonNull String url) {
+        final HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return false;
+        }
+        final Resource resource = getIndex().get(httpUrl.toString());
+        return resource != null && resource.isPage();
+    }
+
+    /**
+     * @param request A request of a web view.
+     * @return The packaged response of the request, or <code>null</code> if the request has to be
+     * made over the network.
+     */
+    @Nullable
+    public WebResourceResponse get(@NonNull WebResourceRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        final HttpUrl url = HttpUrl.parse(request.getUrl().toString());
+        if (url == null) {
+            return null;
+        }
+        final Resource resource;
+        synchronized (this) {
+            resource = getIndex().get(url.toString());
+        }
+        if (resource == null || (resource.isPage() && NetworkUtil.isConnected(context))) {
+            return null;
+        }
+        try {
+            // The web view reads the object straight from the file
+            return new WebResourceResponse(resource.mimeType, resource.encoding,
+                    new FileInputStream(new File(objectsDirectory, resource.hash)));
+        } catch (FileNotFoundException e) {
+            logger.warn("Missing packaged object of " + url);
+            return null;
+        }
+    }
+
+    @WorkerThread
+    private void packagePage(@NonNull String courseId, @NonNull HttpUrl url,
+                             @NonNull String userAgent) {
+        final Resource page = fetch(url, userAgent);
+        if (page == null) {
+            return;
+        }
+        final Map<String, Resource> resources = new LinkedHashMap<>();
+        if (MIME_TYPE_HTML.equals(page.mimeType)) {
+            final Set<HttpUrl> subResourceUrls;
+            try {
+                subResourceUrls = CourseUnitPrefetcher.findSubResources(url, readText(page));
+            } catch (IOException e) {
+                logger.warn("Unable to read the package of " + url + ": " + e.getMessage());
+                return;
+            }
+            for (HttpUrl subResourceUrl : subResourceUrls) {
+                addSubResource(courseId, subResourceUrl, userAgent, resources);
+            }
+        }
+        page.subResources = new ArrayList<>(resources.keySet());
+        resources.put(url.toString(), page);
+        synchronized (this) {
+            Manifest manifest = getManifests().get(courseId);
+            if (manifest == null) {
+                manifest = new Manifest(courseId);
+                getManifests().put(courseId, manifest);
+            }
+            manifest.resources.putAll(resources);
+            getIndex().putAll(resources);
+            writeManifest(manifest);
+        }
+    }
+
+    @WorkerThread
+    private void addSubResource(@NonNull String courseId, @NonNull HttpUrl url,
+                                @NonNull String userAgent,
+                                @NonNull Map<String, Resource> resources) {
+        if (resources.containsKey(url.toString())) {
+            return;
+        }
+        Resource resource;
+        synchronized (this) {
+            final Manifest manifest = getManifests().get(courseId);
+            resource = manifest == null ? null : manifest.resources.get(url.toString());
+            if (resource == null) {
+                // Reuse the assets packaged for other courses
+                resource = getIndex().get(url.toString());
+            }
+        }
+        final boolean isFetched = resource == null;
+        if (isFetched) {
+            resource = fetch(url, userAgent);
+            if (resource == null) {
+                return;
+            }
+        }
+        resources.put(url.toString(), resource);
+        if (isFetched && MIME_TYPE_CSS.equals(resource.mimeType)) {
+            try {
+                for (HttpUrl cssUrl : findCssUrls(url, readText(resource))) {
+                    addSubResource(courseId, cssUrl, userAgent, resources);
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to read the package of " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fetches a page or asset, and writes its body in the store while hashing it.
+     *
+     * @return The stored resource, or null if it couldn't be fetched.
+     */
+    @WorkerThread
+    @Nullable
+    private Resource fetch(@NonNull HttpUrl url, @NonNull String userAgent) {
+        final Request.Builder request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", userAgent);
+        final String cookie = CookieManager.getInstance().getCookie(url.toString());
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        try (Response response = okHttpClientProvider.getNonOAuthBased()
+                .newCall(request.build()).execute()) {
+            final ResponseBody body = response.body();
+            // Redirects mean that the session has expired, the login page isn't packaged
+            if (!response.isSuccessful() || response.priorResponse() != null || body == null ||
+                    body.contentLength() > MAX_OBJECT_SIZE) {
+                return null;
+            }
+            if (!objectsDirectory.exists() && !objectsDirectory.mkdirs()) {
+                return null;
+            }
+            final File tempFile = File.createTempFile("object", null, objectsDirectory);
+            final String hash;
+            try {
+                final HashingSink hashingSink = HashingSink.sha256(Okio.sink(tempFile));
+                try (BufferedSink sink = Okio.buffer(hashingSink)) {
+                    // The length of chunked bodies is only known once they're read
+                    final BufferedSource source = body.source();
+                    final Buffer buffer = sink.getBuffer();
+                    long size = 0;
+                    for (long read; (read = source.read(buffer, 8192)) != -1; ) {
+                        size += read;
+                        if (size > MAX_OBJECT_SIZE) {
+                            logger.debug("Not packaging " + url + ", it's too large");
+                            return null;
+                        }
+                        sink.emitCompleteSegments();
+                    }
+                }
+                hash = hashingSink.hash().hex();
+                final File objectFile = new File(objectsDirectory, hash);
+                // Identical content is only stored once
+                if (!objectFile.exists() && !tempFile.renameTo(objectFile)) {
+                    return null;
+                }
+            } finally {
+                tempFile.delete();
+            }
+            return new Resource(hash, getMimeType(url, body.contentType()),
+                    getEncoding(body.contentType()));
+        } catch (IOException e) {
+            logger.debug("Unable to package " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static Set<HttpUrl> findCssUrls(@NonNull HttpUrl styleSheetUrl, @NonNull String css) {
+        final Set<HttpUrl> urls = new HashSet<>();
+        final Matcher matcher = CSS_URL_PATTERN.matcher(css);
+        while (matcher.find() && urls.size() < MAX_CSS_URLS) {
+            final String reference = matcher.group(1).trim();
+            if (reference.startsWith("data:")) {
+                continue;
+            }
+            final HttpUrl url = styleSheetUrl.resolve(reference);
+            if (url != null && url.host().equals(styleSheetUrl.host())) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static String getMimeType(@NonNull HttpUrl url, @Nullable MediaType contentType) {
+        if (contentType != null) {
+            return contentType.type() + "/" + contentType.subtype();
+        }
+        final String extension = MimeTypeMap.getFileExtensionFromUrl(url.toString());
+        final String mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        return mimeType == null ? MIME_TYPE_DEFAULT : mimeType;
+    }
+
+    @Nullable
+    private static String getEncoding(@Nullable MediaType contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        final Charset charset = contentType.charset();
+        if (charset != null) {
+            return charset.name();
+        }
+        return "text".equals(contentType.type()) ? StandardCharsets.UTF_8.name() : null;
+    }
+
+    @NonNull
+    private String readText(@NonNull Resource resource) throws IOException {
+        final Charset charset = resource.encoding == null ? StandardCharsets.UTF_8 :
+                Charset.forName(resource.encoding);
+        try (BufferedSource source = Okio.buffer(Okio.source(
+                new File(objectsDirectory, resource.hash)))) {
+            return source.readString(charset);
+        }
+    }
+
+    /**
+     * @return The size of the objects stored for the package of a course.
+     */
+    private synchronized long getPackageSize(@NonNull String courseId) {
+        final Manifest manifest = getManifests().get(courseId);
+        if (manifest == null) {
+            return 0;
+        }
+        final Set<String> hashes = new HashSet<>();
+        long size = 0;
+        for (Resource resource : manifest.resources.values()) {
+            if (hashes.add(resource.hash)) {
+                size += new File(objectsDirectory, resource.hash).length();
+            }
+        }
+        return size;
+    }
+
+    private synchronized boolean isPackaged(@NonNull String courseId, @NonNull HttpUrl url) {
+        final Manifest manifest = getManifests().get(courseId);
+        return manifest != null && manifest.resources.containsKey(url.toString());
+    }
+
+    @NonNull
+    private synchronized Map<String, Manifest> getManifests() {
+        if (manifests == null) {
+            manifests = new HashMap<>();
+            final File[] files = manifestsDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    try (Reader reader = new FileReader(file)) {
+                        final Manifest manifest = gson.fromJson(reader, Manifest.class);
+                        if (manifest != null && manifest.courseId != null &&
+                                manifest.resources != null) {
+                            manifests.put(manifest.courseId, manifest);
+                        }
+                    } catch (IOException | JsonParseException e) {
+                        logger.warn("Discarding the package manifest " + file + ": " +
+                                e.getMessage());
+                        file.delete();
+                    }
+                }
+            }
+        }
+        return manifests;
+    }
+
+    @NonNull
+    private synchronized Map<String, Resource> getIndex() {
+        if (index == null) {
+            index = new HashMap<>();
+            for (Manifest manifest : getManifests().values()) {
+                index.putAll(manifest.resources);
+            }
+        }
+        return index;
+    }
+
+    private synchronized void writeManifest(@NonNull Manifest manifest) {
+        final File file = getManifestFile(manifest.courseId);
+        if (manifest.resources.isEmpty()) {
+            file.delete();
+            getManifests().remove(manifest.courseId);
+        } else if (manifestsDirectory.exists() || manifestsDirectory.mkdirs()) {
+            try (Writer writer = new FileWriter(file)) {
+                gson.toJson(manifest, writer);
+            } catch (IOException e) {
+                logger.error(e);
+            }
+        }
+        index = null;
+    }
+
+    /**
+     * Deletes the objects that aren't referenced by any manifest anymore.
+     */
+    private synchronized void deleteUnreferencedObjects() {
+        final Set<String> referencedHashes = new HashSet<>();
+        for (Resource resource : getIndex().values()) {
+            referencedHashes.add(resource.hash);
+        }
+        final File[] files = objectsDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!referencedHashes.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private File getManifestFile(@NonNull String courseId) {
+        return new File(manifestsDirectory, Sha1Util.SHA1(courseId) + ".json");
+    }
+
+    /* The field names are kept by the annotations, as the manifests are stored as JSON */
+    private static class Manifest {
+        @SerializedName("courseId")
+        String courseId;
+        @SerializedName("resources")
+        Map<String, Resource> resources = new HashMap<>();
+
+        Manifest(@NonNull String courseId) {
+            this.courseId = courseId;
+        }
+
+        /**
+         * @return <code>true</code> if any of the packaged pages references the given asset.
+         */
+        boolean isReferenced(@NonNull String subResourceUrl) {
+            for (Resource resource : resources.values()) {
+                if (resource.subResources != null &&
+                        resource.subResources.contains(subResourceUrl)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Resource {
+        @SerializedName("hash")
+        String hash;
+        @SerializedName("mimeType")
+        String mimeType;
+        @SerializedName("encoding")
+        @Nullable
+        String encoding;
+        /* The URLs of the assets of a page, null for the assets themselves */
+        @SerializedName("subResources")
+        @Nullable
+        List<String> subResources;
+
+        Resource(@NonNull String hash, @NonNull String mimeType, @Nullable String encoding) {
+            this.hash = hash;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+        }
+
+        boolean isPage() {
+            return subResources != null;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package org.edx.mobile.course;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.LruCache;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebSettings;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.edx.mobile.http.provider.OkHttpClientProvider;
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.HtmlBlockModel;
+import org.edx.mobile.services.EdxCookieManager;
+import org.edx.mobile.util.Config;
+import org.edx.mobile.util.NetworkUtil;
+import org.edx.mobile.view.custom.EdxWebView;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Prefetches the HTML of the course units following the one being viewed, along with their
+ * scripts, style sheets and images, so that the web views of these units are served from memory
+ * through {@link #get(WebResourceRequest)} when the learner swipes to them.
+ * <p>
+ * The prefetched pages are authenticated with the session cookie of the web views. As they
+ * reflect the state of the learner, each page is only served once and expires shortly after
+ * being fetched, whereas the sub-resources are served as long as they're cached, unless they
+ * forbid it with <code>Cache-Control: no-store</code>. Everything is dropped on logout, see
+ * {@link #clear()}. Prefetching is disabled on metered networks unless allowed by
+ * {@link Config#getUnitPrefetchConfig()}.
+ * <p>
+ * This comes in front of the preloading of the pager, see
+ * {@link org.edx.mobile.view.custom.PreLoadingListener}: the web views of the neighbouring units
+ * still load them once the visible unit has loaded, and are served the prefetched responses.
+ */
+@Singleton
+public class CourseUnitPrefetcher implements ComponentCallbacks2 {
+
+    private static final Logger logger = new Logger(CourseUnitPrefetcher.class.getName());
+
+    private static final int CACHE_SIZE = 4 * 1024 * 1024; // 4 MiB
+    private static final long MAX_PAGE_SIZE = 1024 * 1024;
+    private static final long MAX_SUB_RESOURCE_SIZE = 512 * 1024;
+    private static final int MAX_SUB_RESOURCES_PER_PAGE = 16;
+    private static final long PAGE_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /* Scripts, images and style sheets referenced by the pages */
+    private static final Pattern SUB_RESOURCE_PATTERN = Pattern.compile(
+            "<(script|img|link)\\b[^>]*?\\b(?:src|href)\\s*=\\s*[\"']([^\"']+)[\"'][^>]*>",
+            Pattern.CASE_INSENSITIVE);
+
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final Config.UnitPrefetchConfig config;
+    @NonNull
+    private final OkHttpClientProvider okHttpClientProvider;
+
+    /* All the fields below are guarded by this */
+    @NonNull
+    private final LruCache<String, Entry> cache = new LruCache<String, Entry>(CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, Entry value) {
+            return value.body.length;
+        }
+    };
+    @NonNull
+    private final Map<String, Call> pageCalls = new HashMap<>();
+    @Nullable
+    private String userAgent;
+    private int hitCount;
+    private int requestCount;
+
+    @Inject
+    public CourseUnitPrefetcher(@ApplicationContext @NonNull Context context,
+                                @NonNull Config config,
+                                @NonNull OkHttpClientProvider okHttpClientProvider) {
+        this.context = context;
+        this.config = config.getUnitPrefetchConfig();
+        this.okHttpClientProvider = okHttpClientProvider;
+        context.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Prefetches the units following the one being viewed, and cancels the prefetching of the
+     * units that no longer follow it. Must be called on the main thread.
+     *
+     * @param units    The units of the course, in their navigation order.
+     * @param position The position of the unit being viewed.
+     */
+    public void prefetch(@NonNull List<CourseComponent> units, int position) {
+        final Set<String> pageUrls = new HashSet<>();
+        if (isPrefetchAllowed()) {
+            final int end = Math.min(units.size(), position + 1 + config.getCount());
+            for (int i = position + 1; i < end; i++) {
+                final HttpUrl url = getPageUrl(units.get(i));
+                if (url != null) {
+                    pageUrls.add(url.toString());
+                }
+            }
+        }
+        synchronized (this) {
+            for (Iterator<Map.Entry<String, Call>> it = pageCalls.entrySet().iterator();
+                 it.hasNext(); ) {
+                final Map.Entry<String, Call> call = it.next();
+                if (!pageUrls.contains(call.getKey())) {
+                    call.getValue().cancel();
+                    it.remove();
+                }
+            }
+            for (String url : pageUrls) {
+                final Entry entry = cache.get(url);
+                if (!pageCalls.containsKey(url) && (entry == null || entry.isExpired())) {
+                    pageCalls.put(url, fetch(HttpUrl.get(url), true));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param request A request of a web view.
+     * @return The prefetched response of the request, or <code>null</code> if the request has to
+     * be made over the network.
+     */
+    @Nullable
+    public synchronized WebResourceResponse get(@NonNull WebResourceRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        final HttpUrl url = HttpUrl.parse(request.getUrl().toString());
+        if (url == null) {
+            return null;
+        }
+        requestCount++;
+        final String key = url.toString();
+        final Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isPage) {
+            // Pages reflect the state of the learner, so they're never served twice
+            cache.remove(key);
+            if (entry.isExpired()) {
+                return null;
+            }
+        }
+        hitCount++;
+        return new WebResourceResponse(entry.mimeType, entry.encoding, 200, "OK",
+                entry.headers, new ByteArrayInputStream(entry.body));
+    }
+
+    /**
+     * @return The ratio of the requests of the web views served from the prefetched responses.
+     */
+    public synchronized float getHitRatio() {
+        return requestCount == 0 ? 0 : (float) hitCount / requestCount;
+    }
+
+    private boolean isPrefetchAllowed() {
+        return config.getCount() > 0 && NetworkUtil.isConnected(context) &&
+                (config.isOnMeteredNetwork() || !NetworkUtil.isActiveNetworkMetered(context)) &&
+                !EdxCookieManager.getSharedInstance(context).isSessionCookieMissingOrExpired();
+    }
+
+    @Nullable
+    private static HttpUrl getPageUrl(@NonNull CourseComponent unit) {
+        if (!(unit instanceof HtmlBlockModel) || !unit.isMultiDevice() ||
+                unit.getBlockUrl() == null) {
+            return null;
+        }
+        return HttpUrl.parse(unit.getBlockUrl());
+    }
+
+    @NonNull
+    private Call fetch(@NonNull final HttpUrl url, final boolean isPage) {
+        final Request.Builder request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", getUserAgent());
+        final String cookie = CookieManager.getInstance().getCookie(url.toString());
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        final Call call = okHttpClientProvider.getNonOAuthBased().newCall(request.build());
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                try (ResponseBody body = response.body()) {
+                    // Redirects mean that the session has expired, the login page isn't cached
+                    if (!response.isSuccessful() || response.priorResponse() != null ||
+                            body == null) {
+                        return;
+                    }
+                    // The pages are only served once, to the navigation they were fetched for
+                    if (!isPage && response.cacheControl().noStore()) {
+                        return;
+                    }
+                    final long maxSize = isPage ? MAX_PAGE_SIZE : MAX_SUB_RESOURCE_SIZE;
+                    if (body.contentLength() > maxSize) {
+                        return;
+                    }
+                    final byte[] bytes = body.source().readByteArray();
+                    if (bytes.length > maxSize) {
+                        return;
+                    }
+                    onFetched(url, isPage, response, body.contentType(), bytes);
+                } catch (IOException e) {
+                    logger.debug("Unable to prefetch " + url + ": " + e.getMessage());
+                } finally {
+                    if (isPage) {
+                        synchronized (CourseUnitPrefetcher.this) {
+                            pageCalls.remove(url.toString());
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                if (isPage) {
+                    synchronized (CourseUnitPrefetcher.this) {
+                        pageCalls.remove(url.toString());
+                    }
+                }
+            }
+        });
+        return call;
+    }
+
+    private void onFetched(@NonNull HttpUrl url, boolean isPage, @NonNull Response response,
+                           @Nullable MediaType contentType, @NonNull byte[] body) {
+        final CookieManager cookieManager = CookieManager.getInstance();
+        for (String setCookie : response.headers("Set-Cookie")) {
+            cookieManager.setCookie(url.toString(), setCookie);
+        }
+        final Entry entry = new Entry(isPage, contentType, getHeaders(response), body);
+        // Scanned before locking, as the web views wait for the lock to be served
+        final Set<HttpUrl> subResourceUrls =
+                isPage && contentType != null && "html".equals(contentType.subtype()) ?
+                        findSubResources(url, entry.getText()) : Collections.emptySet();
+        final List<HttpUrl> fetchedUrls = new ArrayList<>();
+        synchronized (this) {
+            if (isPage && !pageCalls.containsKey(url.toString())) {
+                // The unit no longer follows the viewed one
+                return;
+            }
+            cache.put(url.toString(), entry);
+            for (HttpUrl subResourceUrl : subResourceUrls) {
+                if (cache.get(subResourceUrl.toString()) == null) {
+                    fetchedUrls.add(subResourceUrl);
+                }
+            }
+        }
+        for (HttpUrl subResourceUrl : fetchedUrls) {
+            fetch(subResourceUrl, false);
+        }
+    }
+
+    /**
+     * Cancels the prefetching and drops all the prefetched responses, which belong to the user
+     * who was logged in.
+     */
+    public synchronized void clear() {
+        for (Call call : pageCalls.values()) {
+            call.cancel();
+        }
+        pageCalls.clear();
+        cache.evictAll();
+    }
+
+    /**
+     * @return The URLs of the scripts, images and style sheets of a page that are hosted along
+     * with it.
+     */
+    @VisibleForTesting
+    @NonNull
+    static Set<HttpUrl> findSubResources(@NonNull HttpUrl pageUrl, @NonNull String html) {
+        final Set<HttpUrl> urls = new HashSet<>();
+        final Matcher matcher = SUB_RESOURCE_PATTERN.matcher(html);
+        while (matcher.find() && urls.size() < MAX_SUB_RESOURCES_PER_PAGE) {
+            if ("link".equalsIgnoreCase(matcher.group(1)) &&
+                    !matcher.group().toLowerCase().contains("stylesheet")) {
+                continue;
+            }
+            final HttpUrl url = pageUrl.resolve(matcher.group(2).replace("&amp;", "&"));
+            if (url != null && url.host().equals(pageUrl.host())) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    @NonNull
+    private static Map<String, String> getHeaders(@NonNull Response response) {
+        final Map<String, String> headers = new HashMap<>();
+        for (String name : response.headers().names()) {
+            // The body is served decoded, and the cookies have already been stored
+            if (!"Set-Cookie".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name) &&
+                    !"Content-Encoding".equalsIgnoreCase(name)) {
+                headers.put(name, response.header(name));
+            }
+        }
+        return headers;
+    }
+
+    @NonNull
+    private synchronized String getUserAgent() {
+        if (userAgent == null) {
+            userAgent = EdxWebView.getUserAgent(context, WebSettings.getDefaultUserAgent(context));
+        }
+        return userAgent;
+    }
+
+    private static class Entry {
+        final boolean isPage;
+        @NonNull
+        final String mimeType;
+        @NonNull
+        final String encoding;
+        @NonNull
+        final Map<String, String> headers;
+        @NonNull
+        final byte[] body;
+        final long fetchedAt = System.currentTimeMillis();
+
+        Entry(boolean isPage, @Nullable MediaType contentType,
+              @NonNull Map<String, String> headers, @NonNull byte[] body) {
+            this.isPage = isPage;
+            this.mimeType = contentType == null ? "application/octet-stream" :
+                    contentType.type() + "/" + contentType.subtype();
+            final Charset charset = contentType == null ? null : contentType.charset();
+            this.encoding = (charset == null ? StandardCharsets.UTF_8 : charset).name();
+            this.headers = headers;
+            this.body = body;
+        }
+
+        boolean isExpired() {
+            return isPage && System.currentTimeMillis() - fetchedAt > PAGE_TTL_MS;
+        }
+
+        @NonNull
+        String getText() {
+            return new String(body, Charset.forName(encoding));
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            synchronized (this) {
+                cache.evictAll();
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        synchronized (this) {
+            cache.evictAll();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
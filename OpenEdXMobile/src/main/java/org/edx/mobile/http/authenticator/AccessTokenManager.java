@@ -0,0 +1,181 @@
+package org.edx.mobile.http.authenticator;
+
+import static org.edx.mobile.http.util.CallUtil.executeStrict;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.edx.mobile.authentication.LoginService;
+import org.edx.mobile.http.HttpStatusException;
+import org.edx.mobile.http.constants.ApiConstants;
+import org.edx.mobile.http.provider.RetrofitProvider;
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.model.authentication.AuthResponse;
+import org.edx.mobile.module.prefs.LoginPrefs;
+import org.edx.mobile.util.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.Lazy;
+
+/**
+ * Manages the lifecycle of the OAuth access token, based on the expiry time recorded by
+ * {@link LoginPrefs} when the token was stored.
+ * <p>
+ * Tokens close to their expiry are refreshed in the background ahead of time, and requests about
+ * to be made with an expired token wait for a refresh instead of failing with a 401 response
+ * first. All the callers needing a refresh at the same time share a single refresh call, no lock
+ * is held while it's in progress.
+ */
+@Singleton
+public class AccessTokenManager {
+
+    private final Logger logger = new Logger(getClass().getName());
+
+    /* Tokens expiring within this margin are refreshed before being used */
+    private static final long EXPIRY_MARGIN_MS = TimeUnit.SECONDS.toMillis(30);
+    /* Tokens expiring within this window are refreshed in the background while still in use */
+    private static final long REFRESH_AHEAD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Lazy<Config> config;
+    private final Lazy<RetrofitProvider> retrofitProvider;
+    private final Lazy<LoginPrefs> loginPrefs;
+
+    @NonNull
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    @NonNull
+    private final Object lock = new Object();
+    /* The latest refresh, guarded by the lock */
+    @Nullable
+    private Future<AuthResponse> refresh;
+
+    @Inject
+    public AccessTokenManager(Lazy<Config> config, Lazy<RetrofitProvider> retrofitProvider,
+                              Lazy<LoginPrefs> loginPrefs) {
+        this.config = config;
+        this.retrofitProvider = retrofitProvider;
+        this.loginPrefs = loginPrefs;
+    }
+
+    /**
+     * Makes sure that the current access token can be used for a request. Blocks until the token
+     * has been refreshed if it's expired or about to, and starts refreshing it in the background
+     * if it expires soon. Tokens of unknown expiry are used as is.
+     *
+     * @throws IOException If the token needed to be refreshed, and the refresh call failed.
+     */
+    public void ensureFreshToken() throws IOException {
+        final AuthResponse auth = loginPrefs.get().getCurrentAuth();
+        if (auth == null || !auth.isSuccess() || auth.refresh_token == null) {
+            return;
+        }
+        final long expiryTime = loginPrefs.get().getAuthExpiryTime();
+        if (expiryTime <= 0) {
+            return;
+        }
+        final long remainingTime = expiryTime - System.currentTimeMillis();
+        if (remainingTime <= EXPIRY_MARGIN_MS) {
+            try {
+                await(refresh(auth));
+            } catch (HttpStatusException e) {
+                // The refresh token was rejected, the request will fail with a 401 response
+                logger.warn("Unable to refresh the expired access token: " + e.getMessage());
+            }
+        } else if (remainingTime <= REFRESH_AHEAD_MS) {
+            refresh(auth);
+        }
+    }
+
+    /**
+     * Refreshes the access token unless it has already been refreshed since the given auth was
+     * read, or joins the refresh in progress.
+     *
+     * @param staleAuth The auth response whose access token needs to be replaced.
+     * @return The future result of the refresh.
+     */
+    @NonNull
+    public Future<AuthResponse> refresh(@NonNull AuthResponse staleAuth) {
+        synchronized (lock) {
+            if (refresh != null && !refresh.isDone()) {
+                return refresh;
+            }
+            final AuthResponse currentAuth = loginPrefs.get().getCurrentAuth();
+            if (currentAuth == null || currentAuth.refresh_token == null) {
+                return failed(new IOException("No refresh token available"));
+            }
+            if (currentAuth.access_token != null &&
+                    !currentAuth.access_token.equals(staleAuth.access_token)) {
+                // Another refresh replaced the token in the meantime
+                return completed(currentAuth);
+            }
+            refresh = executor.submit(() -> refreshAccessToken(currentAuth));
+            return refresh;
+        }
+    }
+
+    /**
+     * Waits for a refresh to complete.
+     *
+     * @param refresh The refresh, as returned by {@link #refresh(AuthResponse)}.
+     * @return The refreshed auth response.
+     * @throws IOException         If the refresh call failed.
+     * @throws HttpStatusException If the refresh token was rejected.
+     */
+    @NonNull
+    public static AuthResponse await(@NonNull Future<AuthResponse> refresh)
+            throws IOException, HttpStatusException {
+        try {
+            return refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof HttpStatusException) {
+                throw (HttpStatusException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @NonNull
+    private AuthResponse refreshAccessToken(@NonNull AuthResponse currentAuth)
+            throws IOException, HttpStatusException {
+        final LoginService loginService = retrofitProvider.get().getNonOAuthBased()
+                .create(LoginService.class);
+        final AuthResponse refreshTokenData = executeStrict(loginService.refreshAccessToken(
+                ApiConstants.TOKEN_TYPE_REFRESH, config.get().getOAuthClientId(),
+                currentAuth.refresh_token));
+        loginPrefs.get().storeRefreshTokenResponse(refreshTokenData);
+        return refreshTokenData;
+    }
+
+    @NonNull
+    private static Future<AuthResponse> completed(@NonNull AuthResponse auth) {
+        final FutureTask<AuthResponse> future = new FutureTask<>(() -> auth);
+        future.run();
+        return future;
+    }
+
+    @NonNull
+    private static Future<AuthResponse> failed(@NonNull Exception exception) {
+        final FutureTask<AuthResponse> future = new FutureTask<>(() -> {
+            throw exception;
+        });
+        future.run();
+        return future;
+    }
+}
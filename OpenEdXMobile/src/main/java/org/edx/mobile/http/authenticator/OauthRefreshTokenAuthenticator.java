@@ -1,19 +1,13 @@
 package org.edx.mobile.http.authenticator;
 
-import static org.edx.mobile.http.util.CallUtil.executeStrict;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import org.edx.mobile.authentication.LoginService;
 import org.edx.mobile.event.LogoutEvent;
 import org.edx.mobile.http.HttpStatusException;
-import org.edx.mobile.http.constants.ApiConstants;
-import org.edx.mobile.http.provider.RetrofitProvider;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.authentication.AuthResponse;
 import org.edx.mobile.module.prefs.LoginPrefs;
-import org.edx.mobile.util.Config;
 import org.greenrobot.eventbus.EventBus;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -45,25 +39,27 @@ public class OauthRefreshTokenAuthenticator implements Authenticator {
     private final static String TOKEN_INVALID_GRANT_ERROR_MESSAGE = "invalid_grant";
     private final static String DISABLED_USER_ERROR_MESSAGE = "user_is_disabled";
 
-    Lazy<Config> config;
-
     Lazy<LoginPrefs> loginPrefs;
 
-    Lazy<RetrofitProvider> retrofitProvider;
+    AccessTokenManager accessTokenManager;
 
     @Inject
-    public OauthRefreshTokenAuthenticator(Lazy<Config> config, Lazy<RetrofitProvider> retrofitProvider,
-                                          Lazy<LoginPrefs> loginPrefs
-    ) {
-        this.retrofitProvider = retrofitProvider;
+    public OauthRefreshTokenAuthenticator(Lazy<LoginPrefs> loginPrefs,
+                                          AccessTokenManager accessTokenManager) {
         this.loginPrefs = loginPrefs;
-        this.config = config;
+        this.accessTokenManager = accessTokenManager;
     }
 
     @Override
-    public synchronized Request authenticate(Route route, final Response response) throws IOException {
+    public Request authenticate(Route route, final Response response) throws IOException {
         logger.warn(response.toString());
 
+        final String authorizationHeader = response.request().header("Authorization");
+        if (authorizationHeader == null) {
+            // Not an OAuth based request, e.g. the refresh token request itself
+            return null;
+        }
+
         final AuthResponse currentAuth = loginPrefs.get().getCurrentAuth();
         if (null == currentAuth || null == currentAuth.refresh_token) {
             return null;
@@ -74,9 +70,12 @@ public class OauthRefreshTokenAuthenticator implements Authenticator {
         if (errorCode != null) {
             switch (errorCode) {
                 case TOKEN_EXPIRED_ERROR_MESSAGE:
+                    // Parallel requests failing with the expired token all wait for the same
+                    // refresh, or retry right away if the token has been refreshed already.
                     final AuthResponse refreshedAuth;
                     try {
-                        refreshedAuth = refreshAccessToken(currentAuth);
+                        refreshedAuth = AccessTokenManager.await(accessTokenManager.refresh(
+                                getRequestAuth(authorizationHeader, currentAuth)));
                     } catch (HttpStatusException e) {
                         return null;
                     }
@@ -89,7 +88,7 @@ public class OauthRefreshTokenAuthenticator implements Authenticator {
                     // request does not match the current access_token. This case can occur when
                     // asynchronous calls are made and are attempting to refresh the access_token where
                     // one call succeeds but the other fails. https://github.com/edx/edx-app-android/pull/834
-                    if (!response.request().headers().get("Authorization").split(" ")[1].equals(currentAuth.access_token)) {
+                    if (!authorizationHeader.split(" ")[1].equals(currentAuth.access_token)) {
                         return response.request().newBuilder()
                                 .header("Authorization", currentAuth.token_type + " " + currentAuth.access_token)
                                 .build();
@@ -104,15 +103,21 @@ public class OauthRefreshTokenAuthenticator implements Authenticator {
         return null;
     }
 
+    /**
+     * @return The auth response that the request was made with, so that the token is only
+     * refreshed if it's still the current one.
+     */
     @NonNull
-    private AuthResponse refreshAccessToken(AuthResponse currentAuth)
-            throws IOException, HttpStatusException {
-        LoginService loginService = this.retrofitProvider.get().getNonOAuthBased().create(LoginService.class);
-
-        AuthResponse refreshTokenData = executeStrict(loginService.refreshAccessToken(
-                ApiConstants.TOKEN_TYPE_REFRESH, config.get().getOAuthClientId(), currentAuth.refresh_token));
-        loginPrefs.get().storeRefreshTokenResponse(refreshTokenData);
-        return refreshTokenData;
+    private static AuthResponse getRequestAuth(@NonNull String authorizationHeader,
+                                               @NonNull AuthResponse currentAuth) {
+        final String[] parts = authorizationHeader.split(" ");
+        if (parts.length < 2 || parts[1].equals(currentAuth.access_token)) {
+            return currentAuth;
+        }
+        final AuthResponse requestAuth = new AuthResponse();
+        requestAuth.token_type = parts[0];
+        requestAuth.access_token = parts[1];
+        return requestAuth;
     }
 
     @Nullable
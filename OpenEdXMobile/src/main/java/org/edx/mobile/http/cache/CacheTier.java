@@ -0,0 +1,121 @@
+package org.edx.mobile.http.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.edx.mobile.util.Config;
+
+import okhttp3.HttpUrl;
+
+/**
+ * The classes of endpoints whose responses are stored in separate offline caches, each with its
+ * own size budget, so that the large responses of one class can't evict the others.
+ */
+public enum CacheTier {
+    /**
+     * Course structures of the courses that aren't pinned.
+     */
+    BLOCKS("blocks"),
+    /**
+     * Course structures of the most recently opened courses.
+     */
+    PINNED_COURSES("pinned-courses"),
+    ENROLLMENTS("enrollments"),
+    DISCUSSIONS("discussions"),
+    TRANSCRIPTS("transcripts"),
+    /**
+     * Everything else, such as handouts, announcements and user accounts.
+     */
+    DEFAULT("default"),
+    /**
+     * Responses cached before the cache was split into tiers. They're never written to, and are
+     * only read as a fallback for the other tiers until the legacy cache expires.
+     */
+    LEGACY("legacy");
+
+    /* Size of the single cache that was used before the cache was split into tiers */
+    private static final long LEGACY_SIZE_MB = 10;
+
+    private static final String BLOCKS_PATH_PREFIX = "/api/courses/";
+    private static final String BLOCKS_PATH_SUFFIX = "/blocks/";
+    private static final String ENROLLMENTS_PATH_SUFFIX = "/course_enrollments";
+    private static final String DISCUSSIONS_PATH_PREFIX = "/api/discussion/";
+    private static final String COURSE_ID_PARAM = "course_id";
+
+    @NonNull
+    private final String directoryName;
+
+    CacheTier(@NonNull String directoryName) {
+        this.directoryName = directoryName;
+    }
+
+    /**
+     * @return The name of the directory of this tier's cache.
+     */
+    @NonNull
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    /**
+     * @return The size budget of this tier's cache, in bytes.
+     */
+    public long getMaxSize(@NonNull Config.HttpCacheConfig config) {
+        final long sizeMb;
+        switch (this) {
+            case BLOCKS:
+                sizeMb = config.getBlocksSizeMb();
+                break;
+            case PINNED_COURSES:
+                sizeMb = (long) config.getPinnedCourses() * config.getPinnedCourseSizeMb();
+                break;
+            case ENROLLMENTS:
+                sizeMb = config.getEnrollmentsSizeMb();
+                break;
+            case DISCUSSIONS:
+                sizeMb = config.getDiscussionsSizeMb();
+                break;
+            case TRANSCRIPTS:
+                sizeMb = config.getTranscriptsSizeMb();
+                break;
+            case LEGACY:
+                sizeMb = LEGACY_SIZE_MB;
+                break;
+            default:
+                sizeMb = config.getDefaultSizeMb();
+                break;
+        }
+        return Math.max(1, sizeMb) * 1024 * 1024;
+    }
+
+    /**
+     * Classifies an API URL by its endpoint. Course structures are always classified as
+     * {@link #BLOCKS}, whether their course is pinned or not, and no URL is classified as
+     * {@link #LEGACY}.
+     *
+     * @param url The URL to classify.
+     * @return The tier of the URL.
+     */
+    @NonNull
+    public static CacheTier of(@NonNull HttpUrl url) {
+        final String path = url.encodedPath();
+        if (path.startsWith(BLOCKS_PATH_PREFIX) && path.endsWith(BLOCKS_PATH_SUFFIX)) {
+            return BLOCKS;
+        }
+        if (path.endsWith(ENROLLMENTS_PATH_SUFFIX)) {
+            return ENROLLMENTS;
+        }
+        if (path.startsWith(DISCUSSIONS_PATH_PREFIX)) {
+            return DISCUSSIONS;
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * @return The id of the course whose structure is requested by a {@link #BLOCKS} URL.
+     */
+    @Nullable
+    public static String getCourseId(@NonNull HttpUrl url) {
+        return url.queryParameter(COURSE_ID_PARAM);
+    }
+}
@@ -0,0 +1,354 @@
+package org.edx.mobile.http.cache;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.module.prefs.PrefManager;
+import org.edx.mobile.util.Config;
+import org.edx.mobile.util.FileUtil;
+import org.edx.mobile.util.TextUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+
+/**
+ * The offline HTTP cache, split into a separate {@link Cache} for each {@link CacheTier}, whose
+ * size budgets are read from {@link Config#getHttpCacheConfig()}.
+ * <p>
+ * The structures of the most recently opened courses are pinned: they're written to a tier of
+ * their own on their next fetch, where they can't be evicted by the structures of the other
+ * courses. Once a course drops out of the pinned ones, its structure is left in that tier until
+ * it's evicted by the structures of the newly pinned courses, which are more recently used. A
+ * structure may thus be cached in either of the two tiers, and the one that isn't returned by
+ * {@link #getTier(HttpUrl)} is returned by {@link #getFallbackTiers(HttpUrl)}, to be read when
+ * the first one can't answer offline.
+ * <p>
+ * The single cache used before the cache was split into tiers is kept as the read-only
+ * {@link CacheTier#LEGACY} tier, which is the last fallback of every tier until it expires
+ * {@link #LEGACY_CACHE_LIFETIME_MS} after the upgrade.
+ */
+@Singleton
+public class TieredHttpCache {
+
+    private final Logger logger = new Logger(getClass().getName());
+
+    private static final String CACHE_DIRECTORY = "http-cache";
+    private static final String PINNED_COURSES_SEPARATOR = "\n";
+    private static final long LEGACY_CACHE_LIFETIME_MS = TimeUnit.DAYS.toMillis(30);
+
+    @NonNull
+    private final File directory;
+    @NonNull
+    private final Config.HttpCacheConfig config;
+    @NonNull
+    private final PrefManager prefManager;
+    /* Executor of the disk operations that the callers don't have to wait for */
+    @NonNull
+    private final Executor executor = Executors.newSingleThreadExecutor();
+
+    /* Guarded by this */
+    @NonNull
+    private final Map<CacheTier, Tier> tiers = new EnumMap<>(CacheTier.class);
+    /* Ids of the pinned courses, the most recently opened first, guarded by this */
+    @NonNull
+    private final LinkedList<String> pinnedCourseIds = new LinkedList<>();
+    /* Set once the legacy cache has been found to be usable */
+    private volatile boolean hasLegacyCache;
+
+    @Inject
+    public TieredHttpCache(@ApplicationContext @NonNull Context context, @NonNull Config config) {
+        this.directory = new File(context.getFilesDir(), CACHE_DIRECTORY);
+        this.config = config.getHttpCacheConfig();
+        this.prefManager = new PrefManager(context, PrefManager.Pref.USER_PREF);
+        final String pinnedCourses = prefManager.getString(
+                PrefManager.Key.HTTP_CACHE_PINNED_COURSES);
+        if (pinnedCourses != null && !pinnedCourses.isEmpty()) {
+            pinnedCourseIds.addAll(Arrays.asList(pinnedCourses.split(PINNED_COURSES_SEPARATOR)));
+        }
+        executor.execute(this::migrateLegacyCache);
+    }
+
+    /**
+     * @param url The URL of a request.
+     * @return The tier in which the response of the request is cached.
+     */
+    @NonNull
+    public synchronized CacheTier getTier(@NonNull HttpUrl url) {
+        final CacheTier tier = CacheTier.of(url);
+        if (tier == CacheTier.BLOCKS && pinnedCourseIds.contains(CacheTier.getCourseId(url))) {
+            return CacheTier.PINNED_COURSES;
+        }
+        return tier;
+    }
+
+    /**
+     * @param url The URL of a request.
+     * @return The tiers whose cached responses can answer the request when the cache of its
+     * {@link #getTier(HttpUrl) tier} can't, in the order they should be read.
+     */
+    @NonNull
+    public synchronized List<CacheTier> getFallbackTiers(@NonNull HttpUrl url) {
+        final List<CacheTier> fallbackTiers = new ArrayList<>(2);
+        switch (getTier(url)) {
+            case BLOCKS:
+                fallbackTiers.add(CacheTier.PINNED_COURSES);
+                break;
+            case PINNED_COURSES:
+                fallbackTiers.add(CacheTier.BLOCKS);
+                break;
+            default:
+                break;
+        }
+        if (hasLegacyCache) {
+            fallbackTiers.add(CacheTier.LEGACY);
+        }
+        return fallbackTiers;
+    }
+
+    /**
+     * @return The cache of the given tier. A cache directory must only be accessed by a single
+     * {@link Cache} instance, so the same instance is returned for all the callers.
+     */
+    @NonNull
+    public synchronized Cache getCache(@NonNull CacheTier tier) {
+        return getTierState(tier).cache;
+    }
+
+    /**
+     * Pins the structure of a course that has just been opened, unpinning the least recently
+     * opened course if there are too many pinned ones. The cached structures stay where they are,
+     * and are read from their former tier until they're fetched again.
+     *
+     * @param courseId The id of the opened course.
+     */
+    public synchronized void pinCourse(@NonNull String courseId) {
+        if (courseId.equals(pinnedCourseIds.peekFirst())) {
+            return;
+        }
+        pinnedCourseIds.remove(courseId);
+        pinnedCourseIds.addFirst(courseId);
+        while (pinnedCourseIds.size() > Math.max(0, config.getPinnedCourses())) {
+            pinnedCourseIds.removeLast();
+        }
+        prefManager.put(PrefManager.Key.HTTP_CACHE_PINNED_COURSES, TextUtils.join(
+                PINNED_COURSES_SEPARATOR, new ArrayList<CharSequence>(pinnedCourseIds)).toString());
+    }
+
+    /**
+     * @return The ids of the pinned courses, the most recently opened first.
+     */
+    @NonNull
+    public synchronized List<String> getPinnedCourseIds() {
+        return Collections.unmodifiableList(new ArrayList<>(pinnedCourseIds));
+    }
+
+    /**
+     * @return The stats of every tier. The caches are read from the disk, so this must not be
+     * called on the main thread.
+     */
+    @NonNull
+    @WorkerThread
+    public List<Stats> getStats() {
+        final List<Stats> stats = new ArrayList<>();
+        for (CacheTier tier : CacheTier.values()) {
+            if (tier == CacheTier.LEGACY && !hasLegacyCache) {
+                continue;
+            }
+            final Tier state;
+            synchronized (this) {
+                state = getTierState(tier);
+            }
+            try {
+                stats.add(new Stats(tier, state));
+            } catch (IOException e) {
+                logger.error(e);
+            }
+        }
+        return stats;
+    }
+
+    @NonNull
+    private Tier getTierState(@NonNull CacheTier tier) {
+        Tier state = tiers.get(tier);
+        if (state == null) {
+            state = new Tier(new Cache(new File(directory, tier.getDirectoryName()),
+                    tier.getMaxSize(config)));
+            tiers.put(tier, state);
+            final Tier newState = state;
+            executor.execute(() -> newState.initialEntryCount = countEntries(newState.cache));
+        }
+        return state;
+    }
+
+    /**
+     * Moves the files of the single cache that was used before the cache was split into tiers to
+     * the directory of the {@link CacheTier#LEGACY} tier, since the tiers are stored in
+     * subdirectories of the same directory. The legacy cache is deleted once it has expired.
+     */
+    private void migrateLegacyCache() {
+        final File legacyDirectory = new File(directory, CacheTier.LEGACY.getDirectoryName());
+        final File[] files = directory.listFiles(File::isFile);
+        if (files != null && files.length > 0) {
+            if (!legacyDirectory.exists() && !legacyDirectory.mkdirs()) {
+                logger.warn("Unable to create the legacy cache directory");
+                return;
+            }
+            for (File file : files) {
+                if (!file.renameTo(new File(legacyDirectory, file.getName()))) {
+                    logger.warn("Unable to move the legacy cache file " + file.getName());
+                }
+            }
+        }
+        if (!legacyDirectory.exists()) {
+            return;
+        }
+        long expiryTime = prefManager.getLong(PrefManager.Key.HTTP_CACHE_LEGACY_EXPIRY_TIME);
+        if (expiryTime < 0) {
+            expiryTime = System.currentTimeMillis() + LEGACY_CACHE_LIFETIME_MS;
+            prefManager.put(PrefManager.Key.HTTP_CACHE_LEGACY_EXPIRY_TIME, expiryTime);
+        }
+        if (System.currentTimeMillis() < expiryTime) {
+            hasLegacyCache = true;
+        } else {
+            FileUtil.deleteRecursive(legacyDirectory);
+            prefManager.put(PrefManager.Key.HTTP_CACHE_LEGACY_EXPIRY_TIME, -1L);
+        }
+    }
+
+    private static int countEntries(@NonNull Cache cache) {
+        int count = 0;
+        try {
+            for (Iterator<String> urls = cache.urls(); urls.hasNext(); urls.next()) {
+                count++;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+        return count;
+    }
+
+    private static class Tier {
+        @NonNull
+        final Cache cache;
+        /* Number of entries found when the cache was opened, or -1 until they're counted */
+        volatile int initialEntryCount = -1;
+
+        Tier(@NonNull Cache cache) {
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * Snapshot of the usage of a tier's cache since the app was started.
+     */
+    public static class Stats {
+        @NonNull
+        private final CacheTier tier;
+        private final long size;
+        private final long maxSize;
+        private final int entryCount;
+        private final int requestCount;
+        private final int hitCount;
+        private final int networkCount;
+        private final int writeCount;
+        private final int evictionCount;
+
+        Stats(@NonNull CacheTier tier, @NonNull Tier state) throws IOException {
+            this.tier = tier;
+            this.size = state.cache.size();
+            this.maxSize = state.cache.maxSize();
+            this.entryCount = countEntries(state.cache);
+            this.requestCount = state.cache.requestCount();
+            this.hitCount = state.cache.hitCount();
+            this.networkCount = state.cache.networkCount();
+            this.writeCount = state.cache.writeSuccessCount();
+            final int initialEntryCount = Math.max(0, state.initialEntryCount);
+            // Every write adds an entry, so the written entries that are gone have been evicted
+            this.evictionCount = Math.max(0, writeCount - (entryCount - initialEntryCount));
+        }
+
+        @NonNull
+        public CacheTier getTier() {
+            return tier;
+        }
+
+        /**
+         * @return The size of the cached responses, in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return The size budget of the tier, in bytes.
+         */
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        public int getRequestCount() {
+            return requestCount;
+        }
+
+        /**
+         * @return Number of requests answered with a cached response, including the ones
+         * validated with a conditional request.
+         */
+        public int getHitCount() {
+            return hitCount;
+        }
+
+        public int getNetworkCount() {
+            return networkCount;
+        }
+
+        public int getWriteCount() {
+            return writeCount;
+        }
+
+        /**
+         * @return Number of the entries written since the app was started that are no longer
+         * cached, either because they were evicted to fit the size budget or replaced by a newer
+         * response for the same URL.
+         */
+        public int getEvictionCount() {
+            return evictionCount;
+        }
+
+        public float getHitRatio() {
+            return requestCount == 0 ? 0 : (float) hitCount / requestCount;
+        }
+
+        @Override
+        @NonNull
+        public String toString() {
+            return tier + ": " + size + "/" + maxSize + " bytes, " + entryCount + " entries, " +
+                    hitCount + "/" + requestCount + " hits, " + evictionCount + " evictions";
+        }
+    }
+}
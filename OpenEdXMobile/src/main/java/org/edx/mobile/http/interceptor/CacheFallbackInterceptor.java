@@ -0,0 +1,102 @@
+package org.edx.mobile.http.interceptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.http.HttpMethod;
+
+import static java.net.HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+
+/**
+ * An OkHttp interceptor that reads a response from other caches when the cache of the client
+ * can't answer a request that failed to reach the network, or that was only allowed to be
+ * answered from the cache. The other caches are read in order, through the call factories of
+ * their clients, and only ever answer from the cache.
+ * <p>
+ * It must be the outermost interceptor, so that the request has already been given a chance to
+ * be answered from the client's own cache.
+ */
+public class CacheFallbackInterceptor implements Interceptor {
+    /**
+     * Provides the call factories of the clients whose caches can answer a request.
+     */
+    public interface FallbackProvider {
+        @NonNull
+        List<Call.Factory> getFallbacks(@NonNull Request request);
+    }
+
+    @NonNull
+    private final FallbackProvider fallbackProvider;
+
+    public CacheFallbackInterceptor(@NonNull FallbackProvider fallbackProvider) {
+        this.fallbackProvider = fallbackProvider;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (HttpMethod.INSTANCE.invalidatesCache(request.method())) {
+            return chain.proceed(request);
+        }
+
+        final Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                throw e;
+            }
+            final Response fallbackResponse = proceedWithFallbacks(request);
+            if (fallbackResponse == null) {
+                throw e;
+            }
+            return fallbackResponse;
+        }
+        if (!isUnsatisfiable(response)) {
+            return response;
+        }
+        final Response fallbackResponse = proceedWithFallbacks(request);
+        if (fallbackResponse == null) {
+            return response;
+        }
+        response.close();
+        return fallbackResponse;
+    }
+
+    /**
+     * @return The first response cached by the fallbacks, or <code>null</code> if none of them
+     * has one.
+     */
+    @Nullable
+    private Response proceedWithFallbacks(@NonNull Request request) throws IOException {
+        // Keep the staleness allowed by the caller, if it only wanted a cached response
+        final Request forceCacheRequest = request.cacheControl().onlyIfCached() ? request :
+                request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
+        for (Call.Factory fallback : fallbackProvider.getFallbacks(request)) {
+            final Response response = fallback.newCall(forceCacheRequest).execute();
+            if (!isUnsatisfiable(response)) {
+                return response;
+            }
+            response.close();
+        }
+        return null;
+    }
+
+    /**
+     * @return <code>true</code> if the response is the one OkHttp returns when an
+     * <code>only-if-cached</code> request isn't in the cache.
+     */
+    private static boolean isUnsatisfiable(@NonNull Response response) {
+        return response.code() == HTTP_GATEWAY_TIMEOUT && response.networkResponse() == null &&
+                response.cacheResponse() == null;
+    }
+}
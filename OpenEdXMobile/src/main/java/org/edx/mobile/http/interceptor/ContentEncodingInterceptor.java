@@ -0,0 +1,185 @@
+package org.edx.mobile.http.interceptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.brotli.dec.BrotliInputStream;
+import org.edx.mobile.http.util.CompressionMetrics;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.internal.http.HttpHeaders;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Negotiates the compression of the responses, advertising Brotli in addition to gzip, and
+ * decodes the compressed responses. OkHttp only decodes gzip transparently when it adds the
+ * <code>Accept-Encoding</code> header itself, so both encodings are decoded here.
+ * <p>
+ * This must be the last application interceptor, so that the responses are stored compressed in
+ * the cache, and the other interceptors only see decoded responses. The decoded length of a
+ * compressed body isn't known, so its {@link ResponseBody#contentLength()} is -1. The bytes received for the
+ * responses fetched from the network are recorded in the {@link CompressionMetrics} once their
+ * body has been read.
+ */
+public final class ContentEncodingInterceptor implements Interceptor {
+    static final String ACCEPT_ENCODING = "br, gzip";
+    private static final String ENCODING_BROTLI = "br";
+    private static final String ENCODING_GZIP = "gzip";
+
+    @NonNull
+    private final CompressionMetrics metrics;
+
+    public ContentEncodingInterceptor(@NonNull CompressionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        // Leave alone the requests that negotiate their own encoding, or would get partial content
+        if (request.header("Accept-Encoding") != null || request.header("Range") != null ||
+                "HEAD".equals(request.method())) {
+            return chain.proceed(request);
+        }
+        final Response response = chain.proceed(request.newBuilder()
+                .header("Accept-Encoding", ACCEPT_ENCODING)
+                .build());
+        final ResponseBody body = response.body();
+        if (body == null || !HttpHeaders.promisesBody(response)) {
+            return response;
+        }
+        final String encoding = response.header("Content-Encoding");
+        if (encoding != null && body.contentLength() == 0) {
+            // Nothing to decode, and the decoders fail on an empty stream
+            return response.newBuilder().removeHeader("Content-Encoding").build();
+        }
+        final boolean recordBytes = response.cacheResponse() == null;
+        final CountingSource wireSource = new CountingSource(body.source());
+        final Source decodedSource;
+        if (encoding == null) {
+            if (!recordBytes) {
+                return response;
+            }
+            decodedSource = wireSource;
+        } else if (ENCODING_GZIP.equalsIgnoreCase(encoding)) {
+            decodedSource = new GzipSource(wireSource);
+        } else if (ENCODING_BROTLI.equalsIgnoreCase(encoding)) {
+            decodedSource = new BrotliSource(Okio.buffer(wireSource));
+        } else {
+            return response;
+        }
+        final Source source = recordBytes ? new RecordingSource(decodedSource, wireSource,
+                request.url()) : decodedSource;
+        final long contentLength = encoding == null ? body.contentLength() : -1;
+        final Response.Builder builder = response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(source), body.contentType(), contentLength));
+        if (encoding != null) {
+            builder.removeHeader("Content-Encoding").removeHeader("Content-Length");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes a Brotli stream. The decoder reads the header of the stream as soon as it's created,
+     * so it's only created on the first read rather than while intercepting the response, and its
+     * unchecked exceptions are thrown as {@link IOException}s, like the errors of the gzip decoder.
+     */
+    private static class BrotliSource implements Source {
+        @NonNull
+        private final BufferedSource source;
+        @Nullable
+        private Source decoder;
+
+        BrotliSource(@NonNull BufferedSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            try {
+                if (decoder == null) {
+                    decoder = Okio.source(new BrotliInputStream(source.inputStream()));
+                }
+                return decoder.read(sink, byteCount);
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid Brotli stream", e);
+            }
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return source.timeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decoder != null) {
+                decoder.close();
+            } else {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from a source.
+     */
+    private static class CountingSource extends ForwardingSource {
+        long byteCount;
+
+        CountingSource(@NonNull Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            final long read = super.read(sink, byteCount);
+            if (read > 0) {
+                this.byteCount += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Counts the decoded bytes of a response body, and records them along with the bytes
+     * received once the body is closed.
+     */
+    private class RecordingSource extends CountingSource {
+        @NonNull
+        private final CountingSource wireSource;
+        @NonNull
+        private final HttpUrl url;
+        private boolean recorded;
+
+        RecordingSource(@NonNull Source delegate, @NonNull CountingSource wireSource,
+                        @NonNull HttpUrl url) {
+            super(delegate);
+            this.wireSource = wireSource;
+            this.url = url;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!recorded) {
+                recorded = true;
+                metrics.recordResponse(url, wireSource.byteCount, byteCount);
+            }
+            super.close();
+        }
+    }
+}
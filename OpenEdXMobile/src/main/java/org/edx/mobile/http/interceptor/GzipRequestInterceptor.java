@@ -1,5 +1,10 @@
 package org.edx.mobile.http.interceptor;
 
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.http.util.CompressionMetrics;
+import org.edx.mobile.util.Config;
+
 import java.io.IOException;
 
 import okhttp3.Interceptor;
@@ -7,6 +12,7 @@ import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.Buffer;
 import okio.BufferedSink;
 import okio.GzipSink;
 import okio.Okio;
@@ -14,35 +20,90 @@ import okio.Okio;
 /**
  * This interceptor compresses the HTTP request body. Many webservers can't handle this!
  * https://github.com/square/okhttp/wiki/Interceptors
+ * <p>
+ * So only the large POST bodies sent to the endpoints allowed by
+ * {@link Config#getRequestCompressionConfig()} are compressed, and only if that makes them
+ * smaller.
  **/
 public final class GzipRequestInterceptor implements Interceptor {
+    @NonNull
+    private final Config.RequestCompressionConfig config;
+    @NonNull
+    private final CompressionMetrics metrics;
+
+    public GzipRequestInterceptor(@NonNull Config.RequestCompressionConfig config,
+                                  @NonNull CompressionMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+    }
+
     @Override public Response intercept(Chain chain) throws IOException {
         Request originalRequest = chain.request();
-        if (originalRequest.body() == null || originalRequest.header("Content-Encoding") != null) {
+        final RequestBody body = originalRequest.body();
+        if (body == null || originalRequest.header("Content-Encoding") != null ||
+                !"POST".equals(originalRequest.method()) || !isAllowed(originalRequest)) {
+            return chain.proceed(originalRequest);
+        }
+        final long contentLength = body.contentLength();
+        if (contentLength < config.getMinSizeBytes()) {
             return chain.proceed(originalRequest);
         }
+        // Write the body only once, as it may be a one-shot body that can't be written again
+        final Buffer content = new Buffer();
+        body.writeTo(content);
+        final Buffer compressed = gzip(content);
+        if (compressed.size() >= content.size()) {
+            metrics.recordRequest(originalRequest.url(), content.size(), content.size());
+            return chain.proceed(originalRequest.newBuilder()
+                    .method(originalRequest.method(), newBody(body.contentType(), content))
+                    .build());
+        }
+        metrics.recordRequest(originalRequest.url(), compressed.size(), content.size());
 
         Request compressedRequest = originalRequest.newBuilder()
             .header("Content-Encoding", "gzip")
-            .method(originalRequest.method(), gzip(originalRequest.body()))
+            .method(originalRequest.method(), newBody(body.contentType(), compressed))
             .build();
         return chain.proceed(compressedRequest);
     }
 
-    private RequestBody gzip(final RequestBody body) {
+    private boolean isAllowed(@NonNull Request request) {
+        final String path = request.url().encodedPath();
+        for (String allowedPath : config.getPaths()) {
+            if (path.startsWith(allowedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compresses the body up front, so that the request is sent with its actual length rather
+     * than chunked, which is what the servers handle best.
+     */
+    @NonNull
+    private static Buffer gzip(@NonNull Buffer content) throws IOException {
+        final Buffer buffer = new Buffer();
+        BufferedSink gzipSink = Okio.buffer(new GzipSink(buffer));
+        gzipSink.write(content.clone(), content.size());
+        gzipSink.close();
+        return buffer;
+    }
+
+    @NonNull
+    private static RequestBody newBody(final MediaType contentType, @NonNull final Buffer content) {
         return new RequestBody() {
             @Override public MediaType contentType() {
-                return body.contentType();
+                return contentType;
             }
 
             @Override public long contentLength() {
-                return -1; // We don't know the compressed length in advance!
+                return content.size();
             }
 
             @Override public void writeTo(BufferedSink sink) throws IOException {
-                BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-                body.writeTo(gzipSink);
-                gzipSink.close();
+                // Copy the content, as the request may be written again when it's retried
+                sink.write(content.clone(), content.size());
             }
         };
     }
@@ -5,6 +5,7 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 
 import org.edx.mobile.core.EdxDefaultModule;
+import org.edx.mobile.http.authenticator.AccessTokenManager;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.module.prefs.LoginPrefs;
 
@@ -16,22 +17,34 @@ import okhttp3.Request;
 import okhttp3.Response;
 
 /**
- * Injects OAuth token - if present - into Authorization header
+ * Injects OAuth token - if present - into Authorization header. An expired token is refreshed
+ * before the request is made, see {@link AccessTokenManager#ensureFreshToken()}.
  **/
 public final class OauthHeaderRequestInterceptor implements Interceptor {
     protected final Logger logger = new Logger(getClass().getName());
 
     private final LoginPrefs loginPrefs;
+    private final AccessTokenManager accessTokenManager;
 
     public OauthHeaderRequestInterceptor(Context context) {
-        loginPrefs = EntryPointAccessors
-                .fromApplication(context, EdxDefaultModule.ProviderEntryPoint.class).getLoginPrefs();
+        this(EntryPointAccessors.fromApplication(context, EdxDefaultModule.ProviderEntryPoint.class));
+    }
+
+    private OauthHeaderRequestInterceptor(EdxDefaultModule.ProviderEntryPoint entryPoint) {
+        this(entryPoint.getLoginPrefs(), entryPoint.getAccessTokenManager());
+    }
+
+    public OauthHeaderRequestInterceptor(@NonNull LoginPrefs loginPrefs,
+                                         @NonNull AccessTokenManager accessTokenManager) {
+        this.loginPrefs = loginPrefs;
+        this.accessTokenManager = accessTokenManager;
     }
 
     @Override
     @NonNull
     public Response intercept(Chain chain) throws IOException {
         final Request.Builder builder = chain.request().newBuilder();
+        accessTokenManager.ensureFreshToken();
         final String token = loginPrefs.getAuthorizationHeader();
         if (token != null) {
             builder.addHeader("Authorization", token);
@@ -0,0 +1,215 @@
+package org.edx.mobile.http.interceptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * An OkHttp application interceptor that coalesces identical GET requests while one of them is in
+ * flight. The first caller executes the request and buffers the response body, and all the
+ * callers that arrive before it completes get a copy of that response instead of hitting the
+ * cache or the network themselves.
+ * <p>
+ * Requests are identical if they have the same URL and headers, and requests forbidding
+ * caching with <code>no-store</code> are never coalesced. Only successful responses that may be
+ * cached and that have been buffered are shared: if the first call fails, its response may not
+ * be stored, or its body is too large to be buffered, the waiting callers execute their requests
+ * themselves. A waiting caller gives up on the first call once its own call is canceled or times
+ * out.
+ */
+public class SingleFlightInterceptor implements Interceptor {
+    /* Bodies larger than this are streamed to the first caller rather than buffered */
+    @VisibleForTesting
+    static final long MAX_SHARED_BODY_SIZE = 8 * 1024 * 1024; // 8 MiB
+    /* Interval at which the waiting callers check whether their call has been canceled */
+    private static final long CANCELLATION_POLL_INTERVAL_MS = 100;
+
+    /**
+     * Counters of the requests seen by one or more interceptors.
+     */
+    public static class Metrics {
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong coalescedCount = new AtomicLong();
+
+        /**
+         * @return The number of GET requests that could have been coalesced.
+         */
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        /**
+         * @return The number of GET requests that were served with the response of an identical
+         * in-flight request.
+         */
+        public long getCoalescedCount() {
+            return coalescedCount.get();
+        }
+
+        /**
+         * @return The fraction of GET requests that were coalesced, between 0 and 1.
+         */
+        public float getDedupeRatio() {
+            final long requests = requestCount.get();
+            return requests == 0 ? 0 : (float) coalescedCount.get() / requests;
+        }
+    }
+
+    /**
+     * A request in flight, and its outcome once it lands.
+     */
+    private static class Flight {
+        final CountDownLatch landed = new CountDownLatch(1);
+        /* Set before the flight lands, if its response can be shared */
+        @Nullable
+        Response response;
+        @Nullable
+        byte[] body;
+
+        @NonNull
+        Response newResponse(@NonNull Request request) {
+            return response.newBuilder()
+                    .request(request)
+                    .body(ResponseBody.create(body, response.body().contentType()))
+                    .build();
+        }
+    }
+
+    @NonNull
+    private final Metrics metrics;
+    /* In-flight requests, keyed by URL and headers */
+    @NonNull
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    public SingleFlightInterceptor() {
+        this(new Metrics());
+    }
+
+    public SingleFlightInterceptor(@NonNull Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @NonNull
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    @NonNull
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (!request.method().equals("GET") || request.cacheControl().noStore()) {
+            return chain.proceed(request);
+        }
+        metrics.requestCount.incrementAndGet();
+
+        final String key = request.url() + "\n" + request.headers();
+        final Flight flight;
+        final boolean isLeader;
+        synchronized (flights) {
+            final Flight inFlight = flights.get(key);
+            isLeader = inFlight == null;
+            flight = isLeader ? new Flight() : inFlight;
+            if (isLeader) {
+                flights.put(key, flight);
+            }
+        }
+
+        if (!isLeader) {
+            if (awaitLanding(chain, flight) && flight.body != null) {
+                metrics.coalescedCount.incrementAndGet();
+                return flight.newResponse(request);
+            }
+            return chain.proceed(request);
+        }
+
+        try {
+            final Response response = chain.proceed(request);
+            final ResponseBody body = response.body();
+            if (body == null || response.code() != HttpURLConnection.HTTP_OK ||
+                    response.cacheControl().noStore() ||
+                    body.contentLength() > MAX_SHARED_BODY_SIZE) {
+                return response;
+            }
+            // The length is unknown for chunked or decoded bodies, so read at most one byte past
+            // the limit. The bytes read stay buffered in the source if the body is streamed.
+            final BufferedSource source = body.source();
+            try {
+                if (source.request(MAX_SHARED_BODY_SIZE + 1)) {
+                    return response;
+                }
+                flight.body = source.readByteArray();
+            } catch (IOException | RuntimeException e) {
+                response.close();
+                throw e;
+            }
+            response.close();
+            flight.response = response;
+            return flight.newResponse(request);
+        } finally {
+            // Requests made from now on start a new flight
+            synchronized (flights) {
+                flights.remove(key);
+            }
+            flight.landed.countDown();
+        }
+    }
+
+    /**
+     * Waits for a flight to land, for at most the timeout of the waiting call, or the sum of its
+     * connect, write and read timeouts if the call has no overall timeout.
+     *
+     * @return <code>true</code> if the flight has landed, <code>false</code> if the wait timed out.
+     * @throws IOException If the waiting call has been canceled or its thread interrupted.
+     */
+    private static boolean awaitLanding(@NonNull Chain chain, @NonNull Flight flight)
+            throws IOException {
+        final Call call = chain.call();
+        long timeoutNanos = call.timeout().timeoutNanos();
+        if (timeoutNanos == 0) {
+            timeoutNanos = TimeUnit.MILLISECONDS.toNanos((long) chain.connectTimeoutMillis() +
+                    chain.writeTimeoutMillis() + chain.readTimeoutMillis());
+        }
+        final long pollIntervalNanos =
+                TimeUnit.MILLISECONDS.toNanos(CANCELLATION_POLL_INTERVAL_MS);
+        final long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            while (true) {
+                if (call.isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                long waitNanos = pollIntervalNanos;
+                // A timeout of zero means no timeout
+                if (timeoutNanos > 0) {
+                    final long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    waitNanos = Math.min(waitNanos, remainingNanos);
+                }
+                if (flight.landed.await(waitNanos, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
@@ -7,23 +7,34 @@ import androidx.annotation.NonNull;
 import org.edx.mobile.BuildConfig;
 import org.edx.mobile.R;
 import org.edx.mobile.http.authenticator.OauthRefreshTokenAuthenticator;
+import org.edx.mobile.http.cache.CacheTier;
+import org.edx.mobile.http.cache.TieredHttpCache;
+import org.edx.mobile.http.interceptor.CacheFallbackInterceptor;
+import org.edx.mobile.http.interceptor.ContentEncodingInterceptor;
+import org.edx.mobile.http.interceptor.GzipRequestInterceptor;
 import org.edx.mobile.http.interceptor.NewVersionBroadcastInterceptor;
 import org.edx.mobile.http.interceptor.NoCacheHeaderStrippingInterceptor;
 import org.edx.mobile.http.interceptor.OauthHeaderRequestInterceptor;
+import org.edx.mobile.http.interceptor.SingleFlightInterceptor;
 import org.edx.mobile.http.interceptor.StaleIfErrorHandlingInterceptor;
 import org.edx.mobile.http.interceptor.StaleIfErrorInterceptor;
 import org.edx.mobile.http.interceptor.UserAgentInterceptor;
+import org.edx.mobile.http.util.CompressionMetrics;
+import org.edx.mobile.http.util.ConnectionMetrics;
 import org.edx.mobile.http.util.Tls12SocketFactory;
+import org.edx.mobile.util.Config;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import dagger.hilt.android.qualifiers.ApplicationContext;
-import okhttp3.Cache;
+import okhttp3.Call;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
@@ -33,29 +44,84 @@ public interface OkHttpClientProvider extends Provider<OkHttpClient> {
     @NonNull
     OkHttpClient get();
 
+    /**
+     * @return A call factory for the OAuth based calls that use the offline cache, which stores
+     * the responses in the cache of their {@link CacheTier}, and reads them from the caches of
+     * the {@link TieredHttpCache#getFallbackTiers(okhttp3.HttpUrl) fallback tiers} when their own
+     * cache can't answer offline.
+     */
     @NonNull
-    OkHttpClient getWithOfflineCache();
+    Call.Factory getWithOfflineCache();
+
+    /**
+     * @return The OAuth based client that uses the offline cache of the given tier.
+     */
+    @NonNull
+    OkHttpClient getWithOfflineCache(@NonNull CacheTier tier);
 
     @NonNull
     OkHttpClient getNonOAuthBased();
 
+    /**
+     * @return The connection metrics of all the clients provided by this provider.
+     */
+    @NonNull
+    ConnectionMetrics getConnectionMetrics();
+
+    /**
+     * @return The metrics of the identical in-flight API requests coalesced by the OAuth based
+     * clients.
+     */
+    @NonNull
+    SingleFlightInterceptor.Metrics getSingleFlightMetrics();
+
+    /**
+     * @return The byte counts of the compressed traffic of all the clients provided by this
+     * provider.
+     */
+    @NonNull
+    CompressionMetrics getCompressionMetrics();
+
+    /**
+     * Derives all the client variants from a single root client with
+     * {@link OkHttpClient#newBuilder()}, so that they share the same connection pool, dispatcher
+     * and thread pools. This lets the OAuth and non-OAuth based clients reuse each other's
+     * connections (including multiplexed HTTP/2 ones) to the same host, instead of each client
+     * performing its own TLS handshakes.
+     */
     @Singleton
     class Impl implements OkHttpClientProvider {
-        private static final int cacheSize = 10 * 1024 * 1024; // 10 MiB
-
         private static final int FLAG_IS_OAUTH_BASED = 1;
         private static final int USES_OFFLINE_CACHE = 1 << 1;
 
         private final Context context;
+        private final Config config;
 
         private final OkHttpClient[] clients = new OkHttpClient[1 << 2];
+        private final Map<CacheTier, OkHttpClient> offlineCacheClients =
+                new EnumMap<>(CacheTier.class);
+        private final Map<CacheTier, OkHttpClient> offlineCacheFallbackClients =
+                new EnumMap<>(CacheTier.class);
         private final OauthRefreshTokenAuthenticator oauthRefreshTokenAuthenticator;
+        private final TieredHttpCache tieredHttpCache;
+        private final Call.Factory offlineCacheCallFactory;
+        private final ConnectionMetrics connectionMetrics = new ConnectionMetrics();
+        private final SingleFlightInterceptor.Metrics singleFlightMetrics =
+                new SingleFlightInterceptor.Metrics();
+        private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+
+        private OkHttpClient rootClient;
 
         @Inject
-        public Impl(@ApplicationContext Context context,
-                    OauthRefreshTokenAuthenticator oauthRefreshTokenAuthenticator) {
+        public Impl(@ApplicationContext Context context, Config config,
+                    OauthRefreshTokenAuthenticator oauthRefreshTokenAuthenticator,
+                    TieredHttpCache tieredHttpCache) {
             this.context = context;
+            this.config = config;
             this.oauthRefreshTokenAuthenticator = oauthRefreshTokenAuthenticator;
+            this.tieredHttpCache = tieredHttpCache;
+            this.offlineCacheCallFactory = request -> getWithOfflineCacheFallbacks(
+                    tieredHttpCache.getTier(request.url())).newCall(request);
         }
 
         @NonNull
@@ -66,8 +132,45 @@ public interface OkHttpClientProvider extends Provider<OkHttpClient> {
 
         @NonNull
         @Override
-        public OkHttpClient getWithOfflineCache() {
-            return get(true, true);
+        public Call.Factory getWithOfflineCache() {
+            return offlineCacheCallFactory;
+        }
+
+        @NonNull
+        @Override
+        public synchronized OkHttpClient getWithOfflineCache(@NonNull CacheTier tier) {
+            OkHttpClient client = offlineCacheClients.get(tier);
+            if (client == null) {
+                client = get(true, true).newBuilder()
+                        .cache(tieredHttpCache.getCache(tier))
+                        .build();
+                offlineCacheClients.put(tier, client);
+            }
+            return client;
+        }
+
+        /**
+         * @return The client using the offline cache of the given tier, which falls back to the
+         * caches of the other tiers. The fallbacks are read through the clients that don't fall
+         * back themselves, so that the tiers can't fall back to each other endlessly.
+         */
+        @NonNull
+        private synchronized OkHttpClient getWithOfflineCacheFallbacks(@NonNull CacheTier tier) {
+            OkHttpClient client = offlineCacheFallbackClients.get(tier);
+            if (client == null) {
+                final OkHttpClient.Builder builder = getWithOfflineCache(tier).newBuilder();
+                builder.interceptors().add(0, new CacheFallbackInterceptor(request -> {
+                    final List<Call.Factory> fallbacks = new ArrayList<>();
+                    for (CacheTier fallbackTier :
+                            tieredHttpCache.getFallbackTiers(request.url())) {
+                        fallbacks.add(getWithOfflineCache(fallbackTier));
+                    }
+                    return fallbacks;
+                }));
+                client = builder.build();
+                offlineCacheFallbackClients.put(tier, client);
+            }
+            return client;
         }
 
         @NonNull
@@ -76,21 +179,54 @@ public interface OkHttpClientProvider extends Provider<OkHttpClient> {
             return get(false, false);
         }
 
+        @NonNull
+        @Override
+        public ConnectionMetrics getConnectionMetrics() {
+            return connectionMetrics;
+        }
+
+        @NonNull
+        @Override
+        public SingleFlightInterceptor.Metrics getSingleFlightMetrics() {
+            return singleFlightMetrics;
+        }
+
+        @NonNull
+        @Override
+        public CompressionMetrics getCompressionMetrics() {
+            return compressionMetrics;
+        }
+
+        /**
+         * @return The client that all the variants are derived from. It has no interceptors of
+         * its own, since derived builders copy them.
+         */
+        @NonNull
+        private synchronized OkHttpClient getRootClient() {
+            if (rootClient == null) {
+                final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                        .eventListener(connectionMetrics)
+                        .authenticator(oauthRefreshTokenAuthenticator);
+                // Enable TLS 1.2 support
+                rootClient = Tls12SocketFactory.enableTls12OnPreLollipop(builder).build();
+            }
+            return rootClient;
+        }
+
+        /**
+         * @return The client of the given variant. The variant using the offline cache has the
+         * interceptors handling it, but not the cache itself, which is set on the clients derived
+         * for each {@link CacheTier}.
+         */
         @NonNull
         private synchronized OkHttpClient get(boolean isOAuthBased, boolean usesOfflineCache) {
             final int index = (isOAuthBased ? FLAG_IS_OAUTH_BASED : 0) |
                     (usesOfflineCache ? USES_OFFLINE_CACHE : 0);
             OkHttpClient client = clients[index];
             if (client == null) {
-                final OkHttpClient.Builder builder = new OkHttpClient.Builder();
+                final OkHttpClient.Builder builder = getRootClient().newBuilder();
                 List<Interceptor> interceptors = builder.interceptors();
                 if (usesOfflineCache) {
-                    final File cacheDirectory = new File(context.getFilesDir(), "http-cache");
-                    if (!cacheDirectory.exists()) {
-                        cacheDirectory.mkdirs();
-                    }
-                    final Cache cache = new Cache(cacheDirectory, cacheSize);
-                    builder.cache(cache);
                     interceptors.add(new StaleIfErrorInterceptor());
                     interceptors.add(new StaleIfErrorHandlingInterceptor());
                     builder.networkInterceptors().add(new NoCacheHeaderStrippingInterceptor());
@@ -102,6 +238,8 @@ public interface OkHttpClientProvider extends Provider<OkHttpClient> {
                                 BuildConfig.VERSION_NAME));
                 if (isOAuthBased) {
                     interceptors.add(new OauthHeaderRequestInterceptor(context));
+                    // Coalesce the identical API calls made by different screens at once
+                    interceptors.add(new SingleFlightInterceptor(singleFlightMetrics));
                 }
                 interceptors.add(new NewVersionBroadcastInterceptor());
                 if (BuildConfig.DEBUG) {
@@ -109,9 +247,11 @@ public interface OkHttpClientProvider extends Provider<OkHttpClient> {
                     loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
                     interceptors.add(loggingInterceptor);
                 }
-                builder.authenticator(oauthRefreshTokenAuthenticator);
-                // Enable TLS 1.2 support
-                client = Tls12SocketFactory.enableTls12OnPreLollipop(builder).build();
+                // Innermost, so that the other interceptors see the uncompressed bodies
+                interceptors.add(new GzipRequestInterceptor(
+                        config.getRequestCompressionConfig(), compressionMetrics));
+                interceptors.add(new ContentEncodingInterceptor(compressionMetrics));
+                client = builder.build();
                 clients[index] = client;
             }
             return client;
@@ -9,7 +9,7 @@ import org.edx.mobile.util.Config;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import okhttp3.OkHttpClient;
+import okhttp3.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -72,11 +72,11 @@ public interface RetrofitProvider {
         }
 
         @NonNull
-        private synchronized Retrofit get(final int index, @NonNull final OkHttpClient client) {
+        private synchronized Retrofit get(final int index, @NonNull final Call.Factory callFactory) {
             Retrofit retrofit = retrofits[index];
             if (retrofit == null) {
                 retrofit = new Retrofit.Builder()
-                        .client(client)
+                        .callFactory(callFactory)
                         .baseUrl(getBaseUrl(index))
                         .addConverterFactory(GsonConverterFactory.create(gson))
                         .build();
@@ -0,0 +1,76 @@
+package org.edx.mobile.http.util;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.module.prefs.PrefManager;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * The bandwidth of the current network, as last measured by the
+ * {@link org.edx.mobile.services.DownloadSpeedService}, for seeding the bandwidth estimate of the
+ * player when streaming videos. The quality of the downloaded videos doesn't depend on it, as the
+ * measured network may not be the one they're downloaded over.
+ * <p>
+ * The estimate is persisted in KiB/s, the unit the speed tests have always been reported in.
+ */
+@Singleton
+public class BandwidthModel {
+    @NonNull
+    private final PrefManager prefManager;
+    private volatile float estimateKbps;
+
+    @Inject
+    public BandwidthModel(@ApplicationContext @NonNull Context context) {
+        this.prefManager = new PrefManager(context, PrefManager.Pref.WIFI);
+        this.estimateKbps = prefManager.getFloat(PrefManager.Key.SPEED_TEST_KBPS, 0.0f);
+    }
+
+    /**
+     * @param bytesPerSecond The throughput measured on the current network.
+     */
+    public void update(double bytesPerSecond) {
+        setEstimateKbps((float) (bytesPerSecond / 1024));
+    }
+
+    /**
+     * Records that the bandwidth couldn't be measured on the current network, e.g. when the speed
+     * test timed out. The estimate of the previous network is discarded, so that the player falls
+     * back to its own default rather than being seeded with a made-up bitrate, while the encoding
+     * chosen by {@link org.edx.mobile.model.db.DownloadEntry#getBestEncodingUrl} stays the low one.
+     */
+    public void onProbeFailed() {
+        setEstimateKbps(0.0f);
+    }
+
+    private void setEstimateKbps(float estimateKbps) {
+        this.estimateKbps = estimateKbps;
+        prefManager.put(PrefManager.Key.SPEED_TEST_KBPS, estimateKbps);
+    }
+
+    /**
+     * @return <code>true</code> if the bandwidth of the current network has been measured.
+     */
+    public boolean hasEstimate() {
+        return estimateKbps > 0;
+    }
+
+    /**
+     * @return The estimated bandwidth in KiB/s, or 0 if it hasn't been measured.
+     */
+    public float getEstimatedKbps() {
+        return estimateKbps;
+    }
+
+    /**
+     * @return The estimated bandwidth in bits per second, or 0 if it hasn't been measured.
+     */
+    public long getEstimatedBitrate() {
+        return (long) (estimateKbps * 1024 * 8);
+    }
+}
@@ -0,0 +1,117 @@
+package org.edx.mobile.http.util;
+
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.http.cache.CacheTier;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Counts the bytes transferred for each class of endpoints, both as sent over the network and
+ * before compression, so that the data saved by compressing the API traffic can be reported.
+ * <p>
+ * A single instance is shared by all the clients of the app, and may be updated from any of
+ * their threads.
+ */
+public class CompressionMetrics {
+    private final Map<CacheTier, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Records a response body that has been read.
+     *
+     * @param url          The URL of the request.
+     * @param wireBytes    The number of bytes received, as encoded by the server.
+     * @param decodedBytes The number of bytes of the decoded body.
+     */
+    public void recordResponse(@NonNull HttpUrl url, long wireBytes, long decodedBytes) {
+        final Endpoint endpoint = getEndpoint(url);
+        endpoint.responseWireBytes.addAndGet(wireBytes);
+        endpoint.responseDecodedBytes.addAndGet(decodedBytes);
+    }
+
+    /**
+     * Records a request body that has been sent.
+     *
+     * @param url       The URL of the request.
+     * @param wireBytes The number of bytes sent, as encoded by the app.
+     * @param rawBytes  The number of bytes of the body before being encoded.
+     */
+    public void recordRequest(@NonNull HttpUrl url, long wireBytes, long rawBytes) {
+        final Endpoint endpoint = getEndpoint(url);
+        endpoint.requestWireBytes.addAndGet(wireBytes);
+        endpoint.requestRawBytes.addAndGet(rawBytes);
+    }
+
+    /**
+     * @return The byte counts of each class of endpoints that has been called.
+     */
+    @NonNull
+    public Map<CacheTier, Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return A human readable report of the bytes saved for each class of endpoints.
+     */
+    @NonNull
+    public String getReport() {
+        final StringBuilder report = new StringBuilder();
+        for (Map.Entry<CacheTier, Endpoint> entry : endpoints.entrySet()) {
+            final Endpoint endpoint = entry.getValue();
+            report.append(entry.getKey().getDirectoryName())
+                    .append(": responses ").append(endpoint.getResponseWireBytes())
+                    .append('/').append(endpoint.getResponseDecodedBytes())
+                    .append(" bytes, requests ").append(endpoint.getRequestWireBytes())
+                    .append('/').append(endpoint.getRequestRawBytes())
+                    .append(" bytes, ").append(endpoint.getSavedBytes()).append(" bytes saved\n");
+        }
+        return report.toString();
+    }
+
+    @NonNull
+    private Endpoint getEndpoint(@NonNull HttpUrl url) {
+        final CacheTier tier = CacheTier.of(url);
+        Endpoint endpoint = endpoints.get(tier);
+        if (endpoint == null) {
+            endpoints.putIfAbsent(tier, new Endpoint());
+            endpoint = endpoints.get(tier);
+        }
+        return endpoint;
+    }
+
+    public static class Endpoint {
+        private final AtomicLong responseWireBytes = new AtomicLong();
+        private final AtomicLong responseDecodedBytes = new AtomicLong();
+        private final AtomicLong requestWireBytes = new AtomicLong();
+        private final AtomicLong requestRawBytes = new AtomicLong();
+
+        public long getResponseWireBytes() {
+            return responseWireBytes.get();
+        }
+
+        public long getResponseDecodedBytes() {
+            return responseDecodedBytes.get();
+        }
+
+        public long getRequestWireBytes() {
+            return requestWireBytes.get();
+        }
+
+        public long getRequestRawBytes() {
+            return requestRawBytes.get();
+        }
+
+        /**
+         * @return The number of bytes that would have been transferred without compression, minus
+         * the number of bytes actually transferred.
+         */
+        public long getSavedBytes() {
+            return getResponseDecodedBytes() - getResponseWireBytes() +
+                    getRequestRawBytes() - getRequestWireBytes();
+        }
+    }
+}
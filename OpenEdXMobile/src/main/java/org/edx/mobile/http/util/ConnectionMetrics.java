@@ -0,0 +1,100 @@
+package org.edx.mobile.http.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * {@link EventListener} that counts the connections established by the {@link okhttp3.OkHttpClient}s
+ * it's installed on, so that the effectiveness of connection sharing can be measured.
+ * <p>
+ * A single instance is shared by all the clients derived from the same root client, and may be
+ * notified from any of their threads.
+ */
+public class ConnectionMetrics extends EventListener {
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong connectionAcquiredCount = new AtomicLong();
+    private final AtomicLong connectionEstablishedCount = new AtomicLong();
+    private final AtomicLong handshakeCount = new AtomicLong();
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callCount.incrementAndGet();
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        connectionEstablishedCount.incrementAndGet();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        handshakeCount.incrementAndGet();
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        connectionAcquiredCount.incrementAndGet();
+    }
+
+    /**
+     * @return The number of calls started.
+     */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /**
+     * @return The number of times a call acquired a connection, whether new or pooled.
+     */
+    public long getConnectionAcquiredCount() {
+        return connectionAcquiredCount.get();
+    }
+
+    /**
+     * @return The number of new connections established.
+     */
+    public long getConnectionEstablishedCount() {
+        return connectionEstablishedCount.get();
+    }
+
+    /**
+     * @return The number of TLS handshakes completed.
+     */
+    public long getHandshakeCount() {
+        return handshakeCount.get();
+    }
+
+    /**
+     * @return The fraction of connection acquisitions that were served by an already established
+     * connection, between 0 and 1, or 0 if no connection has been acquired yet.
+     */
+    public float getConnectionReuseRate() {
+        final long acquired = connectionAcquiredCount.get();
+        if (acquired == 0) {
+            return 0;
+        }
+        final long reused = Math.max(0, acquired - connectionEstablishedCount.get());
+        return (float) reused / acquired;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ConnectionMetrics{calls=" + getCallCount() +
+                ", acquired=" + getConnectionAcquiredCount() +
+                ", established=" + getConnectionEstablishedCount() +
+                ", handshakes=" + getHandshakeCount() +
+                ", reuseRate=" + getConnectionReuseRate() + "}";
+    }
+}
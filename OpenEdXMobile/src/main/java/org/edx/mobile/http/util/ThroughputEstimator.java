@@ -0,0 +1,95 @@
+package org.edx.mobile.http.util;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the throughput of a transfer while it's being read.
+ * <p>
+ * The bytes read are sampled over fixed time windows, and the throughput of each window is
+ * folded into an exponentially weighted moving average. Samples are weighted by the duration of
+ * their window, so that the last partial window of a transfer counts less than a full one, and a
+ * sample loses half its weight after {@link #HALF_LIFE_NS}.
+ * <p>
+ * This class isn't thread safe, a transfer is expected to be read by a single thread.
+ */
+public class ThroughputEstimator {
+    @VisibleForTesting
+    static final long WINDOW_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    @VisibleForTesting
+    static final long HALF_LIFE_NS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private long windowStartNs = -1;
+    private long windowBytes;
+    private long totalBytes;
+    private int sampleCount;
+    private double estimate = -1;
+
+    /**
+     * Starts the first window, e.g. once the response headers have been received, so that the
+     * latency of the request isn't accounted as throughput.
+     *
+     * @param nowNs The current time, as given by {@link System#nanoTime()}.
+     */
+    public void start(long nowNs) {
+        windowStartNs = nowNs;
+        windowBytes = 0;
+    }
+
+    /**
+     * @param byteCount The number of bytes read.
+     * @param nowNs     The current time, as given by {@link System#nanoTime()}.
+     */
+    public void onBytesRead(long byteCount, long nowNs) {
+        if (windowStartNs < 0) {
+            start(nowNs);
+        }
+        windowBytes += byteCount;
+        totalBytes += byteCount;
+        if (nowNs - windowStartNs >= WINDOW_NS) {
+            sample(nowNs);
+        }
+    }
+
+    /**
+     * Samples the last partial window of the transfer.
+     *
+     * @param nowNs The current time, as given by {@link System#nanoTime()}.
+     */
+    public void finish(long nowNs) {
+        if (windowBytes > 0 && nowNs > windowStartNs) {
+            sample(nowNs);
+        }
+    }
+
+    private void sample(long nowNs) {
+        final long elapsedNs = nowNs - windowStartNs;
+        final double throughput = windowBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNs;
+        if (estimate < 0) {
+            estimate = throughput;
+        } else {
+            final double weight = 1 - Math.pow(0.5, (double) elapsedNs / HALF_LIFE_NS);
+            estimate += weight * (throughput - estimate);
+        }
+        sampleCount++;
+        windowStartNs = nowNs;
+        windowBytes = 0;
+    }
+
+    /**
+     * @return The estimated throughput in bytes per second, or a negative value if no window has
+     * been sampled yet.
+     */
+    public double getEstimate() {
+        return estimate;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -13,16 +13,24 @@ import org.edx.mobile.model.api.IPathNode;
 import org.edx.mobile.util.VideoUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Default implementation of IBlock
  */
 public class CourseComponent implements IBlock, IPathNode {
     protected final static Logger logger = new Logger(CourseComponent.class.getName());
+    /* Shallow sizes of a component with its block data, and of a string object without its chars */
+    private static final int COMPONENT_OVERHEAD = 200;
+    private static final int STRING_OVERHEAD = 40;
     private String id;
     private String blockId;
     private BlockType type;
@@ -43,6 +51,16 @@ public class CourseComponent implements IBlock, IPathNode {
     private AuthorizationDenialReason authorizationDenialReason;
     private SpecialExamInfo specialExamInfo;
     private String productSku;
+    /**
+     * Lookup index of the whole tree, only held by the root, built lazily on first use and
+     * dropped whenever a component is added to the tree.
+     */
+    private volatile TreeIndex treeIndex;
+    /**
+     * Estimated number of bytes retained by the whole tree, only held by the root and accumulated
+     * as components are added to the tree.
+     */
+    private long estimatedSize;
 
     public CourseComponent() {
     }
@@ -98,7 +116,50 @@ public class CourseComponent implements IBlock, IPathNode {
             parent.getChildren().add(this);
             //we cache the root to improve the performance
             this.root = (CourseComponent) parent.getRoot();
+            this.root.treeIndex = null;
         }
+        this.root.estimatedSize += estimateSize(blockModel);
+    }
+
+    /**
+     * Adds a component that was created without a parent as the last child of this one. This lets
+     * a tree be built top-down once all of its components have been created, e.g. while decoding
+     * blocks that reference their descendants before these are read.
+     *
+     * @param child A component created without a parent, which has no children yet.
+     */
+    public void addChild(@NonNull CourseComponent child) {
+        child.parent = this;
+        child.root = root;
+        children.add(child);
+        root.estimatedSize += child.estimatedSize;
+        child.estimatedSize = 0;
+        root.treeIndex = null;
+    }
+
+    /**
+     * Recreates the block this component was created from, without its descendants, e.g. for
+     * persisting the tree.
+     */
+    @NonNull
+    public BlockModel toBlockModel() {
+        final BlockModel block = new BlockModel();
+        block.id = id;
+        block.blockId = blockId;
+        block.type = type;
+        block.displayName = name;
+        block.graded = graded;
+        block.studentViewUrl = blockUrl;
+        block.lmsWebUrl = webUrl;
+        block.studentViewMultiDevice = multiDevice;
+        block.format = format;
+        block.dueDate = dueDate;
+        block.authorizationDenialMessage = authorizationDenialMessage;
+        block.authorizationDenialReason = authorizationDenialReason;
+        block.blockCounts = blockCount;
+        block.completion = completion;
+        block.specialExamInfo = specialExamInfo;
+        return block;
     }
 
     @Override
@@ -316,6 +377,24 @@ public class CourseComponent implements IBlock, IPathNode {
         return childLeafs;
     }
 
+    /**
+     * find the node with the given id within this node's subtree, in constant time using the
+     * index of the tree. return null if get nothing.
+     */
+    public CourseComponent getComponentById(@NonNull String componentId) {
+        final TreeIndex index = getTreeIndex();
+        final int position = index.getPosition(this);
+        if (position < 0) {
+            // This node isn't part of its root's tree, e.g. it's a minified copy
+            return find(component -> componentId.equals(component.getId()));
+        }
+        final CourseComponent found = index.componentsById.get(componentId);
+        if (found == null || !index.isInSubtree(position, found)) {
+            return null;
+        }
+        return found;
+    }
+
     /**
      * recursively find the first node by matcher. return null if get nothing.
      */
@@ -402,6 +481,13 @@ public class CourseComponent implements IBlock, IPathNode {
      * @param leaves
      */
     public void fetchAllLeafComponents(List<CourseComponent> leaves, EnumSet<BlockType> types) {
+        final TreeIndex index = getTreeIndex();
+        final int position = index.getPosition(this);
+        if (position >= 0) {
+            index.fetchLeaves(position, types, leaves);
+            return;
+        }
+        // This node isn't part of its root's tree, e.g. it's a minified copy
         if (!isContainer() && types.contains(type)) {
             leaves.add(this);
         } else {
@@ -560,6 +646,57 @@ public class CourseComponent implements IBlock, IPathNode {
         return specialExamInfo;
     }
 
+    /**
+     * @return Rough estimate of the number of bytes retained by the tree this component belongs
+     * to, good enough to weigh trees against each other in memory caches.
+     */
+    public long getEstimatedTreeSize() {
+        return root != null ? root.estimatedSize : estimatedSize;
+    }
+
+    private static long estimateSize(@NonNull BlockModel block) {
+        long size = COMPONENT_OVERHEAD
+                + estimateSize(block.id)
+                + estimateSize(block.blockId)
+                + estimateSize(block.displayName)
+                + estimateSize(block.studentViewUrl)
+                + estimateSize(block.lmsWebUrl)
+                + estimateSize(block.format)
+                + estimateSize(block.dueDate)
+                + estimateSize(block.authorizationDenialMessage);
+        if (block.data instanceof VideoData) {
+            final VideoData data = (VideoData) block.data;
+            if (data.transcripts != null) {
+                for (Map.Entry<String, String> entry : data.transcripts.entrySet()) {
+                    size += STRING_OVERHEAD + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+                }
+            }
+            if (data.allSources != null) {
+                for (String source : data.allSources) {
+                    size += estimateSize(source);
+                }
+            }
+            if (data.encodedVideos != null) {
+                final EncodedVideos videos = data.encodedVideos;
+                size += estimateSize(videos.hls) + estimateSize(videos.getFallback())
+                        + estimateSize(videos.getDesktopMp4()) + estimateSize(videos.mobileHigh)
+                        + estimateSize(videos.mobileLow) + estimateSize(videos.youtube);
+            }
+        } else if (block.data instanceof DiscussionData) {
+            size += estimateSize(((DiscussionData) block.data).topicId);
+        }
+        return size;
+    }
+
+    private static long estimateSize(VideoInfo info) {
+        return info == null ? 0 : STRING_OVERHEAD + estimateSize(info.url);
+    }
+
+    private static long estimateSize(String value) {
+        // Strings hold UTF-16 chars
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
     public String getProductSku() {
         return productSku;
     }
@@ -567,4 +704,153 @@ public class CourseComponent implements IBlock, IPathNode {
     public void setProductSku(String productSku) {
         this.productSku = productSku;
     }
+
+    @NonNull
+    private TreeIndex getTreeIndex() {
+        final CourseComponent root = this.root != null ? this.root : this;
+        TreeIndex index = root.treeIndex;
+        if (index == null) {
+            synchronized (root) {
+                index = root.treeIndex;
+                if (index == null) {
+                    index = new TreeIndex(root);
+                    root.treeIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the nodes of a tree in depth-first pre-order, so that the nodes of any subtree
+     * occupy a contiguous range of positions. This lets the leaves of a given type below any node
+     * be looked up with a binary search instead of walking the subtree.
+     */
+    private static final class TreeIndex {
+        private static final int[] NO_POSITIONS = new int[0];
+
+        /* Nodes in pre-order */
+        private final List<CourseComponent> nodes = new ArrayList<>();
+        /* End (exclusive) of the subtree of the node at each position */
+        private final int[] subtreeEnds;
+        private final Map<String, CourseComponent> componentsById = new HashMap<>();
+        /* Identity based, as nodes of minified copies are equal to the original ones */
+        private final Map<CourseComponent, Integer> positions = new IdentityHashMap<>();
+        /* Sorted positions of the leaves of each type */
+        private final Map<BlockType, int[]> leafPositionsByType = new EnumMap<>(BlockType.class);
+
+        TreeIndex(@NonNull CourseComponent root) {
+            final Map<BlockType, List<Integer>> leavesByType = new EnumMap<>(BlockType.class);
+            final List<Integer> ends = new ArrayList<>();
+            add(root, leavesByType, ends);
+            subtreeEnds = new int[ends.size()];
+            for (int i = 0; i < subtreeEnds.length; i++) {
+                subtreeEnds[i] = ends.get(i);
+            }
+            for (Map.Entry<BlockType, List<Integer>> entry : leavesByType.entrySet()) {
+                final List<Integer> list = entry.getValue();
+                final int[] leafPositions = new int[list.size()];
+                for (int i = 0; i < leafPositions.length; i++) {
+                    leafPositions[i] = list.get(i);
+                }
+                leafPositionsByType.put(entry.getKey(), leafPositions);
+            }
+        }
+
+        private void add(@NonNull CourseComponent node,
+                         @NonNull Map<BlockType, List<Integer>> leavesByType,
+                         @NonNull List<Integer> ends) {
+            final int position = nodes.size();
+            nodes.add(node);
+            ends.add(position + 1);
+            positions.put(node, position);
+            if (node.id != null && !componentsById.containsKey(node.id)) {
+                // Keep the first match of a depth-first search, like find() does
+                componentsById.put(node.id, node);
+            }
+            if (!node.isContainer()) {
+                if (node.type != null) {
+                    List<Integer> leaves = leavesByType.get(node.type);
+                    if (leaves == null) {
+                        leaves = new ArrayList<>();
+                        leavesByType.put(node.type, leaves);
+                    }
+                    leaves.add(position);
+                }
+                return;
+            }
+            for (CourseComponent child : node.children) {
+                add(child, leavesByType, ends);
+            }
+            ends.set(position, nodes.size());
+        }
+
+        /**
+         * @return Position of the node in the tree, or -1 if it isn't part of the tree.
+         */
+        int getPosition(@NonNull CourseComponent node) {
+            final Integer position = positions.get(node);
+            return position == null ? -1 : position;
+        }
+
+        boolean isInSubtree(int position, @NonNull CourseComponent node) {
+            final int nodePosition = getPosition(node);
+            return nodePosition >= position && nodePosition < subtreeEnds[position];
+        }
+
+        void fetchLeaves(int position, @NonNull EnumSet<BlockType> types,
+                         @NonNull List<CourseComponent> leaves) {
+            final int end = subtreeEnds[position];
+            if (types.size() == 1) {
+                addLeaves(getLeafPositions(types.iterator().next()), position, end, leaves);
+                return;
+            }
+            // Merge the leaves of all the types back into the order of a depth-first walk
+            int[] merged = NO_POSITIONS;
+            for (BlockType type : types) {
+                final int[] leafPositions = getLeafPositions(type);
+                final int from = lowerBound(leafPositions, position);
+                final int to = lowerBound(leafPositions, end);
+                if (from < to) {
+                    final int[] combined = Arrays.copyOf(merged, merged.length + to - from);
+                    System.arraycopy(leafPositions, from, combined, merged.length, to - from);
+                    merged = combined;
+                }
+            }
+            Arrays.sort(merged);
+            for (int leafPosition : merged) {
+                leaves.add(nodes.get(leafPosition));
+            }
+        }
+
+        private void addLeaves(@NonNull int[] leafPositions, int start, int end,
+                               @NonNull List<CourseComponent> leaves) {
+            final int to = lowerBound(leafPositions, end);
+            for (int i = lowerBound(leafPositions, start); i < to; i++) {
+                leaves.add(nodes.get(leafPositions[i]));
+            }
+        }
+
+        @NonNull
+        private int[] getLeafPositions(@NonNull BlockType type) {
+            final int[] leafPositions = leafPositionsByType.get(type);
+            return leafPositions == null ? NO_POSITIONS : leafPositions;
+        }
+
+        /**
+         * @return Index of the first element that isn't less than the given value.
+         */
+        private static int lowerBound(@NonNull int[] sorted, int value) {
+            int low = 0, high = sorted.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (sorted[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
 }
@@ -1,39 +1,186 @@
 package org.edx.mobile.model.course;
 
-import com.google.gson.annotations.SerializedName;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.io.Serializable;
-import java.util.ArrayList;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * directly map raw json data from server.
+ * The course structure returned by the blocks API, decoded straight into the tree of
+ * {@link CourseComponent}s by {@link AdapterFactory}.
  */
-public class CourseStructureV1Model implements Serializable {
-
-    @SerializedName("blocks")
-    public BlockList blockData;
+public class CourseStructureV1Model {
 
-    @SerializedName("root")
+    /**
+     * The id of the root block.
+     */
+    @Nullable
     public String root;
 
-    public BlockModel getBlockById(String id) {
-        return blockData.get(id);
+    /**
+     * The component of the root block, with all the components below it, or null if the response
+     * has no root block.
+     */
+    @Nullable
+    public CourseComponent course;
+
+    /**
+     * @return <code>true</code> if the block is normalized into a container component.
+     */
+    public static boolean isContainerBlock(@NonNull BlockModel block) {
+        //TODO this(block.specialExamInfo == null) needs to be fixed as this a quick fix for LEARNER-8570
+        return block.isContainer() && block.specialExamInfo == null;
     }
 
     /**
-     * if parent is null, returns empty list.
+     * Creates the leaf component of a block and adds it to the given parent.
+     *
+     * @param parent The parent of the component, or null to add it later with
+     *               {@link CourseComponent#addChild}.
      */
-    public List<BlockModel> getDescendants(BlockModel parent) {
-        List<BlockModel> descendants = new ArrayList<>();
-        if (parent == null || !parent.isContainer() || null == parent.descendants)
-            return descendants;
-        for (String id : parent.descendants) {
-            BlockModel model = getBlockById(id);
-            if (model != null) {
-                descendants.add(model);
+    @NonNull
+    public static CourseComponent newLeafComponent(@NonNull BlockModel block,
+                                                   @Nullable CourseComponent parent) {
+        if (BlockType.VIDEO == block.type && block.data instanceof VideoData) {
+            return new VideoBlockModel(block, parent);
+        } else if (BlockType.DISCUSSION == block.type && block.data instanceof DiscussionData) {
+            return new DiscussionBlockModel(block, parent);
+        } else { //everything else.. we fallback to html component
+            return new HtmlBlockModel(block, parent);
+        }
+    }
+
+    /**
+     * Creates the adapter of {@link CourseStructureV1Model}, which builds the course tree while
+     * stream-decoding the blocks one at a time, instead of parsing the whole response into a JSON
+     * tree or keeping every {@link BlockModel} until the end.
+     * <p>
+     * The blocks reference their descendants before these are read, so the component of every
+     * block is created without a parent first, and only the ids of the descendants of the
+     * containers are kept. Once the response has been read, the components are linked top-down
+     * from the root, in the order of the descendants. The components share the strings and data
+     * of their blocks, which are dropped as soon as their component is created.
+     * <p>
+     * A block is only linked under the first container that references it, and the blocks that
+     * the root doesn't lead to are discarded.
+     */
+    public static class AdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != CourseStructureV1Model.class) {
+                return null;
+            }
+            return (TypeAdapter<T>) new Adapter(gson.getAdapter(BlockModel.class));
+        }
+    }
+
+    private static class Adapter extends TypeAdapter<CourseStructureV1Model> {
+        private final TypeAdapter<BlockModel> blockAdapter;
+
+        Adapter(TypeAdapter<BlockModel> blockAdapter) {
+            this.blockAdapter = blockAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, CourseStructureV1Model value) {
+            // Course structures are only received from the blocks API, and persisted by
+            // org.edx.mobile.course.CourseStructureSnapshot
+            throw new UnsupportedOperationException("Course structures can't be encoded to JSON");
+        }
+
+        @Override
+        public CourseStructureV1Model read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            final CourseStructureV1Model model = new CourseStructureV1Model();
+            final Map<String, CourseComponent> componentsById = new HashMap<>();
+            // The ids of the descendants of the containers that haven't been linked yet
+            final Map<String, List<String>> pendingDescendants = new HashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "root":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            model.root = in.nextString();
+                        }
+                        break;
+                    case "blocks":
+                        readBlocks(in, componentsById, pendingDescendants);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (model.root != null && pendingDescendants.containsKey(model.root)) {
+                // The root is always normalized into a container
+                model.course = componentsById.get(model.root);
+                linkDescendants(model.course, model.root, componentsById, pendingDescendants);
+            }
+            return model;
+        }
+
+        private void readBlocks(@NonNull JsonReader in,
+                                @NonNull Map<String, CourseComponent> componentsById,
+                                @NonNull Map<String, List<String>> pendingDescendants)
+                throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return;
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                final String id = in.nextName();
+                final BlockModel block = blockAdapter.read(in);
+                if (block == null) {
+                    continue;
+                }
+                if (isContainerBlock(block)) {
+                    componentsById.put(id, new CourseComponent(block, null));
+                    pendingDescendants.put(id, block.descendants != null ?
+                            block.descendants : Collections.emptyList());
+                } else {
+                    componentsById.put(id, newLeafComponent(block, null));
+                }
+            }
+            in.endObject();
+        }
+
+        private static void linkDescendants(@NonNull CourseComponent parent,
+                                            @NonNull String parentId,
+                                            @NonNull Map<String, CourseComponent> componentsById,
+                                            @NonNull Map<String, List<String>> pendingDescendants) {
+            final List<String> descendants = pendingDescendants.remove(parentId);
+            if (descendants == null) {
+                // A leaf, or a container already linked
+                return;
+            }
+            for (String id : descendants) {
+                final CourseComponent child = componentsById.get(id);
+                if (child == null || child.getParent() != null || child == parent.getRoot()) {
+                    continue;
+                }
+                parent.addChild(child);
+                linkDescendants(child, id, componentsById, pendingDescendants);
             }
         }
-        return descendants;
     }
 }
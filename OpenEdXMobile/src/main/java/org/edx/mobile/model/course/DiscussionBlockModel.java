@@ -15,6 +15,14 @@ public class DiscussionBlockModel extends CourseComponent {
         this.data = (DiscussionData) blockModel.data;
     }
 
+    @NonNull
+    @Override
+    public BlockModel toBlockModel() {
+        final BlockModel block = super.toBlockModel();
+        block.data = data;
+        return block;
+    }
+
     public DiscussionData getData() {
         return data;
     }
@@ -16,6 +16,14 @@ public class HtmlBlockModel extends CourseComponent{
         this.data =  blockModel.data;
     }
 
+    @NonNull
+    @Override
+    public BlockModel toBlockModel() {
+        final BlockModel block = super.toBlockModel();
+        block.data = data;
+        return block;
+    }
+
     public BlockData getData() {
         return data;
     }
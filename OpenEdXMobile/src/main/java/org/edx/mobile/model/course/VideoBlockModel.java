@@ -61,6 +61,14 @@ public class VideoBlockModel extends CourseComponent implements HasDownloadEntry
         return downloadUrl;
     }
 
+    @NonNull
+    @Override
+    public BlockModel toBlockModel() {
+        final BlockModel block = super.toBlockModel();
+        block.data = data;
+        return block;
+    }
+
     public VideoData getData() {
         return data;
     }
@@ -12,11 +12,23 @@ public final class DbStructure {
     // Updated to Version 5 to create a new table to record learning history for assessment
     // Updated to Version 6 to swap every occurrence of username field to its SHA1 hash
     // Updated to Version 7 to add a new field for HLS url encodings
-    public static final int VERSION = 7;
+    // Updated to Version 8 to add indexes matching the query shapes of IDatabase
+    // Updated to Version 9 to create a new table for the block completions waiting to be reported
+    public static final int VERSION = 9;
 
     public static final class Table {
         public static final String DOWNLOADS = "downloads";
         public static final String ASSESSMENT = "assessment";
+        public static final String COMPLETION_OUTBOX = "completion_outbox";
+    }
+
+    public static final class Index {
+        public static final String DOWNLOADS_USERNAME_VIDEO_ID = "idx_downloads_username_video_id";
+        public static final String DOWNLOADS_USERNAME_STATE = "idx_downloads_username_state";
+        public static final String DOWNLOADS_USERNAME_COURSE = "idx_downloads_username_course";
+        public static final String DOWNLOADS_USERNAME_URL = "idx_downloads_username_url";
+        public static final String DOWNLOADS_DM_ID = "idx_downloads_dm_id";
+        public static final String ASSESSMENT_USERNAME_UNIT_ID = "idx_assessment_username_unit_id";
     }
 
     public static final class Column {
@@ -51,5 +63,11 @@ public final class DbStructure {
         public static final String ASSESSMENT_TB_USERNAME = "username";
         public static final String ASSESSMENT_TB_UNIT_ID = "unit_id";
         public static final String ASSESSMENT_TB_UNIT_WATCHED = "unit_watched";
+
+        //table for block completions waiting to be reported
+        public static final String COMPLETION_OUTBOX_TB_ID = "_id";
+        public static final String COMPLETION_OUTBOX_TB_USERNAME = "username";
+        public static final String COMPLETION_OUTBOX_TB_COURSE_ID = "course_id";
+        public static final String COMPLETION_OUTBOX_TB_BLOCK_ID = "block_id";
     }
 }
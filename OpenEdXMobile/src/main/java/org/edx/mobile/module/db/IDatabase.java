@@ -10,6 +10,7 @@ import org.edx.mobile.model.db.DownloadEntry.WatchedState;
 import org.edx.mobile.module.db.impl.DatabaseFactory;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface represents a database object. All the methods that are required by UI layer
@@ -247,6 +248,31 @@ public interface IDatabase {
      */
     Long addVideoData(VideoModel de, DataCallback<Long> callback);
 
+    /**
+     * Inserts the given videos that are not in the database yet, and updates the download info
+     * of the ones that already are, all within a single transaction. The download info that is
+     * updated is the same as in {@link #updateDownloadingVideoInfoByVideoId(VideoModel, DataCallback)}.
+     *
+     * @param videos       - List of IVideoModel objects, with their download info mapped
+     * @param updateFilter - Picks the existing videos that are updated, if given. The ones that
+     *                     don't exist yet are inserted anyway.
+     * @param callback
+     * @return - the number of videos that were inserted or updated
+     */
+    Integer addVideosBatch(@NonNull List<? extends VideoModel> videos,
+                           @Nullable UpdateFilter updateFilter,
+                           @Nullable DataCallback<Integer> callback);
+
+    /**
+     * Returns the videos that are downloaded or being downloaded from any of the given URLs.
+     *
+     * @param videoUrls - URLs of the videos, any number of them
+     * @param callback
+     * @return - the videos downloaded or being downloaded from the URLs
+     */
+    List<VideoModel> getDownloadsByVideoUrls(@NonNull List<String> videoUrls,
+                                             @Nullable DataCallback<List<VideoModel>> callback);
+
     /**
      * Returns VideoEntry for the passed VideoId
      *
@@ -487,4 +513,48 @@ public interface IDatabase {
      */
     boolean isUnitAccessed(DataCallback<Boolean> callback, String unitId);
 
+    /**
+     * Records the completion of a block in the outbox of completions waiting to be reported to
+     * the server. Recording an already pending block again has no effect.
+     *
+     * @param courseId Id of the course the block belongs to.
+     * @param blockId  Id of the completed block.
+     * @param callback Callback to use for delivering the result.
+     */
+    Long addPendingBlockCompletion(@NonNull String courseId, @NonNull String blockId,
+                                   @Nullable DataCallback<Long> callback);
+
+    /**
+     * Returns the block completions of the logged in user waiting to be reported.
+     *
+     * @param callback Callback to use for delivering the result.
+     * @return The ids of the pending blocks keyed by course id, in the order they were recorded.
+     */
+    Map<String, List<String>> getPendingBlockCompletions(
+            @Nullable DataCallback<Map<String, List<String>>> callback);
+
+    /**
+     * Removes reported block completions from the outbox.
+     *
+     * @param courseId Id of the course the blocks belong to.
+     * @param blockIds Ids of the reported blocks.
+     * @param callback Callback to use for delivering the result.
+     */
+    Integer removePendingBlockCompletions(@NonNull String courseId, @NonNull List<String> blockIds,
+                                          @Nullable DataCallback<Integer> callback);
+
+    /**
+     * Picks the existing videos that {@link #addVideosBatch} updates.
+     */
+    interface UpdateFilter {
+        /**
+         * Called on the database thread, within the transaction adding the videos, so it must not
+         * do any I/O.
+         *
+         * @param video Video being added, which already exists in the database.
+         * @return false if the existing video must be left as it is, e.g. if the download info of
+         * the video couldn't be mapped.
+         */
+        boolean shouldUpdate(@NonNull VideoModel video);
+    }
 }
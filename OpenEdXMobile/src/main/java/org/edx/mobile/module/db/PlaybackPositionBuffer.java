@@ -0,0 +1,132 @@
+package org.edx.mobile.module.db;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.util.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * Write-behind buffer for the last played offsets of videos.
+ * <p>
+ * The player reports its position every second, this buffer only keeps the latest offset of
+ * each video in memory and writes it to the {@link IDatabase} once per flush interval, when
+ * playback is paused or stopped, and when the app moves to the background, where its process
+ * may be killed at any moment.
+ */
+@Singleton
+public class PlaybackPositionBuffer implements ComponentCallbacks2 {
+
+    private static final Logger logger = new Logger(PlaybackPositionBuffer.class.getName());
+
+    @NonNull
+    private final IDatabase db;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /* Latest unsaved offset of every video, keyed by video id */
+    @NonNull
+    private final Map<String, Long> pendingOffsets = new HashMap<>();
+    private final long flushIntervalMs;
+
+    @NonNull
+    private final Runnable flushRunnable = this::flush;
+
+    @NonNull
+    private final DataCallback<Integer> flushCallback = new DataCallback<Integer>() {
+        @Override
+        public void onResult(Integer result) {
+            logger.debug("Current Playback Position Updated");
+        }
+
+        @Override
+        public void onFail(Exception ex) {
+            logger.error(ex);
+        }
+    };
+
+    @Inject
+    public PlaybackPositionBuffer(@ApplicationContext @NonNull Context context,
+                                  @NonNull IDatabase db, @NonNull Config config) {
+        this.db = db;
+        this.flushIntervalMs = TimeUnit.SECONDS.toMillis(
+                config.getPlaybackPositionFlushIntervalSeconds());
+        context.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Records the last played offset of a video, replacing any offset of the same video that
+     * hasn't been written yet. The offset is written on the next flush.
+     *
+     * @param videoId Video's ID.
+     * @param offset  Last played offset in milliseconds.
+     */
+    public void updateLastPlayedOffset(@NonNull String videoId, long offset) {
+        final boolean scheduleFlush;
+        synchronized (pendingOffsets) {
+            scheduleFlush = pendingOffsets.isEmpty();
+            pendingOffsets.put(videoId, offset);
+        }
+        if (scheduleFlush) {
+            handler.postDelayed(flushRunnable, flushIntervalMs);
+        }
+    }
+
+    /**
+     * @param videoId Video's ID.
+     * @return The offset of the video that is waiting to be written, or null if there is none.
+     */
+    @Nullable
+    public Long getPendingLastPlayedOffset(@NonNull String videoId) {
+        synchronized (pendingOffsets) {
+            return pendingOffsets.get(videoId);
+        }
+    }
+
+    /**
+     * Writes all the buffered offsets to the database.
+     */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        final Map<String, Long> offsets;
+        synchronized (pendingOffsets) {
+            if (pendingOffsets.isEmpty()) {
+                return;
+            }
+            offsets = new HashMap<>(pendingOffsets);
+            pendingOffsets.clear();
+        }
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            db.updateVideoLastPlayedOffset(entry.getKey(), entry.getValue(), flushCallback);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // The app's UI is hidden or the system is low on memory, our process may be killed soon
+        flush();
+    }
+
+    @Override
+    public void onLowMemory() {
+        flush();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
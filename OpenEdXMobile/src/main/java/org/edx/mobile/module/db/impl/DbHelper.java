@@ -32,6 +32,8 @@ class DbHelper extends SQLiteOpenHelper {
     public DbHelper(Context context) {
         super(context, DbStructure.NAME, null, DbStructure.VERSION);
         this.context = context;
+        // WAL lets the reader threads of IDatabaseBaseImpl query while a write is in progress
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -65,6 +67,8 @@ class DbHelper extends SQLiteOpenHelper {
         db.execSQL(sql);
 
         createAssessmentTable(db);
+        createCompletionOutboxTable(db);
+        createIndexes(db);
 
         logger.debug("Database created");
     }
@@ -80,6 +84,53 @@ class DbHelper extends SQLiteOpenHelper {
         db.execSQL(sql);
     }
 
+    /**
+     * Creates the table of block completions waiting to be reported. A block is only recorded
+     * once per user and course, the unique constraint makes any further insertion a no-op.
+     */
+    private void createCompletionOutboxTable(SQLiteDatabase db) {
+        String sql = "CREATE TABLE "                                + DbStructure.Table.COMPLETION_OUTBOX
+            + " ("
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_ID        + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_USERNAME  + " TEXT, "
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_COURSE_ID + " TEXT, "
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_BLOCK_ID  + " TEXT, "
+            + "UNIQUE ("
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_USERNAME  + ", "
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_COURSE_ID + ", "
+            + DbStructure.Column.COMPLETION_OUTBOX_TB_BLOCK_ID  + ") ON CONFLICT IGNORE"
+            + ")";
+        db.execSQL(sql);
+    }
+
+    /**
+     * Creates the secondary indexes used by the queries of {@link IDatabaseImpl}. Every query is
+     * scoped to the user, so the username is the leading column of the indexes, followed by the
+     * columns that the queries filter by equality.
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        createIndex(db, DbStructure.Index.DOWNLOADS_USERNAME_VIDEO_ID, DbStructure.Table.DOWNLOADS,
+                DbStructure.Column.USERNAME, DbStructure.Column.VIDEO_ID);
+        createIndex(db, DbStructure.Index.DOWNLOADS_USERNAME_STATE, DbStructure.Table.DOWNLOADS,
+                DbStructure.Column.USERNAME, DbStructure.Column.DOWNLOADED,
+                DbStructure.Column.EID, DbStructure.Column.CHAPTER, DbStructure.Column.SECTION);
+        createIndex(db, DbStructure.Index.DOWNLOADS_USERNAME_COURSE, DbStructure.Table.DOWNLOADS,
+                DbStructure.Column.USERNAME, DbStructure.Column.EID,
+                DbStructure.Column.CHAPTER, DbStructure.Column.SECTION);
+        createIndex(db, DbStructure.Index.DOWNLOADS_USERNAME_URL, DbStructure.Table.DOWNLOADS,
+                DbStructure.Column.USERNAME, DbStructure.Column.URL);
+        // Download manager ids are looked up without the username on download completion
+        createIndex(db, DbStructure.Index.DOWNLOADS_DM_ID, DbStructure.Table.DOWNLOADS,
+                DbStructure.Column.DM_ID);
+        createIndex(db, DbStructure.Index.ASSESSMENT_USERNAME_UNIT_ID, DbStructure.Table.ASSESSMENT,
+                DbStructure.Column.ASSESSMENT_TB_USERNAME, DbStructure.Column.ASSESSMENT_TB_UNIT_ID);
+    }
+
+    private void createIndex(SQLiteDatabase db, String name, String table, String... columns) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + name + " ON " + table
+                + " (" + TextUtils.join(", ", Arrays.<CharSequence>asList(columns)) + ")");
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         String upgradeToV2 =
@@ -215,13 +266,23 @@ class DbHelper extends SQLiteOpenHelper {
                     new String[]{String.valueOf(DownloadEntry.DownloadedState.ONLINE.ordinal())});
         }
 
+        if (oldVersion < 8) {
+            // upgrade to version 8
+            createIndexes(db);
+        }
+
+        if (oldVersion < 9) {
+            // upgrade to version 9
+            createCompletionOutboxTable(db);
+        }
+
     }
 
     /**
      * Returns singleton writable {@link SQLiteDatabase} object.
      * @return
      */
-    public SQLiteDatabase getDatabase() {
+    public synchronized SQLiteDatabase getDatabase() {
         if (sqliteDb == null) {
             sqliteDb = this.getWritableDatabase();
             logger.debug("Writable database handle opened");
@@ -0,0 +1,166 @@
+package org.edx.mobile.module.db.impl;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.edx.mobile.model.VideoModel;
+import org.edx.mobile.module.db.DbStructure;
+import org.edx.mobile.module.db.IDatabase;
+import org.edx.mobile.util.TextUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Inserts the videos that don't exist yet and updates the download info of the ones that do, for
+ * a whole list of videos within a single transaction using compiled statements.
+ * <p>
+ * The download info is expected to be mapped on the videos already, so that the transaction only
+ * writes to the database. If a {@link IDatabase.UpdateFilter} is given, the existing videos it
+ * rejects aren't updated, while the ones that don't exist yet are inserted anyway.
+ */
+class DbOperationAddVideos extends DbOperationBase<Integer> {
+
+    private static final String[] INSERT_COLUMNS = new String[]{
+            DbStructure.Column.USERNAME,
+            DbStructure.Column.TITLE,
+            DbStructure.Column.VIDEO_ID,
+            DbStructure.Column.SIZE,
+            DbStructure.Column.DURATION,
+            DbStructure.Column.FILEPATH,
+            DbStructure.Column.URL,
+            DbStructure.Column.URL_HLS,
+            DbStructure.Column.URL_HIGH_QUALITY,
+            DbStructure.Column.URL_LOW_QUALITY,
+            DbStructure.Column.URL_YOUTUBE,
+            DbStructure.Column.WATCHED,
+            DbStructure.Column.DOWNLOADED,
+            DbStructure.Column.DM_ID,
+            DbStructure.Column.EID,
+            DbStructure.Column.CHAPTER,
+            DbStructure.Column.SECTION,
+            DbStructure.Column.LAST_PLAYED_OFFSET,
+            DbStructure.Column.UNIT_URL,
+            DbStructure.Column.IS_COURSE_ACTIVE,
+            DbStructure.Column.VIDEO_FOR_WEB_ONLY
+    };
+
+    private final List<? extends VideoModel> videos;
+    @Nullable
+    private final IDatabase.UpdateFilter updateFilter;
+    private final String username;
+
+    DbOperationAddVideos(@NonNull List<? extends VideoModel> videos,
+                         @Nullable IDatabase.UpdateFilter updateFilter,
+                         @Nullable String username) {
+        this.videos = videos;
+        this.updateFilter = updateFilter;
+        this.username = username;
+    }
+
+    @Override
+    public Integer execute(SQLiteDatabase db) {
+        final SQLiteStatement existsStatement = db.compileStatement(
+                "SELECT COUNT(*) FROM " + DbStructure.Table.DOWNLOADS + " WHERE "
+                        + DbStructure.Column.VIDEO_ID + "=? AND "
+                        + DbStructure.Column.USERNAME + "=?");
+        final SQLiteStatement insertStatement = db.compileStatement(
+                "INSERT INTO " + DbStructure.Table.DOWNLOADS
+                        + " (" + TextUtils.join(", ", Arrays.<CharSequence>asList(INSERT_COLUMNS))
+                        + ") VALUES (" + TextUtils.join(", ",
+                        Collections.<CharSequence>nCopies(INSERT_COLUMNS.length, "?")) + ")");
+        final SQLiteStatement updateStatement = db.compileStatement(
+                "UPDATE " + DbStructure.Table.DOWNLOADS + " SET "
+                        + DbStructure.Column.DM_ID + "=?, "
+                        + DbStructure.Column.DOWNLOADED + "=?, "
+                        + DbStructure.Column.DURATION + "=?, "
+                        + DbStructure.Column.FILEPATH + "=?, "
+                        + DbStructure.Column.SIZE + "=?, "
+                        + DbStructure.Column.IS_COURSE_ACTIVE + "=? WHERE "
+                        + DbStructure.Column.VIDEO_ID + "=? AND "
+                        + DbStructure.Column.USERNAME + "=?");
+        int count = 0;
+        db.beginTransaction();
+        try {
+            for (VideoModel video : videos) {
+                bindString(existsStatement, 1, video.getVideoId());
+                bindString(existsStatement, 2, username);
+                if (existsStatement.simpleQueryForLong() == 0) {
+                    bindInsert(insertStatement, video);
+                    if (insertStatement.executeInsert() != -1) {
+                        count++;
+                    }
+                } else if (updateFilter == null || updateFilter.shouldUpdate(video)) {
+                    bindUpdate(updateStatement, video);
+                    if (updateStatement.executeUpdateDelete() > 0) {
+                        count++;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            existsStatement.close();
+            insertStatement.close();
+            updateStatement.close();
+        }
+        return count;
+    }
+
+    private void bindInsert(@NonNull SQLiteStatement statement, @NonNull VideoModel video) {
+        statement.clearBindings();
+        int index = 0;
+        bindString(statement, ++index, username);
+        bindString(statement, ++index, video.getTitle());
+        bindString(statement, ++index, video.getVideoId());
+        statement.bindLong(++index, video.getSize());
+        statement.bindLong(++index, video.getDuration());
+        bindString(statement, ++index, video.getFilePath());
+        bindString(statement, ++index, video.getVideoUrl());
+        bindString(statement, ++index, video.getHLSVideoUrl());
+        bindString(statement, ++index, video.getHighQualityVideoUrl());
+        bindString(statement, ++index, video.getLowQualityVideoUrl());
+        bindString(statement, ++index, video.getYoutubeVideoUrl());
+        statement.bindLong(++index, video.getWatchedStateOrdinal());
+        statement.bindLong(++index, video.getDownloadedStateOrdinal());
+        statement.bindLong(++index, video.getDmId());
+        bindString(statement, ++index, video.getEnrollmentId());
+        bindString(statement, ++index, video.getChapterName());
+        bindString(statement, ++index, video.getSectionName());
+        statement.bindLong(++index, video.getLastPlayedOffset());
+        bindString(statement, ++index, video.getLmsUrl());
+        statement.bindLong(++index, video.isCourseActive() ? 1 : 0);
+        statement.bindLong(++index, video.isVideoForWebOnly() ? 1 : 0);
+    }
+
+    private void bindUpdate(@NonNull SQLiteStatement statement, @NonNull VideoModel video) {
+        statement.clearBindings();
+        int index = 0;
+        statement.bindLong(++index, video.getDmId());
+        statement.bindLong(++index, video.getDownloadedStateOrdinal());
+        statement.bindLong(++index, video.getDuration());
+        bindString(statement, ++index, video.getFilePath());
+        statement.bindLong(++index, video.getSize());
+        statement.bindLong(++index, video.isCourseActive() ? 1 : 0);
+        bindString(statement, ++index, video.getVideoId());
+        bindString(statement, ++index, username);
+    }
+
+    private static void bindString(@NonNull SQLiteStatement statement, int index,
+                                   @Nullable String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    @Override
+    public Integer getDefaultValue() {
+        return 0;
+    }
+}
@@ -19,6 +19,11 @@ abstract class DbOperationBase<T> implements IDbOperation<T> {
         return callback;
     }
     
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
     @Override
     public T requestExecute(SQLiteDatabase db) {
         try {
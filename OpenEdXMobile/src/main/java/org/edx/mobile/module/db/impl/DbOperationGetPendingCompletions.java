@@ -0,0 +1,53 @@
+package org.edx.mobile.module.db.impl;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+import org.edx.mobile.module.db.DbStructure;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Returns the block completions of a user that are waiting to be reported, as lists of block ids
+ * keyed by course id, in the order they were recorded.
+ */
+class DbOperationGetPendingCompletions extends DbOperationSelect<Map<String, List<String>>> {
+
+    DbOperationGetPendingCompletions(@Nullable String username) {
+        super(false, DbStructure.Table.COMPLETION_OUTBOX,
+                new String[]{DbStructure.Column.COMPLETION_OUTBOX_TB_COURSE_ID,
+                        DbStructure.Column.COMPLETION_OUTBOX_TB_BLOCK_ID},
+                DbStructure.Column.COMPLETION_OUTBOX_TB_USERNAME + "=?",
+                new String[]{username}, DbStructure.Column.COMPLETION_OUTBOX_TB_ID);
+    }
+
+    @Override
+    public Map<String, List<String>> execute(SQLiteDatabase db) {
+        final Map<String, List<String>> completions = new LinkedHashMap<>();
+        final Cursor c = getCursor(db);
+        try {
+            while (c.moveToNext()) {
+                final String courseId = c.getString(0);
+                List<String> blockIds = completions.get(courseId);
+                if (blockIds == null) {
+                    blockIds = new ArrayList<>();
+                    completions.put(courseId, blockIds);
+                }
+                blockIds.add(c.getString(1));
+            }
+        } finally {
+            c.close();
+        }
+        return completions;
+    }
+
+    @Override
+    public Map<String, List<String>> getDefaultValue() {
+        return new LinkedHashMap<>();
+    }
+}
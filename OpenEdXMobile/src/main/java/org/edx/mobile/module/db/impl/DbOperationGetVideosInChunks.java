@@ -0,0 +1,82 @@
+package org.edx.mobile.module.db.impl;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.model.VideoModel;
+import org.edx.mobile.util.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Selects the videos whose column value is one of a possibly very large set of values, by
+ * splitting the {@code IN (...)} clause into fixed size chunks and merging their results.
+ * <p>
+ * This keeps every query below SQLite's limit on the number of bound parameters. The last chunk is
+ * padded with its last value so that all chunks share the same SQL, letting the connection's
+ * prepared statement cache reuse a single compiled statement for every chunk and every poll.
+ */
+class DbOperationGetVideosInChunks extends DbOperationBase<List<VideoModel>> {
+
+    /**
+     * Number of values bound per chunk, well below the default SQLITE_MAX_VARIABLE_NUMBER of 999
+     * to leave room for the other arguments of the where clause.
+     */
+    static final int CHUNK_SIZE = 500;
+
+    private final List<DbOperationGetVideos> chunks = new ArrayList<>();
+
+    /**
+     * @param table        Table to select from.
+     * @param inColumn     Column to be matched against the values.
+     * @param values       Values to match, any number of them.
+     * @param whereClause  Additional where clause that is ANDed with the IN clause, may be null.
+     * @param whereArgs    Arguments of the additional where clause, may be null.
+     */
+    DbOperationGetVideosInChunks(@NonNull String table, @NonNull String inColumn,
+                                 @NonNull List<String> values, String whereClause,
+                                 String[] whereArgs) {
+        final String inClause = inColumn + " IN (" + TextUtils.join(",",
+                Collections.<CharSequence>nCopies(CHUNK_SIZE, "?")) + ")";
+        final String chunkWhereClause = whereClause == null ? inClause
+                : whereClause + " AND " + inClause;
+        final int extraArgs = whereArgs == null ? 0 : whereArgs.length;
+
+        for (int start = 0; start < values.size(); start += CHUNK_SIZE) {
+            final List<String> chunk = values.subList(start,
+                    Math.min(start + CHUNK_SIZE, values.size()));
+            final String[] chunkArgs = new String[extraArgs + CHUNK_SIZE];
+            if (whereArgs != null) {
+                System.arraycopy(whereArgs, 0, chunkArgs, 0, extraArgs);
+            }
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                // Pad the last chunk by repeating its last value, which doesn't change the result
+                chunkArgs[extraArgs + i] = chunk.get(Math.min(i, chunk.size() - 1));
+            }
+            chunks.add(new DbOperationGetVideos(false, table, null, chunkWhereClause,
+                    chunkArgs, null));
+        }
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public List<VideoModel> execute(SQLiteDatabase db) {
+        final List<VideoModel> list = new ArrayList<>();
+        for (DbOperationGetVideos chunk : chunks) {
+            list.addAll(chunk.execute(db));
+        }
+        return list;
+    }
+
+    @Override
+    public List<VideoModel> getDefaultValue() {
+        return new ArrayList<>();
+    }
+}
@@ -2,6 +2,7 @@ package org.edx.mobile.module.db.impl;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
 
 abstract class DbOperationSelect<T> extends DbOperationBase<T> {
     
@@ -21,6 +22,24 @@ abstract class DbOperationSelect<T> extends DbOperationBase<T> {
         this.orderBy = orderBy;
     }
     
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Returns the SQL statement that {@link #getCursor(SQLiteDatabase)} executes, with
+     * placeholders for the {@link #getWhereArgs()}.
+     */
+    String getQuery() {
+        return SQLiteQueryBuilder.buildQueryString(distinct, table, columns, whereClause,
+                null, null, orderBy, null);
+    }
+
+    String[] getWhereArgs() {
+        return whereArgs;
+    }
+
     public Cursor getCursor(SQLiteDatabase db) {
         if (table == null) {
             throw new IllegalArgumentException("table must be provided");
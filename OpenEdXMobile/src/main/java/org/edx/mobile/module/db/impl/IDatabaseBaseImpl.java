@@ -3,47 +3,68 @@ package org.edx.mobile.module.db.impl;
 import android.content.Context;
 import android.database.sqlite.SQLiteException;
 
-import org.edx.mobile.logger.Logger;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import org.edx.mobile.logger.Logger;
 
-class IDatabaseBaseImpl implements Runnable {
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executes {@link IDbOperation}s against the database.
+ * <p>
+ * Write operations are serialized, either on a single dedicated writer thread (when a callback
+ * is provided) or on the caller's thread while holding the writer lock. Read operations run
+ * concurrently on a small pool of reader threads, which is possible because {@link DbHelper}
+ * opens the database in write-ahead logging mode. The asynchronous operations are still seen in
+ * the order they were enqueued: a read waits for the writes enqueued before it, and a write waits
+ * for the reads enqueued before it, so that a read never observes a write requested after it.
+ */
+class IDatabaseBaseImpl {
     protected static final Logger logger = new Logger(IDatabaseBaseImpl.class.getName());
+    /**
+     * Number of threads serving the read operations, WAL allows these to run in parallel with
+     * the writer.
+     */
+    private static final int READER_THREAD_COUNT = 3;
+    /**
+     * How long {@link #release()} waits for the pending operations before closing the database.
+     */
+    private static final long RELEASE_TIMEOUT_SECONDS = 5;
+
     protected Context context;
     private DbHelper helper;
-    private Queue<IDbOperation<?>> opQueue = new LinkedList<IDbOperation<?>>();
-    private boolean isQueueProcessing = false;
+    private final ExecutorService writeExecutor =
+            Executors.newSingleThreadExecutor(new DbThreadFactory("db-writer"));
+    private final ExecutorService readExecutor =
+            Executors.newFixedThreadPool(READER_THREAD_COUNT, new DbThreadFactory("db-reader"));
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /**
+     * The most recently enqueued asynchronous write, reads enqueued after it wait for it to finish.
+     */
+    @Nullable
+    private Future<?> lastWrite;
+    /**
+     * The asynchronous reads enqueued since the last write, the next write waits for them to finish.
+     */
+    private final List<Future<?>> pendingReads = new ArrayList<>();
 
     public IDatabaseBaseImpl(Context context) {
         this.context = context;
         helper = new DbHelper(context);
     }
 
-    @Override
-    public void run() {
-        if (isQueueProcessing) {
-            // queue is already being processed, so return
-            // this will NOT allow multiple threads to process operation queue
-            return;
-        }
-
-        do {
-            // mark queue being processed
-            isQueueProcessing = true;
-            IDbOperation<?> op = getNextQueuedOperation();
-            if (op == null) {
-                break;
-            }
-            // perform the database operation
-            execute(op);
-        } while (true);
-
-        // mark queue not being processed
-        isQueueProcessing = false;
-        // logger.debug("All database operations completed, queue is empty");
-    }
-
     /**
      * Executes given database operation. This is a blocking call.
      * Returns result of the operation.
@@ -51,72 +72,138 @@ class IDatabaseBaseImpl implements Runnable {
      * @param op
      * @return
      */
-    private synchronized <T> T execute(IDbOperation<T> op) {
-        // perform this database operation
-        synchronized (helper) {
-            T result;
-            try {
-                result = op.requestExecute(helper.getDatabase());
-            } catch (SQLiteException e) {
-                /* Catch any SQLite exceptions thrown by the operation, or by the database creation
-                 * or upgrade process invoked by the helper, deliver the exception to the callback,
-                 * log it in Crashlytics, and return the default value of the operation.
-                 */
+    private <T> T execute(IDbOperation<T> op) {
+        if (op.isReadOnly()) {
+            return executeOperation(op);
+        }
+        writeLock.lock();
+        try {
+            return executeOperation(op);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private <T> T executeOperation(IDbOperation<T> op) {
+        T result;
+        try {
+            result = op.requestExecute(helper.getDatabase());
+        } catch (SQLiteException e) {
+            /* Catch any SQLite exceptions thrown by the operation, or by the database creation
+             * or upgrade process invoked by the helper, deliver the exception to the callback,
+             * log it in Crashlytics, and return the default value of the operation.
+             */
+            if (op.getCallback() != null) {
                 op.getCallback().sendException(e);
-                logger.error(e, true);
-                result = op.getDefaultValue();
             }
-
-            return result;
+            logger.error(e, true);
+            result = op.getDefaultValue();
         }
+
+        return result;
     }
 
     /**
-     * Enqueues given database operation to the operation queue and starts processing the queue,
-     * if not already started.
-     * Operation is executed in a queue in background thread if callback is provided for the
+     * Enqueues given database operation for execution.
+     * Operation is executed in a background thread if callback is provided for the
      * operation and this method returns null. Otherwise this is a blocking call and returns
      * result object.
      *
      * @param operation
      */
-    public synchronized <T> T enqueue(IDbOperation<T> operation) {
+    public <T> T enqueue(IDbOperation<T> operation) {
         // execute right away if this operation doesn't have a callback to send back the result
         if (operation.getCallback() == null) {
             return execute(operation);
         }
 
-        // add non-blocking operations to the queue and process in sequence 
-        synchronized (opQueue) {
-            opQueue.add(operation);
+        synchronized (writeExecutor) {
+            try {
+                if (operation.isReadOnly()) {
+                    final Future<?> pendingWrite = lastWrite;
+                    removeFinishedReads();
+                    pendingReads.add(readExecutor.submit(() -> {
+                        await(pendingWrite);
+                        execute(operation);
+                    }));
+                } else {
+                    final List<Future<?>> reads = new ArrayList<>(pendingReads);
+                    pendingReads.clear();
+                    lastWrite = writeExecutor.submit(() -> {
+                        for (Future<?> read : reads) {
+                            await(read);
+                        }
+                        execute(operation);
+                    });
+                }
+            } catch (RejectedExecutionException e) {
+                // The database has been released
+                operation.getCallback().sendException(e);
+                logger.error(e);
+            }
         }
 
-        // start processing the queue as we have a database operation to be processed
-        new Thread(this).start();
-
         return null;
     }
 
-    /**
-     * Returns and removes the next operation from the operation queue.
-     *
-     * @return
-     */
-    private IDbOperation<?> getNextQueuedOperation() {
-        synchronized (opQueue) {
-            if (opQueue.isEmpty()) {
-                return null;
+    private void removeFinishedReads() {
+        final Iterator<Future<?>> iterator = pendingReads.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
             }
+        }
+    }
 
-            return opQueue.remove();
+    /**
+     * Blocks until the given operation completes. Failures of the operation have already been
+     * delivered to its own callback, so they are ignored here.
+     */
+    private static void await(@Nullable Future<?> operation) {
+        if (operation == null) {
+            return;
+        }
+        try {
+            operation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error(e);
         }
     }
 
     /**
-     * Closes this database object.
+     * Closes this database object, once the operations already enqueued have been executed.
      */
     public void release() {
+        synchronized (writeExecutor) {
+            writeExecutor.shutdown();
+            readExecutor.shutdown();
+        }
+        try {
+            if (!writeExecutor.awaitTermination(RELEASE_TIMEOUT_SECONDS, TimeUnit.SECONDS) ||
+                    !readExecutor.awaitTermination(RELEASE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Database released with operations still pending");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         helper.close();
     }
 
+    private static class DbThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final String name;
+
+        DbThreadFactory(@NonNull String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -15,12 +15,12 @@ import org.edx.mobile.module.db.DataCallback;
 import org.edx.mobile.module.db.DbStructure;
 import org.edx.mobile.module.db.IDatabase;
 import org.edx.mobile.module.prefs.LoginPrefs;
-import org.edx.mobile.util.Sha1Util;
 import org.edx.mobile.util.TextUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -40,8 +40,7 @@ public class IDatabaseImpl extends IDatabaseBaseImpl implements IDatabase {
 
     @Nullable
     private String username() {
-        final String username = loginPrefs.getUsername();
-        return (username != null) ? Sha1Util.SHA1(username) : null;
+        return loginPrefs.getHashedUsername();
     }
 
     @Override
@@ -406,6 +405,26 @@ public class IDatabaseImpl extends IDatabaseBaseImpl implements IDatabase {
     }
 
 
+    @Override
+    public Integer addVideosBatch(@NonNull List<? extends VideoModel> videos,
+                                  @Nullable UpdateFilter updateFilter,
+                                  @Nullable DataCallback<Integer> callback) {
+        DbOperationAddVideos op = new DbOperationAddVideos(videos, updateFilter, username());
+        op.setCallback(callback);
+        return enqueue(op);
+    }
+
+    @Override
+    public List<VideoModel> getDownloadsByVideoUrls(@NonNull List<String> videoUrls,
+                                                    @Nullable DataCallback<List<VideoModel>> callback) {
+        DbOperationGetVideosInChunks op = new DbOperationGetVideosInChunks(
+                DbStructure.Table.DOWNLOADS, DbStructure.Column.URL, videoUrls,
+                DbStructure.Column.DOWNLOADED + "!=? AND " + DbStructure.Column.USERNAME + "=?",
+                new String[]{String.valueOf(DownloadedState.ONLINE.ordinal()), username()});
+        op.setCallback(callback);
+        return enqueue(op);
+    }
+
     /**
      * Returns download entry for given video id.
      *
@@ -605,23 +624,21 @@ public class IDatabaseImpl extends IDatabaseBaseImpl implements IDatabase {
     public List<VideoModel> getVideosByVideoIds(@NonNull List<CourseComponent> videoComponents,
                                                 @Nullable DownloadedState downloadedState,
                                                 @Nullable DataCallback<List<VideoModel>> callback) {
-        final List<String> whereArgs = new ArrayList<>();
-        whereArgs.add(username());
+        final List<String> videoIds = new ArrayList<>(videoComponents.size());
         for (CourseComponent component : videoComponents) {
-            whereArgs.add(component.getId());
+            videoIds.add(component.getId());
         }
+        final List<String> whereArgs = new ArrayList<>();
+        whereArgs.add(username());
         if (downloadedState != null) {
             whereArgs.add(String.valueOf(downloadedState.ordinal()));
         }
 
-        final CharSequence placeholders = TextUtils.join(",",
-                Collections.<CharSequence>nCopies(videoComponents.size(), "?"));
-
-        DbOperationGetVideos op = new DbOperationGetVideos(false, DbStructure.Table.DOWNLOADS, null,
-                DbStructure.Column.USERNAME + "=? AND " +
-                        DbStructure.Column.VIDEO_ID + " IN (" + placeholders + ")" +
+        DbOperationGetVideosInChunks op = new DbOperationGetVideosInChunks(
+                DbStructure.Table.DOWNLOADS, DbStructure.Column.VIDEO_ID, videoIds,
+                DbStructure.Column.USERNAME + "=?" +
                         (downloadedState == null ? "" : " AND " + DbStructure.Column.DOWNLOADED + "=?"),
-                whereArgs.toArray(new String[0]), null);
+                whereArgs.toArray(new String[0]));
         op.setCallback(callback);
         return enqueue(op);
     }
@@ -822,4 +839,44 @@ public class IDatabaseImpl extends IDatabaseBaseImpl implements IDatabase {
         List<Boolean> result = enqueue(op);
         return result != null && result.size() > 0 ? result.get(0) : false;
     }
+
+    @Override
+    public Long addPendingBlockCompletion(@NonNull String courseId, @NonNull String blockId,
+                                          @Nullable DataCallback<Long> callback) {
+        ContentValues values = new ContentValues();
+        values.put(DbStructure.Column.COMPLETION_OUTBOX_TB_USERNAME, username());
+        values.put(DbStructure.Column.COMPLETION_OUTBOX_TB_COURSE_ID, courseId);
+        values.put(DbStructure.Column.COMPLETION_OUTBOX_TB_BLOCK_ID, blockId);
+
+        DbOperationInsert op = new DbOperationInsert(DbStructure.Table.COMPLETION_OUTBOX, values);
+        op.setCallback(callback);
+        return enqueue(op);
+    }
+
+    @Override
+    public Map<String, List<String>> getPendingBlockCompletions(
+            @Nullable DataCallback<Map<String, List<String>>> callback) {
+        DbOperationGetPendingCompletions op = new DbOperationGetPendingCompletions(username());
+        op.setCallback(callback);
+        return enqueue(op);
+    }
+
+    @Override
+    public Integer removePendingBlockCompletions(@NonNull String courseId,
+                                                 @NonNull List<String> blockIds,
+                                                 @Nullable DataCallback<Integer> callback) {
+        final List<String> whereArgs = new ArrayList<>(blockIds.size() + 2);
+        whereArgs.add(username());
+        whereArgs.add(courseId);
+        whereArgs.addAll(blockIds);
+        DbOperationDelete op = new DbOperationDelete(DbStructure.Table.COMPLETION_OUTBOX,
+                DbStructure.Column.COMPLETION_OUTBOX_TB_USERNAME + "=? AND "
+                        + DbStructure.Column.COMPLETION_OUTBOX_TB_COURSE_ID + "=? AND "
+                        + DbStructure.Column.COMPLETION_OUTBOX_TB_BLOCK_ID + " IN ("
+                        + TextUtils.join(",", Collections.<CharSequence>nCopies(blockIds.size(), "?"))
+                        + ")",
+                whereArgs.toArray(new String[0]));
+        op.setCallback(callback);
+        return enqueue(op);
+    }
 }
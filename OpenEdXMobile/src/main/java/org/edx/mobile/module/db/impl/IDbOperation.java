@@ -36,4 +36,11 @@ interface IDbOperation<T> {
      * @return
      */
     DataCallback<T> getCallback();
+
+    /**
+     * Returns true if this operation only reads from the database, so it can be executed in
+     * parallel with other operations.
+     * @return
+     */
+    boolean isReadOnly();
 }
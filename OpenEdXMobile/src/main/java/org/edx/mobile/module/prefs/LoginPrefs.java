@@ -9,13 +9,18 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import org.edx.mobile.base.MainApplication;
+import org.edx.mobile.event.LogoutEvent;
 import org.edx.mobile.model.api.ProfileModel;
 import org.edx.mobile.model.authentication.AuthResponse;
 import org.edx.mobile.model.user.ProfileImage;
 import org.edx.mobile.model.video.VideoQuality;
 import org.edx.mobile.module.analytics.Analytics;
 import org.edx.mobile.services.EdxCookieManager;
+import org.edx.mobile.util.Sha1Util;
 import org.edx.mobile.util.VideoPlaybackSpeed;
+import org.greenrobot.eventbus.Subscribe;
+
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -38,6 +43,13 @@ public class LoginPrefs {
     @NonNull
     private final PrefManager pref;
 
+    /**
+     * Session scoped cache of the hashed username, null if it hasn't been computed since the
+     * profile was last changed. It's shared by all instances as they share the same preferences.
+     */
+    @Nullable
+    private static volatile HashedUsername hashedUsername;
+
     @Inject
     public LoginPrefs(@ApplicationContext @NonNull Context context) {
         pref = new PrefManager(context, PrefManager.Pref.LOGIN);
@@ -45,29 +57,50 @@ public class LoginPrefs {
 
     public void storeAuthTokenResponse(@NonNull AuthResponse response, @NonNull AuthBackend backend) {
         pref.put(PrefManager.Key.AUTH_JSON, gson.toJson(response));
+        storeAuthExpiryTime(response);
         pref.put(PrefManager.Key.ANALYTICS_KEY_BACKEND, analyticsTokenFromAuthBackend(backend));
     }
 
     public void clearAuthTokenResponse() {
         pref.put(PrefManager.Key.AUTH_JSON, null);
+        pref.put(PrefManager.Key.AUTH_EXPIRY_TIME, -1L);
         pref.put(PrefManager.Key.ANALYTICS_KEY_BACKEND, null);
     }
 
     public void storeRefreshTokenResponse(@NonNull AuthResponse refreshTokenResponse) {
         pref.put(PrefManager.Key.AUTH_JSON, gson.toJson(refreshTokenResponse));
+        storeAuthExpiryTime(refreshTokenResponse);
+    }
+
+    /**
+     * Records the time at which the access token of the given auth response expires, as the
+     * response only contains its lifetime in seconds.
+     */
+    private void storeAuthExpiryTime(@NonNull AuthResponse response) {
+        pref.put(PrefManager.Key.AUTH_EXPIRY_TIME, response.expires_in > 0 ?
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(response.expires_in) : -1L);
+    }
+
+    /**
+     * @return The time in milliseconds at which the current access token expires, or -1 if it's
+     * unknown.
+     */
+    public long getAuthExpiryTime() {
+        return pref.getLong(PrefManager.Key.AUTH_EXPIRY_TIME);
     }
 
     public void storeUserProfile(@NonNull ProfileModel res) {
-        pref.put(PrefManager.Key.PROFILE_JSON, gson.toJson(res));
+        putUserProfileJson(gson.toJson(res));
         clearSocialLoginToken();
     }
 
     public void clear() {
+        putUserProfileJson(null);
         clearSocialLoginToken();
         setSubtitleLanguage(null);
         saveDefaultPlaybackSpeed(VideoPlaybackSpeed.SPEED_1_0X.getSpeedValue());
-        pref.put(PrefManager.Key.PROFILE_JSON, null);
         pref.put(PrefManager.Key.AUTH_JSON, null);
+        pref.put(PrefManager.Key.AUTH_EXPIRY_TIME, -1L);
         pref.put(PrefManager.Key.VIDEO_QUALITY, VideoQuality.AUTO.ordinal());
         pref.put(PrefManager.Key.PROFILE_IMAGE, null);
         EdxCookieManager.getSharedInstance(MainApplication.instance()).clearWebWiewCookie();
@@ -169,6 +202,54 @@ public class LoginPrefs {
         return null == profileModel ? null : profileModel.username;
     }
 
+    /**
+     * Returns the SHA1 hash of the current user's username, which is the key of the user's data
+     * in the database and in the downloads directory. The hash is cached until the user profile
+     * changes, as computing it requires deserializing the profile and hashing on every call.
+     *
+     * @return The hashed username, or null if no user is logged in.
+     */
+    @Nullable
+    public String getHashedUsername() {
+        HashedUsername cached = hashedUsername;
+        if (cached == null) {
+            synchronized (LoginPrefs.class) {
+                cached = hashedUsername;
+                if (cached == null) {
+                    final String username = getUsername();
+                    cached = new HashedUsername(username != null ? Sha1Util.SHA1(username) : null);
+                    hashedUsername = cached;
+                }
+            }
+        }
+        return cached.value;
+    }
+
+    private static synchronized void invalidateHashedUsername() {
+        hashedUsername = null;
+    }
+
+    /**
+     * Replaces the stored profile and invalidates the hashed username under the lock that
+     * {@link #getHashedUsername()} computes it under, so that the hash of the replaced profile
+     * can't be cached again in between.
+     */
+    private void putUserProfileJson(@Nullable String json) {
+        synchronized (LoginPrefs.class) {
+            pref.put(PrefManager.Key.PROFILE_JSON, json);
+            hashedUsername = null;
+        }
+    }
+
+    /**
+     * Callback from EventBus, the application registers the {@link LoginPrefs} singleton.
+     */
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void onEvent(LogoutEvent event) {
+        invalidateHashedUsername();
+    }
+
     @Nullable
     public String getAuthBackendKeyForSegment() {
         return pref.getString(PrefManager.Key.ANALYTICS_KEY_BACKEND);
@@ -223,4 +304,13 @@ public class LoginPrefs {
                 throw new IllegalArgumentException(backend.name());
         }
     }
+
+    private static class HashedUsername {
+        @Nullable
+        final String value;
+
+        HashedUsername(@Nullable String value) {
+            this.value = value;
+        }
+    }
 }
@@ -276,6 +276,9 @@ public class PrefManager {
     public static final class Key {
         public static final String PROFILE_JSON = "profile_json";
         public static final String AUTH_JSON = "auth_json";
+        public static final String AUTH_EXPIRY_TIME = "auth_expiry_time";
+        public static final String HTTP_CACHE_PINNED_COURSES = "http_cache_pinned_courses";
+        public static final String HTTP_CACHE_LEGACY_EXPIRY_TIME = "http_cache_legacy_expiry_time";
         public static final String AUTH_EMAIL = "email";
         public static final String PROFILE_IMAGE = "profile_image";
         //TODO- need to rename these constants. causing confusion
@@ -0,0 +1,329 @@
+package org.edx.mobile.module.storage;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.model.VideoModel;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.IBlock;
+import org.edx.mobile.model.course.VideoBlockModel;
+import org.edx.mobile.model.db.DownloadEntry;
+import org.edx.mobile.module.db.DataCallback;
+import org.edx.mobile.module.db.DatabaseModelFactory;
+import org.edx.mobile.module.db.IDatabase;
+import org.edx.mobile.util.FileUtil;
+import org.edx.mobile.util.VideoUtil;
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of the download states of a course's videos, so that list rows can be bound
+ * without querying the database.
+ * <p>
+ * The index loads all the video entries of the course with a single query off the main thread,
+ * keyed by video id, and derives the downloaded and downloading video counts of every container
+ * of the course structure, keyed by component id. The videos that have no database entry yet are
+ * indexed with an entry in the {@link DownloadEntry.DownloadedState#ONLINE} state, so that binding
+ * a row never allocates one. The downloaded videos whose file is missing or corrupt are reverted to
+ * the {@link DownloadEntry.DownloadedState#ONLINE} state while loading, in the database as well.
+ * <p>
+ * It reloads itself whenever a download completes, a downloaded video is deleted, or a bulk
+ * download is started or cancelled, and on {@link #refresh()} for the other changes, notifying its
+ * {@link Listener} on the main thread once the new states are available. The reloads requested
+ * while one is in progress are coalesced into a single one, run once it's done, so that a bulk
+ * download completing its videos one by one doesn't reload the course for each of them.
+ */
+public class DownloadStateIndex {
+
+    private static final Logger logger = new Logger(DownloadStateIndex.class.getName());
+
+    public interface Listener {
+        /**
+         * Called on the main thread when the download states of the course have been (re)loaded.
+         */
+        void onDownloadStatesChanged();
+    }
+
+    /**
+     * Download counts of the downloadable videos within a container component.
+     */
+    public static class SectionState {
+        public final int downloadableCount;
+        public final int downloadedCount;
+        public final int downloadingCount;
+
+        SectionState(int downloadableCount, int downloadedCount, int downloadingCount) {
+            this.downloadableCount = downloadableCount;
+            this.downloadedCount = downloadedCount;
+            this.downloadingCount = downloadingCount;
+        }
+    }
+
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final IDatabase db;
+    @NonNull
+    private final Listener listener;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    /* The fields below are only accessed on the main thread */
+    /* Incremented whenever the results of the load in progress become outdated */
+    private int generation;
+    /* The generation of the load in progress, or 0 if there's none */
+    private int loadingGeneration;
+    private boolean isReloadPending;
+    @Nullable
+    private CourseComponent root;
+    @NonNull
+    private Map<String, DownloadEntry> entriesByVideoId = Collections.emptyMap();
+    @NonNull
+    private Map<String, SectionState> statesBySectionId = Collections.emptyMap();
+    private boolean loaded;
+
+    public DownloadStateIndex(@NonNull Context context, @NonNull IDatabase db,
+                              @NonNull Listener listener) {
+        this.context = context;
+        this.db = db;
+        this.listener = listener;
+    }
+
+    /**
+     * Loads the download states of the videos within the given component, replacing the
+     * currently indexed ones once done, and starts listening to download events.
+     * Must be called on the main thread.
+     *
+     * @param root The component whose videos are to be indexed.
+     */
+    public void load(@NonNull CourseComponent root) {
+        this.root = root;
+        // The load in progress, if any, is for the previous structure
+        generation++;
+        if (!EventBus.getDefault().isRegistered(this)) {
+            EventBus.getDefault().register(this);
+        }
+        reload();
+    }
+
+    /**
+     * Stops listening to download events and discards any load in progress.
+     */
+    public void release() {
+        generation++;
+        loadingGeneration = 0;
+        isReloadPending = false;
+        handler.removeCallbacksAndMessages(null);
+        EventBus.getDefault().unregister(this);
+    }
+
+    /**
+     * Reloads the download states of the indexed videos, e.g. once the storage they are downloaded
+     * to has changed, or the preferred video quality.
+     */
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * @return <code>true</code> if the download states have been loaded at least once.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the download entry of a video without any database I/O. Videos that don't have a
+     * database entry yet get an entry in the {@link DownloadEntry.DownloadedState#ONLINE} state,
+     * which is only created here for videos that weren't in the structure when it was indexed.
+     *
+     * @param video The video block.
+     * @return The download entry of the video, or <code>null</code> if the video has no playable
+     * encoding.
+     */
+    @Nullable
+    public DownloadEntry getDownloadEntry(@NonNull VideoBlockModel video) {
+        if (video.getData().encodedVideos.getPreferredVideoInfo() == null) {
+            return null;
+        }
+        final DownloadEntry entry = entriesByVideoId.get(video.getId());
+        if (entry != null) {
+            return entry;
+        }
+        return (DownloadEntry) DatabaseModelFactory.getModel(video.getData(), video);
+    }
+
+    /**
+     * @param section A container component of the indexed course structure.
+     * @return The download counts of the section, or <code>null</code> if they aren't loaded yet.
+     */
+    @Nullable
+    public SectionState getSectionState(@NonNull CourseComponent section) {
+        return statesBySectionId.get(section.getId());
+    }
+
+    private void reload() {
+        final CourseComponent root = this.root;
+        if (root == null) {
+            return;
+        }
+        if (loadingGeneration != 0) {
+            isReloadPending = true;
+            return;
+        }
+        final int loadGeneration = ++generation;
+        loadingGeneration = loadGeneration;
+        // The result is delivered on the database thread, where the index is built as well
+        db.getAllVideosByCourse(root.getCourseId(), new DataCallback<List<VideoModel>>() {
+            @Override
+            public void onResult(List<VideoModel> result) {
+                final Map<String, DownloadEntry> entries = new HashMap<>();
+                if (result != null) {
+                    for (VideoModel video : result) {
+                        entries.put(video.getVideoId(), (DownloadEntry) video);
+                    }
+                }
+                repairMissingFiles(entries);
+                for (VideoBlockModel video : root.getVideos()) {
+                    if (!entries.containsKey(video.getId()) &&
+                            video.getData().encodedVideos.getPreferredVideoInfo() != null) {
+                        entries.put(video.getId(),
+                                (DownloadEntry) DatabaseModelFactory.getModel(video.getData(), video));
+                    }
+                }
+                final Map<String, SectionState> states = new HashMap<>();
+                indexSectionStates(root, entries, states);
+                handler.post(() -> onLoaded(loadGeneration, entries, states));
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                logger.error(ex);
+                handler.post(() -> onLoaded(loadGeneration, null, null));
+            }
+        });
+    }
+
+    /**
+     * Called on the main thread once a load is done.
+     *
+     * @param entries The loaded entries, or null if the load failed.
+     * @param states  The loaded section states, or null if the load failed.
+     */
+    private void onLoaded(int loadGeneration, @Nullable Map<String, DownloadEntry> entries,
+                          @Nullable Map<String, SectionState> states) {
+        if (loadGeneration != loadingGeneration) {
+            // The index has been released since
+            return;
+        }
+        loadingGeneration = 0;
+        if (loadGeneration == generation && entries != null && states != null) {
+            entriesByVideoId = entries;
+            statesBySectionId = states;
+            loaded = true;
+            listener.onDownloadStatesChanged();
+        }
+        if (isReloadPending) {
+            isReloadPending = false;
+            reload();
+        }
+    }
+
+    /**
+     * Reverts the downloaded videos whose file is missing or corrupt to the
+     * {@link DownloadEntry.DownloadedState#ONLINE} state, and deletes what's left of their file.
+     * Called on the database thread, as checking the files reads them.
+     */
+    private void repairMissingFiles(@NonNull Map<String, DownloadEntry> entries) {
+        boolean isRepaired = false;
+        for (DownloadEntry entry : entries.values()) {
+            if (entry.downloaded == DownloadEntry.DownloadedState.DOWNLOADED &&
+                    (entry.filepath == null || !FileUtil.isVideoFileExists(context, entry.filepath))) {
+                final String filepath = entry.filepath;
+                entry.downloaded = DownloadEntry.DownloadedState.ONLINE;
+                VideoUtil.updateVideoDownloadState(db, entry,
+                        DownloadEntry.DownloadedState.ONLINE.ordinal());
+                if (filepath != null) {
+                    FileUtil.deleteRecursive(new File(filepath));
+                }
+                isRepaired = true;
+            }
+        }
+        if (isRepaired) {
+            EventBus.getDefault().post(new DownloadedVideoDeletedEvent());
+        }
+    }
+
+    /**
+     * Walks the structure bottom up, indexing the download counts of every container.
+     *
+     * @return The state of the given component.
+     */
+    @NonNull
+    private static SectionState indexSectionStates(@NonNull CourseComponent component,
+                                                   @NonNull Map<String, DownloadEntry> entries,
+                                                   @NonNull Map<String, SectionState> states) {
+        if (component instanceof VideoBlockModel) {
+            final VideoBlockModel video = (VideoBlockModel) component;
+            if (!VideoUtil.isVideoDownloadable(video.getData())) {
+                return new SectionState(0, 0, 0);
+            }
+            final DownloadEntry entry = entries.get(video.getId());
+            final DownloadEntry.DownloadedState state = entry == null ? null : entry.downloaded;
+            return new SectionState(1,
+                    state == DownloadEntry.DownloadedState.DOWNLOADED ? 1 : 0,
+                    state == DownloadEntry.DownloadedState.DOWNLOADING ? 1 : 0);
+        }
+        int downloadable = 0, downloaded = 0, downloading = 0;
+        if (component.isContainer()) {
+            for (IBlock child : component.getChildren()) {
+                final SectionState childState = indexSectionStates((CourseComponent) child,
+                        entries, states);
+                downloadable += childState.downloadableCount;
+                downloaded += childState.downloadedCount;
+                downloading += childState.downloadingCount;
+            }
+        }
+        final SectionState state = new SectionState(downloadable, downloaded, downloading);
+        if (component.isContainer()) {
+            states.put(component.getId(), state);
+        }
+        return state;
+    }
+
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    @SuppressWarnings("unused")
+    public void onEvent(DownloadCompletedEvent event) {
+        reload();
+    }
+
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    @SuppressWarnings("unused")
+    public void onEvent(DownloadedVideoDeletedEvent event) {
+        reload();
+    }
+
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    @SuppressWarnings("unused")
+    public void onEvent(BulkVideosDownloadStartedEvent event) {
+        reload();
+    }
+
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    @SuppressWarnings("unused")
+    public void onEvent(BulkVideosDownloadCancelledEvent event) {
+        reload();
+    }
+}
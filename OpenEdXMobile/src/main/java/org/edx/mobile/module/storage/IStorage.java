@@ -23,6 +23,15 @@ public interface IStorage {
      */
     long addDownload(VideoModel model);
 
+    /**
+     * Adds a list of Videos for Downloading by enqueing them in Native Download Manager,
+     * and stores all of them in the Database within a single transaction.
+     * @param models
+     * @return the videos that were added to download
+     */
+    @NonNull
+    <T extends VideoModel> List<T> addDownloads(@NonNull List<T> models);
+
     /**
      * Removes a Video from the database as well as NativeDownloadManager
      * and removing the file stored in DB
@@ -47,6 +56,23 @@ public interface IStorage {
      */
     void removeAllDownloads();
 
+    /**
+     * Packages the HTML units of a course in the background, so that they can be viewed offline.
+     *
+     * @param courseId Id of the course.
+     * @param units    The units to package, the units that can't be viewed offline are ignored.
+     */
+    void addUnitPackages(@NonNull String courseId, @NonNull List<CourseComponent> units);
+
+    /**
+     * Removes the offline packages of HTML units of a course, along with the assets that no other
+     * packaged unit needs.
+     *
+     * @param courseId Id of the course.
+     * @param units    The units to remove.
+     */
+    void removeUnitPackages(@NonNull String courseId, @NonNull List<CourseComponent> units);
+
     /**
      * This method fetches all unenrolledVideos from the DB.
      * Iterates through the list and then calls the remove Download method for each video
@@ -55,6 +81,17 @@ public interface IStorage {
      */
     int deleteAllUnenrolledVideos();
 
+    /**
+     * Makes room for downloads in the background, by evicting the least recently played videos
+     * cached while streaming them if the free space on the disk isn't enough on its own. Only
+     * the videos needed to make up the shortfall are evicted.
+     *
+     * @param downloadSize The number of bytes of the downloads.
+     * @param callback     Called with whether there's room for the downloads, once the cached
+     *                     videos have been evicted if they had to be.
+     */
+    void makeRoomForDownloads(long downloadSize, @NonNull DataCallback<Boolean> callback);
+
 
     /**
      * Returns Download Progress percent of all the Videos
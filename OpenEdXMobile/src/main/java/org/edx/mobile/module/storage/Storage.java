@@ -10,6 +10,8 @@ import androidx.annotation.Nullable;
 
 import org.edx.mobile.core.IEdxEnvironment;
 import org.edx.mobile.course.CourseAPI;
+import org.edx.mobile.course.CourseStructureSnapshot;
+import org.edx.mobile.course.CourseUnitPackager;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.VideoModel;
 import org.edx.mobile.model.api.ProfileModel;
@@ -21,21 +23,30 @@ import org.edx.mobile.model.download.NativeDownloadModel;
 import org.edx.mobile.module.db.DataCallback;
 import org.edx.mobile.module.db.DatabaseModelFactory;
 import org.edx.mobile.module.db.IDatabase;
+import org.edx.mobile.module.db.PlaybackPositionBuffer;
 import org.edx.mobile.module.db.impl.DatabaseFactory;
 import org.edx.mobile.module.download.IDownloadManager;
 import org.edx.mobile.module.prefs.LoginPrefs;
 import org.edx.mobile.module.prefs.UserPrefs;
 import org.edx.mobile.module.prefs.VideoPrefs;
+import org.edx.mobile.player.TranscriptManager;
+import org.edx.mobile.player.VideoCache;
 import org.edx.mobile.util.Config;
 import org.edx.mobile.util.FileUtil;
 import org.edx.mobile.util.NetworkUtil;
-import org.edx.mobile.util.Sha1Util;
 import org.edx.mobile.view.BulkDownloadFragment;
 import org.greenrobot.eventbus.EventBus;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -69,6 +80,21 @@ public class Storage implements IStorage {
     @Inject
     VideoPrefs videoPrefs;
 
+    @Inject
+    PlaybackPositionBuffer playbackPositionBuffer;
+
+    @Inject
+    CourseUnitPackager unitPackager;
+
+    @Inject
+    TranscriptManager transcriptManager;
+
+    @Inject
+    VideoCache videoCache;
+
+    @Inject
+    CourseStructureSnapshot courseStructureSnapshot;
+
     // To remove the dependency cycle.
     // ref: https://www.reddit.com/r/android_devs/comments/hc6dea/comment/fvffemo/?utm_source=share&utm_medium=web2x&context=3
     protected Lazy<IEdxEnvironment> environment;
@@ -95,6 +121,94 @@ public class Storage implements IStorage {
                         //but for now we show same generic error message
         //IVideoModel videoById = db.getVideoEntryByVideoId(model.getVideoId(), null);
 
+        if (!mapDownloadInfo(model, videoByUrl, null)) {
+            return -1;
+        }
+
+        db.updateDownloadingVideoInfoByVideoId(model, new DataCallback<Integer>() {
+            @Override
+            public void onResult(Integer noOfRows) {
+                if (noOfRows > 1) {
+                    logger.warn("Should have updated only one video, " +
+                            "but seems more than one videos are updated");
+                }
+                logger.debug("Video download info updated for " + noOfRows + " videos");
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                logger.error(ex);
+            }
+        });
+
+        return model.getDmId();
+    }
+
+    @NonNull
+    @Override
+    public <T extends VideoModel> List<T> addDownloads(@NonNull List<T> models) {
+        final List<T> videos = new ArrayList<>();
+        for (T model : models) {
+            if (!TextUtils.isEmpty(model.getVideoUrl())) {
+                videos.add(model);
+            }
+        }
+        if (videos.isEmpty()) {
+            return videos;
+        }
+        // The downloads of the same URLs are read, and the new ones enqueued in the Download
+        // Manager, outside the transaction, so that it only holds the database for the writes
+        final Set<String> urls = new LinkedHashSet<>();
+        for (T video : videos) {
+            urls.add(video.getVideoUrl());
+        }
+        final Map<String, VideoModel> videosByUrl = new HashMap<>();
+        for (VideoModel video : db.getDownloadsByVideoUrls(new ArrayList<>(urls), null)) {
+            if (!videosByUrl.containsKey(video.getVideoUrl())) {
+                videosByUrl.put(video.getVideoUrl(), video);
+            }
+        }
+        final List<T> addedDownloads = new ArrayList<>();
+        final Set<VideoModel> downloads = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<Long> enqueuedDmIds = new ArrayList<>();
+        for (T video : videos) {
+            final VideoModel videoByUrl = videosByUrl.get(video.getVideoUrl());
+            // Videos whose download couldn't be started are stored anyway, as when adding one
+            if (video.isVideoForWebOnly() ||
+                    !mapDownloadInfo(video, videoByUrl, enqueuedDmIds)) {
+                continue;
+            }
+            // The next videos with the same URL share its download
+            videosByUrl.put(video.getVideoUrl(), video);
+            downloads.add(video);
+            addedDownloads.add(video);
+        }
+
+        final int noOfRows = db.addVideosBatch(videos, downloads::contains, null);
+        logger.debug("Video download info updated for " + noOfRows + " videos");
+        if (noOfRows == 0 && !enqueuedDmIds.isEmpty()) {
+            // The transaction failed, so nothing would ever track the downloads just enqueued
+            final long[] dmIds = new long[enqueuedDmIds.size()];
+            for (int i = 0; i < dmIds.length; i++) {
+                dmIds[i] = enqueuedDmIds.get(i);
+            }
+            dm.removeDownloads(dmIds);
+            return new ArrayList<>();
+        }
+        return addedDownloads;
+    }
+
+    /**
+     * Maps the download info on the given video, either from an existing download of the same
+     * URL, or by enqueuing a new download in the Native Download Manager.
+     *
+     * @param model         Video to be downloaded.
+     * @param videoByUrl    Video with the same URL that is downloaded or being downloaded, if any.
+     * @param enqueuedDmIds Collects the id of the download enqueued for the video, if any.
+     * @return false if the download couldn't be started.
+     */
+    private boolean mapDownloadInfo(@NonNull VideoModel model, @Nullable VideoModel videoByUrl,
+                                    @Nullable List<Long> enqueuedDmIds) {
         if (videoByUrl == null || videoByUrl.getDmId() < 0) {
             boolean downloadPreference = pref.isDownloadOverWifiOnly();
             if(NetworkUtil.isOnZeroRatedNetwork(context, config)){
@@ -105,7 +219,7 @@ public class Storage implements IStorage {
 
             // Fail the download if download directory isn't available
             final File downloadDirectory = FileUtil.getDownloadDirectory(context, environment.get());
-            if (downloadDirectory == null) return -1;
+            if (downloadDirectory == null) return false;
 
             // there is no any download ever marked for this URL
             // so, add a download and map download info to given video
@@ -113,7 +227,10 @@ public class Storage implements IStorage {
                     downloadPreference, model.getTitle());
             if(dmid==-1){
                 //Download did not start for the video because of an issue in DownloadManager
-                return -1;
+                return false;
+            }
+            if (enqueuedDmIds != null) {
+                enqueuedDmIds.add(dmid);
             }
             NativeDownloadModel download = dm.getDownload(dmid);
             if(download!=null){
@@ -124,24 +241,7 @@ public class Storage implements IStorage {
             // download for this URL already exists, just map download info to given video
             model.setDownloadInfo(videoByUrl);
         }
-
-        db.updateDownloadingVideoInfoByVideoId(model, new DataCallback<Integer>() {
-            @Override
-            public void onResult(Integer noOfRows) {
-                if (noOfRows > 1) {
-                    logger.warn("Should have updated only one video, " +
-                            "but seems more than one videos are updated");
-                }
-                logger.debug("Video download info updated for " + noOfRows + " videos");
-            }
-
-            @Override
-            public void onFail(Exception ex) {
-                logger.error(ex);
-            }
-        });
-
-        return model.getDmId();
+        return true;
     }
 
     @Override
@@ -174,12 +274,13 @@ public class Storage implements IStorage {
 
     @Override
     public void removeAllDownloads() {
-        final String username = loginPrefs.getUsername();
-        final String sha1Username;
-        if (TextUtils.isEmpty(username)) {
+        unitPackager.removeAll();
+        transcriptManager.cancelAllTranscriptDownloads();
+        videoCache.clear();
+        courseStructureSnapshot.clear();
+        final String sha1Username = loginPrefs.getHashedUsername();
+        if (TextUtils.isEmpty(sha1Username)) {
             return;
-        } else {
-            sha1Username = Sha1Util.SHA1(username);
         }
         // Get all on going downloads
         db.getListOfOngoingDownloads(new DataCallback<List<VideoModel>>(false) {
@@ -251,12 +352,29 @@ public class Storage implements IStorage {
         return false;
     }
 
+    @Override
+    public void addUnitPackages(@NonNull String courseId, @NonNull List<CourseComponent> units) {
+        unitPackager.addUnits(courseId, units);
+    }
+
+    @Override
+    public void removeUnitPackages(@NonNull String courseId, @NonNull List<CourseComponent> units) {
+        unitPackager.removeUnits(courseId, units);
+    }
+
     @Override
     public int deleteAllUnenrolledVideos() {
         //      Integer count = db.deletedDeactivatedVideos();
         return 0;
     }
 
+    @Override
+    public void makeRoomForDownloads(final long downloadSize,
+                                     @NonNull final DataCallback<Boolean> callback) {
+        // The videos cached while streaming them make room for the downloaded ones
+        videoCache.makeRoomForDownloads(downloadSize, callback);
+    }
+
     @Override
     public void getAverageDownloadProgressInChapter(String enrollmentId, String chapter,
             final DataCallback<Integer> callback) {
@@ -398,7 +516,9 @@ public class Storage implements IStorage {
         try{
             DownloadEntry de = (DownloadEntry) db.getVideoEntryByVideoId(video.videoId, null);
             if (de != null) {
-                video.lastPlayedOffset = de.lastPlayedOffset;
+                // The latest offset may not have been written to the database yet
+                final Long pendingOffset = playbackPositionBuffer.getPendingLastPlayedOffset(video.videoId);
+                video.lastPlayedOffset = pendingOffset != null ? pendingOffset : de.lastPlayedOffset;
                 video.watched = de.watched;
                 video.downloaded = de.downloaded;
             }
@@ -459,6 +579,8 @@ public class Storage implements IStorage {
                         }
                     }
                     db.updateDownloadCompleteInfoByDmId(dmId, e, null);
+                    // The video is played from its file from now on, whichever encoding was streamed
+                    videoCache.remove(getEncodingUrls(e));
                     callback.sendResult(e);
                     EventBus.getDefault().post(new DownloadCompletedEvent());
                 }
@@ -473,6 +595,21 @@ public class Storage implements IStorage {
         }
     }
 
+    /**
+     * @return The URLs of all the encodings of a video, that it may have been streamed from.
+     */
+    @NonNull
+    private static List<String> getEncodingUrls(@NonNull DownloadEntry downloadEntry) {
+        final List<String> urls = new ArrayList<>();
+        for (String url : new String[]{downloadEntry.url, downloadEntry.url_hls,
+                downloadEntry.url_high_quality, downloadEntry.url_low_quality}) {
+            if (!TextUtils.isEmpty(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
     /**
      * Checks progress of all the videos that are being downloaded.
      * If progress of any of the downloads is 100%, then marks the video as DOWNLOADED.
@@ -0,0 +1,105 @@
+package org.edx.mobile.player;
+
+import android.text.Spanned;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.util.TextUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Renders the HTML of the captions of transcripts into styled text, and caches the result by
+ * transcript and caption index.
+ * <p>
+ * The captions of a transcript are rendered in the background as soon as it's loaded, so that
+ * showing a caption during playback is a lookup. A caption that hasn't been rendered yet when
+ * it's requested is rendered on the calling thread.
+ */
+@Singleton
+public class CaptionRenderer {
+    /* The number of transcripts whose captions are kept */
+    private static final int CACHED_TRANSCRIPTS = 4;
+    /* The line break the SRT parser appends to every caption */
+    private static final String TRAILING_LINE_BREAK = "<br />";
+
+    /* The transcripts are compared by identity, as the transcript manager reuses them */
+    private final LruCache<CompactTranscript, RenderedTranscript> cache =
+            new LruCache<>(CACHED_TRANSCRIPTS);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Inject
+    public CaptionRenderer() {
+    }
+
+    /**
+     * Renders all the captions of a transcript in the background.
+     */
+    public void prerender(@NonNull CompactTranscript transcript) {
+        final RenderedTranscript renderedTranscript = getRenderedTranscript(transcript);
+        executor.execute(() -> {
+            for (int i = 0; i < renderedTranscript.spans.length(); i++) {
+                renderedTranscript.get(i);
+            }
+        });
+    }
+
+    /**
+     * @param transcript The transcript of the caption.
+     * @param index      The index of the caption, in the order of the captions of the transcript.
+     * @return The rendered caption, without the line break ending it.
+     */
+    @NonNull
+    public Spanned get(@NonNull CompactTranscript transcript, int index) {
+        return getRenderedTranscript(transcript).get(index);
+    }
+
+    @NonNull
+    private synchronized RenderedTranscript getRenderedTranscript(
+            @NonNull CompactTranscript transcript) {
+        RenderedTranscript renderedTranscript = cache.get(transcript);
+        if (renderedTranscript == null) {
+            renderedTranscript = new RenderedTranscript(transcript);
+            cache.put(transcript, renderedTranscript);
+        }
+        return renderedTranscript;
+    }
+
+    @NonNull
+    public static Spanned render(@NonNull String content) {
+        if (content.endsWith(TRAILING_LINE_BREAK)) {
+            content = content.substring(0, content.length() - TRAILING_LINE_BREAK.length());
+        }
+        return TextUtils.formatHtml(content);
+    }
+
+    private static class RenderedTranscript {
+        @NonNull
+        final CompactTranscript transcript;
+        /* Rendered by both the background and calling threads */
+        @NonNull
+        final AtomicReferenceArray<Spanned> spans;
+
+        RenderedTranscript(@NonNull CompactTranscript transcript) {
+            this.transcript = transcript;
+            spans = new AtomicReferenceArray<>(transcript.size());
+        }
+
+        @NonNull
+        Spanned get(int index) {
+            Spanned span = spans.get(index);
+            if (span == null) {
+                // Whichever thread renders it first wins, so that the same instance is returned
+                spans.compareAndSet(index, null, render(transcript.getText(index)));
+                span = spans.get(index);
+            }
+            return span;
+        }
+    }
+}
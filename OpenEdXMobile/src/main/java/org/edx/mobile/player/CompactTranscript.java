@@ -0,0 +1,310 @@
+package org.edx.mobile.player;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+import subtitleFile.Caption;
+import subtitleFile.Time;
+
+/**
+ * A transcript stored in a compact binary file, so that it can be opened without parsing it again.
+ * <p>
+ * The file is made of a header holding the number of cues and the size of their text, followed by
+ * the start and end times of the cues in milliseconds, the offsets of the text of each cue, and
+ * the text of all the cues encoded in UTF-8. The file is memory mapped when opened, and only the
+ * times are read up front. The text of a cue is decoded the first time the cue is requested.
+ */
+public class CompactTranscript {
+    private static final int MAGIC = 0x45445854; // "EDXT"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4;
+
+    @NonNull
+    private final ByteBuffer buffer;
+    @NonNull
+    private final int[] starts;
+    @NonNull
+    private final int[] ends;
+    private final int offsetsPosition;
+    private final int textPosition;
+    private final int textSize;
+    /* The cues requested so far, decoded from the buffer */
+    @NonNull
+    private final Caption[] captions;
+
+    private CompactTranscript(@NonNull ByteBuffer buffer, int count, int textSize) {
+        this.buffer = buffer;
+        this.textSize = textSize;
+        starts = new int[count];
+        ends = new int[count];
+        captions = new Caption[count];
+        buffer.position(HEADER_SIZE);
+        final IntBuffer times = buffer.asIntBuffer();
+        times.get(starts);
+        times.get(ends);
+        offsetsPosition = HEADER_SIZE + 2 * 4 * count;
+        textPosition = offsetsPosition + 4 * (count + 1);
+    }
+
+    /**
+     * Memory maps a transcript file written by {@link #write(Collection, File)}.
+     *
+     * @throws IOException If the file can't be read, or isn't a valid transcript file.
+     */
+    @NonNull
+    public static CompactTranscript open(@NonNull File file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileInputStream input = new FileInputStream(file)) {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid transcript file size: " + size);
+            }
+            // The mapping remains valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown transcript file format");
+        }
+        final int count = buffer.getInt(8);
+        final int textSize = buffer.getInt(12);
+        if (count < 0 || textSize < 0 ||
+                HEADER_SIZE + 4L * (3 * count + 1) + textSize != buffer.capacity()) {
+            throw new IOException("Truncated transcript file");
+        }
+        final CompactTranscript transcript = new CompactTranscript(buffer, count, textSize);
+        transcript.checkTextOffsets();
+        return transcript;
+    }
+
+    private void checkTextOffsets() throws IOException {
+        int previous = 0;
+        for (int i = 0; i <= size(); i++) {
+            final int offset = getTextOffset(i);
+            if (offset < previous || offset > textSize || (i == size() && offset != textSize)) {
+                throw new IOException("Invalid offset of the text of cue " + i);
+            }
+            previous = offset;
+        }
+    }
+
+    /**
+     * Writes the captions of a transcript to a file in the compact format.
+     *
+     * @param captions The captions of a transcript, sorted by their start time.
+     */
+    public static void write(@NonNull Collection<Caption> captions, @NonNull File file)
+            throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (Caption caption : captions) {
+                writer.add(caption.start.getMseconds(), caption.end.getMseconds(),
+                        caption.content == null ? "" : caption.content);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Converts an SRT transcript to a file in the compact format as it's read. Only the times of
+     * the cues are kept in memory, while their text is written to a temporary file next to it.
+     *
+     * @param srt The contents of the SRT file, read the same way as {@link SrtReader} reads them.
+     */
+    public static void convertSrt(@NonNull InputStream srt, @NonNull File file)
+            throws IOException {
+        try (SrtReader reader = new SrtReader(srt); Writer writer = new Writer(file)) {
+            while (reader.next()) {
+                writer.add(reader.getStart(), reader.getEnd(), reader.getText());
+            }
+            writer.finish();
+        }
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * @return The size of the text of all the cues, in UTF-8.
+     */
+    public int getTextSize() {
+        return textSize;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    private int getTextOffset(int index) {
+        return buffer.getInt(offsetsPosition + 4 * index);
+    }
+
+    @NonNull
+    public String getText(int index) {
+        final int start = getTextOffset(index);
+        final int end = getTextOffset(index + 1);
+        final byte[] bytes = new byte[end - start];
+        // Read through a duplicate, as the position of the shared buffer can't be relied upon
+        final ByteBuffer text = buffer.duplicate();
+        text.position(textPosition + start);
+        text.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @NonNull
+    public synchronized Caption getCaption(int index) {
+        Caption caption = captions[index];
+        if (caption == null) {
+            caption = new Caption();
+            caption.start = new CueTime(starts[index]);
+            caption.end = new CueTime(ends[index]);
+            caption.content = getText(index);
+            captions[index] = caption;
+        }
+        return caption;
+    }
+
+    /**
+     * Writes the cues of a transcript as they're added. The text of the cues is written to a
+     * temporary file, as the format places it after the times of all the cues, and copied after
+     * them once all the cues have been added. The cues are sorted by their start time if they
+     * weren't added in order, those starting at the same time keeping the order they were added in.
+     */
+    private static class Writer implements Closeable {
+        private static final int INITIAL_CAPACITY = 256;
+
+        @NonNull
+        private final File file;
+        @NonNull
+        private final File textFile;
+        @NonNull
+        private final OutputStream textOutput;
+        private int[] starts = new int[INITIAL_CAPACITY];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        /* The offsets of the text of the cues in the temporary file, in the order they were added */
+        private int[] textOffsets = new int[INITIAL_CAPACITY + 1];
+        private int count;
+        private int textSize;
+        private boolean isSorted = true;
+
+        Writer(@NonNull File file) throws IOException {
+            this.file = file;
+            textFile = File.createTempFile("transcript", ".txt", file.getParentFile());
+            textOutput = new BufferedOutputStream(new FileOutputStream(textFile));
+        }
+
+        void add(int start, int end, @NonNull String text) throws IOException {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                textOffsets = Arrays.copyOf(textOffsets, count * 2 + 1);
+            }
+            if (count > 0 && start < starts[count - 1]) {
+                isSorted = false;
+            }
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            textOutput.write(bytes);
+            starts[count] = start;
+            ends[count] = end;
+            textOffsets[count] = textSize;
+            textSize += bytes.length;
+            count++;
+        }
+
+        void finish() throws IOException {
+            textOutput.close();
+            textOffsets[count] = textSize;
+            final int[] order = getOrder();
+            try (FileInputStream textInput = new FileInputStream(textFile);
+                 DataOutputStream output = new DataOutputStream(
+                         new BufferedOutputStream(new FileOutputStream(file)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(count);
+                output.writeInt(textSize);
+                for (int index : order) {
+                    output.writeInt(starts[index]);
+                }
+                for (int index : order) {
+                    output.writeInt(ends[index]);
+                }
+                int offset = 0;
+                for (int index : order) {
+                    output.writeInt(offset);
+                    offset += textOffsets[index + 1] - textOffsets[index];
+                }
+                output.writeInt(offset);
+                final ByteBuffer text = textInput.getChannel()
+                        .map(FileChannel.MapMode.READ_ONLY, 0, textSize);
+                byte[] bytes = new byte[0];
+                for (int index : order) {
+                    final int length = textOffsets[index + 1] - textOffsets[index];
+                    if (bytes.length < length) {
+                        bytes = new byte[length];
+                    }
+                    text.position(textOffsets[index]);
+                    text.get(bytes, 0, length);
+                    output.write(bytes, 0, length);
+                }
+            }
+        }
+
+        @NonNull
+        private int[] getOrder() {
+            final int[] order = new int[count];
+            if (isSorted) {
+                for (int i = 0; i < count; i++) {
+                    order[i] = i;
+                }
+                return order;
+            }
+            // Sorted by a stable sort, so that the cues starting together keep their order
+            final Integer[] sortedOrder = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                sortedOrder[i] = i;
+            }
+            Arrays.sort(sortedOrder, (first, second) ->
+                    Integer.compare(starts[first], starts[second]));
+            for (int i = 0; i < count; i++) {
+                order[i] = sortedOrder[i];
+            }
+            return order;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                textOutput.close();
+            } finally {
+                textFile.delete();
+            }
+        }
+    }
+
+    private static class CueTime extends Time {
+        CueTime(int milliseconds) {
+            super("hh:mm:ss,ms", "00:00:00,000");
+            setMseconds(milliseconds);
+        }
+    }
+}
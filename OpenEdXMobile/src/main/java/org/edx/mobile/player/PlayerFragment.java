@@ -12,6 +12,7 @@ import android.media.AudioManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.text.Spanned;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -56,7 +57,6 @@ import org.edx.mobile.util.DeviceSettingUtil;
 import org.edx.mobile.util.LocaleUtils;
 import org.edx.mobile.util.NetworkUtil;
 import org.edx.mobile.util.OrientationDetector;
-import org.edx.mobile.util.TextUtils;
 import org.edx.mobile.util.UiUtils;
 import org.edx.mobile.util.Version;
 import org.edx.mobile.util.VideoUtil;
@@ -76,7 +76,6 @@ import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
 import subtitleFile.Caption;
-import subtitleFile.TimedTextObject;
 
 @SuppressLint("WrongViewCast")
 @SuppressWarnings("serial")
@@ -121,7 +120,9 @@ public class PlayerFragment extends BaseFragment implements IPlayerListener, Ser
     private SpeedDialogFragment speedDialogFragment;
     private PopupWindow settingPopup;
     private LinkedHashMap<String, String> langList;
-    private TimedTextObject subtitlesObj;
+    private CompactTranscript subtitlesObj;
+    /* The caption shown, already rendered */
+    private Spanned closedCaptionText;
     private TranscriptModel transcript;
     private DownloadEntry videoEntry;
     private Object touchExplorationStateChangeListener;
@@ -1031,8 +1032,11 @@ public class PlayerFragment extends BaseFragment implements IPlayerListener, Ser
 
     @Override
     public void onOffline() {
-        // nothing to do
-        showNetworkError();
+        // A streamed video carries on from the parts buffered or cached on the device, and the
+        // network error is shown once the player runs out of them and fails
+        if (player == null || player.isInError()) {
+            showNetworkError();
+        }
     }
 
     public void onConnectedToMobile() {
@@ -1136,7 +1140,7 @@ public class PlayerFragment extends BaseFragment implements IPlayerListener, Ser
     /**
      * This function sets the closed caption data on the TextView
      */
-    private void setClosedCaptionData(Caption text) {
+    private void setClosedCaptionData(Spanned text) {
         try {
             RelativeLayout subTitlesLayout = (RelativeLayout) getActivity().findViewById(R.id.txtSubtitles);
             TextView subTitlesTv = (TextView) getActivity().findViewById(R.id.txtSubtitles_tv);
@@ -1168,22 +1172,19 @@ public class PlayerFragment extends BaseFragment implements IPlayerListener, Ser
                     }
                     subTitlesTv.setPadding(margin_ten_dp, (int) UiUtils.INSTANCE.getParamsInDP(getResources(), 2),
                             margin_ten_dp, (int) UiUtils.INSTANCE.getParamsInDP(getResources(), 2));
-                    subTitlesTv.setText("");
-                    //This has been done because text.content contains <br />
-                    //in the end of each message
-                    String temp = text.content;
-                    if (temp.endsWith("<br />")) {
-                        temp = temp.substring(0, temp.length() - 6);
-                    }
-                    if (temp.length() == 0) {
+                    if (text.length() == 0) {
                         subTitlesTv.setVisibility(View.GONE);
                     } else {
-                        subTitlesTv.setText(TextUtils.formatHtml(temp));
+                        // The same caption is shown on every tick while it's being spoken
+                        if (text != closedCaptionText) {
+                            subTitlesTv.setText(text);
+                        }
                         subTitlesTv.setVisibility(View.VISIBLE);
                     }
                 } else {
                     subTitlesTv.setVisibility(View.GONE);
                 }
+                closedCaptionText = text;
             }
         } catch (Exception e) {
             logger.error(e);
@@ -1714,14 +1715,14 @@ public class PlayerFragment extends BaseFragment implements IPlayerListener, Ser
     /**
      * This method is used to update the CC data when a transcript is selected
      */
-    public void updateClosedCaptionData(Caption subtitle) {
+    public void updateClosedCaptionData(Spanned subtitle) {
         setClosedCaptionData(closedCaptionsEnabled ? subtitle : null);
     }
 
     /**
      * This method is used to display CC data when a transcript is selected
      */
-    public void showClosedCaptionData(TimedTextObject subtitles) {
+    public void showClosedCaptionData(CompactTranscript subtitles) {
         this.subtitlesObj = subtitles;
         resetClosedCaptioning();
         if (subtitlesObj != null) {
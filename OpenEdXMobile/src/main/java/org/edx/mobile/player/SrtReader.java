@@ -0,0 +1,156 @@
+package org.edx.mobile.player;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the cues of an SRT transcript one at a time, so that a transcript can be converted
+ * without holding all of it in memory.
+ * <p>
+ * The cues are read the same way as {@link subtitleFile.FormatSRT} reads them: the lines of the
+ * text of a cue are trimmed and each one is followed by a {@code <br />}, and the cues that are
+ * out of sequence, have invalid times or have no text are skipped. Unlike FormatSRT, the last cue
+ * is kept when the file doesn't end with a blank line.
+ */
+class SrtReader implements Closeable {
+    private static final String LINE_BREAK = "<br />";
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    /* The length of a time in the hh:mm:ss,mmm format */
+    private static final int TIME_LENGTH = 12;
+
+    @NonNull
+    private final BufferedReader reader;
+    private boolean isFirstLine = true;
+    private boolean isFirstCue = true;
+    private int expectedNumber;
+
+    private int start;
+    private int end;
+    @NonNull
+    private String text = "";
+
+    SrtReader(@NonNull InputStream srt) {
+        reader = new BufferedReader(new InputStreamReader(srt, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the next cue of the transcript.
+     *
+     * @return false once the end of the transcript has been reached.
+     */
+    boolean next() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            if (!line.isEmpty() && readCue(line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The start time of the cue read last, in milliseconds.
+     */
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * @return The end time of the cue read last, in milliseconds.
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The text of the cue read last.
+     */
+    @NonNull
+    String getText() {
+        return text;
+    }
+
+    private boolean readCue(@NonNull String numberLine) throws IOException {
+        final int number;
+        try {
+            number = Integer.parseInt(numberLine);
+        } catch (NumberFormatException e) {
+            skipCue();
+            return false;
+        }
+        if (isFirstCue) {
+            if (number == 0 || number == 1) {
+                expectedNumber = number;
+            }
+            isFirstCue = false;
+        }
+        if (number != expectedNumber) {
+            skipCue();
+            return false;
+        }
+        expectedNumber++;
+
+        final String timeLine = readLine();
+        if (timeLine == null) {
+            return false;
+        }
+        try {
+            start = parseTime(timeLine.substring(0, TIME_LENGTH));
+            end = parseTime(timeLine.substring(timeLine.length() - TIME_LENGTH));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            skipCue();
+            return false;
+        }
+
+        final StringBuilder content = new StringBuilder();
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            content.append(line).append(LINE_BREAK);
+        }
+        if (content.length() == 0) {
+            return false;
+        }
+        text = content.toString();
+        return true;
+    }
+
+    private void skipCue() throws IOException {
+        String line;
+        do {
+            line = readLine();
+        } while (line != null && !line.isEmpty());
+    }
+
+    @Nullable
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        if (isFirstLine) {
+            line = line.replace(BYTE_ORDER_MARK, "");
+            isFirstLine = false;
+        }
+        return line.trim();
+    }
+
+    private static int parseTime(@NonNull String time) {
+        final int hours = Integer.parseInt(time.substring(0, 2));
+        final int minutes = Integer.parseInt(time.substring(3, 5));
+        final int seconds = Integer.parseInt(time.substring(6, 8));
+        final int milliseconds = Integer.parseInt(time.substring(9, 12));
+        return milliseconds + seconds * 1000 + minutes * 60000 + hours * 3600000;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
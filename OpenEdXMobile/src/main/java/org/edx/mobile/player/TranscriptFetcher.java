@@ -0,0 +1,263 @@
+package org.edx.mobile.player;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.edx.mobile.http.HttpStatusException;
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.util.Sha1Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Fetches transcripts into a {@link Store} on a bounded pool of worker threads.
+ * <p>
+ * A transcript requested again while it's being fetched isn't fetched twice, the request joins the
+ * pending fetch instead. Fetches run in the order of their priority, so that the transcript of the
+ * video being played doesn't wait behind the ones prefetched for a whole course, and a pending
+ * fetch is raised to the highest priority it has been requested with. The fetches are tracked by
+ * course, so that cancelling them for a course leaves those that other courses need running.
+ */
+public class TranscriptFetcher {
+    /**
+     * The priority of transcripts prefetched along with the videos downloaded.
+     */
+    public static final int PRIORITY_PREFETCH = 0;
+    /**
+     * The priority of prefetched transcripts in the language the user watches videos in.
+     */
+    public static final int PRIORITY_PREFERRED_LANGUAGE = 1;
+    /**
+     * The priority of the transcript of the video being played.
+     */
+    public static final int PRIORITY_PLAYING = 2;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final Logger logger = new Logger(getClass().getName());
+    @NonNull
+    private final Call.Factory callFactory;
+    @NonNull
+    private final Store store;
+    @NonNull
+    private final Executor callbackExecutor;
+    @NonNull
+    private final ThreadPoolExecutor executor;
+    /* The pending fetches by the hash of their URL, guarded by this */
+    private final Map<String, Fetch> fetches = new HashMap<>();
+    private long fetchCount;
+
+    /**
+     * @param callFactory      The factory of the calls fetching the transcripts.
+     * @param store            The store the transcripts are written to.
+     * @param callbackExecutor The executor the listeners are called on.
+     * @param workerCount      The maximum number of transcripts fetched at the same time.
+     */
+    public TranscriptFetcher(@NonNull Call.Factory callFactory, @NonNull Store store,
+                             @NonNull Executor callbackExecutor, int workerCount) {
+        this.callFactory = callFactory;
+        this.store = store;
+        this.callbackExecutor = callbackExecutor;
+        // A priority queue is unbounded, so the pool never grows beyond its core size
+        executor = new ThreadPoolExecutor(workerCount, workerCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                new FetcherThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param url      The URL of the transcript.
+     * @param courseId The ID of the course the transcript belongs to.
+     * @param priority One of the PRIORITY_* constants.
+     * @param listener The listener to call once the transcript has been fetched, if any.
+     */
+    public synchronized void fetch(@NonNull String url, @NonNull String courseId, int priority,
+                                   @Nullable TranscriptManager.OnTranscriptDownloadListener listener) {
+        final String hash = Sha1Util.SHA1(url);
+        Fetch fetch = fetches.get(hash);
+        if (fetch == null) {
+            fetch = new Fetch(url, hash, priority, fetchCount++);
+            fetches.put(hash, fetch);
+            executor.execute(fetch);
+        } else if (priority > fetch.priority && executor.remove(fetch)) {
+            // Requeue it, as its position in the queue can't change while it's in the queue
+            fetch.priority = priority;
+            executor.execute(fetch);
+        }
+        fetch.courseIds.add(courseId);
+        if (listener != null) {
+            fetch.listeners.add(listener);
+        }
+    }
+
+    /**
+     * Stops calling a listener once the transcript it's waiting for has been fetched. The fetch
+     * itself carries on, so that the transcript is available the next time it's needed.
+     */
+    public synchronized void removeListener(
+            @NonNull TranscriptManager.OnTranscriptDownloadListener listener) {
+        for (Fetch fetch : fetches.values()) {
+            fetch.listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Cancels the fetches of some transcripts of a course, except those that a listener is waiting
+     * for or that belong to other courses too.
+     *
+     * @param courseId The ID of the course the transcripts belong to.
+     * @param urls     The URLs of the transcripts.
+     */
+    public synchronized void cancel(@NonNull String courseId, @NonNull Collection<String> urls) {
+        for (String url : urls) {
+            final String hash = Sha1Util.SHA1(url);
+            final Fetch fetch = fetches.get(hash);
+            if (fetch != null && fetch.courseIds.remove(courseId) &&
+                    fetch.courseIds.isEmpty() && fetch.listeners.isEmpty()) {
+                fetch.cancel();
+                fetches.remove(hash);
+            }
+        }
+    }
+
+    /**
+     * Cancels all the pending fetches.
+     */
+    public synchronized void cancelAll() {
+        for (Fetch fetch : fetches.values()) {
+            fetch.cancel();
+        }
+        fetches.clear();
+    }
+
+    /**
+     * @return The number of fetches that are queued or running.
+     */
+    @VisibleForTesting
+    synchronized int getPendingCount() {
+        return fetches.size();
+    }
+
+    private class Fetch implements Runnable, Comparable<Fetch> {
+        @NonNull
+        final String url;
+        @NonNull
+        final String hash;
+        /* The order of the request, to run fetches of the same priority in that order */
+        final long order;
+        final Set<String> courseIds = new HashSet<>();
+        final List<TranscriptManager.OnTranscriptDownloadListener> listeners = new ArrayList<>();
+        int priority;
+        @Nullable
+        Call call;
+        boolean isCancelled;
+
+        Fetch(@NonNull String url, @NonNull String hash, int priority, long order) {
+            this.url = url;
+            this.hash = hash;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        /**
+         * Called while holding the lock of the fetcher.
+         */
+        void cancel() {
+            isCancelled = true;
+            executor.remove(this);
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            final Call call;
+            synchronized (TranscriptFetcher.this) {
+                if (isCancelled) {
+                    return;
+                }
+                call = callFactory.newCall(new Request.Builder().url(url).get().build());
+                this.call = call;
+            }
+            CompactTranscript transcript = null;
+            try (Response response = call.execute()) {
+                final ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    throw new HttpStatusException(response);
+                }
+                transcript = store.put(url, body.byteStream());
+            } catch (IOException | HttpStatusException e) {
+                if (!call.isCanceled()) {
+                    logger.error(e);
+                }
+            }
+            final List<TranscriptManager.OnTranscriptDownloadListener> listeners;
+            synchronized (TranscriptFetcher.this) {
+                // Unless it has been cancelled, in which case it's no longer in the map
+                if (fetches.get(hash) == this) {
+                    fetches.remove(hash);
+                }
+                listeners = isCancelled ? new ArrayList<>() : new ArrayList<>(this.listeners);
+            }
+            if (transcript != null) {
+                final CompactTranscript fetchedTranscript = transcript;
+                for (TranscriptManager.OnTranscriptDownloadListener listener : listeners) {
+                    callbackExecutor.execute(() -> listener.onDownloadComplete(fetchedTranscript));
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull Fetch other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+
+    private static class FetcherThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            final Thread thread = new Thread(runnable, "transcript-fetcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Where the fetched transcripts are written to.
+     */
+    public interface Store {
+        /**
+         * @param url The URL of the transcript.
+         * @param srt The contents of the transcript in the SRT format, read as it's downloaded.
+         * @return The transcript, as saved in the store.
+         */
+        @NonNull
+        CompactTranscript put(@NonNull String url, @NonNull InputStream srt) throws IOException;
+    }
+}
@@ -2,8 +2,6 @@ package org.edx.mobile.player;
 
 import androidx.annotation.NonNull;
 
-import subtitleFile.TimedTextObject;
-
 /**
  * Includes the callbacks related to Transcripts of a video.
  */
@@ -13,7 +11,7 @@ public interface TranscriptListener {
      *
      * @param transcript The new transcript.
      */
-    void updateTranscript(@NonNull TimedTextObject transcript);
+    void updateTranscript(@NonNull CompactTranscript transcript);
 
     /**
      * Callback for when a transcript item is selected.
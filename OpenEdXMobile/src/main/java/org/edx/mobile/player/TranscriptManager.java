@@ -1,48 +1,62 @@
 package org.edx.mobile.player;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import org.edx.mobile.http.cache.CacheTier;
+import org.edx.mobile.http.provider.OkHttpClientProvider;
 import org.edx.mobile.logger.Logger;
+import org.edx.mobile.model.api.TranscriptModel;
 import org.edx.mobile.util.AppConstants;
 import org.edx.mobile.util.FileUtil;
-import org.edx.mobile.util.IOUtils;
+import org.edx.mobile.util.LocaleUtils;
 import org.edx.mobile.util.Sha1Util;
-import org.edx.mobile.util.TranscriptDownloader;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
+import java.util.Collection;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import dagger.hilt.android.qualifiers.ApplicationContext;
-import subtitleFile.FormatSRT;
-import subtitleFile.TimedTextObject;
 
 @Singleton
 public class TranscriptManager {
 
+    private static final String TRANSCRIPT_EXTENSION = ".cues";
+    private static final String TEMP_EXTENSION = ".tmp";
+    /* The number of recently used transcripts kept open */
+    private static final int CACHED_TRANSCRIPTS = 8;
+    /* The number of transcripts downloaded at the same time */
+    private static final int FETCHER_WORKER_COUNT = 3;
+
     private final Logger logger = new Logger(getClass().getName());
     private final Context context;
-    private AsyncTask<Void, Void, String> transcriptDownloader;
+    private final LruCache<String, CompactTranscript> cachedTranscripts =
+            new LruCache<>(CACHED_TRANSCRIPTS);
+    private final TranscriptFetcher transcriptFetcher;
 
     @Inject
-    public TranscriptManager(@ApplicationContext Context context) {
+    public TranscriptManager(@ApplicationContext Context context,
+                             OkHttpClientProvider okHttpClientProvider) {
         this.context = context;
+        final Handler handler = new Handler(Looper.getMainLooper());
+        this.transcriptFetcher = new TranscriptFetcher(
+                request -> okHttpClientProvider.getWithOfflineCache(CacheTier.TRANSCRIPTS).newCall(request),
+                this::put, handler::post, FETCHER_WORKER_COUNT);
     }
 
     /**
-     * This function checks if the file exists for that link
+     * This function checks if the transcript of a link has been downloaded
      *
      * @param url
      * @return
@@ -52,174 +66,151 @@ public class TranscriptManager {
         if (transcriptDir == null) return false;
 
         String hash = Sha1Util.SHA1(url);
-        File file = new File(transcriptDir, hash);
-        return file.exists();
+        return getTranscriptFile(transcriptDir, hash).exists() || new File(transcriptDir, hash).exists();
     }
 
 
     /**
-     * This function is used to saved contents of a String to a file
+     * This function is used to save an SRT transcript, converted to the {@link CompactTranscript}
+     * format
      *
-     * @param url      - Url of Transcript
-     * @param response - This is the String which needs to be saved into a file
+     * @param url - Url of Transcript
+     * @param srt - The contents of the SRT file, which is parsed as it's read
+     * @return The saved transcript
      * @throws IOException
      */
-    public void put(String url, String response) throws IOException {
+    @NonNull
+    public CompactTranscript put(@NonNull String url, @NonNull InputStream srt) throws IOException {
         final File transcriptDir = getTranscriptDir();
         if (transcriptDir == null) throw new IOException("Transcript directory not found");
 
         String hash = Sha1Util.SHA1(url);
-        File file = new File(transcriptDir, hash);
-        FileOutputStream out = new FileOutputStream(file);
-        out.write(response.getBytes());
-        out.close();
+        return writeTranscript(transcriptDir, hash, srt);
     }
 
-
-    /**
-     * This function helps to get the file contents in a String
-     *
-     * @param url - This is the URL for SRT files
-     * @return String - This is the response of the File contents
-     * @throws IOException
-     */
-    public String get(String url) throws IOException {
-        final File transcriptDir = getTranscriptDir();
-        if (transcriptDir == null) throw new IOException("Transcript directory not found");
-
-        String hash = Sha1Util.SHA1(url);
-        File file = new File(transcriptDir, hash);
-        if (!file.exists()) {
-            // not in cache
-            return null;
+    @NonNull
+    private CompactTranscript writeTranscript(@NonNull File transcriptDir, @NonNull String hash,
+                                              @NonNull InputStream srt) throws IOException {
+        final File file = getTranscriptFile(transcriptDir, hash);
+        // Unique, as a transcript may be written again while a cancelled fetch is still writing it
+        final File tempFile = File.createTempFile(hash, TEMP_EXTENSION, transcriptDir);
+        try {
+            CompactTranscript.convertSrt(srt, tempFile);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Failed to save the transcript " + hash);
+            }
+        } finally {
+            tempFile.delete();
         }
-
-        String cache = IOUtils.toString(file, Charset.defaultCharset());
-        logger.debug("Cache.get=" + hash);
-        return cache;
+        final CompactTranscript compactTranscript = CompactTranscript.open(file);
+        cachedTranscripts.put(hash, compactTranscript);
+        return compactTranscript;
     }
 
 
     /**
-     * This function helps to get the file contents in an InputStream
+     * This function opens a downloaded transcript, from the recently used ones if it is one of them
      *
      * @param url - This is the URL for SRT files
-     * @return String - This is the response of the File contents
-     * @throws IOException
+     * @return The transcript, or null if it hasn't been downloaded
      */
-    public InputStream getInputStream(String url) throws IOException {
+    @Nullable
+    public CompactTranscript getTranscript(@Nullable String url) {
+        if (url == null) {
+            return null;
+        }
         final File transcriptDir = getTranscriptDir();
-        if (transcriptDir == null) throw new IOException("Transcript directory not found");
-
-        String hash = Sha1Util.SHA1(url);
-        File file = new File(transcriptDir, hash);
-        if (!file.exists()) {
-            // not in cache
+        if (transcriptDir == null) {
             return null;
         }
 
-        return new FileInputStream(file);
+        final String hash = Sha1Util.SHA1(url);
+        CompactTranscript transcript = cachedTranscripts.get(hash);
+        if (transcript != null) {
+            return transcript;
+        }
+        try {
+            final File srtFile = new File(transcriptDir, hash);
+            if (srtFile.exists()) {
+                return upgradeTranscript(transcriptDir, hash, srtFile);
+            }
+            final File file = getTranscriptFile(transcriptDir, hash);
+            if (!file.exists()) {
+                // not downloaded
+                return null;
+            }
+            transcript = CompactTranscript.open(file);
+            cachedTranscripts.put(hash, transcript);
+            logger.debug("Cache.get=" + hash);
+            return transcript;
+        } catch (IOException e) {
+            logger.error(e);
+            // Download it again rather than failing on every open
+            new File(transcriptDir, hash).delete();
+            getTranscriptFile(transcriptDir, hash).delete();
+            return null;
+        }
     }
 
-
     /**
-     * This function is used to handle downloading of SRT files and saving them
-     *
-     * @param downloadLink     - transcript downloadable link
-     * @param downloadListener - Callback on transcript download complete {@link OnTranscriptDownloadListener}
+     * Converts a transcript saved as an SRT file by an older version of the app.
      */
-    @SuppressLint("StaticFieldLeak")
-    private void startTranscriptDownload(@NonNull final String downloadLink,
-                                         @Nullable OnTranscriptDownloadListener downloadListener) {
-        //If file is not present in the Folder, then start downloading
-        if (!has(downloadLink)) {
-            transcriptDownloader = new TranscriptDownloader(context, downloadLink) {
-
-                @Override
-                public void onDownloadComplete(String response) {
-                    try {
-                        if (response != null) {
-                            put(downloadLink, response);
-                            if (downloadListener != null) {
-                                final InputStream transcriptInputStream = fetchTranscriptResponse(downloadLink);
-                                TimedTextObject transcriptTimedTextObject = convertIntoTimedTextObject(transcriptInputStream);
-                                downloadListener.onDownloadComplete(transcriptTimedTextObject);
-                            }
-                        }
-                    } catch (IOException e) {
-                        logger.error(e);
-                    }
-                }
-
-                @Override
-                public void handle(Exception ex) {
-                    logger.error(ex);
-                }
-            }.execute();
+    @NonNull
+    private CompactTranscript upgradeTranscript(@NonNull File transcriptDir, @NonNull String hash,
+                                                @NonNull File srtFile) throws IOException {
+        final CompactTranscript transcript;
+        try (InputStream inputStream = new FileInputStream(srtFile)) {
+            transcript = writeTranscript(transcriptDir, hash, inputStream);
         }
+        srtFile.delete();
+        return transcript;
+    }
+
+    @NonNull
+    private static File getTranscriptFile(@NonNull File transcriptDir, @NonNull String hash) {
+        return new File(transcriptDir, hash + TRANSCRIPT_EXTENSION);
     }
 
+
     /**
-     * This function starts downloading all the srt files in a Transcript model
+     * This function delivers a transcript, downloading it first if needed
      *
      * @param transcriptUrl    - download url to download the transcript
+     * @param courseId         - ID of the course of the video
      * @param downloadListener - Callback on transcript download complete {@link OnTranscriptDownloadListener}
      */
-    public void downloadTranscriptsForVideo(@Nullable String transcriptUrl,
+    public void downloadTranscriptsForVideo(@Nullable String transcriptUrl, @NonNull String courseId,
                                             @Nullable OnTranscriptDownloadListener downloadListener) {
         if (TextUtils.isEmpty(transcriptUrl)) {
             return;
         }
-        InputStream transcriptsInputStream = fetchTranscriptResponse(transcriptUrl);
-        if (transcriptsInputStream != null) {
-            TimedTextObject transcriptTimedTextObject;
-            try {
-                transcriptTimedTextObject = convertIntoTimedTextObject(transcriptsInputStream);
-                if (downloadListener != null) {
-                    downloadListener.onDownloadComplete(transcriptTimedTextObject);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+        final CompactTranscript transcript = getTranscript(transcriptUrl);
+        if (transcript != null) {
+            if (downloadListener != null) {
+                downloadListener.onDownloadComplete(transcript);
             }
         } else {
-            startTranscriptDownload(transcriptUrl, downloadListener);
+            transcriptFetcher.fetch(transcriptUrl, courseId, TranscriptFetcher.PRIORITY_PLAYING,
+                    downloadListener);
         }
     }
 
     /**
-     * Utility method that convert the {@link InputStream} to {@link TimedTextObject} for the
-     * transcript
+     * This function starts downloading all the srt files in a Transcript model that haven't been
+     * downloaded yet, the one in the language the user watches videos in first
      *
-     * @param inputStream - that needs to convert
-     * @return - {@link TimedTextObject} a transcript object
+     * @param courseId   - ID of the course of the video
+     * @param transcript - transcripts of the video in all of its languages
      */
-    private TimedTextObject convertIntoTimedTextObject(@NonNull InputStream inputStream) throws IOException {
-        TimedTextObject timedTextObject = new FormatSRT().parseFile("temp.srt", inputStream);
-        inputStream.close();
-        return timedTextObject;
-    }
-
-    /**
-     * This function is used to get string as response for the contents of a file
-     *
-     * @param url - URL of the srt
-     * @return String contents of the File
-     */
-    public InputStream fetchTranscriptResponse(String url) {
-        if (url == null) {
-            return null;
-        }
-
-        InputStream response = null;
-        try {
-            if (has(url)) {
-                response = getInputStream(url);
-                return response;
+    public void prefetchTranscripts(@NonNull String courseId, @NonNull TranscriptModel transcript) {
+        final String preferredUrl = LocaleUtils.getTranscriptURL(context, transcript);
+        for (String url : transcript.values()) {
+            if (!TextUtils.isEmpty(url) && !has(url)) {
+                transcriptFetcher.fetch(url, courseId, url.equals(preferredUrl) ?
+                        TranscriptFetcher.PRIORITY_PREFERRED_LANGUAGE :
+                        TranscriptFetcher.PRIORITY_PREFETCH, null);
             }
-        } catch (IOException e) {
-            logger.error(e);
         }
-        return null;
     }
 
     @Nullable
@@ -235,15 +226,33 @@ public class TranscriptManager {
     }
 
     /**
-     * Method to cancel the transcript downloading.
+     * Method to stop waiting for a transcript to be downloaded.
+     *
+     * @param downloadListener - Callback passed to {@link #downloadTranscriptsForVideo}
      */
-    public void cancelTranscriptDownloading() {
-        if (transcriptDownloader != null) {
-            transcriptDownloader.cancel(true);
-        }
+    public void cancelTranscriptDownloading(@NonNull OnTranscriptDownloadListener downloadListener) {
+        transcriptFetcher.removeListener(downloadListener);
+    }
+
+    /**
+     * Method to cancel the prefetching of some transcripts of a course.
+     *
+     * @param courseId       - ID of the course
+     * @param transcriptUrls - download urls of the transcripts
+     */
+    public void cancelTranscriptDownloads(@NonNull String courseId,
+                                          @NonNull Collection<String> transcriptUrls) {
+        transcriptFetcher.cancel(courseId, transcriptUrls);
+    }
+
+    /**
+     * Method to cancel the downloading of all the transcripts.
+     */
+    public void cancelAllTranscriptDownloads() {
+        transcriptFetcher.cancelAll();
     }
 
     public interface OnTranscriptDownloadListener {
-        void onDownloadComplete(TimedTextObject transcriptTimedTextObject);
+        void onDownloadComplete(CompactTranscript transcript);
     }
 }
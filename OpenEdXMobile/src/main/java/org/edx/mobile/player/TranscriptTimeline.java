@@ -0,0 +1,188 @@
+package org.edx.mobile.player;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collection;
+
+import subtitleFile.Caption;
+
+/**
+ * Index of the captions of a transcript over time, to look up the caption being spoken at a
+ * playback position.
+ * <p>
+ * The start and end times of the captions are kept in arrays sorted by start time, along with the
+ * latest end time of every prefix of the captions, so that a lookup is a binary search even when
+ * captions overlap. As the position mostly moves forward during playback, the last caption found
+ * is remembered, and the lookup first checks it and the caption that follows it, which makes
+ * consecutive lookups take constant time.
+ * <p>
+ * A lookup returns the same caption as scanning the captions in order for the first one that
+ * covers the position, both ends included. This class isn't thread safe.
+ */
+public class TranscriptTimeline {
+    /* The transcript that the captions are decoded from as they're requested, if any */
+    @Nullable
+    private final CompactTranscript transcript;
+    /* The captions, when they weren't read from a compact transcript */
+    @Nullable
+    private final Caption[] captions;
+    @NonNull
+    private final int[] starts;
+    @NonNull
+    private final int[] ends;
+    /* The latest end time of the captions up to each index, which never decreases */
+    @NonNull
+    private final int[] maxEnds;
+    /* The index of the caption last found, or -1 */
+    private int cursor = -1;
+
+    /**
+     * Only the times of the cues are read from the transcript, the text of a cue is decoded when
+     * its caption is first requested.
+     */
+    public TranscriptTimeline(@NonNull CompactTranscript transcript) {
+        this.transcript = transcript;
+        this.captions = null;
+        final int count = transcript.size();
+        starts = new int[count];
+        ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = transcript.getStart(i);
+            ends[i] = transcript.getEnd(i);
+        }
+        maxEnds = getMaxEnds(ends);
+    }
+
+    /**
+     * @param captions The captions of a transcript, sorted by their start time.
+     */
+    public TranscriptTimeline(@NonNull Collection<Caption> captions) {
+        this.transcript = null;
+        this.captions = captions.toArray(new Caption[0]);
+        final int count = this.captions.length;
+        starts = new int[count];
+        ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            final Caption caption = this.captions[i];
+            starts[i] = caption.start.getMseconds();
+            ends[i] = caption.end.getMseconds();
+        }
+        maxEnds = getMaxEnds(ends);
+    }
+
+    @NonNull
+    private static int[] getMaxEnds(@NonNull int[] ends) {
+        final int[] maxEnds = new int[ends.length];
+        for (int i = 0; i < ends.length; i++) {
+            maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+        return maxEnds;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    @NonNull
+    public Caption getCaption(int index) {
+        return captions != null ? captions[index] : transcript.getCaption(index);
+    }
+
+    /**
+     * @param positionMs The playback position in milliseconds.
+     * @return The caption being spoken at the position, or null if there is none.
+     */
+    @Nullable
+    public Caption getCaptionAt(long positionMs) {
+        final int index = indexAt(positionMs);
+        return index < 0 ? null : getCaption(index);
+    }
+
+    /**
+     * @param positionMs The playback position in milliseconds.
+     * @return The index of the caption being spoken at the position, or -1 if there is none.
+     */
+    public int indexAt(long positionMs) {
+        if (cursor >= 0) {
+            // Still within the last caption found
+            if (isFirstCovering(cursor, positionMs)) {
+                return cursor;
+            }
+            final int next = cursor + 1;
+            if (positionMs > maxEnds[cursor] &&
+                    (next == starts.length || positionMs < starts[next])) {
+                // In the gap after the last caption found, where no caption is spoken
+                return -1;
+            } else if (next < starts.length && isFirstCovering(next, positionMs)) {
+                // Moved on to the next caption
+                cursor = next;
+                return cursor;
+            }
+        }
+        final int index = search(positionMs);
+        if (index >= 0) {
+            cursor = index;
+        }
+        return index;
+    }
+
+    /**
+     * @return true if the caption at the given index is the first one that covers the position.
+     */
+    private boolean isFirstCovering(int index, long positionMs) {
+        return starts[index] <= positionMs && positionMs <= ends[index] &&
+                (index == 0 || maxEnds[index - 1] < positionMs);
+    }
+
+    private int search(long positionMs) {
+        // The captions that start at or before the position
+        final int last = upperBound(starts, positionMs) - 1;
+        if (last < 0) {
+            return -1;
+        }
+        // The first caption that may still be spoken at the position
+        int first = lowerBound(maxEnds, last + 1, positionMs);
+        for (; first <= last; first++) {
+            if (ends[first] >= positionMs) {
+                return first;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of the first value greater than the given one, in a sorted array.
+     */
+    private static int upperBound(@NonNull int[] values, long value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first value greater than or equal to the given one, among the
+     * first values of a sorted array.
+     */
+    private static int lowerBound(@NonNull int[] values, int length, long value) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
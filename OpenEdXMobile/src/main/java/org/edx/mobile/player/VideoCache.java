@@ -0,0 +1,330 @@
+package org.edx.mobile.player;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+
+import org.edx.mobile.logger.Logger;
+import org.edx.mobile.module.db.DataCallback;
+import org.edx.mobile.util.Config;
+import org.edx.mobile.util.MemoryUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import okhttp3.HttpUrl;
+
+/**
+ * Caches the bytes of the videos streamed by the player on disk, so that seeking back, replaying
+ * or reopening a video doesn't download it again, and the parts already played can be played
+ * offline. The least recently played videos are evicted beyond the size set in the
+ * {@link Config.VideoCacheConfig}.
+ * <p>
+ * The videos downloaded by the user are played from their files, and never go through this cache.
+ */
+@Singleton
+public class VideoCache {
+    private static final String DIRECTORY_NAME = "video-cache";
+    private static final long BYTES_PER_MB = 1024 * 1024;
+    private static final String HLS_PLAYLIST_EXTENSION = ".m3u8";
+
+    private final Logger logger = new Logger(getClass().getName());
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final Config.VideoCacheConfig config;
+    /* Created on the first playback, as opening it reads its index from the disk */
+    @Nullable
+    private SimpleCache cache;
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong networkBytes = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Inject
+    public VideoCache(@ApplicationContext @NonNull Context context, @NonNull Config config) {
+        this.context = context;
+        this.config = config.getVideoCacheConfig();
+    }
+
+    /**
+     * @param upstreamFactory The factory of the data sources reading the videos from the network.
+     * @return The factory of the data sources reading the videos from the cache, and from the
+     * network for the parts that aren't cached yet.
+     */
+    @NonNull
+    public DataSource.Factory getDataSourceFactory(
+            @NonNull DefaultHttpDataSource.Factory upstreamFactory) {
+        upstreamFactory.setTransferListener(new NetworkBytesListener());
+        if (!config.isEnabled()) {
+            return upstreamFactory;
+        }
+        return new CacheDataSource.Factory()
+                .setCache(getCache())
+                .setUpstreamDataSourceFactory(upstreamFactory)
+                // A corrupt cache falls back to the network rather than failing the playback
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(new CachedBytesListener());
+    }
+
+    /**
+     * @return The number of bytes taken by the cache on the disk.
+     */
+    public synchronized long getCacheSpace() {
+        return config.isEnabled() ? getCache().getCacheSpace() : 0;
+    }
+
+    /**
+     * Removes the cached bytes of a video in the background, e.g. once it has been downloaded.
+     * The segments and variant playlists of an HLS encoding are cached under their own URLs, next
+     * to its playlist, so everything cached under the directory of the playlist is removed too.
+     *
+     * @param urls The URLs of all the encodings the video may have been streamed from.
+     */
+    public void remove(@NonNull Collection<String> urls) {
+        if (!config.isEnabled() || urls.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            final SimpleCache cache = getCache();
+            for (String key : new ArrayList<>(cache.getKeys())) {
+                if (isCacheKeyOf(key, urls)) {
+                    cache.removeResource(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all the cached videos in the background.
+     */
+    public void clear() {
+        if (config.isEnabled()) {
+            executor.execute(this::removeAll);
+        }
+    }
+
+    /**
+     * Removes all the cached videos on the calling thread, which can take a while as opening the
+     * cache and deleting its files access the disk.
+     */
+    @WorkerThread
+    private void removeAll() {
+        final SimpleCache cache = getCache();
+        for (String key : new ArrayList<>(cache.getKeys())) {
+            cache.removeResource(key);
+        }
+    }
+
+    /**
+     * Makes room for downloading videos in the background, by removing the least recently played
+     * cached videos until the downloads fit in the available external storage.
+     *
+     * @param downloadSize The number of bytes to be downloaded.
+     * @param callback     Called with whether the downloads fit in the available storage.
+     */
+    public void makeRoomForDownloads(final long downloadSize,
+                                     @NonNull final DataCallback<Boolean> callback) {
+        executor.execute(() -> {
+            try {
+                final long availableMemory = MemoryUtil.getAvailableExternalMemory(context);
+                if (downloadSize <= availableMemory) {
+                    callback.sendResult(true);
+                    return;
+                }
+                if (!config.isEnabled() ||
+                        downloadSize > availableMemory + getCacheSpace()) {
+                    callback.sendResult(false);
+                    return;
+                }
+                evict(downloadSize - availableMemory);
+                callback.sendResult(true);
+            } catch (Exception ex) {
+                logger.error(ex);
+                callback.sendException(ex);
+            }
+        });
+    }
+
+    /**
+     * Removes the least recently played cached videos on the calling thread, until at least the
+     * given number of bytes have been freed or the cache is empty.
+     *
+     * @param bytes The number of bytes to free.
+     */
+    @WorkerThread
+    private void evict(long bytes) {
+        final SimpleCache cache = getCache();
+        final Map<String, Long> lastTouchTimestamps = new HashMap<>();
+        for (String key : cache.getKeys()) {
+            long lastTouchTimestamp = 0;
+            for (CacheSpan span : cache.getCachedSpans(key)) {
+                lastTouchTimestamp = Math.max(lastTouchTimestamp, span.lastTouchTimestamp);
+            }
+            lastTouchTimestamps.put(key, lastTouchTimestamp);
+        }
+        final List<String> keys = new ArrayList<>(lastTouchTimestamps.keySet());
+        Collections.sort(keys, (first, second) -> Long.compare(
+                lastTouchTimestamps.get(first), lastTouchTimestamps.get(second)));
+        final long initialSpace = cache.getCacheSpace();
+        for (String key : keys) {
+            if (initialSpace - cache.getCacheSpace() >= bytes) {
+                break;
+            }
+            cache.removeResource(key);
+        }
+    }
+
+    /**
+     * @param key  The key of a resource in the cache, the URL it was read from.
+     * @param urls The URLs of the encodings of a video.
+     * @return Whether the resource belongs to one of the encodings.
+     */
+    @VisibleForTesting
+    static boolean isCacheKeyOf(@NonNull String key, @NonNull Collection<String> urls) {
+        for (String url : urls) {
+            if (key.equals(url)) {
+                return true;
+            }
+            final String hlsDirectory = getHlsDirectory(url);
+            if (hlsDirectory != null && key.startsWith(hlsDirectory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The URL of the directory of an HLS playlist, or null if the URL isn't the one of an
+     * HLS playlist, or if the playlist is at the root of its host, which other videos may share.
+     */
+    @Nullable
+    private static String getHlsDirectory(@NonNull String url) {
+        final HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null || httpUrl.pathSize() < 2 ||
+                !httpUrl.encodedPath().endsWith(HLS_PLAYLIST_EXTENSION)) {
+            return null;
+        }
+        final HttpUrl directory = httpUrl.resolve(".");
+        return directory == null ? null : directory.toString();
+    }
+
+    /**
+     * @return The number of bytes played from the cache since the app started.
+     */
+    public long getCachedBytes() {
+        return cachedBytes.get();
+    }
+
+    /**
+     * @return The number of bytes of streamed videos downloaded since the app started.
+     */
+    public long getNetworkBytes() {
+        return networkBytes.get();
+    }
+
+    /**
+     * @return The fraction of the bytes played that were read from the cache, between 0 and 1.
+     */
+    public double getHitRatio() {
+        final long cached = getCachedBytes();
+        final long total = cached + getNetworkBytes();
+        return total > 0 ? (double) cached / total : 0;
+    }
+
+    /**
+     * @return A human readable report of the use of the cache, which reads the size of the cache
+     * from the disk.
+     */
+    @NonNull
+    @WorkerThread
+    public String getReport() {
+        return String.format(Locale.US, "video cache: %d bytes cached, %d bytes read from " +
+                        "the cache, %d bytes from the network, %.1f%% hit ratio",
+                getCacheSpace(), getCachedBytes(), getNetworkBytes(), getHitRatio() * 100);
+    }
+
+    /**
+     * Logs the {@link #getReport() report} of the use of the cache in the background.
+     */
+    public void logReport() {
+        executor.execute(() -> logger.debug(getReport()));
+    }
+
+    @NonNull
+    private synchronized SimpleCache getCache() {
+        if (cache == null) {
+            cache = new SimpleCache(getDirectory(),
+                    new LeastRecentlyUsedCacheEvictor(config.getMaxSizeMb() * BYTES_PER_MB),
+                    new StandaloneDatabaseProvider(context));
+        }
+        return cache;
+    }
+
+    @NonNull
+    private File getDirectory() {
+        return new File(context.getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private class CachedBytesListener implements CacheDataSource.EventListener {
+        @Override
+        public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+            cachedBytes.addAndGet(cachedBytesRead);
+        }
+
+        @Override
+        public void onCacheIgnored(int reason) {
+            logger.debug("Cache ignored, reason: " + reason);
+        }
+    }
+
+    private class NetworkBytesListener implements TransferListener {
+        @Override
+        public void onTransferInitializing(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                           boolean isNetwork) {
+        }
+
+        @Override
+        public void onTransferStart(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                    boolean isNetwork) {
+        }
+
+        @Override
+        public void onBytesTransferred(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                       boolean isNetwork, int bytesTransferred) {
+            if (isNetwork) {
+                networkBytes.addAndGet(bytesTransferred);
+            }
+        }
+
+        @Override
+        public void onTransferEnd(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                  boolean isNetwork) {
+        }
+    }
+}
@@ -20,11 +20,14 @@ import com.google.android.exoplayer2.source.ProgressiveMediaSource;
 import com.google.android.exoplayer2.source.hls.HlsMediaSource;
 import com.google.android.exoplayer2.ui.PlayerView;
 import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
 import com.google.android.exoplayer2.upstream.FileDataSource;
 import com.google.android.exoplayer2.util.Util;
 
 import org.edx.mobile.R;
+import org.edx.mobile.core.EdxDefaultModule;
+import org.edx.mobile.http.util.BandwidthModel;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.util.AppConstants;
 import org.edx.mobile.util.VideoUtil;
@@ -32,6 +35,8 @@ import org.edx.mobile.view.OnSwipeListener;
 
 import java.util.Locale;
 
+import dagger.hilt.android.EntryPointAccessors;
+
 @SuppressWarnings("serial")
 public class VideoPlayer implements Player.Listener, AnalyticsListener, PlayerListener {
 
@@ -60,6 +65,7 @@ public class VideoPlayer implements Player.Listener, AnalyticsListener, PlayerLi
     private String videoTitle;
     private String lmsURL;
     private String videoUri;
+    private VideoCache videoCache;
     private static final Logger logger = new Logger(VideoPlayer.class.getName());
 
     public VideoPlayer(Context context) {
@@ -85,7 +91,19 @@ public class VideoPlayer implements Player.Listener, AnalyticsListener, PlayerLi
     }
 
     private void initExoPlayer() {
-        exoPlayer = new ExoPlayer.Builder(context).build();
+        // Seed the bandwidth estimate of the player with the last measured one, so that adaptive
+        // streams start at a sustainable quality rather than at the platform's default estimate
+        final EdxDefaultModule.ProviderEntryPoint entryPoint = EntryPointAccessors.fromApplication(
+                context.getApplicationContext(), EdxDefaultModule.ProviderEntryPoint.class);
+        final BandwidthModel bandwidthModel = entryPoint.getBandwidthModel();
+        videoCache = entryPoint.getVideoCache();
+        final DefaultBandwidthMeter.Builder bandwidthMeter = new DefaultBandwidthMeter.Builder(context);
+        if (bandwidthModel.hasEstimate()) {
+            bandwidthMeter.setInitialBitrateEstimate(bandwidthModel.getEstimatedBitrate());
+        }
+        exoPlayer = new ExoPlayer.Builder(context)
+                .setBandwidthMeter(bandwidthMeter.build())
+                .build();
         exoPlayer.addListener(this);
         exoPlayer.addAnalyticsListener(this);
         exoPlayer.setRepeatMode(Player.REPEAT_MODE_OFF);
@@ -295,7 +313,10 @@ public class VideoPlayer implements Player.Listener, AnalyticsListener, PlayerLi
      */
     private MediaSource getMediaSource(String videoUrl) {
         final String userAgent = Util.getUserAgent(this.context, this.context.getString(R.string.app_name));
-        final DataSource.Factory dataSourceFactory = new DefaultHttpDataSource.Factory().setUserAgent(userAgent);
+        // The streamed videos are read through the on-disk cache, while the downloaded ones are
+        // played from their files below
+        final DataSource.Factory dataSourceFactory = videoCache.getDataSourceFactory(
+                new DefaultHttpDataSource.Factory().setUserAgent(userAgent));
         final MediaItem mediaItem = MediaItem.fromUri(Uri.parse(videoUrl));
         final MediaSource mediaSource;
 
@@ -391,6 +412,7 @@ public class VideoPlayer implements Player.Listener, AnalyticsListener, PlayerLi
 
     @Override
     public void release() {
+        videoCache.logReport();
         exoPlayer.removeListener(this);
         exoPlayer.removeAnalyticsListener(this);
         exoPlayer.release();
@@ -13,7 +13,6 @@ import org.edx.mobile.module.db.DataCallback;
 import org.edx.mobile.module.db.IDatabase;
 import org.edx.mobile.module.prefs.LoginPrefs;
 import org.edx.mobile.util.FileUtil;
-import org.edx.mobile.util.Sha1Util;
 import org.edx.mobile.util.VideoUtil;
 import org.greenrobot.eventbus.EventBus;
 
@@ -44,8 +43,7 @@ public class MediaStatusReceiver extends BroadcastReceiver {
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        final String username = loginPrefs.getUsername();
-        final String hashedUsername = (username != null) ? Sha1Util.SHA1(username) : null;
+        final String hashedUsername = loginPrefs.getHashedUsername();
 
         final String sdCardPath = intent.getDataString().replace("file://", "");
         final String action = intent.getAction();
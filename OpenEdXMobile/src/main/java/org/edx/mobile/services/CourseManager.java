@@ -1,32 +1,41 @@
 package org.edx.mobile.services;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
 import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import org.edx.mobile.course.CourseAPI;
+import org.edx.mobile.course.CourseStructureSnapshot;
 import org.edx.mobile.logger.Logger;
-import org.edx.mobile.model.Filter;
 import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.CourseStructureV1Model;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
 /**
  * This class manages the caching mechanism of courses data.
  */
 @Singleton
-public class CourseManager {
+public class CourseManager implements ComponentCallbacks2 {
     protected final Logger logger = new Logger(getClass().getName());
 
     /**
-     * This count represents the maximum no of courses that will be cached via app level cache.
+     * The fraction of the app's memory class that courses data cached via app level cache may
+     * take up, i.e. an eighth of the heap.
      */
-    private final int NO_OF_COURSES_TO_CACHE = 15;
+    private static final int MEMORY_CLASS_FRACTION = 8;
 
     /**
-     * An app level cache to keep courses data in memory till ending of app session.
+     * An app level cache to keep courses data in memory till ending of app session, sized in
+     * kilobytes of the estimated memory retained by each course's tree.
      */
     private final LruCache<String, CourseComponent> cachedComponent;
 
@@ -34,14 +43,66 @@ public class CourseManager {
     CourseAPI courseApi;
 
     @Inject
-    public CourseManager() {
-        cachedComponent = new LruCache<>(NO_OF_COURSES_TO_CACHE);
+    CourseStructureSnapshot courseStructureSnapshot;
+
+    @Inject
+    public CourseManager(@ApplicationContext @NonNull Context context) {
+        final ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        final int maxSizeKb = activityManager.getMemoryClass() * 1024 / MEMORY_CLASS_FRACTION;
+        cachedComponent = new LruCache<String, CourseComponent>(maxSizeKb) {
+            @Override
+            protected int sizeOf(String courseId, CourseComponent courseComponent) {
+                return (int) Math.max(1, courseComponent.getEstimatedTreeSize() / 1024);
+            }
+        };
+        context.registerComponentCallbacks(this);
     }
 
     public void clearAllAppLevelCache() {
         cachedComponent.evictAll();
     }
 
+    /**
+     * @return Number of times the app level cache returned the course data.
+     */
+    public int getAppLevelCacheHitCount() {
+        return cachedComponent.hitCount();
+    }
+
+    /**
+     * @return Number of times the course data was not found in the app level cache.
+     */
+    public int getAppLevelCacheMissCount() {
+        return cachedComponent.missCount();
+    }
+
+    /**
+     * @return Number of courses evicted from the app level cache to stay within its budget.
+     */
+    public int getAppLevelCacheEvictionCount() {
+        return cachedComponent.evictionCount();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Memory is critically low, the courses can be loaded from the persistable cache again
+            cachedComponent.evictAll();
+        } else if (level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_BACKGROUND) {
+            cachedComponent.trimToSize(cachedComponent.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        cachedComponent.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
     public void addCourseDataInAppLevelCache(@NonNull String courseId,
                                              @NonNull CourseComponent courseComponent) {
         cachedComponent.put(courseId, courseComponent);
@@ -59,7 +120,8 @@ public class CourseManager {
     }
 
     /**
-     * Obtain the course data from persistable cache.
+     * Obtain the course data from persistable cache, i.e. from the binary snapshot of the course
+     * structure if there is one, otherwise from the HTTP cache of the blocks API response.
      * <p>
      * <b>WARNING:</b> This function takes time and should call asynchronously.
      * {@link CourseManager#getCourseDataFromAppLevelCache} can be used as an alternate, specially
@@ -71,9 +133,18 @@ public class CourseManager {
      */
     @Nullable
     public CourseComponent getCourseDataFromPersistableCache(@NonNull String blocksApiVersion, @NonNull String courseId) {
+        final CourseComponent snapshot = courseStructureSnapshot.read(blocksApiVersion, courseId);
+        if (snapshot != null) {
+            addCourseDataInAppLevelCache(courseId, snapshot);
+            return snapshot;
+        }
         try {
-            final CourseComponent component = courseApi.getCourseStructureFromCache(blocksApiVersion, courseId);
+            final CourseStructureV1Model model = courseApi.getCourseStructureModelFromCache(
+                    blocksApiVersion, courseId);
+            final CourseComponent component = (CourseComponent) CourseAPI.normalizeCourseStructure(
+                    model, courseId);
             addCourseDataInAppLevelCache(courseId, component);
+            courseStructureSnapshot.writeAsync(blocksApiVersion, courseId, component);
             return component;
         } catch (Exception e) {
             // Course data doesn't exist in cache
@@ -105,12 +176,7 @@ public class CourseManager {
         CourseComponent courseComponent = getCourseDataFromAppLevelCache(courseId);
         if (courseComponent == null)
             return null;
-        return courseComponent.find(new Filter<CourseComponent>() {
-            @Override
-            public boolean apply(CourseComponent courseComponent) {
-                return componentId.equals(courseComponent.getId());
-            }
-        });
+        return courseComponent.getComponentById(componentId);
     }
 
     /**
@@ -128,11 +194,6 @@ public class CourseManager {
         CourseComponent courseComponent = getCachedCourseData(blocksApiVersion, courseId);
         if (courseComponent == null)
             return null;
-        return courseComponent.find(new Filter<CourseComponent>() {
-            @Override
-            public boolean apply(CourseComponent courseComponent) {
-                return componentId.equals(courseComponent.getId());
-            }
-        });
+        return courseComponent.getComponentById(componentId);
     }
 }
@@ -8,13 +8,16 @@ import android.os.IBinder;
 import android.os.Looper;
 import android.os.Message;
 
+import androidx.annotation.NonNull;
+
 import org.edx.mobile.R;
 import org.edx.mobile.http.provider.OkHttpClientProvider;
+import org.edx.mobile.http.util.BandwidthModel;
+import org.edx.mobile.http.util.ThroughputEstimator;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.DownloadDescriptor;
 import org.edx.mobile.module.analytics.Analytics;
 import org.edx.mobile.module.analytics.AnalyticsRegistry;
-import org.edx.mobile.module.prefs.PrefManager;
 import org.edx.mobile.util.NetworkUtil;
 
 import java.io.IOException;
@@ -25,11 +28,13 @@ import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
-import okhttp3.Call;
-import okhttp3.Callback;
+import okhttp3.CacheControl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
 
 /**
  * Created by marcashman on 2014-12-01.
@@ -38,8 +43,8 @@ import okhttp3.Response;
 public class DownloadSpeedService extends Service {
 
     private static final String TAG = DownloadSpeedService.class.getCanonicalName();
-    private static final long NS_PER_SEC = 1000000000;
-    private static final int BLOCK_SIZE = 4096;
+    private static final int BLOCK_SIZE = 8192;
+    private static final long MAX_PROBE_DURATION_NS = TimeUnit.SECONDS.toNanos(10);
 
     public static final String EXTRA_FILE_DESC = TAG + ".file_desc";
     public static final String EXTRA_REPORT_PROGRESS = TAG + ".report_progress";
@@ -60,6 +65,12 @@ public class DownloadSpeedService extends Service {
     @Inject
     AnalyticsRegistry analyticsRegistry;
 
+    @Inject
+    BandwidthModel bandwidthModel;
+
+    private OkHttpClient probeClient;
+    private final Buffer probeBuffer = new Buffer();
+
     SpeedTestHandler messageHandler;
 
     Timer timer = null;
@@ -105,49 +116,63 @@ public class DownloadSpeedService extends Service {
         messageHandler = new SpeedTestHandler(serviceLooper);
     }
 
+    /**
+     * Streams the probe file through a reusable buffer, estimating the throughput over time
+     * windows as it's read, and records the estimate in the {@link BandwidthModel}.
+     */
     private synchronized void performDownload(DownloadDescriptor file) {
-
-        final long startTime;
-
-        try {
-            startTime = System.nanoTime();
-
-            OkHttpClient client = okHttpClientProvider.getNonOAuthBased().newBuilder()
-                    .connectTimeout(getResources().getInteger(
-                            R.integer.speed_test_timeout_in_milliseconds), TimeUnit.MILLISECONDS)
-                    .build();
-
-            Request request = new Request.Builder()
-                    .url(file.getUrl())
-                    .build();
-
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException throwable) {
-                    logger.error(throwable);
-                    //If it times out, set a low value for download speed
-                    setCurrentDownloadSpeed(0.01f);
-                }
-
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (!response.isSuccessful()) {
-                        logger.debug("Download Speed Test Failed");
-                    } else {
-                        long length = response.body().string().length();
-                        double seconds = (System.nanoTime() - startTime) / NS_PER_SEC;
-                        if (seconds != 0) {
-                            final float downloadSpeedKps = (float) ((length / seconds) / 1024);
-                            setCurrentDownloadSpeed(downloadSpeedKps);
-                            reportDownloadSpeed(downloadSpeedKps);
-                        }
-                    }
+        final Request request = new Request.Builder()
+                .url(file.getUrl())
+                .cacheControl(CacheControl.FORCE_NETWORK)
+                // Measure the bytes as transferred, without any decoding in between
+                .header("Accept-Encoding", "identity")
+                .build();
+        try (Response response = getProbeClient().newCall(request).execute()) {
+            final ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                logger.debug("Download Speed Test Failed");
+                return;
+            }
+            final ThroughputEstimator estimator = new ThroughputEstimator();
+            final BufferedSource source = body.source();
+            final long startTime = System.nanoTime();
+            estimator.start(startTime);
+            long read;
+            while ((read = source.read(probeBuffer, BLOCK_SIZE)) != -1) {
+                probeBuffer.clear();
+                final long now = System.nanoTime();
+                estimator.onBytesRead(read, now);
+                if (now - startTime > MAX_PROBE_DURATION_NS) {
+                    break;
                 }
-            });
+            }
+            estimator.finish(System.nanoTime());
+            if (estimator.getEstimate() > 0) {
+                bandwidthModel.update(estimator.getEstimate());
+                reportDownloadSpeed(bandwidthModel.getEstimatedKbps());
+            }
+        } catch (IOException ex) {
+            logger.error(ex);
+            //If it times out, set a low value for download speed
+            bandwidthModel.onProbeFailed();
         } catch (Exception ex) {
             logger.error(ex);
+        } finally {
+            probeBuffer.clear();
         }
+    }
 
+    @NonNull
+    private OkHttpClient getProbeClient() {
+        if (probeClient == null) {
+            final long timeout = getResources().getInteger(
+                    R.integer.speed_test_timeout_in_milliseconds);
+            probeClient = okHttpClientProvider.getNonOAuthBased().newBuilder()
+                    .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .readTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+        return probeClient;
     }
 
     private void reportDownloadSpeed(float downloadSpeedKps) {
@@ -164,11 +189,6 @@ public class DownloadSpeedService extends Service {
         }
     }
 
-    private void setCurrentDownloadSpeed(float downloadSpeedKps) {
-        PrefManager manager = new PrefManager(this, PrefManager.Pref.WIFI);
-        manager.put(PrefManager.Key.SPEED_TEST_KBPS, downloadSpeedKps);
-    }
-
     public class SpeedTestHandler extends Handler {
         public SpeedTestHandler(Looper looper) {
             super(looper);
@@ -13,6 +13,7 @@ import org.edx.mobile.base.BaseFragmentActivity;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.course.HasDownloadEntry;
 import org.edx.mobile.model.db.DownloadEntry;
+import org.edx.mobile.module.db.DataCallback;
 import org.edx.mobile.module.analytics.AnalyticsRegistry;
 import org.edx.mobile.module.storage.BulkVideosDownloadCancelledEvent;
 import org.edx.mobile.module.storage.BulkVideosDownloadStartedEvent;
@@ -80,9 +81,10 @@ public class VideoDownloadHelper {
         MediaConsentUtils.requestStreamMedia(activity, dialogCallback);
     }
 
-    private void startDownloadVideos(List<? extends HasDownloadEntry> model, FragmentActivity activity, DownloadManagerCallback callback) {
+    private void startDownloadVideos(List<? extends HasDownloadEntry> model, final FragmentActivity activity,
+                                     final DownloadManagerCallback callback) {
         long downloadSize = 0;
-        ArrayList<DownloadEntry> downloadList = new ArrayList<>();
+        final ArrayList<DownloadEntry> downloadList = new ArrayList<>();
         int downloadCount = 0;
         for (HasDownloadEntry v : model) {
             DownloadEntry de = v.getDownloadEntry(storage);
@@ -102,23 +104,40 @@ public class VideoDownloadHelper {
                 downloadCount++;
             }
         }
-        if (downloadSize > MemoryUtil
-                .getAvailableExternalMemory(activity)) {
-            ((BaseFragmentActivity) activity).showInfoMessage(activity.getString(R.string.file_size_exceeded));
-            callback.updateListUI();
-            EventBus.getDefault().post(new BulkVideosDownloadCancelledEvent());
-        } else {
-            if (isDownloadSizeWithinLimit(downloadSize, MemoryUtil.GB) && !downloadList.isEmpty()) {
-                startDownload(downloadList, activity, callback);
-
-                final DownloadEntry downloadEntry = downloadList.get(0);
-                analyticsRegistry.trackSubSectionBulkVideoDownload(downloadEntry.getSectionName(),
-                        downloadEntry.getChapterName(), downloadEntry.getEnrollmentId(),
-                        downloadCount);
-            } else {
-                showDownloadSizeExceedDialog(downloadList, downloadCount, activity, callback);
+        final long totalDownloadSize = downloadSize;
+        final int totalDownloadCount = downloadCount;
+        // Checked off the main thread, and the download starts once the room has been made for it
+        storage.makeRoomForDownloads(downloadSize, new DataCallback<Boolean>(true) {
+            @Override
+            public void onResult(Boolean hasRoom) {
+                if (activity.isFinishing()) {
+                    EventBus.getDefault().post(new BulkVideosDownloadCancelledEvent());
+                    return;
+                }
+                if (!hasRoom) {
+                    ((BaseFragmentActivity) activity).showInfoMessage(activity.getString(R.string.file_size_exceeded));
+                    callback.updateListUI();
+                    EventBus.getDefault().post(new BulkVideosDownloadCancelledEvent());
+                } else if (isDownloadSizeWithinLimit(totalDownloadSize, MemoryUtil.GB) && !downloadList.isEmpty()) {
+                    startDownload(downloadList, activity, callback);
+
+                    final DownloadEntry downloadEntry = downloadList.get(0);
+                    analyticsRegistry.trackSubSectionBulkVideoDownload(downloadEntry.getSectionName(),
+                            downloadEntry.getChapterName(), downloadEntry.getEnrollmentId(),
+                            totalDownloadCount);
+                    EventBus.getDefault().post(new BulkVideosDownloadStartedEvent());
+                } else {
+                    showDownloadSizeExceedDialog(downloadList, totalDownloadCount, activity, callback);
+                }
             }
-        }
+
+            @Override
+            public void onFail(Exception ex) {
+                logger.error(ex);
+                callback.onDownloadFailedToStart();
+                EventBus.getDefault().post(new BulkVideosDownloadCancelledEvent());
+            }
+        });
     }
 
     // Dialog fragment to display message to user regarding
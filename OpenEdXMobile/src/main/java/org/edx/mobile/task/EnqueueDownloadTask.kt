@@ -13,17 +13,11 @@ abstract class EnqueueDownloadTask(
         .fromApplication(context, ProviderEntryPoint::class.java).getTranscriptManager()
 
     override fun doInBackground(vararg params: Void?): Long {
-        var count = 0
-        for (downloadEntry in downloadList) {
-            if (environment.storage.addDownload(downloadEntry) != -1L) {
-                count++
-                downloadEntry.transcript?.run {
-                    for (value in this.values) {
-                        transcriptManager.downloadTranscriptsForVideo(value, null)
-                    }
-                }
-            }
+        val addedDownloads = environment.storage.addDownloads(downloadList)
+        for (downloadEntry in addedDownloads) {
+            val courseId = downloadEntry.enrollmentId ?: continue
+            downloadEntry.transcript?.let { transcriptManager.prefetchTranscripts(courseId, it) }
         }
-        return count.toLong()
+        return addedDownloads.size.toLong()
     }
 }
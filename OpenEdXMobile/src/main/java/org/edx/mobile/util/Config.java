@@ -49,6 +49,8 @@ public class Config {
     private static final String SPEED_TEST_ENABLED = "SPEED_TEST_ENABLED";
     private static final String APP_UPDATE_URIS = "APP_UPDATE_URIS";
     private static final String ORGANIZATION_CODE = "ORGANIZATION_CODE";
+    private static final String PLAYBACK_POSITION_FLUSH_INTERVAL = "PLAYBACK_POSITION_FLUSH_INTERVAL";
+    private static final String BLOCK_COMPLETION_FLUSH_INTERVAL = "BLOCK_COMPLETION_FLUSH_INTERVAL";
 
     /* Composite configuration keys */
     private static final String DISCOVERY = "DISCOVERY";
@@ -68,6 +70,10 @@ public class Config {
     private static final String YOUTUBE_PLAYER = "YOUTUBE_PLAYER";
     private static final String AGREEMENT_URLS = "AGREEMENT_URLS";
     private static final String BRAZE = "BRAZE";
+    private static final String HTTP_CACHE = "HTTP_CACHE";
+    private static final String REQUEST_COMPRESSION = "REQUEST_COMPRESSION";
+    private static final String UNIT_PREFETCH = "UNIT_PREFETCH";
+    private static final String VIDEO_CACHE = "VIDEO_CACHE";
 
     // Features
     private static final String USER_PROFILES_ENABLED = "USER_PROFILES_ENABLED";
@@ -586,6 +592,155 @@ public class Config {
         }
     }
 
+    /**
+     * Size budgets of the offline HTTP cache, in megabytes, for each class of endpoints.
+     */
+    public static class HttpCacheConfig {
+        @SerializedName("BLOCKS_SIZE_MB")
+        private int blocksSizeMb;
+        @SerializedName("ENROLLMENTS_SIZE_MB")
+        private int enrollmentsSizeMb;
+        @SerializedName("DISCUSSIONS_SIZE_MB")
+        private int discussionsSizeMb;
+        @SerializedName("TRANSCRIPTS_SIZE_MB")
+        private int transcriptsSizeMb;
+        @SerializedName("DEFAULT_SIZE_MB")
+        private int defaultSizeMb;
+        @SerializedName("PINNED_COURSES")
+        private int pinnedCourses;
+        @SerializedName("PINNED_COURSE_SIZE_MB")
+        private int pinnedCourseSizeMb;
+
+        public HttpCacheConfig() {
+            blocksSizeMb = 20;
+            enrollmentsSizeMb = 2;
+            discussionsSizeMb = 5;
+            transcriptsSizeMb = 5;
+            defaultSizeMb = 5;
+            pinnedCourses = 3;
+            pinnedCourseSizeMb = 4;
+        }
+
+        public int getBlocksSizeMb() {
+            return blocksSizeMb;
+        }
+
+        public int getEnrollmentsSizeMb() {
+            return enrollmentsSizeMb;
+        }
+
+        public int getDiscussionsSizeMb() {
+            return discussionsSizeMb;
+        }
+
+        public int getTranscriptsSizeMb() {
+            return transcriptsSizeMb;
+        }
+
+        public int getDefaultSizeMb() {
+            return defaultSizeMb;
+        }
+
+        /**
+         * @return Number of the most recently opened courses whose structure is kept in a cache of
+         * its own, so that it isn't evicted by the other courses.
+         */
+        public int getPinnedCourses() {
+            return pinnedCourses;
+        }
+
+        public int getPinnedCourseSizeMb() {
+            return pinnedCourseSizeMb;
+        }
+    }
+
+    /**
+     * Policy of the compression of the request bodies, which not all the servers support.
+     */
+    public static class RequestCompressionConfig {
+        @SerializedName("PATHS")
+        private List<String> paths;
+        @SerializedName("MIN_SIZE_BYTES")
+        private int minSizeBytes;
+
+        public RequestCompressionConfig() {
+            minSizeBytes = 1024;
+        }
+
+        /**
+         * @return Prefixes of the paths of the endpoints that accept gzip compressed bodies.
+         */
+        @NonNull
+        public List<String> getPaths() {
+            return paths != null ? paths : new ArrayList<String>();
+        }
+
+        /**
+         * @return Size in bytes below which the request bodies aren't worth compressing.
+         */
+        public int getMinSizeBytes() {
+            return minSizeBytes;
+        }
+    }
+
+    /**
+     * Policy of the prefetching of the course units following the one being viewed.
+     */
+    public static class UnitPrefetchConfig {
+        @SerializedName("COUNT")
+        private int count;
+        @SerializedName("ON_METERED_NETWORK")
+        private boolean onMeteredNetwork;
+
+        public UnitPrefetchConfig() {
+            count = 2;
+        }
+
+        /**
+         * @return Number of units to prefetch after the one being viewed.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return <code>true</code> if the units are also prefetched on metered networks, such as
+         * mobile data.
+         */
+        public boolean isOnMeteredNetwork() {
+            return onMeteredNetwork;
+        }
+    }
+
+    /**
+     * Policy of the on-disk cache of the videos streamed by the player.
+     */
+    public static class VideoCacheConfig {
+        @SerializedName("ENABLED")
+        private boolean enabled;
+        @SerializedName("MAX_SIZE_MB")
+        private int maxSizeMb;
+
+        public VideoCacheConfig() {
+            enabled = true;
+            maxSizeMb = 256;
+        }
+
+        /**
+         * @return <code>true</code> if the streamed videos are cached on the device.
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @return Size in megabytes beyond which the least recently played videos are evicted.
+         */
+        public int getMaxSizeMb() {
+            return maxSizeMb;
+        }
+    }
+
     public static class YoutubePlayerConfig {
         @SerializedName("ENABLED")
         private boolean enabled;
@@ -804,6 +959,20 @@ public class Config {
         return getBoolean(DOWNLOAD_TO_SD_CARD_ENABLED, false);
     }
 
+    /**
+     * @return Interval in seconds after which the buffered video playback positions are saved.
+     */
+    public int getPlaybackPositionFlushIntervalSeconds() {
+        return getInteger(PLAYBACK_POSITION_FLUSH_INTERVAL, 30);
+    }
+
+    /**
+     * @return Interval in seconds after which the pending block completions are reported.
+     */
+    public int getBlockCompletionFlushIntervalSeconds() {
+        return getInteger(BLOCK_COMPLETION_FLUSH_INTERVAL, 60);
+    }
+
     @NonNull
     public ProgramConfig getProgramConfig() {
         return getObjectOrNewInstance(PROGRAM, ProgramConfig.class);
@@ -864,6 +1033,26 @@ public class Config {
         return getObjectOrNewInstance(BRAZE, BrazeConfig.class);
     }
 
+    @NonNull
+    public HttpCacheConfig getHttpCacheConfig() {
+        return getObjectOrNewInstance(HTTP_CACHE, HttpCacheConfig.class);
+    }
+
+    @NonNull
+    public RequestCompressionConfig getRequestCompressionConfig() {
+        return getObjectOrNewInstance(REQUEST_COMPRESSION, RequestCompressionConfig.class);
+    }
+
+    @NonNull
+    public UnitPrefetchConfig getUnitPrefetchConfig() {
+        return getObjectOrNewInstance(UNIT_PREFETCH, UnitPrefetchConfig.class);
+    }
+
+    @NonNull
+    public VideoCacheConfig getVideoCacheConfig() {
+        return getObjectOrNewInstance(VIDEO_CACHE, VideoCacheConfig.class);
+    }
+
     @NonNull
     public EndToEndConfig getEndToEndConfig() {
         return getObjectOrNewInstance(END_TO_END_TEST, EndToEndConfig.class);
@@ -5,6 +5,7 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.NetworkInfo.State;
 import androidx.annotation.Nullable;
+import androidx.core.net.ConnectivityManagerCompat;
 import android.telephony.TelephonyManager;
 
 import org.edx.mobile.R;
@@ -74,6 +75,17 @@ public class NetworkUtil {
         return (info != null && info.isConnected() && info.getType() == ConnectivityManager.TYPE_MOBILE);
     }
 
+    /**
+     * Check if the active network is metered, in which case the data usage should be limited
+     *
+     * @param context
+     * @return
+     */
+    public static boolean isActiveNetworkMetered(Context context) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        return ConnectivityManagerCompat.isActiveNetworkMetered(cm);
+    }
+
     /**
      * Get the network info
      *
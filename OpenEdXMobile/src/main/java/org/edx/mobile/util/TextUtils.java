@@ -25,6 +25,9 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 public class TextUtils {
+    /* Matches an HTML entity, e.g. &amp; or &#39; */
+    private static final Pattern HTML_ENTITY_PATTERN = Pattern.compile("(&#?[a-zA-Z0-9]+;)");
+
     private TextUtils() {
     }
 
@@ -128,9 +131,6 @@ public class TextUtils {
      */
     @NonNull
     public static Spanned formatHtml(@NonNull String html) {
-        final String REGEX = "(&#?[a-zA-Z0-9]+;)";
-        final Pattern PATTERN = Pattern.compile(REGEX);
-
         Spanned formattedHtml = new SpannedString(html);
         String previousHtml = null;
 
@@ -138,7 +138,7 @@ public class TextUtils {
         // have been decoded. Also break the loop in the special case when a String having the
         // same format as an HTML entity is left but it isn't essentially a decodable HTML entity
         // e.g. &#asdfasd;
-        while (PATTERN.matcher(html).find() && !html.equals(previousHtml)) {
+        while (HTML_ENTITY_PATTERN.matcher(html).find() && !html.equals(previousHtml)) {
             if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
                 formattedHtml = Html.fromHtml(html, Html.FROM_HTML_MODE_LEGACY);
             } else {
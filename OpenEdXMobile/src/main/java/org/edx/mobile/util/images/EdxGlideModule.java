@@ -0,0 +1,40 @@
+package org.edx.mobile.util.images;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+
+import org.edx.mobile.core.EdxDefaultModule;
+
+import java.io.InputStream;
+
+import dagger.hilt.android.EntryPointAccessors;
+
+/**
+ * Makes Glide load images through the app's non-OAuth based {@link okhttp3.OkHttpClient}, instead
+ * of the client of its OkHttp integration, so that image requests share the app's connection
+ * pool and dispatcher.
+ */
+@GlideModule
+public class EdxGlideModule extends AppGlideModule {
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide,
+                                   @NonNull Registry registry) {
+        final EdxDefaultModule.ProviderEntryPoint entryPoint = EntryPointAccessors.fromApplication(
+                context, EdxDefaultModule.ProviderEntryPoint.class);
+        registry.replace(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(entryPoint.getOkHttpClientProvider().getNonOAuthBased()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
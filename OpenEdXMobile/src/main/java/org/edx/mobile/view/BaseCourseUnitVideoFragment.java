@@ -5,6 +5,7 @@ import android.app.Activity;
 import android.content.res.Configuration;
 import android.os.Bundle;
 import android.os.Handler;
+import android.text.Spanned;
 import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
@@ -15,36 +16,33 @@ import android.widget.LinearLayout;
 import android.widget.ListView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.edx.mobile.R;
-import org.edx.mobile.course.CourseAPI;
+import org.edx.mobile.course.BlockCompletionOutbox;
 import org.edx.mobile.event.VideoPlaybackEvent;
-import org.edx.mobile.http.callback.Callback;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.api.TranscriptModel;
 import org.edx.mobile.model.course.VideoBlockModel;
 import org.edx.mobile.model.db.DownloadEntry;
 import org.edx.mobile.module.db.DataCallback;
+import org.edx.mobile.module.db.PlaybackPositionBuffer;
 import org.edx.mobile.module.db.impl.DatabaseFactory;
 import org.edx.mobile.module.prefs.LoginPrefs;
+import org.edx.mobile.player.CaptionRenderer;
+import org.edx.mobile.player.CompactTranscript;
 import org.edx.mobile.player.IPlayerEventCallback;
 import org.edx.mobile.player.TranscriptListener;
 import org.edx.mobile.player.TranscriptManager;
+import org.edx.mobile.player.TranscriptTimeline;
 import org.edx.mobile.util.LocaleUtils;
 import org.edx.mobile.view.adapters.TranscriptAdapter;
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
 
 import javax.inject.Inject;
 
 import subtitleFile.Caption;
-import subtitleFile.TimedTextObject;
 
 /**
  * Base class implementing the basic functionality of the video player screen.
@@ -74,12 +72,12 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
     /**
      * This method used to update the close caption in player screen.
      */
-    protected abstract void updateClosedCaptionData(Caption caption);
+    protected abstract void updateClosedCaptionData(@Nullable Spanned caption);
 
     /**
      * This method send the downloaded transcript to the player screen.
      */
-    protected abstract void showClosedCaptionData(TimedTextObject subtitles);
+    protected abstract void showClosedCaptionData(CompactTranscript subtitles);
 
     /**
      * Method to pause the video player from external call.
@@ -95,7 +93,12 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
     protected DownloadEntry videoModel;
 
     protected VideoBlockModel unit;
-    private TimedTextObject subtitlesObj;
+    private CompactTranscript subtitlesObj;
+    /* Built once per transcript, for looking up the captions as the video plays */
+    private TranscriptTimeline subtitlesTimeline;
+    private int lastSubtitleIndex = -1;
+    private boolean areSubtitlesHidden;
+    private TranscriptManager.OnTranscriptDownloadListener transcriptDownloadListener;
 
     protected ListView transcriptListView;
     protected TranscriptAdapter transcriptAdapter;
@@ -111,11 +114,17 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
     LoginPrefs loginPrefs;
 
     @Inject
-    CourseAPI courseApi;
+    BlockCompletionOutbox blockCompletionOutbox;
 
     @Inject
     TranscriptManager transcriptManager;
 
+    @Inject
+    CaptionRenderer captionRenderer;
+
+    @Inject
+    PlaybackPositionBuffer playbackPositionBuffer;
+
     private ViewTreeObserver.OnGlobalLayoutListener transcriptListLayoutListener;
 
     private Handler subtitleDisplayHandler = new Handler();
@@ -127,23 +136,23 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
     private Runnable subtitlesProcessorRunnable = () -> {
         if (canProcessSubtitles()) {
             long currentPos = getPlayerCurrentPosition();
-            if (subtitlesObj != null) {
-                Collection<Caption> subtitles = subtitlesObj.captions.values();
-                int currentSubtitleIndex = 0;
-                for (Caption subtitle : subtitles) {
-                    int startMillis = subtitle.start.getMseconds();
-                    int endMillis = subtitle.end.getMseconds();
-                    if (currentPos >= startMillis && currentPos <= endMillis) {
-                        String subtitleLang = loginPrefs.getSubtitleLanguage();
-                        if (subtitleLang == null || !subtitleLang.equalsIgnoreCase(getString(R.string.lbl_cc_none))) {
-                            updateClosedCaptionData(subtitle);
-                        }
-                        updateSelection(currentSubtitleIndex);
-                        break;
-                    } else if (currentPos > endMillis) {
-                        updateClosedCaptionData(null);
+            if (subtitlesTimeline != null) {
+                final int currentSubtitleIndex = subtitlesTimeline.indexAt(currentPos);
+                if (currentSubtitleIndex >= 0) {
+                    // The language is only changed through the player controls, so it's checked
+                    // once per caption rather than on every tick
+                    if (currentSubtitleIndex != lastSubtitleIndex) {
+                        lastSubtitleIndex = currentSubtitleIndex;
+                        final String subtitleLang = loginPrefs.getSubtitleLanguage();
+                        areSubtitlesHidden = subtitleLang != null &&
+                                subtitleLang.equalsIgnoreCase(getString(R.string.lbl_cc_none));
+                    }
+                    if (!areSubtitlesHidden) {
+                        updateClosedCaptionData(captionRenderer.get(subtitlesObj, currentSubtitleIndex));
                     }
-                    currentSubtitleIndex++;
+                    updateSelection(currentSubtitleIndex);
+                } else {
+                    updateClosedCaptionData(null);
                 }
             } else {
                 updateClosedCaptionData(null);
@@ -206,12 +215,20 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
         if (activity != null) {
             TranscriptModel transcript = getTranscriptModel();
             String transcriptUrl = LocaleUtils.getTranscriptURL(activity, transcript);
-            transcriptManager.downloadTranscriptsForVideo(transcriptUrl, (TimedTextObject transcriptTimedTextObject) -> {
-                subtitlesObj = transcriptTimedTextObject;
+            transcriptDownloadListener = (CompactTranscript compactTranscript) -> {
+                subtitlesObj = compactTranscript;
+                subtitlesTimeline = compactTranscript == null ? null :
+                        new TranscriptTimeline(compactTranscript);
+                if (compactTranscript != null) {
+                    captionRenderer.prerender(compactTranscript);
+                }
+                lastSubtitleIndex = -1;
                 if (!activity.isDestroyed()) {
                     initTranscripts();
                 }
-            });
+            };
+            transcriptManager.downloadTranscriptsForVideo(transcriptUrl, unit.getCourseId(),
+                    transcriptDownloadListener);
         }
     }
 
@@ -249,16 +266,25 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
         return transcript;
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        playbackPositionBuffer.flush();
+    }
+
     @Override
     public void onStop() {
         super.onStop();
+        playbackPositionBuffer.flush();
         transcriptListView.getViewTreeObserver().removeOnGlobalLayoutListener(transcriptListLayoutListener);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        transcriptManager.cancelTranscriptDownloading();
+        if (transcriptDownloadListener != null) {
+            transcriptManager.cancelTranscriptDownloading(transcriptDownloadListener);
+        }
         updateTranscriptCallbackStatus(false);
         EventBus.getDefault().unregister(this);
     }
@@ -335,9 +361,7 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
         try {
             DownloadEntry v = videoModel;
             if (v != null) {
-                // mark this as partially watches, as playing has started
-                DatabaseFactory.getInstance(DatabaseFactory.TYPE_DATABASE_NATIVE).updateVideoLastPlayedOffset(v.videoId, offset,
-                        setCurrentPositionCallback);
+                playbackPositionBuffer.updateLastPlayedOffset(v.videoId, offset);
             }
         } catch (Exception ex) {
             logger.error(ex);
@@ -364,12 +388,7 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
                             watchedStateCallback);
         }
         markComponentCompletion(true);
-        courseApi.markBlocksCompletion(unit.getCourseId(), new String[]{unit.getId()}).enqueue(new Callback<JSONObject>() {
-            @Override
-            protected void onResponse(@NonNull JSONObject responseBody) {
-                // Nothing to do here
-            }
-        });
+        blockCompletionOutbox.markCompleted(unit.getCourseId(), unit.getId());
         // mark offset as zero, so that playback will resume from start next time
         saveCurrentPlaybackPosition(0);
     }
@@ -399,18 +418,6 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
         }
     };
 
-    private DataCallback<Integer> setCurrentPositionCallback = new DataCallback<Integer>() {
-        @Override
-        public void onResult(Integer result) {
-            logger.debug("Current Playback Position Updated");
-        }
-
-        @Override
-        public void onFail(Exception ex) {
-            logger.error(ex);
-        }
-    };
-
     @Override
     public void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
@@ -447,14 +454,9 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
     }
 
     @Override
-    public void updateTranscript(@NonNull TimedTextObject subtitles) {
+    public void updateTranscript(@NonNull CompactTranscript subtitles) {
         if (transcriptAdapter != null) {
-            transcriptAdapter.clear();
-            List<Caption> transcript = new ArrayList<>();
-            for (Map.Entry<Integer, Caption> entry : subtitles.captions.entrySet()) {
-                transcript.add(entry.getValue());
-            }
-            transcriptAdapter.addAll(transcript);
+            transcriptAdapter.setTranscript(subtitles);
             transcriptAdapter.notifyDataSetChanged();
             updateUI(getResources().getConfiguration().orientation);
         }
@@ -473,7 +475,7 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
 
     @SuppressLint("ClickableViewAccessibility")
     protected void initTranscriptListView() {
-        transcriptAdapter = new TranscriptAdapter(getContext(), environment);
+        transcriptAdapter = new TranscriptAdapter(getContext(), environment, captionRenderer);
         transcriptListView.setAdapter(transcriptAdapter);
 
         transcriptListView.setOnTouchListener((v, event) -> {
@@ -494,8 +496,8 @@ public abstract class BaseCourseUnitVideoFragment extends CourseUnitFragment
         });
 
         transcriptListView.setOnItemClickListener((parent, view, position, id) -> {
-            final Caption currentCaption = transcriptAdapter.getItem(position);
-            if (currentCaption != null) {
+            if (subtitlesObj != null && position < subtitlesObj.size()) {
+                final Caption currentCaption = subtitlesObj.getCaption(position);
                 transcriptListView.removeCallbacks(UNFREEZE_AUTO_SCROLL);
                 isTranscriptScrolling = false;
 
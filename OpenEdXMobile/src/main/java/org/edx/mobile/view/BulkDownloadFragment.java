@@ -9,6 +9,7 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,12 +30,14 @@ import org.edx.mobile.model.VideoModel;
 import org.edx.mobile.model.course.CourseComponent;
 import org.edx.mobile.model.course.HasDownloadEntry;
 import org.edx.mobile.model.course.VideoBlockModel;
+import org.edx.mobile.model.course.VideoData;
 import org.edx.mobile.model.db.DownloadEntry;
 import org.edx.mobile.model.download.NativeDownloadModel;
 import org.edx.mobile.module.db.DataCallback;
 import org.edx.mobile.module.prefs.VideoPrefs;
 import org.edx.mobile.module.storage.BulkVideosDownloadCancelledEvent;
 import org.edx.mobile.module.storage.BulkVideosDownloadStartedEvent;
+import org.edx.mobile.player.TranscriptManager;
 import org.edx.mobile.util.DownloadUtil;
 import org.edx.mobile.util.MemoryUtil;
 import org.edx.mobile.util.NetworkUtil;
@@ -47,8 +50,10 @@ import org.greenrobot.eventbus.Subscribe;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -88,6 +93,10 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
 
     @Inject
     protected IEdxEnvironment environment;
+
+    @Inject
+    TranscriptManager transcriptManager;
+
     private VideoPrefs prefManager;
     private SwitchState switchState = SwitchState.DEFAULT;
     private boolean isDeleteScheduled = false;
@@ -119,6 +128,19 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
      * List of videos that are currently being downloaded or have been downloaded.
      */
     private List<VideoModel> removableVideos = new ArrayList<>();
+    /**
+     * Id of the course the videos belong to.
+     */
+    private String courseId;
+    /**
+     * List of units that are packaged for offline viewing along with the videos.
+     */
+    private List<CourseComponent> packageableUnits;
+    /**
+     * Flag to package the {@link #packageableUnits} once the downloads requested by this fragment
+     * have actually started, i.e. after the user has consented to them.
+     */
+    private boolean isPackagingPending = false;
 
     public BulkDownloadFragment() {
     }
@@ -177,9 +199,12 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
 
 
     public void populateViewHolder(CourseOutlineAdapter.DownloadListener downloadListener, @NonNull String componentId,
-                                   @Nullable List<CourseComponent> downloadableVideos) {
+                                   @Nullable List<CourseComponent> downloadableVideos,
+                                   @NonNull String courseId, @NonNull List<CourseComponent> packageableUnits) {
         this.downloadListener = downloadListener;
         this.totalDownloadableVideos = downloadableVideos;
+        this.courseId = courseId;
+        this.packageableUnits = packageableUnits;
         videosStatus.courseComponentId = componentId;
         if (binding == null || totalDownloadableVideos == null) return;
         updateVideoStatus();
@@ -458,7 +483,9 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
         prefManager.setBulkDownloadSwitchState(switchState, videosStatus.courseComponentId);
         setSwitchState();
 
-        // Download all videos
+        // Download all videos, and package the HTML units as well once the downloads start, so
+        // that the whole section can be viewed offline
+        isPackagingPending = true;
         downloadListener.download(remainingVideos);
 
         environment.getAnalyticsRegistry().trackBulkDownloadSwitchOn(
@@ -481,12 +508,45 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
         public void run() {
             // Before starting deletion stop showing progress of downloads first
             bgThreadHandler.removeCallbacks(PROGRESS_RUNNABLE);
+            if (courseId != null) {
+                transcriptManager.cancelTranscriptDownloads(courseId,
+                        getTranscriptUrls(removableVideos));
+            }
             final int deleted = environment.getStorage().removeDownloads(removableVideos);
+            if (courseId != null && packageableUnits != null) {
+                environment.getStorage().removeUnitPackages(courseId, packageableUnits);
+            }
             isDeleteScheduled = false;
             logger.debug("TOTAL_VIDEOS: " + removableVideos.size() + " - DELETE_VIDEOS: " + deleted);
         }
     };
 
+    /**
+     * @return The download urls of the transcripts of the given videos, in all their languages.
+     */
+    @NonNull
+    private List<String> getTranscriptUrls(@NonNull List<VideoModel> videos) {
+        final Set<String> videoIds = new HashSet<>();
+        for (VideoModel video : videos) {
+            videoIds.add(video.getVideoId());
+        }
+        final List<String> transcriptUrls = new ArrayList<>();
+        if (totalDownloadableVideos == null) return transcriptUrls;
+        for (CourseComponent component : totalDownloadableVideos) {
+            if (videoIds.contains(component.getId()) && component instanceof VideoBlockModel) {
+                final VideoData videoData = ((VideoBlockModel) component).getData();
+                if (videoData != null && videoData.transcripts != null) {
+                    for (String url : videoData.transcripts.values()) {
+                        if (!TextUtils.isEmpty(url)) {
+                            transcriptUrls.add(url);
+                        }
+                    }
+                }
+            }
+        }
+        return transcriptUrls;
+    }
+
     private void initDownloadProgressView() {
         // Safety check to avoid multiple timers running at the same time
         bgThreadHandler.removeCallbacks(PROGRESS_RUNNABLE);
@@ -588,6 +648,7 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
 
     @Subscribe
     public void onEvent(BulkVideosDownloadCancelledEvent event) {
+        isPackagingPending = false;
         if (getView() == null) {
             // If fragment view is not created yet, mark the event and fire it once the view is created.
             bulkDownloadWasCancelled = true;
@@ -601,6 +662,12 @@ public class BulkDownloadFragment extends BaseFragment implements BaseFragment.P
 
     @Subscribe
     public void onEvent(BulkVideosDownloadStartedEvent event) {
+        if (isPackagingPending) {
+            isPackagingPending = false;
+            if (courseId != null && packageableUnits != null) {
+                environment.getStorage().addUnitPackages(courseId, packageableUnits);
+            }
+        }
         if (getView() == null) {
             // If fragment view is not created yet, mark the event and fire it once the view is created.
             bulkDownloadWasStarted = true;
@@ -117,7 +117,7 @@ public abstract class CourseBaseActivity extends BaseFragmentActivity
     protected void updateCourseStructure(String courseId, String componentId) {
         blocksApiVersion = config.getApiUrlVersionConfig().getBlocksApiVersion();
         getHierarchyCall = courseApi.getCourseStructureWithoutStale(blocksApiVersion, courseId);
-        getHierarchyCall.enqueue(new CourseAPI.GetCourseStructureCallback(this, courseId,
+        getHierarchyCall.enqueue(new CourseAPI.GetCourseStructureCallback(courseApi, this, courseId,
                 new ProgressViewController(binding.loadingIndicator.loadingIndicator), errorNotification,
                 null, this) {
             @Override
@@ -64,6 +64,7 @@ import org.edx.mobile.model.api.CourseUpgradeResponse;
 import org.edx.mobile.model.api.EnrolledCoursesResponse;
 import org.edx.mobile.model.api.ProfileModel;
 import org.edx.mobile.model.course.BlockPath;
+import org.edx.mobile.model.course.BlockType;
 import org.edx.mobile.model.course.CourseBannerInfoModel;
 import org.edx.mobile.model.course.CourseComponent;
 import org.edx.mobile.model.course.CourseStructureV1Model;
@@ -97,6 +98,8 @@ import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -476,7 +479,7 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
         } else {
             getHierarchyCall = courseApi.getCourseStructure(blocksApiVersion, courseId);
         }
-        getHierarchyCall.enqueue(new CourseAPI.GetCourseStructureCallback(getActivity(), courseId,
+        getHierarchyCall.enqueue(new CourseAPI.GetCourseStructureCallback(courseApi, getActivity(), courseId,
                 progressCallback, errorNotification, null, this) {
             @Override
             protected void onResponse(@NonNull final CourseComponent courseComponent) {
@@ -802,7 +805,7 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
                                             courseData.getCourseId(), rowItem.component.getId());
                                 }
                             }
-                            adapter.notifyDataSetChanged();
+                            adapter.refreshDownloadStates();
                         }
                     });
                     snackbar.show();
@@ -963,9 +966,11 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
                             beginTransaction().replace(flBulkDownload.getId(), fragment, "bulk_download").
                             commitAllowingStateLoss();
                 }
+                final List<CourseComponent> units = new ArrayList<>();
+                courseComponent.fetchAllLeafComponents(units, EnumSet.allOf(BlockType.class));
                 ((BulkDownloadFragment) fragment).populateViewHolder(downloadListener,
                         isOnCourseOutline ? courseComponent.getCourseId() : courseComponent.getId(),
-                        courseComponent.getVideos(true));
+                        courseComponent.getVideos(true), courseComponent.getCourseId(), units);
             }
         }
     }
@@ -978,7 +983,8 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
         VideoDownloadQualityDialogFragment videoQualityDialog =
                 VideoDownloadQualityDialogFragment.getInstance(environment, videoQuality -> {
                     setVideoQualityHeaderLabel(videoQuality);
-                    adapter.notifyDataSetChanged();
+                    // The sizes of the videos that aren't downloaded depend on the quality
+                    adapter.refreshDownloadStates();
                     setUpBulkDownloadHeader(courseComponent);
                 });
         videoQualityDialog.show(getChildFragmentManager(), VideoDownloadQualityDialogFragment.getTAG());
@@ -991,6 +997,7 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
         getCourseUpgradeFirebaseConfig();
         if (adapter != null) {
             adapter.notifyDataSetChanged();
+            adapter.refreshDownloadStates();
         }
     }
 
@@ -1101,7 +1108,7 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
     @Subscribe(sticky = true)
     @SuppressWarnings("unused")
     public void onEventMainThread(MediaStatusChangeEvent e) {
-        adapter.notifyDataSetChanged();
+        adapter.refreshDownloadStates();
     }
 
     @Subscribe(sticky = true, threadMode = ThreadMode.MAIN)
@@ -1215,6 +1222,9 @@ public class CourseOutlineFragment extends OfflineSupportBaseFragment
             getCourseUpgradeStatus.cancel();
             getCourseUpgradeStatus = null;
         }
+        if (adapter != null) {
+            adapter.release();
+        }
     }
 
     public boolean canUpdateRowSelection() {
@@ -24,6 +24,7 @@ import org.edx.mobile.R;
 import org.edx.mobile.course.CourseAPI;
 import org.edx.mobile.databinding.FragmentDashboardErrorLayoutBinding;
 import org.edx.mobile.deeplink.ScreenDef;
+import org.edx.mobile.http.cache.TieredHttpCache;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.FragmentItemModel;
 import org.edx.mobile.model.api.EnrolledCoursesResponse;
@@ -60,6 +61,9 @@ public class CourseTabsDashboardFragment extends TabsBaseFragment {
     @Inject
     CourseAPI courseApi;
 
+    @Inject
+    TieredHttpCache tieredHttpCache;
+
     private final Handler handler = new Handler(Looper.getMainLooper());
     private Runnable updateDownloadProgressRunnable;
     private MenuItem downloadsMenuItem;
@@ -110,6 +114,8 @@ public class CourseTabsDashboardFragment extends TabsBaseFragment {
                 errorLayoutBinding.errorMsg.setText(auditAccessExpired ? R.string.course_access_expired : R.string.course_not_started);
                 return errorLayoutBinding.getRoot();
             } else {
+                // Keep the structure of the opened course from being evicted by other courses
+                tieredHttpCache.pinCourse(courseData.getCourse().getId());
                 return super.onCreateView(inflater, container, savedInstanceState);
             }
         } else if (getArguments().getBoolean(ARG_COURSE_NOT_FOUND)) {
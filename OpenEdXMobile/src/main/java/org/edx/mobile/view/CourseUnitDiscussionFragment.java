@@ -6,17 +6,14 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentTransaction;
 
 import org.edx.mobile.R;
-import org.edx.mobile.course.CourseAPI;
-import org.edx.mobile.http.callback.Callback;
+import org.edx.mobile.course.BlockCompletionOutbox;
 import org.edx.mobile.model.api.EnrolledCoursesResponse;
 import org.edx.mobile.model.course.CourseComponent;
 import org.edx.mobile.model.course.DiscussionBlockModel;
-import org.json.JSONObject;
 
 import javax.inject.Inject;
 
@@ -26,7 +23,7 @@ import dagger.hilt.android.AndroidEntryPoint;
 public class CourseUnitDiscussionFragment extends CourseUnitFragment {
 
     @Inject
-    CourseAPI courseApi;
+    BlockCompletionOutbox blockCompletionOutbox;
 
     public static CourseUnitDiscussionFragment newInstance(CourseComponent unit, EnrolledCoursesResponse courseData) {
         CourseUnitDiscussionFragment f = new CourseUnitDiscussionFragment();
@@ -51,12 +48,7 @@ public class CourseUnitDiscussionFragment extends CourseUnitFragment {
         super.onViewCreated(view, savedInstanceState);
         if (savedInstanceState == null) {
             markComponentCompletion(true);
-            courseApi.markBlocksCompletion(unit.getCourseId(), new String[]{unit.getId()}).enqueue(new Callback<JSONObject>() {
-                @Override
-                protected void onResponse(@NonNull JSONObject responseBody) {
-                    // Nothing to do here
-                }
-            });
+            blockCompletionOutbox.markCompleted(unit.getCourseId(), unit.getId());
             // First we need to get the discussion topic id to send to the posts fragment
             String topicId = ((DiscussionBlockModel) unit).getData().topicId;
 
@@ -23,6 +23,7 @@ import androidx.viewpager2.widget.ViewPager2;
 
 import org.edx.mobile.R;
 import org.edx.mobile.course.CourseAPI;
+import org.edx.mobile.course.CourseUnitPrefetcher;
 import org.edx.mobile.databinding.ViewCourseUnitPagerBinding;
 import org.edx.mobile.event.CourseUpgradedEvent;
 import org.edx.mobile.event.FileSelectionEvent;
@@ -80,6 +81,9 @@ public class CourseUnitNavigationActivity extends CourseBaseActivity implements
     @Inject
     InAppPurchasesAnalytics iapAnalytics;
 
+    @Inject
+    CourseUnitPrefetcher unitPrefetcher;
+
     private PreLoadingListener.State viewPagerState = PreLoadingListener.State.DEFAULT;
 
     private boolean isFirstSection = false;
@@ -134,6 +138,7 @@ public class CourseUnitNavigationActivity extends CourseBaseActivity implements
                     pager2.setUserInputEnabled(!horizontalBlocks
                             .contains(pagerAdapter.getUnit(position).getType()));
                 }
+                unitPrefetcher.prefetch(unitList, position);
             }
 
             @Override
@@ -3,6 +3,7 @@ package org.edx.mobile.view;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
+import android.text.Spanned;
 import android.view.View;
 import android.widget.Toast;
 
@@ -16,12 +17,12 @@ import org.edx.mobile.model.api.LectureModel;
 import org.edx.mobile.model.api.TranscriptModel;
 import org.edx.mobile.model.course.VideoBlockModel;
 import org.edx.mobile.model.db.DownloadEntry;
+import org.edx.mobile.player.CompactTranscript;
 import org.edx.mobile.player.PlayerFragment;
 import org.edx.mobile.util.MediaConsentUtils;
 
 import dagger.hilt.android.AndroidEntryPoint;
 import subtitleFile.Caption;
-import subtitleFile.TimedTextObject;
 
 /**
  * This class is responsible to display the video content through the native android player, also
@@ -294,14 +295,14 @@ public class CourseUnitVideoPlayerFragment extends BaseCourseUnitVideoFragment {
     }
 
     @Override
-    protected void updateClosedCaptionData(Caption caption) {
+    protected void updateClosedCaptionData(Spanned caption) {
         if (playerFragment != null) {
             playerFragment.updateClosedCaptionData(caption);
         }
     }
 
     @Override
-    protected void showClosedCaptionData(TimedTextObject subtitles) {
+    protected void showClosedCaptionData(CompactTranscript subtitles) {
         if (playerFragment != null) {
             playerFragment.showClosedCaptionData(subtitles);
         }
@@ -5,6 +5,7 @@ import android.content.res.Configuration;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.text.Spanned;
 
 import com.google.android.youtube.player.YouTubeInitializationResult;
 import com.google.android.youtube.player.YouTubePlayer;
@@ -18,6 +19,7 @@ import org.edx.mobile.model.course.VideoBlockModel;
 import org.edx.mobile.model.db.DownloadEntry;
 import org.edx.mobile.module.analytics.Analytics;
 import org.edx.mobile.module.db.impl.DatabaseFactory;
+import org.edx.mobile.player.CompactTranscript;
 import org.edx.mobile.util.AppConstants;
 import org.edx.mobile.util.BrowserUtil;
 import org.edx.mobile.util.NetworkUtil;
@@ -27,7 +29,6 @@ import org.greenrobot.eventbus.Subscribe;
 
 import dagger.hilt.android.AndroidEntryPoint;
 import subtitleFile.Caption;
-import subtitleFile.TimedTextObject;
 
 @AndroidEntryPoint
 public class CourseUnitYoutubePlayerFragment extends BaseCourseUnitVideoFragment implements YouTubePlayer.OnInitializedListener {
@@ -143,11 +144,11 @@ public class CourseUnitYoutubePlayerFragment extends BaseCourseUnitVideoFragment
         }
     }
 
-    protected void updateClosedCaptionData(Caption caption) {
+    protected void updateClosedCaptionData(Spanned caption) {
     }
 
     @Override
-    protected void showClosedCaptionData(TimedTextObject subtitles) {
+    protected void showClosedCaptionData(CompactTranscript subtitles) {
     }
 
     @Override
@@ -16,6 +16,7 @@ import org.edx.mobile.BuildConfig;
 import org.edx.mobile.R;
 import org.edx.mobile.authentication.LoginAPI;
 import org.edx.mobile.core.IEdxEnvironment;
+import org.edx.mobile.course.CourseUnitPrefetcher;
 import org.edx.mobile.deeplink.DeepLink;
 import org.edx.mobile.deeplink.ScreenDef;
 import org.edx.mobile.model.api.CourseUpgradeResponse;
@@ -80,6 +81,9 @@ public class Router {
     @Inject
     IStorage storage;
 
+    @Inject
+    CourseUnitPrefetcher unitPrefetcher;
+
     @Inject
     public Router() {
     }
@@ -379,6 +383,7 @@ public class Router {
      */
     public void forceLogout(Context context, AnalyticsRegistry analyticsRegistry, NotificationDelegate delegate) {
         loginPrefs.clear();
+        unitPrefetcher.clear();
 
         analyticsRegistry.trackUserLogout();
         analyticsRegistry.resetIdentifyUser();
@@ -28,7 +28,6 @@ import org.edx.mobile.core.IEdxEnvironment;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.api.AuthorizationDenialReason;
 import org.edx.mobile.model.api.EnrolledCoursesResponse;
-import org.edx.mobile.model.course.BlockPath;
 import org.edx.mobile.model.course.BlockType;
 import org.edx.mobile.model.course.CourseComponent;
 import org.edx.mobile.model.course.DiscussionBlockModel;
@@ -38,13 +37,9 @@ import org.edx.mobile.model.course.IBlock;
 import org.edx.mobile.model.course.VideoBlockModel;
 import org.edx.mobile.model.db.DownloadEntry;
 import org.edx.mobile.module.analytics.Analytics;
-import org.edx.mobile.module.db.DataCallback;
-import org.edx.mobile.module.db.IDatabase;
-import org.edx.mobile.module.storage.DownloadedVideoDeletedEvent;
-import org.edx.mobile.module.storage.IStorage;
+import org.edx.mobile.module.storage.DownloadStateIndex;
 import org.edx.mobile.util.Config;
 import org.edx.mobile.util.DateUtil;
-import org.edx.mobile.util.FileUtil;
 import org.edx.mobile.util.MemoryUtil;
 import org.edx.mobile.util.ResourceUtil;
 import org.edx.mobile.util.TimeZoneUtils;
@@ -53,9 +48,7 @@ import org.edx.mobile.util.VideoUtil;
 import org.edx.mobile.util.images.CourseCardUtils;
 import org.edx.mobile.util.images.TopAnchorFillWidthTransformation;
 import org.edx.mobile.view.dialog.CourseModalDialogFragment;
-import org.greenrobot.eventbus.EventBus;
 
-import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -81,8 +74,7 @@ public class CourseOutlineAdapter extends BaseAdapter {
 
     private IEdxEnvironment environment;
     private Config config;
-    private IDatabase dbStore;
-    private IStorage storage;
+    private DownloadStateIndex downloadStateIndex;
     private EnrolledCoursesResponse courseData;
     private DownloadListener downloadListener;
     private boolean isVideoMode;
@@ -93,8 +85,8 @@ public class CourseOutlineAdapter extends BaseAdapter {
         this.context = context;
         this.environment = environment;
         this.config = environment.getConfig();
-        this.dbStore = environment.getDatabase();
-        this.storage = environment.getStorage();
+        this.downloadStateIndex = new DownloadStateIndex(context, environment.getDatabase(),
+                this::notifyDataSetChanged);
         this.courseData = courseData;
         this.downloadListener = listener;
         this.isVideoMode = isVideoMode;
@@ -222,6 +214,7 @@ public class CourseOutlineAdapter extends BaseAdapter {
         this.rootComponent = component;
         clearCourseOutlineData();
         if (rootComponent != null) {
+            downloadStateIndex.load(rootComponent);
             List<IBlock> children = rootComponent.getChildren();
             for (IBlock block : children) {
                 CourseComponent comp = (CourseComponent) block;
@@ -291,6 +284,22 @@ public class CourseOutlineAdapter extends BaseAdapter {
             setData(this.rootComponent);
     }
 
+    /**
+     * Reloads the download states of the course's videos, and rebinds the rows once they are
+     * loaded. Download completions, deletions and bulk downloads are tracked without it.
+     */
+    public void refreshDownloadStates() {
+        downloadStateIndex.refresh();
+    }
+
+    /**
+     * Stops tracking the download states of the course's videos, must be called once the adapter
+     * is no longer in use.
+     */
+    public void release() {
+        downloadStateIndex.release();
+    }
+
     public View getRowView(int position, View convertView) {
         final SectionRow row = this.getItem(position);
         final SectionRow nextRow = this.getItem(position + 1);
@@ -339,7 +348,7 @@ public class CourseOutlineAdapter extends BaseAdapter {
 
         if (row.component instanceof VideoBlockModel) {
             final VideoBlockModel videoBlockModel = (VideoBlockModel) row.component;
-            final DownloadEntry videoData = videoBlockModel.getDownloadEntry(storage);
+            final DownloadEntry videoData = downloadStateIndex.getDownloadEntry(videoBlockModel);
             if (null != videoData) {
                 updateUIForVideo(viewHolder, videoData, videoBlockModel);
             } else if (videoBlockModel.getData().encodedVideos.youtube != null) {
@@ -404,52 +413,31 @@ public class CourseOutlineAdapter extends BaseAdapter {
             viewHolder.rowSubtitleVideoSize.setVisibility(View.VISIBLE);
             viewHolder.rowSubtitleVideoSize.setText(MemoryUtil.format(context, videoData.getSize()));
         }
-        if (!VideoUtil.isVideoDownloadable(videoBlockModel.getData())) {
+        if (!VideoUtil.isVideoDownloadable(videoBlockModel.getData())
+                || !downloadStateIndex.isLoaded()) {
+            // Download state is shown once the states of the course's videos are loaded
             viewHolder.numOfVideoAndDownloadArea.setVisibility(View.GONE);
         } else {
             viewHolder.numOfVideoAndDownloadArea.setVisibility(View.VISIBLE);
-            dbStore.getDownloadedStateForVideoId(videoData.videoId,
-                    new DataCallback<DownloadEntry.DownloadedState>(true) {
-                        @Override
-                        public void onResult(DownloadEntry.DownloadedState state) {
-                            if (state == null || state == DownloadEntry.DownloadedState.ONLINE) {
-                                // not yet downloaded
-                                setRowStateOnDownload(viewHolder, DownloadEntry.DownloadedState.ONLINE,
-                                        getBulkDownloadListener(videoBlockModel, videoData));
-                            } else if (state == DownloadEntry.DownloadedState.DOWNLOADING) {
-                                // may be download in progress
-                                setRowStateOnDownload(viewHolder, DownloadEntry.DownloadedState.DOWNLOADING,
-                                        new View.OnClickListener() {
-                                            @Override
-                                            public void onClick(View v) {
-                                                downloadListener.viewDownloadsStatus();
-                                            }
-                                        });
-                            } else if (state == DownloadEntry.DownloadedState.DOWNLOADED) {
-                                if (!FileUtil.isVideoFileExists(context, videoData.filepath)) {
-                                    state = DownloadEntry.DownloadedState.ONLINE;
-                                    // Update video state in DB
-                                    VideoUtil.updateVideoDownloadState(dbStore, videoData,
-                                            state.ordinal());
-                                    // Delete corrupt file from storage if exists
-                                    FileUtil.deleteRecursive(new File(videoData.filepath));
-                                    // Broadcast video deletion event
-                                    EventBus.getDefault().post(new DownloadedVideoDeletedEvent());
-                                }
-                                setRowStateOnDownload(viewHolder, state,
-                                        state == DownloadEntry.DownloadedState.ONLINE ?
-                                                getBulkDownloadListener(videoBlockModel, videoData) : null);
+            DownloadEntry.DownloadedState state = videoData.downloaded;
+            if (state == null || state == DownloadEntry.DownloadedState.ONLINE) {
+                // not yet downloaded
+                setRowStateOnDownload(viewHolder, DownloadEntry.DownloadedState.ONLINE,
+                        getBulkDownloadListener(videoBlockModel, videoData));
+            } else if (state == DownloadEntry.DownloadedState.DOWNLOADING) {
+                // may be download in progress
+                setRowStateOnDownload(viewHolder, DownloadEntry.DownloadedState.DOWNLOADING,
+                        new View.OnClickListener() {
+                            @Override
+                            public void onClick(View v) {
+                                downloadListener.viewDownloadsStatus();
                             }
-                        }
-
-                        @Override
-                        public void onFail(Exception ex) {
-                            logger.error(ex);
-                            viewHolder.bulkDownload.setVisibility(View.VISIBLE);
-                        }
-                    });
+                        });
+            } else if (state == DownloadEntry.DownloadedState.DOWNLOADED) {
+                // Missing or corrupt files have already been reverted to online by the index
+                setRowStateOnDownload(viewHolder, DownloadEntry.DownloadedState.DOWNLOADED, null);
+            }
         }
-
     }
 
     private View.OnClickListener getBulkDownloadListener(@NonNull VideoBlockModel videoBlockModel,
@@ -468,12 +456,6 @@ public class CourseOutlineAdapter extends BaseAdapter {
     private void getRowViewForContainer(ViewHolder holder,
                                         final SectionRow row) {
         final CourseComponent component = row.component;
-        String courseId = component.getCourseId();
-        BlockPath path = component.getPath();
-        //FIXME - we should add a new column in database - pathinfo.
-        //then do the string match to get the record
-        String chapterId = path.get(1) == null ? "" : path.get(1).getDisplayName();
-        String sequentialId = path.get(2) == null ? "" : path.get(2).getDisplayName();
 
         holder.rowContainer.setBackgroundResource(R.drawable.activated_item_selector);
         holder.rowCompleted.setVisibility(View.INVISIBLE);
@@ -501,23 +483,21 @@ public class CourseOutlineAdapter extends BaseAdapter {
             }
         }
 
-        final int totalDownloadableVideos = component.getDownloadableVideosCount();
+        final DownloadStateIndex.SectionState sectionState = downloadStateIndex.getSectionState(component);
         // support video download for video type excluding the ones only viewable on web
-        if (totalDownloadableVideos == 0) {
+        if (sectionState == null || sectionState.downloadableCount == 0) {
             holder.numOfVideoAndDownloadArea.setVisibility(View.GONE);
         } else {
+            final int totalDownloadableVideos = sectionState.downloadableCount;
+            final int downloadedCount = sectionState.downloadedCount;
             holder.bulkDownload.setVisibility(View.VISIBLE);
             holder.noOfVideos.setVisibility(View.VISIBLE);
             holder.noOfVideos.setText("" + totalDownloadableVideos);
 
-            Integer downloadedCount = dbStore.getDownloadedVideosCountForSection(courseId,
-                    chapterId, sequentialId, null);
-
             if (downloadedCount == totalDownloadableVideos) {
                 holder.noOfVideos.setVisibility(View.VISIBLE);
                 setRowStateOnDownload(holder, DownloadEntry.DownloadedState.DOWNLOADED, null);
-            } else if (dbStore.getDownloadingVideosCountForSection(courseId, chapterId,
-                    sequentialId, null) + downloadedCount == totalDownloadableVideos) {
+            } else if (sectionState.downloadingCount + downloadedCount == totalDownloadableVideos) {
                 holder.noOfVideos.setVisibility(View.INVISIBLE);
                 setRowStateOnDownload(holder, DownloadEntry.DownloadedState.DOWNLOADING,
                         new View.OnClickListener() {
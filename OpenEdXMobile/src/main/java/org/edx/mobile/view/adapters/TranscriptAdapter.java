@@ -7,36 +7,59 @@ import android.widget.AdapterView;
 import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import org.edx.mobile.R;
 import org.edx.mobile.core.IEdxEnvironment;
-import org.edx.mobile.util.TextUtils;
+import org.edx.mobile.player.CaptionRenderer;
+import org.edx.mobile.player.CompactTranscript;
 
-import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 
-import subtitleFile.Caption;
+import javax.inject.Inject;
 
-public class TranscriptAdapter extends BaseListAdapter<Caption> {
+/**
+ * The rows of a transcript, whose items are the indexes of its cues, so that only the cues that
+ * are shown are decoded.
+ */
+public class TranscriptAdapter extends BaseListAdapter<Integer> {
     @ColorInt
     private final int SELECTED_TRANSCRIPT_COLOR = ContextCompat.getColor(getContext(), R.color.neutralBlack);
     @ColorInt
     private final int UNSELECTED_TRANSCRIPT_COLOR = ContextCompat.getColor(getContext(), R.color.primaryBaseColor);
 
+    private final CaptionRenderer captionRenderer;
+    @Nullable
+    private CompactTranscript transcript;
+
     @Inject
-    public TranscriptAdapter(Context context, IEdxEnvironment environment) {
+    public TranscriptAdapter(Context context, IEdxEnvironment environment,
+                             CaptionRenderer captionRenderer) {
         super(context, R.layout.row_transcript_item, environment);
+        this.captionRenderer = captionRenderer;
+    }
+
+    /**
+     * Replaces the rows with the cues of a transcript.
+     */
+    public void setTranscript(@NonNull CompactTranscript transcript) {
+        this.transcript = transcript;
+        final List<Integer> indexes = new ArrayList<>(transcript.size());
+        for (int i = 0; i < transcript.size(); i++) {
+            indexes.add(i);
+        }
+        setItems(indexes);
     }
 
     @Override
-    public void render(BaseViewHolder tag, Caption model) {
+    public void render(BaseViewHolder tag, Integer position) {
         final ViewHolder viewHolder = (ViewHolder) tag;
-        String captionText = model.content;
-        if (captionText.endsWith("<br />")) {
-            captionText = captionText.substring(0, captionText.length() - 6);
+        if (transcript != null) {
+            viewHolder.transcriptTv.setText(captionRenderer.get(transcript, position));
         }
-        viewHolder.transcriptTv.setText(TextUtils.formatHtml(captionText));
-        final int position = getPosition(model);
         if (isSelected(position)) {
             viewHolder.transcriptTv.setTextColor(SELECTED_TRANSCRIPT_COLOR);
             viewHolder.transcriptTv.setTypeface(Typeface.DEFAULT_BOLD);
@@ -174,7 +174,7 @@ public class AuthenticatedWebView extends FrameLayout implements RefreshListener
             }
 
             public void onPageFinished(WebView view, String url) {
-                if (!NetworkUtil.isConnected(getContext())) {
+                if (!NetworkUtil.isConnected(getContext()) && !isPageAvailableOffline()) {
                     showErrorView(getResources().getString(R.string.reset_no_network_message),
                             R.drawable.ic_wifi);
                     hideLoadingProgress();
@@ -235,7 +235,8 @@ public class AuthenticatedWebView extends FrameLayout implements RefreshListener
             EventBus.getDefault().register(this);
         }
 
-        if (!NetworkUtil.isConnected(getContext())) {
+        final boolean isConnected = NetworkUtil.isConnected(getContext());
+        if (!isConnected && !isPageAvailableOffline()) {
             showErrorMessage(R.string.reset_no_network_message, R.drawable.ic_wifi);
             return;
         }
@@ -243,9 +244,9 @@ public class AuthenticatedWebView extends FrameLayout implements RefreshListener
         showLoadingProgress();
 
         if (!TextUtils.isEmpty(url)) {
-            // Requery the session cookie if unavailable or expired.
+            // Requery the session cookie if unavailable or expired, packaged pages don't need it.
             final EdxCookieManager cookieManager = EdxCookieManager.getSharedInstance(getContext());
-            if (cookieManager.isSessionCookieMissingOrExpired()) {
+            if (isConnected && cookieManager.isSessionCookieMissingOrExpired()) {
                 cookieManager.tryToRefreshSessionCookie();
             } else {
                 didReceiveError = false;
@@ -254,6 +255,14 @@ public class AuthenticatedWebView extends FrameLayout implements RefreshListener
         }
     }
 
+    /**
+     * @return true if the page has been packaged for offline viewing.
+     */
+    private boolean isPageAvailableOffline() {
+        return !TextUtils.isEmpty(url) && webViewClient != null &&
+                webViewClient.isAvailableOffline(url);
+    }
+
     public void tryToClearWebView() {
         pageIsLoaded = false;
         WebViewUtil.clearWebviewHtml(binding.webview);
@@ -20,12 +20,18 @@ public class EdxWebView extends WebView {
         settings.setSupportZoom(true);
         settings.setLoadsImagesAutomatically(true);
         settings.setDomStorageEnabled(true);
-        settings.setUserAgentString(
-                settings.getUserAgentString() + " " +
-                        context.getString(R.string.app_name) + "/" +
-                        BuildConfig.APPLICATION_ID + "/" +
-                        BuildConfig.VERSION_NAME
-        );
+        settings.setUserAgentString(getUserAgent(context, settings.getUserAgentString()));
         setLayerType(LAYER_TYPE_HARDWARE, null);
     }
+
+    /**
+     * @return The user agent of the app's web views, made of the given WebView user agent
+     * followed by the identification of the app.
+     */
+    public static String getUserAgent(Context context, String webViewUserAgent) {
+        return webViewUserAgent + " " +
+                context.getString(R.string.app_name) + "/" +
+                BuildConfig.APPLICATION_ID + "/" +
+                BuildConfig.VERSION_NAME;
+    }
 }
@@ -17,6 +17,8 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.FragmentActivity;
 
 import org.edx.mobile.core.EdxDefaultModule;
+import org.edx.mobile.course.CourseUnitPackager;
+import org.edx.mobile.course.CourseUnitPrefetcher;
 import org.edx.mobile.http.HttpStatus;
 import org.edx.mobile.logger.Logger;
 import org.edx.mobile.model.AjaxCallData;
@@ -61,6 +63,8 @@ public class URLInterceptorWebViewClient extends WebViewClient {
     private String hostForThisPage = null;
     private boolean ajaxInterceptorEmbed = false;
     Config config;
+    private final CourseUnitPrefetcher unitPrefetcher;
+    private final CourseUnitPackager unitPackager;
 
     /**
      * Tells if the page loading has been finished or not.
@@ -89,8 +93,11 @@ public class URLInterceptorWebViewClient extends WebViewClient {
                                        boolean interceptAjaxRequest,
                                        CompletionCallback completionCallback) {
         this.activity = activity;
-        this.config = EntryPointAccessors.fromApplication(activity.getApplicationContext(),
-                EdxDefaultModule.ProviderEntryPoint.class).getEnvironment().getConfig();
+        final EdxDefaultModule.ProviderEntryPoint entryPoint = EntryPointAccessors.fromApplication(
+                activity.getApplicationContext(), EdxDefaultModule.ProviderEntryPoint.class);
+        this.config = entryPoint.getEnvironment().getConfig();
+        this.unitPrefetcher = entryPoint.getCourseUnitPrefetcher();
+        this.unitPackager = entryPoint.getCourseUnitPackager();
         this.interceptAjaxRequest = interceptAjaxRequest;
         this.completionCallback = completionCallback;
         setupWebView(webView);
@@ -275,6 +282,14 @@ public class URLInterceptorWebViewClient extends WebViewClient {
         return false;
     }
 
+    /**
+     * @param url The URL of a page.
+     * @return true if the page has been packaged, and can be loaded while offline.
+     */
+    public boolean isAvailableOffline(@NonNull String url) {
+        return unitPackager.isPackaged(url);
+    }
+
     public void setLoadingInitialUrl(boolean isLoadingInitialUrl) {
         this.loadingInitialUrl = isLoadingInitialUrl;
     }
@@ -295,6 +310,16 @@ public class URLInterceptorWebViewClient extends WebViewClient {
                 && NetworkUtil.isConnectedMobile(context)) {
             return new WebResourceResponse("text/html", StandardCharsets.UTF_8.name(), null);
         }
+        // serve the units, and their resources, prefetched while the previous unit was viewed
+        WebResourceResponse prefetchedResponse = unitPrefetcher.get(request);
+        if (prefetchedResponse != null) {
+            return prefetchedResponse;
+        }
+        // serve the units packaged for offline viewing, and their resources
+        WebResourceResponse packagedResponse = unitPackager.get(request);
+        if (packagedResponse != null) {
+            return packagedResponse;
+        }
         return super.shouldInterceptRequest(view, request);
     }
 
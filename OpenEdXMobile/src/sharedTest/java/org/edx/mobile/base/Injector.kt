@@ -8,8 +8,8 @@ import org.edx.mobile.base.http.SynchronousExecutorService
 import org.edx.mobile.http.interceptor.OnlyIfCachedStrippingInterceptor
 import org.edx.mobile.http.provider.RetrofitProvider
 import org.edx.mobile.model.course.BlockData
-import org.edx.mobile.model.course.BlockList
 import org.edx.mobile.model.course.BlockType
+import org.edx.mobile.model.course.CourseStructureV1Model
 import org.edx.mobile.util.Config
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
@@ -58,10 +58,8 @@ class Injector(config: Config) {
     }
 
     fun getGson(): Gson {
-        return GsonBuilder().registerTypeAdapter(
-            BlockList::class.java,
-            BlockList.Deserializer()
-        ).registerTypeAdapter(BlockType::class.java, BlockType.Deserializer())
+        return GsonBuilder().registerTypeAdapterFactory(CourseStructureV1Model.AdapterFactory())
+            .registerTypeAdapter(BlockType::class.java, BlockType.Deserializer())
             .registerTypeAdapter(BlockData::class.java, BlockData.Deserializer())
             .create()
     }
@@ -15,6 +15,7 @@ import org.edx.mobile.authentication.LoginService;
 import org.edx.mobile.base.BaseTestCase;
 import org.edx.mobile.base.Injector;
 import org.edx.mobile.course.CourseAPI;
+import org.edx.mobile.course.CourseStructureSnapshot;
 import org.edx.mobile.course.CourseService;
 import org.edx.mobile.http.HttpStatus;
 import org.edx.mobile.model.authentication.AuthResponse;
@@ -101,7 +102,8 @@ public class HttpBaseTestCase extends BaseTestCase {
         loginAPI = new LoginAPI(loginService, config, loginPref,
                 new AnalyticsRegistry(), new DummyNotificationDelegate(), injector.getGson());
         courseService = injector.getInstance(CourseService.class);
-        courseAPI = new CourseAPI(config, courseService, userPrefs);
+        courseAPI = new CourseAPI(config, courseService, userPrefs,
+                new CourseStructureSnapshot(context, loginPref));
     }
 
     /**
@@ -0,0 +1,143 @@
+package org.edx.mobile.course;
+
+import android.os.Looper;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.module.db.DataCallback;
+import org.edx.mobile.module.db.IDatabase;
+import org.edx.mobile.module.prefs.LoginPrefs;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+public class BlockCompletionOutboxTest extends BaseTestCase {
+
+    @Mock
+    IDatabase db;
+    @Mock
+    CourseAPI courseApi;
+    @Mock
+    LoginPrefs loginPrefs;
+    @Mock
+    Call<JSONObject> call;
+
+    private final Map<String, List<String>> pendingCompletions = new LinkedHashMap<>();
+    private BlockCompletionOutbox outbox;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        super.setUp();
+        when(loginPrefs.getHashedUsername()).thenReturn("hashedUsername");
+        when(courseApi.markBlocksCompletion(anyString(), any(String[].class))).thenReturn(call);
+        doAnswer(invocation -> {
+            ((DataCallback<Map<String, List<String>>>) invocation.getArgument(0))
+                    .sendResult(pendingCompletions);
+            return null;
+        }).when(db).getPendingBlockCompletions(any());
+        outbox = new BlockCompletionOutbox(context, db, courseApi, loginPrefs, config);
+    }
+
+    @Test
+    public void testCompletionsAreRecordedAndReportedInBatches() {
+        final List<String> firstCourseBlocks = newBlockIds("first",
+                BlockCompletionOutbox.MAX_BATCH_SIZE + 20);
+        final List<String> secondCourseBlocks = newBlockIds("second", 30);
+        pendingCompletions.put("firstCourse", firstCourseBlocks);
+        pendingCompletions.put("secondCourse", secondCourseBlocks);
+
+        outbox.markCompleted("secondCourse", "second-0");
+        verify(db).addPendingBlockCompletion(eq("secondCourse"), eq("second-0"), any());
+        verify(courseApi, never()).markBlocksCompletion(anyString(), any(String[].class));
+
+        outbox.flush();
+        shadowOf(Looper.getMainLooper()).idle();
+        verify(courseApi, times(2)).markBlocksCompletion(eq("firstCourse"), any(String[].class));
+        verify(courseApi, times(1)).markBlocksCompletion(eq("secondCourse"), any(String[].class));
+
+        final ArgumentCaptor<Callback<JSONObject>> callbacks = newCallbackCaptor();
+        verify(call, times(3)).enqueue(callbacks.capture());
+        for (Callback<JSONObject> callback : callbacks.getAllValues()) {
+            callback.onResponse(call, Response.success(new JSONObject()));
+        }
+        verify(db, times(2)).removePendingBlockCompletions(eq("firstCourse"), anyList(), any());
+        verify(db).removePendingBlockCompletions(eq("secondCourse"), eq(secondCourseBlocks), any());
+    }
+
+    @Test
+    public void testFlushAfterInterval() {
+        outbox.markCompleted("course", "block");
+        shadowOf(Looper.getMainLooper()).idleFor(
+                config.getBlockCompletionFlushIntervalSeconds(), TimeUnit.SECONDS);
+        verify(db, times(1)).getPendingBlockCompletions(any());
+    }
+
+    @Test
+    public void testFailedReportIsRetriedWithBackoff() {
+        pendingCompletions.put("course", newBlockIds("block", 1));
+        outbox.flush();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        final ArgumentCaptor<Callback<JSONObject>> callback = newCallbackCaptor();
+        verify(call).enqueue(callback.capture());
+        callback.getValue().onFailure(call, new IOException());
+        verify(db, never()).removePendingBlockCompletions(anyString(), anyList(), any());
+
+        shadowOf(Looper.getMainLooper()).idleFor(29, TimeUnit.SECONDS);
+        verify(db, times(1)).getPendingBlockCompletions(any());
+        shadowOf(Looper.getMainLooper()).idleFor(1, TimeUnit.SECONDS);
+        verify(db, times(2)).getPendingBlockCompletions(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedReadIsRetriedWithBackoff() {
+        doAnswer(invocation -> {
+            ((DataCallback<Map<String, List<String>>>) invocation.getArgument(0))
+                    .sendException(new IllegalStateException());
+            return null;
+        }).when(db).getPendingBlockCompletions(any());
+        outbox.flush();
+        shadowOf(Looper.getMainLooper()).idle();
+        verify(db, times(1)).getPendingBlockCompletions(any());
+
+        shadowOf(Looper.getMainLooper()).idleFor(30, TimeUnit.SECONDS);
+        verify(db, times(2)).getPendingBlockCompletions(any());
+    }
+
+    private static List<String> newBlockIds(String prefix, int count) {
+        final List<String> blockIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            blockIds.add(prefix + "-" + i);
+        }
+        return blockIds;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Callback<JSONObject>> newCallbackCaptor() {
+        return ArgumentCaptor.forClass((Class<Callback<JSONObject>>) (Class<?>) Callback.class);
+    }
+}
@@ -0,0 +1,112 @@
+package org.edx.mobile.course;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates responses of the blocks API for courses made of chapters, sequentials and verticals
+ * of video and HTML blocks, for checking and benchmarking the decoding of course structures.
+ */
+final class CourseStructureGenerator {
+
+    private CourseStructureGenerator() {
+    }
+
+    /**
+     * The blocks are written in a random order, so that blocks are referenced as descendants
+     * before being read.
+     *
+     * @param blockCount The number of blocks of the course, including the course block.
+     * @return The JSON of the response.
+     */
+    static String generate(int blockCount) throws IOException {
+        final List<Block> blocks = new ArrayList<>();
+        final Block course = new Block("course", "course");
+        blocks.add(course);
+        Block chapter = null, sequential = null, vertical = null;
+        while (blocks.size() < blockCount) {
+            if (chapter == null || chapter.descendants.size() == 5) {
+                chapter = addChild(blocks, course, "chapter");
+                sequential = null;
+            } else if (sequential == null || sequential.descendants.size() == 4) {
+                sequential = addChild(blocks, chapter, "sequential");
+                vertical = null;
+            } else if (vertical == null || vertical.descendants.size() == 3) {
+                vertical = addChild(blocks, sequential, "vertical");
+            } else {
+                addChild(blocks, vertical, vertical.descendants.isEmpty() ? "video" : "html");
+            }
+        }
+        Collections.shuffle(blocks, new Random(blockCount));
+
+        final StringWriter json = new StringWriter();
+        final JsonWriter writer = new JsonWriter(json);
+        writer.beginObject().name("root").value(course.id).name("blocks").beginObject();
+        for (Block block : blocks) {
+            writer.name(block.id);
+            block.write(writer);
+        }
+        writer.endObject().endObject().close();
+        return json.toString();
+    }
+
+    private static Block addChild(List<Block> blocks, Block parent, String type) {
+        final Block child = new Block(type, type + blocks.size());
+        parent.descendants.add(child.id);
+        blocks.add(child);
+        return child;
+    }
+
+    private static class Block {
+        final String type;
+        final String id;
+        final List<String> descendants = new ArrayList<>();
+
+        Block(String type, String blockId) {
+            this.type = type;
+            this.id = "block-v1:edX+Parsing+2021+type@" + type + "+block@" + blockId;
+        }
+
+        void write(JsonWriter writer) throws IOException {
+            writer.beginObject()
+                    .name("id").value(id)
+                    .name("block_id").value(id.substring(id.lastIndexOf('@') + 1))
+                    .name("type").value(type)
+                    .name("display_name").value("Block " + id.hashCode())
+                    .name("graded").value(false)
+                    .name("student_view_multi_device").value(true)
+                    .name("student_view_url").value("https://example.com/xblock/" + id)
+                    .name("lms_web_url").value("https://example.com/jump_to/" + id)
+                    .name("completion").value(0)
+                    .name("block_counts").beginObject()
+                    .name("video").value("video".equals(type) ? 1 : 0).endObject();
+            if (!descendants.isEmpty()) {
+                writer.name("descendants").beginArray();
+                for (String descendant : descendants) {
+                    writer.value(descendant);
+                }
+                writer.endArray();
+            }
+            if ("video".equals(type)) {
+                writer.name("student_view_data").beginObject()
+                        .name("duration").value(300)
+                        .name("only_on_web").value(false)
+                        .name("transcripts").beginObject()
+                        .name("en").value("https://example.com/transcript/" + id).endObject()
+                        .name("encoded_videos").beginObject()
+                        .name("mobile_low").beginObject()
+                        .name("url").value("https://example.com/video/" + id + ".mp4")
+                        .name("file_size").value(1024 * 1024).endObject()
+                        .endObject()
+                        .endObject();
+            }
+            writer.endObject();
+        }
+    }
+}
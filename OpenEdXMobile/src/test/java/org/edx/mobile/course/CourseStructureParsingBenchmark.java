@@ -0,0 +1,125 @@
+package org.edx.mobile.course;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.edx.mobile.model.course.BlockData;
+import org.edx.mobile.model.course.BlockType;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.CourseStructureV1Model;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmarks building the course tree while streaming the blocks API responses against decoding
+ * them through a JSON tree, for generated courses of 500, 2000 and 10000 blocks, and prints the
+ * median parse time and the peak heap of each.
+ * <p>
+ * This isn't part of the unit tests, as its results depend on the machine and on the state of
+ * the JVM. Run its {@link #main} with the unit test classpath, e.g. from the IDE; the decoding
+ * of the course structures doesn't need the Android framework. The trees built by both are
+ * checked to be the same by {@link CourseStructureParsingTest}.
+ */
+public final class CourseStructureParsingBenchmark {
+    private static final int[] BLOCK_COUNTS = {500, 2000, 10000};
+    private static final int WARM_UP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+    private static final String COURSE_ID = "course-v1:edX+Benchmark+2021";
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(new CourseStructureV1Model.AdapterFactory())
+            .registerTypeAdapter(BlockType.class, new BlockType.Deserializer())
+            .registerTypeAdapter(BlockData.class, new BlockData.Deserializer())
+            .create();
+    private final TreeCourseStructureDecoder treeDecoder = new TreeCourseStructureDecoder();
+
+    private CourseStructureParsingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new CourseStructureParsingBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        for (int blockCount : BLOCK_COUNTS) {
+            final String json = CourseStructureGenerator.generate(blockCount);
+            final Result streaming = measure(() -> parseStreaming(json));
+            final Result tree = measure(() -> treeDecoder.decode(json, COURSE_ID));
+            System.out.printf("%d blocks (%d KiB): streaming %s, JSON tree %s%n",
+                    blockCount, json.length() / 1024, streaming, tree);
+        }
+    }
+
+    private CourseComponent parseStreaming(String json) throws Exception {
+        final CourseStructureV1Model model = gson.fromJson(new StringReader(json),
+                CourseStructureV1Model.class);
+        return (CourseComponent) CourseAPI.normalizeCourseStructure(model, COURSE_ID);
+    }
+
+    private static Result measure(Parser parser) throws Exception {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            parser.parse();
+        }
+        final long[] times = new long[MEASURED_RUNS];
+        long peakHeap = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final List<MemoryPoolMXBean> pools = getHeapPools();
+            System.gc();
+            long baseline = 0;
+            for (MemoryPoolMXBean pool : pools) {
+                pool.resetPeakUsage();
+                baseline += pool.getUsage().getUsed();
+            }
+            final long start = System.nanoTime();
+            final CourseComponent course = parser.parse();
+            times[i] = System.nanoTime() - start;
+            long peak = 0;
+            for (MemoryPoolMXBean pool : pools) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            peakHeap = Math.max(peakHeap, peak - baseline);
+            // Keep the course reachable until the peak has been read
+            if (!COURSE_ID.equals(course.getCourseId())) {
+                throw new IllegalStateException("Unexpected course " + course.getCourseId());
+            }
+        }
+        Arrays.sort(times);
+        return new Result(times[MEASURED_RUNS / 2], peakHeap);
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        final List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private interface Parser {
+        CourseComponent parse() throws Exception;
+    }
+
+    private static class Result {
+        final long medianTimeNs;
+        final long peakHeapBytes;
+
+        Result(long medianTimeNs, long peakHeapBytes) {
+            this.medianTimeNs = medianTimeNs;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.2f ms, %d KiB peak heap", medianTimeNs / 1e6,
+                    peakHeapBytes / 1024);
+        }
+    }
+}
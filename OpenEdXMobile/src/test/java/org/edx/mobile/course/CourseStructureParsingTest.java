@@ -0,0 +1,106 @@
+package org.edx.mobile.course;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.base.Injector;
+import org.edx.mobile.exception.CourseContentNotValidException;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.CourseStructureV1Model;
+import org.edx.mobile.model.course.IBlock;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+/**
+ * Checks that building the course tree while streaming the blocks API responses builds the same
+ * tree as decoding them through a JSON tree did before, for generated courses of various sizes.
+ * The parse time and peak heap of both are compared by {@link CourseStructureParsingBenchmark}.
+ */
+public class CourseStructureParsingTest extends BaseTestCase {
+    private static final int[] BLOCK_COUNTS = {50, 500};
+    private static final String COURSE_ID = "course-v1:edX+Parsing+2021";
+
+    private Gson gson;
+
+    @Override
+    protected void inject(Injector injector) throws Exception {
+        super.inject(injector);
+        gson = injector.getGson();
+    }
+
+    @Test
+    public void testStreamingAndTreeDecodingProduceSameCourse() throws Exception {
+        final TreeCourseStructureDecoder treeDecoder = new TreeCourseStructureDecoder();
+        for (int blockCount : BLOCK_COUNTS) {
+            final String json = CourseStructureGenerator.generate(blockCount);
+            final CourseComponent streamed = parse(json);
+            final CourseComponent fromTree = treeDecoder.decode(json, COURSE_ID);
+            assertEquals(COURSE_ID, streamed.getCourseId());
+            assertEquals(blockCount, countComponents(streamed));
+            assertEquals(fromTree.getEstimatedTreeSize(), streamed.getEstimatedTreeSize());
+            assertTreeEquals(streamed, fromTree, streamed);
+        }
+    }
+
+    @Test
+    public void testBlocksAreLinkedOnce() throws Exception {
+        // The chapter is referenced twice, and the vertical references the course
+        final String json = "{\"blocks\": {" +
+                "\"vertical\": {\"id\": \"vertical\", \"type\": \"vertical\", \"descendants\": [\"html\", \"course\"]}," +
+                "\"course\": {\"id\": \"course\", \"type\": \"course\", \"descendants\": [\"chapter\", \"chapter\", \"missing\"]}," +
+                "\"chapter\": {\"id\": \"chapter\", \"type\": \"chapter\", \"descendants\": [\"vertical\"]}," +
+                "\"html\": {\"id\": \"html\", \"type\": \"html\"}}, \"root\": \"course\"}";
+        final CourseComponent course = parse(json);
+        assertEquals(1, course.getChildren().size());
+        final IBlock chapter = course.getChildren().get(0);
+        assertEquals("chapter", chapter.getId());
+        final IBlock vertical = chapter.getChildren().get(0);
+        assertEquals(1, vertical.getChildren().size());
+        assertEquals("html", vertical.getChildren().get(0).getId());
+        assertSame(course, ((CourseComponent) vertical.getChildren().get(0)).getRoot());
+    }
+
+    @Test
+    public void testMissingRootIsRejected() throws Exception {
+        final CourseStructureV1Model model = gson.fromJson(new StringReader(
+                "{\"root\": \"missing\", \"blocks\": {\"html\": {\"id\": \"html\", \"type\": \"html\"}}}"),
+                CourseStructureV1Model.class);
+        try {
+            CourseAPI.normalizeCourseStructure(model, COURSE_ID);
+            fail("Course structure without its root block was normalized");
+        } catch (CourseContentNotValidException expected) {
+            // Expected, the structure is invalid
+        }
+    }
+
+    private CourseComponent parse(String json) throws Exception {
+        final CourseStructureV1Model model = gson.fromJson(new StringReader(json),
+                CourseStructureV1Model.class);
+        return (CourseComponent) CourseAPI.normalizeCourseStructure(model, COURSE_ID);
+    }
+
+    private static int countComponents(IBlock block) {
+        int count = 1;
+        for (IBlock child : block.getChildren()) {
+            count += countComponents(child);
+        }
+        return count;
+    }
+
+    private static void assertTreeEquals(CourseComponent root, IBlock expected, IBlock actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getDisplayName(), actual.getDisplayName());
+        assertSame(root, ((CourseComponent) actual).getRoot());
+        assertEquals(expected.getChildren().size(), actual.getChildren().size());
+        for (int i = 0; i < expected.getChildren().size(); i++) {
+            assertTreeEquals(root, expected.getChildren().get(i), actual.getChildren().get(i));
+        }
+    }
+}
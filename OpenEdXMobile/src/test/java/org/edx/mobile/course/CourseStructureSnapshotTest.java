@@ -0,0 +1,94 @@
+package org.edx.mobile.course;
+
+import static org.edx.mobile.http.util.CallUtil.executeStrict;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.edx.mobile.base.http.HttpBaseTestCase;
+import org.edx.mobile.model.api.EnrolledCoursesResponse;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.CourseStructureV1Model;
+import org.edx.mobile.model.course.DiscussionBlockModel;
+import org.edx.mobile.model.course.HtmlBlockModel;
+import org.edx.mobile.model.course.IBlock;
+import org.edx.mobile.model.course.VideoBlockModel;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class CourseStructureSnapshotTest extends HttpBaseTestCase {
+
+    @Test
+    public void testDecodedSnapshotMatchesNormalizedStructure() throws Exception {
+        login();
+
+        final EnrolledCoursesResponse e = executeStrict(courseAPI.getEnrolledCourses()).get(0);
+        final String courseId = e.getCourse().getId();
+        final CourseStructureV1Model model = executeStrict(courseAPI.getCourseStructure(
+                config.getApiUrlVersionConfig().getBlocksApiVersion(), courseId));
+        final CourseComponent expected = (CourseComponent) CourseAPI.normalizeCourseStructure(model, courseId);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CourseStructureSnapshot.encode(expected, out);
+        final CourseComponent actual = CourseStructureSnapshot.decode(
+                new ByteArrayInputStream(out.toByteArray()), courseId);
+
+        assertEquals(courseId, actual.getCourseId());
+        assertComponentEquals(expected, actual);
+    }
+
+    @Test
+    public void testSnapshotOfOtherFormatVersionIsRejected() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x65645853);
+        out.writeInt(CourseStructureSnapshot.FORMAT_VERSION + 1);
+        try {
+            CourseStructureSnapshot.decode(new ByteArrayInputStream(bytes.toByteArray()), "courseId");
+            fail("Snapshot of an unsupported version was decoded");
+        } catch (IOException expected) {
+            // Expected, the snapshot is discarded
+        }
+    }
+
+    private static void assertComponentEquals(CourseComponent expected, CourseComponent actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getBlockId(), actual.getBlockId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getInternalName(), actual.getInternalName());
+        assertEquals(expected.isGraded(), actual.isGraded());
+        assertEquals(expected.isMultiDevice(), actual.isMultiDevice());
+        assertEquals(expected.getBlockUrl(), actual.getBlockUrl());
+        assertEquals(expected.getWebUrl(), actual.getWebUrl());
+        assertEquals(expected.getBlockCount().videoCount, actual.getBlockCount().videoCount);
+        assertEquals(expected.getFormat(), actual.getFormat());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.getAuthorizationDenialReason(), actual.getAuthorizationDenialReason());
+        assertEquals(expected.getSpecialExamInfo(), actual.getSpecialExamInfo());
+        if (expected instanceof VideoBlockModel) {
+            assertEquals(((VideoBlockModel) expected).getData(), ((VideoBlockModel) actual).getData());
+        } else if (expected instanceof DiscussionBlockModel) {
+            assertEquals(((DiscussionBlockModel) expected).getData(),
+                    ((DiscussionBlockModel) actual).getData());
+        } else if (expected instanceof HtmlBlockModel) {
+            assertEquals(((HtmlBlockModel) expected).getData() == null,
+                    ((HtmlBlockModel) actual).getData() == null);
+        }
+
+        final List<IBlock> expectedChildren = expected.getChildren();
+        final List<IBlock> actualChildren = actual.getChildren();
+        assertEquals(expectedChildren.size(), actualChildren.size());
+        for (int i = 0; i < expectedChildren.size(); i++) {
+            final CourseComponent actualChild = (CourseComponent) actualChildren.get(i);
+            assertSame(actual, actualChild.getParent());
+            assertComponentEquals((CourseComponent) expectedChildren.get(i), actualChild);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.edx.mobile.course;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Uri;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import com.google.gson.Gson;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.http.provider.OkHttpClientProvider;
+import org.edx.mobile.model.course.BlockModel;
+import org.edx.mobile.model.course.BlockType;
+import org.edx.mobile.model.course.HtmlBlockModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+
+public class CourseUnitPackagerTest extends BaseTestCase {
+    private static final HttpUrl STYLE_SHEET_URL =
+            HttpUrl.get("https://courses.example.com/static/css/lms-course.css");
+    private static final String COURSE_ID = "course-v1:edX+DemoX+Demo_Course";
+    private static final String PAGE = "<html><head>" +
+            "<link rel=\"stylesheet\" href=\"/static/css/unit.css\">" +
+            "</head><body>Unit</body></html>";
+    private static final String CSS = ".unit { color: red; }";
+
+    @Mock
+    OkHttpClientProvider okHttpClientProvider;
+
+    private MockWebServer server;
+    private CourseUnitPackager packager;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        server = new MockWebServer();
+        server.start();
+        when(okHttpClientProvider.getNonOAuthBased()).thenReturn(new OkHttpClient());
+        // Package on the calling thread, so that the results can be checked right away
+        packager = new CourseUnitPackager(context, okHttpClientProvider, new Gson(), Runnable::run);
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        server.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testFindCssUrls() {
+        final String css = "@font-face { src: url('../fonts/OpenSans.woff2') format('woff2'); }" +
+                ".logo { background: url( \"/static/images/logo.png\" ); }" +
+                ".icon { background: url(data:image/png;base64,iVBORw0KGgo=); }" +
+                ".banner { background: url(https://cdn.example.org/banner.jpg); }";
+
+        final Set<HttpUrl> expected = new HashSet<>();
+        expected.add(HttpUrl.get("https://courses.example.com/static/fonts/OpenSans.woff2"));
+        expected.add(HttpUrl.get("https://courses.example.com/static/images/logo.png"));
+        assertEquals(expected, CourseUnitPackager.findCssUrls(STYLE_SHEET_URL, css));
+    }
+
+    @Test
+    public void testGetMimeTypeFromContentType() {
+        assertEquals("text/html", CourseUnitPackager.getMimeType(STYLE_SHEET_URL,
+                MediaType.get("text/html; charset=utf-8")));
+        assertEquals("image/svg+xml", CourseUnitPackager.getMimeType(STYLE_SHEET_URL,
+                MediaType.get("image/svg+xml")));
+    }
+
+    @Test
+    public void testPackagedUnitIsServedOfflineUntilRemoved() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/html; charset=utf-8")
+                .setBody(PAGE));
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/css")
+                .setBody(CSS));
+        final HttpUrl pageUrl = server.url("/xblock/unit");
+        final HttpUrl styleSheetUrl = server.url("/static/css/unit.css");
+
+        packager.addUnits(COURSE_ID, Collections.singletonList(newHtmlUnit(pageUrl)));
+        assertEquals(2, server.getRequestCount());
+        assertTrue(packager.isPackaged(pageUrl.toString()));
+
+        disconnectFromNetwork();
+        assertEquals(PAGE, read(packager.get(newRequest(pageUrl))));
+        assertEquals(CSS, read(packager.get(newRequest(styleSheetUrl))));
+
+        packager.removeAll();
+        assertFalse(packager.isPackaged(pageUrl.toString()));
+        assertNull(packager.get(newRequest(pageUrl)));
+        assertNull(packager.get(newRequest(styleSheetUrl)));
+    }
+
+    @Test
+    public void testAssetsOverTheLimitAreNotPackaged() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/html; charset=utf-8")
+                .setBody(PAGE));
+        // Chunked, so that the limit is only reached while reading the body
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/css")
+                .setChunkedBody(new Buffer().write(
+                        new byte[(int) CourseUnitPackager.MAX_OBJECT_SIZE + 1]), 1024 * 1024));
+        final HttpUrl pageUrl = server.url("/xblock/unit");
+
+        packager.addUnits(COURSE_ID, Collections.singletonList(newHtmlUnit(pageUrl)));
+        assertTrue(packager.isPackaged(pageUrl.toString()));
+        assertNull(packager.get(newRequest(server.url("/static/css/unit.css"))));
+    }
+
+    private static HtmlBlockModel newHtmlUnit(HttpUrl url) {
+        final BlockModel block = new BlockModel();
+        block.id = url.encodedPath();
+        block.type = BlockType.HTML;
+        block.studentViewUrl = url.toString();
+        block.studentViewMultiDevice = true;
+        return new HtmlBlockModel(block, null);
+    }
+
+    private static WebResourceRequest newRequest(HttpUrl url) {
+        final WebResourceRequest request = mock(WebResourceRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getUrl()).thenReturn(Uri.parse(url.toString()));
+        return request;
+    }
+
+    private static String read(WebResourceResponse response) throws IOException {
+        try (BufferedSource source = Okio.buffer(Okio.source(response.getData()))) {
+            return source.readUtf8();
+        }
+    }
+
+    private void disconnectFromNetwork() {
+        final ConnectivityManager connectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        shadowOf(connectivityManager).setNetworkInfo(ConnectivityManager.TYPE_WIFI, null);
+        shadowOf(connectivityManager).setNetworkInfo(ConnectivityManager.TYPE_MOBILE, null);
+    }
+}
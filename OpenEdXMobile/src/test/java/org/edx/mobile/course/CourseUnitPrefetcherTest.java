@@ -0,0 +1,44 @@
+package org.edx.mobile.course;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import okhttp3.HttpUrl;
+
+public class CourseUnitPrefetcherTest {
+    private static final HttpUrl PAGE_URL =
+            HttpUrl.get("https://courses.example.com/xblock/block-v1:edX+DemoX+type@html+block@1");
+
+    @Test
+    public void testFindSubResources() {
+        final String html = "<html><head>" +
+                "<link rel=\"stylesheet\" href=\"/static/css/lms.css\">" +
+                "<link rel=\"icon\" href=\"/favicon.ico\">" +
+                "<script type=\"text/javascript\" src='/static/js/xblock.js?v=1&amp;x=2'></script>" +
+                "<script>var inline = true;</script>" +
+                "</head><body>" +
+                "<IMG SRC=\"images/diagram.png\" alt=\"\">" +
+                "<img src=\"https://cdn.example.org/external.png\">" +
+                "<a href=\"/courses/next\">Next</a>" +
+                "</body></html>";
+
+        final Set<HttpUrl> expected = new HashSet<>();
+        expected.add(HttpUrl.get("https://courses.example.com/static/css/lms.css"));
+        expected.add(HttpUrl.get("https://courses.example.com/static/js/xblock.js?v=1&x=2"));
+        expected.add(HttpUrl.get("https://courses.example.com/xblock/images/diagram.png"));
+        assertEquals(expected, CourseUnitPrefetcher.findSubResources(PAGE_URL, html));
+    }
+
+    @Test
+    public void testFindSubResourcesIsBounded() {
+        final StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            html.append("<img src=\"/static/img").append(i).append(".png\">");
+        }
+        assertEquals(16, CourseUnitPrefetcher.findSubResources(PAGE_URL, html.toString()).size());
+    }
+}
@@ -0,0 +1,60 @@
+package org.edx.mobile.course;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.edx.mobile.model.course.BlockData;
+import org.edx.mobile.model.course.BlockModel;
+import org.edx.mobile.model.course.BlockType;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.CourseStructureV1Model;
+
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Decodes the responses of the blocks API the way they were decoded before the course tree was
+ * built while streaming them: the whole response is parsed into a JSON tree, every block is
+ * mapped to a {@link BlockModel}, and the tree is then built from the blocks in a second pass.
+ */
+final class TreeCourseStructureDecoder {
+    private static final Type BLOCKS_TYPE = new TypeToken<Map<String, BlockModel>>() {}.getType();
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(BlockType.class, new BlockType.Deserializer())
+            .registerTypeAdapter(BlockData.class, new BlockData.Deserializer())
+            .create();
+
+    @SuppressWarnings("deprecation")
+    CourseComponent decode(String json, String courseId) {
+        final JsonObject response = new JsonParser().parse(new StringReader(json)).getAsJsonObject();
+        final Map<String, BlockModel> blocks = gson.fromJson(response.get("blocks"), BLOCKS_TYPE);
+        final BlockModel root = blocks.get(response.get("root").getAsString());
+        final CourseComponent course = new CourseComponent(root, null);
+        course.setCourseId(courseId);
+        addDescendants(blocks, root, course);
+        return course;
+    }
+
+    private static void addDescendants(Map<String, BlockModel> blocks, BlockModel block,
+                                       CourseComponent component) {
+        if (!block.isContainer() || block.descendants == null) {
+            return;
+        }
+        for (String id : block.descendants) {
+            final BlockModel child = blocks.get(id);
+            if (child == null) {
+                continue;
+            }
+            if (CourseStructureV1Model.isContainerBlock(child)) {
+                addDescendants(blocks, child, new CourseComponent(child, component));
+            } else {
+                CourseStructureV1Model.newLeafComponent(child, component);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.edx.mobile.http.authenticator;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.base.Injector;
+import org.edx.mobile.http.HttpStatus;
+import org.edx.mobile.http.constants.ApiConstants;
+import org.edx.mobile.http.interceptor.OauthHeaderRequestInterceptor;
+import org.edx.mobile.http.provider.RetrofitProvider;
+import org.edx.mobile.model.authentication.AuthResponse;
+import org.edx.mobile.module.prefs.LoginPrefs;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class AccessTokenManagerTest extends BaseTestCase {
+    private static final int CONCURRENT_REQUESTS = 20;
+    private static final String API_HOST_URL = "API_HOST_URL";
+    private static final String EXPIRED_TOKEN = "expired";
+    private static final String REFRESHED_TOKEN = "refreshed";
+
+    private final AtomicInteger refreshCount = new AtomicInteger();
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+
+    private MockWebServer server;
+    private RetrofitProvider retrofitProvider;
+    private LoginPrefs loginPrefs;
+    private OkHttpClient client;
+
+    @Override
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new TokenDispatcher());
+        server.start();
+
+        super.setUp();
+
+        loginPrefs = new LoginPrefs(context);
+        final AccessTokenManager accessTokenManager = new AccessTokenManager(
+                () -> config, () -> retrofitProvider, () -> loginPrefs);
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new OauthHeaderRequestInterceptor(loginPrefs, accessTokenManager))
+                .authenticator(new OauthRefreshTokenAuthenticator(() -> loginPrefs,
+                        accessTokenManager))
+                .build();
+    }
+
+    @Override
+    protected JsonObject generateConfigProperties() throws IOException {
+        final JsonObject properties = super.generateConfigProperties();
+        properties.addProperty(API_HOST_URL, server.url("").toString());
+        return properties;
+    }
+
+    @Override
+    protected void inject(Injector injector) throws Exception {
+        super.inject(injector);
+        retrofitProvider = injector.getRetrofitProvider();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        loginPrefs.clearAuthTokenResponse();
+        server.shutdown();
+    }
+
+    @Test
+    public void testExpiredTokenIsRefreshedOnceBeforeConcurrentRequests() throws Exception {
+        // The token expires within the expiry margin, so it's refreshed before being used
+        storeAuth(1);
+
+        assertAllRequestsSucceed(executeConcurrently());
+        assertEquals(1, refreshCount.get());
+        assertEquals(0, rejectedCount.get());
+    }
+
+    @Test
+    public void testRejectedTokenIsRefreshedOnceForConcurrentRequests() throws Exception {
+        // The expiry of the token is unknown, so it's only refreshed once the server rejects it
+        storeAuth(0);
+
+        assertAllRequestsSucceed(executeConcurrently());
+        assertEquals(1, refreshCount.get());
+    }
+
+    private void storeAuth(long expiresIn) {
+        final AuthResponse auth = new AuthResponse();
+        auth.access_token = EXPIRED_TOKEN;
+        auth.token_type = "Bearer";
+        auth.refresh_token = "refresh_token";
+        auth.expires_in = expiresIn;
+        loginPrefs.storeAuthTokenResponse(auth, LoginPrefs.AuthBackend.PASSWORD);
+    }
+
+    private List<Integer> executeConcurrently() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                final Request request = new Request.Builder()
+                        .url(server.url("/api/courses/" + i))
+                        .build();
+                futures.add(executor.submit(() -> {
+                    try (Response response = client.newCall(request).execute()) {
+                        return response.code();
+                    }
+                }));
+            }
+            final List<Integer> codes = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                codes.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return codes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertAllRequestsSucceed(@NonNull List<Integer> codes) {
+        assertEquals(CONCURRENT_REQUESTS, codes.size());
+        for (int code : codes) {
+            assertEquals(HttpStatus.OK, code);
+        }
+    }
+
+    private class TokenDispatcher extends Dispatcher {
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            if (request.getPath().startsWith(ApiConstants.URL_ACCESS_TOKEN)) {
+                refreshCount.incrementAndGet();
+                return new MockResponse()
+                        .setHeadersDelay(200, TimeUnit.MILLISECONDS)
+                        .setBody("{\"access_token\": \"" + REFRESHED_TOKEN + "\", " +
+                                "\"token_type\": \"Bearer\", \"expires_in\": 3600, " +
+                                "\"refresh_token\": \"refreshed_refresh_token\"}");
+            }
+            if (("Bearer " + REFRESHED_TOKEN).equals(request.getHeader("Authorization"))) {
+                return new MockResponse().setBody("{}");
+            }
+            rejectedCount.incrementAndGet();
+            return new MockResponse()
+                    .setResponseCode(HttpStatus.UNAUTHORIZED)
+                    .setBody("{\"error_code\": \"token_expired\"}");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.edx.mobile.http.cache;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+
+public class TieredHttpCacheTest extends BaseTestCase {
+
+    private static final String HOST = "https://example.com";
+
+    @Test
+    public void testUrlsAreClassifiedByEndpoint() {
+        final TieredHttpCache cache = new TieredHttpCache(context, config);
+        assertEquals(CacheTier.BLOCKS, cache.getTier(blocksUrl("course-v1:edX+DemoX+Demo")));
+        assertEquals(CacheTier.ENROLLMENTS,
+                cache.getTier(url("/api/mobile/v1/users/user/course_enrollments")));
+        assertEquals(CacheTier.DISCUSSIONS,
+                cache.getTier(url("/api/discussion/v1/course_topics/course")));
+        assertEquals(CacheTier.DEFAULT, cache.getTier(url("/api/user/v1/accounts/user")));
+    }
+
+    @Test
+    public void testMostRecentlyOpenedCoursesArePinned() {
+        final int pinnedCourses = config.getHttpCacheConfig().getPinnedCourses();
+        final TieredHttpCache cache = new TieredHttpCache(context, config);
+        for (int i = 0; i <= pinnedCourses; i++) {
+            cache.pinCourse("course" + i);
+        }
+        // Reopening a pinned course makes it the most recent one
+        cache.pinCourse("course1");
+
+        assertEquals(CacheTier.BLOCKS, cache.getTier(blocksUrl("course0")));
+        assertEquals(CacheTier.PINNED_COURSES, cache.getTier(blocksUrl("course1")));
+        assertEquals(CacheTier.PINNED_COURSES, cache.getTier(blocksUrl("course" + pinnedCourses)));
+        assertEquals(Arrays.asList("course1", "course3", "course2"), cache.getPinnedCourseIds());
+        // The pinned courses are restored after a restart
+        assertEquals(cache.getPinnedCourseIds(),
+                new TieredHttpCache(context, config).getPinnedCourseIds());
+    }
+
+    @Test
+    public void testTiersHaveConfiguredBudgets() {
+        final TieredHttpCache cache = new TieredHttpCache(context, config);
+        for (CacheTier tier : CacheTier.values()) {
+            assertEquals(tier.getMaxSize(config.getHttpCacheConfig()),
+                    cache.getCache(tier).maxSize());
+        }
+        assertEquals(config.getHttpCacheConfig().getPinnedCourses() *
+                        config.getHttpCacheConfig().getPinnedCourseSizeMb() * 1024L * 1024L,
+                cache.getCache(CacheTier.PINNED_COURSES).maxSize());
+    }
+
+    private static HttpUrl blocksUrl(String courseId) {
+        return HttpUrl.get(HOST + "/api/courses/v2/blocks/").newBuilder()
+                .addQueryParameter("course_id", courseId)
+                .build();
+    }
+
+    private static HttpUrl url(String path) {
+        return HttpUrl.get(HOST + path);
+    }
+}
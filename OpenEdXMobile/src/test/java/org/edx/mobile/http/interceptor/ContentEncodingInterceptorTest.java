@@ -0,0 +1,175 @@
+package org.edx.mobile.http.interceptor;
+
+import org.edx.mobile.http.cache.CacheTier;
+import org.edx.mobile.http.util.CompressionMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ContentEncodingInterceptorTest {
+    private static final String BLOCKS_PATH = "/api/courses/v2/blocks/?course_id=course";
+
+    private MockWebServer server;
+    private CompressionMetrics metrics;
+    private OkHttpClient client;
+    private String body;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new CompressionMetrics();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new ContentEncodingInterceptor(metrics))
+                .build();
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            builder.append("{\"id\": \"block-").append(i).append("\", \"type\": \"html\"}");
+        }
+        body = builder.toString();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testGzipResponseIsDecoded() throws Exception {
+        final Buffer compressed = gzip(body);
+        final long compressedSize = compressed.size();
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(compressed));
+
+        assertDecoded(BLOCKS_PATH);
+        assertBytesRecorded(CacheTier.BLOCKS, compressedSize);
+    }
+
+    @Test
+    public void testBrotliResponseIsDecoded() throws Exception {
+        final byte[] compressed = brotliStored(body.getBytes(StandardCharsets.UTF_8));
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "br")
+                .setBody(new Buffer().write(compressed)));
+
+        assertDecoded(BLOCKS_PATH);
+        assertBytesRecorded(CacheTier.BLOCKS, compressed.length);
+    }
+
+    @Test
+    public void testResponsesWithoutBodyAreNotDecoded() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(204)
+                .setHeader("Content-Encoding", "br"));
+        server.enqueue(new MockResponse().setHeader("Content-Encoding", "br"));
+
+        for (int i = 0; i < 2; i++) {
+            final Request request = new Request.Builder().url(server.url(BLOCKS_PATH)).build();
+            try (Response response = client.newCall(request).execute()) {
+                assertEquals("", response.body().string());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBrotliResponseFailsWithIOException() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "br")
+                // WBITS = 16, ISLAST = 0, MNIBBLES = 0 and a reserved bit set
+                .setBody(new Buffer().write(new byte[]{0x1c, 0x00, 0x00})));
+
+        final Request request = new Request.Builder().url(server.url(BLOCKS_PATH)).build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+            fail("The invalid Brotli stream was decoded");
+        } catch (IOException expected) {
+            // Expected, like the errors of the gzip decoder
+        }
+    }
+
+    @Test
+    public void testUncompressedResponseIsRecorded() throws Exception {
+        server.enqueue(new MockResponse().setBody(body));
+
+        assertDecoded("/api/discussion/v1/threads");
+        assertBytesRecorded(CacheTier.DISCUSSIONS, body.length());
+        assertEquals(0, metrics.getEndpoints().get(CacheTier.DISCUSSIONS).getSavedBytes());
+    }
+
+    @Test
+    public void testRequestNegotiatingItsOwnEncodingIsLeftAlone() throws Exception {
+        server.enqueue(new MockResponse().setBody(body));
+
+        final Request request = new Request.Builder()
+                .url(server.url(BLOCKS_PATH))
+                .header("Accept-Encoding", "identity")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(body, response.body().string());
+        }
+        assertEquals("identity", server.takeRequest().getHeader("Accept-Encoding"));
+        assertTrue(metrics.getEndpoints().isEmpty());
+    }
+
+    private void assertDecoded(String path) throws Exception {
+        final Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            assertNull(response.header("Content-Encoding"));
+            assertEquals(body, response.body().string());
+        }
+        assertEquals(ContentEncodingInterceptor.ACCEPT_ENCODING,
+                server.takeRequest().getHeader("Accept-Encoding"));
+    }
+
+    private void assertBytesRecorded(CacheTier tier, long wireBytes) {
+        final CompressionMetrics.Endpoint endpoint = metrics.getEndpoints().get(tier);
+        assertEquals(wireBytes, endpoint.getResponseWireBytes());
+        assertEquals(body.length(), endpoint.getResponseDecodedBytes());
+        assertEquals(body.length() - wireBytes, endpoint.getSavedBytes());
+    }
+
+    private static Buffer gzip(String content) throws IOException {
+        final Buffer buffer = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.writeUtf8(content);
+        }
+        return buffer;
+    }
+
+    /**
+     * Encodes the data as a Brotli stream made of a single uncompressed meta-block, as defined by
+     * RFC 7932, since there's no Brotli encoder available to the tests.
+     */
+    private static byte[] brotliStored(byte[] data) {
+        // WBITS = 16 (1 bit), ISLAST = 0 (1 bit), MNIBBLES = 4 (2 bits), MLEN - 1 (16 bits)
+        // and ISUNCOMPRESSED = 1 (1 bit), padded to a byte boundary
+        final int header = ((data.length - 1) << 4) | (1 << 20);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header & 0xff);
+        out.write((header >> 8) & 0xff);
+        out.write((header >> 16) & 0xff);
+        out.write(data, 0, data.length);
+        // ISLAST = 1 and ISLASTEMPTY = 1
+        out.write(0x03);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,155 @@
+package org.edx.mobile.http.interceptor;
+
+import com.google.gson.Gson;
+
+import org.edx.mobile.http.cache.CacheTier;
+import org.edx.mobile.http.util.CompressionMetrics;
+import org.edx.mobile.util.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GzipRequestInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String ALLOWED_PATH = "/api/completion/v1/completion-batch";
+
+    private MockWebServer server;
+    private CompressionMetrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new CompressionMetrics();
+        final Config.RequestCompressionConfig config = new Gson().fromJson(
+                "{\"PATHS\": [\"/api/completion/\"], \"MIN_SIZE_BYTES\": 256}",
+                Config.RequestCompressionConfig.class);
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new GzipRequestInterceptor(config, metrics))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testLargeBodyToAllowedEndpointIsCompressed() throws Exception {
+        final String body = newBody(100);
+        final RecordedRequest request = post(ALLOWED_PATH, body);
+
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        assertEquals(body, Okio.buffer(new GzipSource(request.getBody())).readUtf8());
+        final CompressionMetrics.Endpoint endpoint = metrics.getEndpoints().get(CacheTier.DEFAULT);
+        assertEquals(body.length(), endpoint.getRequestRawBytes());
+        assertEquals(request.getBodySize(), endpoint.getRequestWireBytes());
+        assertTrue(endpoint.getSavedBytes() > 0);
+    }
+
+    @Test
+    public void testBodyToOtherEndpointIsNotCompressed() throws Exception {
+        final String body = newBody(100);
+        final RecordedRequest request = post("/api/user/v1/accounts/user", body);
+
+        assertNull(request.getHeader("Content-Encoding"));
+        assertEquals(body, request.getBody().readUtf8());
+        assertTrue(metrics.getEndpoints().isEmpty());
+    }
+
+    @Test
+    public void testSmallBodyIsNotCompressed() throws Exception {
+        final String body = newBody(1);
+        final RecordedRequest request = post(ALLOWED_PATH, body);
+
+        assertNull(request.getHeader("Content-Encoding"));
+        assertEquals(body, request.getBody().readUtf8());
+    }
+
+    @Test
+    public void testIncompressibleOneShotBodyIsWrittenOnce() throws Exception {
+        final byte[] content = new byte[1024];
+        new Random(content.length).nextBytes(content);
+        final RequestBody body = new RequestBody() {
+            private boolean written;
+
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public long contentLength() {
+                return content.length;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                if (written) {
+                    throw new IllegalStateException("One-shot body written twice");
+                }
+                written = true;
+                sink.write(content);
+            }
+        };
+        server.enqueue(new MockResponse().setBody("{}"));
+        final Request request = new Request.Builder()
+                .url(server.url(ALLOWED_PATH))
+                .post(body)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+        }
+
+        final RecordedRequest recorded = server.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertArrayEquals(content, recorded.getBody().readByteArray());
+    }
+
+    private RecordedRequest post(String path, String body) throws Exception {
+        server.enqueue(new MockResponse().setBody("{}"));
+        final Request request = new Request.Builder()
+                .url(server.url(path))
+                .post(RequestBody.create(body, JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+        }
+        return server.takeRequest();
+    }
+
+    private static String newBody(int blockCount) {
+        final StringBuilder builder = new StringBuilder("{\"blocks\": {");
+        for (int i = 0; i < blockCount; i++) {
+            builder.append(i == 0 ? "" : ", ").append("\"block-").append(i).append("\": 1.0");
+        }
+        return builder.append("}}").toString();
+    }
+}
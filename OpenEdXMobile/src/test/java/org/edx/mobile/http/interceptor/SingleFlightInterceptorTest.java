@@ -0,0 +1,205 @@
+package org.edx.mobile.http.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightInterceptorTest {
+    private static final int CONCURRENT_CALLS = 8;
+
+    private MockWebServer server;
+    private SingleFlightInterceptor interceptor;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        interceptor = new SingleFlightInterceptor();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("enrollments")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        final List<String> bodies = executeConcurrently("/api/enrollments");
+
+        assertEquals(1, server.getRequestCount());
+        for (String body : bodies) {
+            assertEquals("enrollments", body);
+        }
+        assertEquals(CONCURRENT_CALLS, interceptor.getMetrics().getRequestCount());
+        assertEquals(CONCURRENT_CALLS - 1, interceptor.getMetrics().getCoalescedCount());
+        assertEquals((float) (CONCURRENT_CALLS - 1) / CONCURRENT_CALLS,
+                interceptor.getMetrics().getDedupeRatio(), 0.001f);
+    }
+
+    @Test
+    public void testSequentialRequestsAreNotCoalesced() throws Exception {
+        server.enqueue(new MockResponse().setBody("first"));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", execute(new Request.Builder().url(server.url("/api")).build()));
+        assertEquals("second", execute(new Request.Builder().url(server.url("/api")).build()));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, interceptor.getMetrics().getCoalescedCount());
+    }
+
+    @Test
+    public void testRequestsWithDifferentHeadersAreNotCoalesced() throws Exception {
+        server.enqueue(new MockResponse().setBody("cached")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("fresh")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> first = executor.submit(() -> execute(new Request.Builder()
+                    .url(server.url("/api"))
+                    .header("Cache-Control", "max-stale=3600")
+                    .build()));
+            final Future<String> second = executor.submit(() -> execute(new Request.Builder()
+                    .url(server.url("/api"))
+                    .build()));
+            first.get();
+            second.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, interceptor.getMetrics().getCoalescedCount());
+    }
+
+    @Test
+    public void testNonGetRequestsAreNotCoalesced() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+        execute(new Request.Builder()
+                .url(server.url("/api"))
+                .post(RequestBody.create(new byte[0], null))
+                .build());
+        assertEquals(0, interceptor.getMetrics().getRequestCount());
+    }
+
+    @Test
+    public void testChunkedBodiesOverTheLimitAreNotShared() throws Exception {
+        final Buffer largeBody = new Buffer()
+                .write(new byte[(int) SingleFlightInterceptor.MAX_SHARED_BODY_SIZE + 1]);
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            server.enqueue(new MockResponse()
+                    .setChunkedBody(largeBody.clone(), 64 * 1024)
+                    .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        }
+
+        final List<String> bodies = executeConcurrently("/video.mp4");
+
+        for (String body : bodies) {
+            assertEquals(largeBody.size(), body.length());
+        }
+        assertEquals(CONCURRENT_CALLS, server.getRequestCount());
+        assertEquals(0, interceptor.getMetrics().getCoalescedCount());
+    }
+
+    @Test
+    public void testResponsesThatMayNotBeStoredAreNotShared() throws Exception {
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            server.enqueue(new MockResponse()
+                    .setBody("private")
+                    .setHeader("Cache-Control", "no-store")
+                    .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        }
+
+        executeConcurrently("/api/profile");
+
+        assertEquals(CONCURRENT_CALLS, server.getRequestCount());
+        assertEquals(0, interceptor.getMetrics().getCoalescedCount());
+    }
+
+    @Test
+    public void testCanceledWaitingCallStopsWaiting() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("enrollments")
+                .setHeadersDelay(3, TimeUnit.SECONDS));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> first = executor.submit(() -> execute(new Request.Builder()
+                    .url(server.url("/api/enrollments")).build()));
+            // Lets the first call start its flight
+            server.takeRequest();
+            final Call waitingCall = client.newCall(new Request.Builder()
+                    .url(server.url("/api/enrollments")).build());
+            final Future<Response> waiting = executor.submit(waitingCall::execute);
+            Thread.sleep(200);
+            final long canceledAt = System.nanoTime();
+            waitingCall.cancel();
+            try {
+                waiting.get();
+                fail("The canceled call was not interrupted");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertTrue(System.nanoTime() - canceledAt < TimeUnit.SECONDS.toNanos(1));
+            assertEquals("enrollments", first.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, interceptor.getMetrics().getCoalescedCount());
+    }
+
+    private List<String> executeConcurrently(String path) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLS);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CALLS; i++) {
+                futures.add(executor.submit((Callable<String>) () ->
+                        execute(new Request.Builder().url(server.url(path)).build())));
+            }
+            final List<String> bodies = new ArrayList<>();
+            for (Future<String> future : futures) {
+                bodies.add(future.get());
+            }
+            return bodies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String execute(Request request) throws Exception {
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+}
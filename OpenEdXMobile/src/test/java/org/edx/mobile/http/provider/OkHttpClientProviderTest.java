@@ -0,0 +1,153 @@
+package org.edx.mobile.http.provider;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.http.authenticator.OauthRefreshTokenAuthenticator;
+import org.edx.mobile.http.cache.CacheTier;
+import org.edx.mobile.http.cache.TieredHttpCache;
+import org.edx.mobile.http.util.ConnectionMetrics;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class OkHttpClientProviderTest extends BaseTestCase {
+
+    @Mock
+    OauthRefreshTokenAuthenticator authenticator;
+
+    private MockWebServer server;
+    private TieredHttpCache tieredHttpCache;
+    private OkHttpClientProvider provider;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        server = new MockWebServer();
+        server.start();
+        tieredHttpCache = new TieredHttpCache(context, config);
+        provider = new OkHttpClientProvider.Impl(context, config, authenticator,
+                tieredHttpCache);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        server.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testVariantsShareConnectionPoolAndDispatcher() {
+        final OkHttpClient oauthClient = provider.get();
+        final OkHttpClient offlineCacheClient = provider.getWithOfflineCache(CacheTier.DEFAULT);
+        final OkHttpClient nonOAuthClient = provider.getNonOAuthBased();
+
+        assertSame(oauthClient.connectionPool(), offlineCacheClient.connectionPool());
+        assertSame(oauthClient.connectionPool(), nonOAuthClient.connectionPool());
+        assertSame(oauthClient.dispatcher(), offlineCacheClient.dispatcher());
+        assertSame(oauthClient.dispatcher(), nonOAuthClient.dispatcher());
+        assertSame(oauthClient.eventListenerFactory(), nonOAuthClient.eventListenerFactory());
+
+        assertNull(oauthClient.cache());
+        assertNull(nonOAuthClient.cache());
+        assertNotNull(offlineCacheClient.cache());
+    }
+
+    @Test
+    public void testOfflineCacheTiersHaveSeparateCaches() {
+        final OkHttpClient blocksClient = provider.getWithOfflineCache(CacheTier.BLOCKS);
+        final OkHttpClient transcriptsClient = provider.getWithOfflineCache(CacheTier.TRANSCRIPTS);
+
+        assertSame(blocksClient, provider.getWithOfflineCache(CacheTier.BLOCKS));
+        assertSame(blocksClient.connectionPool(), transcriptsClient.connectionPool());
+        assertSame(tieredHttpCache.getCache(CacheTier.BLOCKS), blocksClient.cache());
+        assertNotSame(blocksClient.cache(), transcriptsClient.cache());
+    }
+
+    @Test
+    public void testOfflineCacheCallsAreRoutedByTier() throws Exception {
+        server.enqueue(new MockResponse().setBody("blocks")
+                .setHeader("Cache-Control", "max-age=60"));
+        server.enqueue(new MockResponse().setBody("enrollments")
+                .setHeader("Cache-Control", "max-age=60"));
+
+        final Call.Factory callFactory = provider.getWithOfflineCache();
+        execute(callFactory, "/api/courses/v2/blocks/?course_id=course");
+        execute(callFactory, "/api/mobile/v1/users/user/course_enrollments");
+        // The second request for the course structure is answered from its tier's cache
+        execute(callFactory, "/api/courses/v2/blocks/?course_id=course");
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, tieredHttpCache.getCache(CacheTier.BLOCKS).hitCount());
+        assertEquals(1, tieredHttpCache.getCache(CacheTier.BLOCKS).writeSuccessCount());
+        assertEquals(1, tieredHttpCache.getCache(CacheTier.ENROLLMENTS).writeSuccessCount());
+        assertEquals(0, tieredHttpCache.getCache(CacheTier.DEFAULT).requestCount());
+    }
+
+    @Test
+    public void testStructureCachedBeforePinningIsReadOffline() throws Exception {
+        server.enqueue(new MockResponse().setBody("blocks")
+                .setHeader("Cache-Control", "max-age=0"));
+        final Call.Factory callFactory = provider.getWithOfflineCache();
+        final Request request = new Request.Builder()
+                .url(server.url("/api/courses/v2/blocks/?course_id=course"))
+                .build();
+        try (Response response = callFactory.newCall(request).execute()) {
+            assertEquals("blocks", response.body().string());
+        }
+
+        // Opening the course offline pins it, and its structure is still in the unpinned tier
+        tieredHttpCache.pinCourse("course");
+        server.shutdown();
+
+        try (Response response = callFactory.newCall(request).execute()) {
+            assertEquals("blocks", response.body().string());
+        }
+        assertEquals(1, tieredHttpCache.getCache(CacheTier.BLOCKS).hitCount());
+    }
+
+    @Test
+    public void testConnectionIsReusedAcrossVariants() throws Exception {
+        server.enqueue(new MockResponse().setBody("first"));
+        server.enqueue(new MockResponse().setBody("second"));
+        server.enqueue(new MockResponse().setBody("third"));
+
+        execute(provider.get());
+        execute(provider.getNonOAuthBased());
+        // Clients derived by callers share the connections as well
+        execute(provider.getNonOAuthBased().newBuilder().build());
+
+        final ConnectionMetrics metrics = provider.getConnectionMetrics();
+        assertEquals(3, server.getRequestCount());
+        assertEquals(3, metrics.getCallCount());
+        assertEquals(3, metrics.getConnectionAcquiredCount());
+        assertEquals(1, metrics.getConnectionEstablishedCount());
+        // Plain HTTP connections don't perform any handshake
+        assertEquals(0, metrics.getHandshakeCount());
+        assertEquals(2f / 3, metrics.getConnectionReuseRate(), 0.001f);
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+        assertEquals(2, server.takeRequest().getSequenceNumber());
+    }
+
+    private void execute(OkHttpClient client) throws Exception {
+        execute(client, "/");
+    }
+
+    private void execute(Call.Factory callFactory, String path) throws Exception {
+        final Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = callFactory.newCall(request).execute()) {
+            response.body().string();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.edx.mobile.http.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ThroughputEstimatorTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testNoEstimateBeforeFirstWindow() {
+        final ThroughputEstimator estimator = new ThroughputEstimator();
+        estimator.start(0);
+        estimator.onBytesRead(1024, 50 * MS);
+        assertTrue(estimator.getEstimate() < 0);
+        assertEquals(0, estimator.getSampleCount());
+    }
+
+    @Test
+    public void testSteadyThroughput() {
+        final ThroughputEstimator estimator = new ThroughputEstimator();
+        estimator.start(0);
+        // 10 KiB every 10 ms, i.e. 1000 KiB/s
+        for (int i = 1; i <= 100; i++) {
+            estimator.onBytesRead(10 * 1024, i * 10 * MS);
+        }
+        estimator.finish(1000 * MS);
+        assertEquals(10, estimator.getSampleCount());
+        assertEquals(1000 * 1024, estimator.getEstimate(), 1);
+        assertEquals(1000 * 1024, estimator.getTotalBytes());
+    }
+
+    @Test
+    public void testEstimateTracksChanges() {
+        final ThroughputEstimator estimator = new ThroughputEstimator();
+        estimator.start(0);
+        // 1000 KiB/s for a second, then 100 KiB/s for a second
+        long now = 0;
+        for (int i = 0; i < 100; i++) {
+            now += 10 * MS;
+            estimator.onBytesRead(10 * 1024, now);
+        }
+        final double fastEstimate = estimator.getEstimate();
+        for (int i = 0; i < 100; i++) {
+            now += 10 * MS;
+            estimator.onBytesRead(1024, now);
+        }
+        final double slowEstimate = estimator.getEstimate();
+        assertEquals(1000 * 1024, fastEstimate, 1);
+        // A second is two half-lives, so the old throughput weighs a quarter of the estimate
+        assertEquals(100 * 1024 + 900 * 1024 * 0.25, slowEstimate, 1024);
+    }
+
+    @Test
+    public void testPartialWindowWeighsLess() {
+        final ThroughputEstimator estimator = new ThroughputEstimator();
+        estimator.start(0);
+        estimator.onBytesRead(100 * 1024, 100 * MS);
+        // A short burst at ten times the throughput at the end of the transfer
+        estimator.onBytesRead(10 * 1024, 101 * MS);
+        estimator.finish(101 * MS);
+        assertEquals(2, estimator.getSampleCount());
+        final double weight = 1 - Math.pow(0.5, 1.0 / 500);
+        assertEquals(1000 * 1024 + weight * 9000 * 1024, estimator.getEstimate(), 1);
+    }
+}
@@ -0,0 +1,63 @@
+package org.edx.mobile.module.db;
+
+import android.content.ComponentCallbacks2;
+import android.os.Looper;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+public class PlaybackPositionBufferTest extends BaseTestCase {
+
+    @Mock
+    IDatabase db;
+
+    private PlaybackPositionBuffer buffer;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        buffer = new PlaybackPositionBuffer(context, db, config);
+    }
+
+    @Test
+    public void testUpdatesAreCoalescedUntilFlush() {
+        for (long offset = 1000; offset <= 60000; offset += 1000) {
+            buffer.updateLastPlayedOffset("videoId", offset);
+        }
+        verify(db, never()).updateVideoLastPlayedOffset(anyString(), anyLong(), any());
+        assertEquals(Long.valueOf(60000), buffer.getPendingLastPlayedOffset("videoId"));
+
+        buffer.flush();
+        verify(db, times(1)).updateVideoLastPlayedOffset(eq("videoId"), eq(60000L), any());
+        assertNull(buffer.getPendingLastPlayedOffset("videoId"));
+    }
+
+    @Test
+    public void testFlushAfterInterval() {
+        buffer.updateLastPlayedOffset("videoId", 5000);
+        shadowOf(Looper.getMainLooper()).idleFor(
+                config.getPlaybackPositionFlushIntervalSeconds(), TimeUnit.SECONDS);
+        verify(db, times(1)).updateVideoLastPlayedOffset(eq("videoId"), eq(5000L), any());
+    }
+
+    @Test
+    public void testFlushWhenUiHidden() {
+        buffer.updateLastPlayedOffset("videoId", 5000);
+        buffer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        verify(db, times(1)).updateVideoLastPlayedOffset(eq("videoId"), eq(5000L), any());
+    }
+}
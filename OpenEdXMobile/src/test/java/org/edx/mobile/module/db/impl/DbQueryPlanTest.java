@@ -0,0 +1,128 @@
+package org.edx.mobile.module.db.impl;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.model.api.ProfileModel;
+import org.edx.mobile.module.prefs.LoginPrefs;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs every read query of {@link IDatabaseImpl} through EXPLAIN QUERY PLAN, and fails if any
+ * of them falls back to a full table scan instead of using one of the indexes created by
+ * {@link DbHelper}.
+ */
+public class DbQueryPlanTest extends BaseTestCase {
+
+    private final List<String> scans = new ArrayList<>();
+    private int explainedQueries;
+    private SQLiteDatabase sqliteDb;
+    private QueryPlanDatabase db;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final LoginPrefs loginPrefs = new LoginPrefs(context);
+        final ProfileModel profileModel = new ProfileModel();
+        profileModel.username = "unittest";
+        loginPrefs.storeUserProfile(profileModel);
+
+        db = new QueryPlanDatabase();
+        db.loginPrefs = loginPrefs;
+        sqliteDb = new DbHelper(context).getDatabase();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        db.release();
+    }
+
+    @Test
+    public void testQueriesUseIndexes() {
+        final String courseId = "course-v1:edX+DemoX+Demo_Course";
+        final String chapter = "chapter";
+        final String section = "section";
+        final String videoId = "videoId";
+        final String videoUrl = "http://fake/url";
+
+        db.isAnyVideoDownloading(null);
+        db.getAllDownloadingVideosDmidList(null);
+        db.getAllDeactivatedVideos(null);
+        db.getVideoCountBydmId(1, null);
+        db.isVideoDownloadedInChapter(courseId, chapter, null);
+        db.getVideosCountByChapter(courseId, chapter, null);
+        db.getWebOnlyVideosCountByChapter(courseId, chapter, null);
+        db.isVideoDownloadingInChapter(courseId, chapter, null);
+        db.getDownloadingVideoDmIdsForChapter(courseId, chapter, null);
+        db.isVideoDownloadingInSection(courseId, chapter, section, null);
+        db.getDownloadingVideoDmIdsForSection(courseId, chapter, section, null);
+        db.getDownloadingVideosCountForSection(courseId, chapter, section, null);
+        db.getVideosCountBySection(courseId, chapter, section, null);
+        db.isVideoDownloadedInSection(courseId, chapter, section, null);
+        db.getDownloadedVideoDmIdsForSection(courseId, chapter, section, null);
+        db.getDownloadedVideosCountForSection(courseId, chapter, section, null);
+        db.getWebOnlyVideosCountBySection(courseId, chapter, section, null);
+        db.getVideoEntryByVideoId(videoId, null);
+        db.getVideoByVideoUrl(videoUrl, null);
+        db.isVideoFilePresentByUrl(videoUrl, null);
+        db.getListOfOngoingDownloads(null);
+        db.getListOfOngoingDownloadsByCourseId(courseId, null);
+        db.getVideosDownloadedCount(null);
+        db.getIVideoModelByVideoUrl(videoUrl, null);
+        db.isDmIdExists(1, null);
+        db.getAllVideos("unittest", null);
+        db.getAllVideosByCourse(courseId, null);
+        db.getVideoCountByVideoUrl(videoUrl, null);
+        db.getDownloadEntryByDmId(1, null);
+        db.isAnyVideoDownloadingInCourse(null, courseId);
+        db.isAnyVideoDownloadingInSection(null, courseId, chapter);
+        db.isAnyVideoDownloadingInSubSection(null, courseId, chapter, section);
+        db.isUnitAccessed(null, "unitId");
+        db.getPendingBlockCompletions(null);
+
+        assertTrue("No queries were explained", explainedQueries > 0);
+        assertTrue("Queries falling back to a table scan: " + scans, scans.isEmpty());
+    }
+
+    private void explain(DbOperationSelect<?> op) {
+        explainedQueries++;
+        final Cursor cursor = sqliteDb.rawQuery("EXPLAIN QUERY PLAN " + op.getQuery(),
+                op.getWhereArgs());
+        try {
+            final int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                final String detail = cursor.getString(detailIndex);
+                // "SCAN TABLE <name>" on older SQLite versions, "SCAN <name>" on newer ones
+                if (detail.startsWith("SCAN")) {
+                    scans.add(op.getQuery() + " -> " + detail);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Explains every select operation before executing it.
+     */
+    private class QueryPlanDatabase extends IDatabaseImpl {
+        QueryPlanDatabase() {
+            super(context);
+        }
+
+        @Override
+        public <T> T enqueue(IDbOperation<T> operation) {
+            if (operation instanceof DbOperationSelect) {
+                explain((DbOperationSelect<?>) operation);
+            }
+            return super.enqueue(operation);
+        }
+    }
+}
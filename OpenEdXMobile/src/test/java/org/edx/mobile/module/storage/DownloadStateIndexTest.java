@@ -0,0 +1,196 @@
+package org.edx.mobile.module.storage;
+
+import android.os.Looper;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.edx.mobile.model.VideoModel;
+import org.edx.mobile.model.course.BlockModel;
+import org.edx.mobile.model.course.BlockType;
+import org.edx.mobile.model.course.CourseComponent;
+import org.edx.mobile.model.course.EncodedVideos;
+import org.edx.mobile.model.course.VideoBlockModel;
+import org.edx.mobile.model.course.VideoData;
+import org.edx.mobile.model.course.VideoInfo;
+import org.edx.mobile.model.db.DownloadEntry;
+import org.edx.mobile.module.db.DataCallback;
+import org.edx.mobile.module.db.IDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+public class DownloadStateIndexTest extends BaseTestCase {
+
+    @Mock
+    IDatabase db;
+
+    /* The callbacks of the database loads, in the order they were requested */
+    private final List<DataCallback<List<VideoModel>>> loads = new ArrayList<>();
+    private int changeCount;
+
+    private DownloadStateIndex index;
+    private CourseComponent course;
+    private CourseComponent chapter1;
+    private CourseComponent chapter2;
+    private VideoBlockModel video1;
+    private VideoBlockModel video2;
+    private VideoBlockModel video3;
+
+    @Before
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        super.setUp();
+        doAnswer(invocation -> {
+            loads.add(invocation.getArgument(1));
+            return null;
+        }).when(db).getAllVideosByCourse(eq("courseId"), any());
+        index = new DownloadStateIndex(context, db, () -> changeCount++);
+
+        course = new CourseComponent(createBlock(BlockType.COURSE, "course"), null);
+        course.setCourseId("courseId");
+        chapter1 = new CourseComponent(createBlock(BlockType.CHAPTER, "chapter1"), course);
+        final CourseComponent vertical1 = new CourseComponent(createBlock(BlockType.VERTICAL, "vertical1"),
+                new CourseComponent(createBlock(BlockType.SECTION, "sequential1"), chapter1));
+        video1 = createVideo("video1", vertical1);
+        video2 = createVideo("video2", vertical1);
+        chapter2 = new CourseComponent(createBlock(BlockType.CHAPTER, "chapter2"), course);
+        final CourseComponent vertical2 = new CourseComponent(createBlock(BlockType.VERTICAL, "vertical2"),
+                new CourseComponent(createBlock(BlockType.SECTION, "sequential2"), chapter2));
+        video3 = createVideo("video3", vertical2);
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        index.release();
+        super.tearDown();
+    }
+
+    @Test
+    public void testIndexesEntriesAndSectionCounts() {
+        index.load(course);
+        assertFalse(index.isLoaded());
+        assertNull(index.getSectionState(course));
+
+        loads.get(0).sendResult(Collections.singletonList(
+                createEntry(video2, DownloadEntry.DownloadedState.DOWNLOADING)));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(index.isLoaded());
+        assertEquals(1, changeCount);
+        assertEquals(DownloadEntry.DownloadedState.ONLINE, index.getDownloadEntry(video1).downloaded);
+        assertEquals(DownloadEntry.DownloadedState.DOWNLOADING, index.getDownloadEntry(video2).downloaded);
+        assertEquals(DownloadEntry.DownloadedState.ONLINE, index.getDownloadEntry(video3).downloaded);
+        assertSectionState(index.getSectionState(course), 3, 0, 1);
+        assertSectionState(index.getSectionState(chapter1), 2, 0, 1);
+        assertSectionState(index.getSectionState(chapter2), 1, 0, 0);
+    }
+
+    @Test
+    public void testMissingDownloadedFileIsRevertedToOnline() {
+        final DownloadEntry entry = createEntry(video1, DownloadEntry.DownloadedState.DOWNLOADED);
+        entry.filepath = context.getCacheDir() + "/missing.mp4";
+        index.load(course);
+        loads.get(0).sendResult(Collections.singletonList(entry));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertEquals(DownloadEntry.DownloadedState.ONLINE, index.getDownloadEntry(video1).downloaded);
+        assertSectionState(index.getSectionState(chapter1), 2, 0, 0);
+        verify(db).updateDownloadingVideoInfoByVideoId(eq(entry), any());
+    }
+
+    @Test
+    public void testOutdatedLoadIsDiscarded() {
+        index.load(course);
+        // Loading again while the first load is in progress outdates its result
+        index.load(course);
+        assertEquals(1, loads.size());
+
+        loads.get(0).sendResult(Collections.singletonList(
+                createEntry(video1, DownloadEntry.DownloadedState.DOWNLOADING)));
+        shadowOf(Looper.getMainLooper()).idle();
+        assertFalse(index.isLoaded());
+        assertEquals(0, changeCount);
+        assertEquals(2, loads.size());
+
+        loads.get(1).sendResult(Collections.emptyList());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(index.isLoaded());
+        assertEquals(1, changeCount);
+        assertEquals(DownloadEntry.DownloadedState.ONLINE, index.getDownloadEntry(video1).downloaded);
+    }
+
+    @Test
+    public void testReloadsAreCoalesced() {
+        index.load(course);
+        for (int i = 0; i < 5; i++) {
+            index.onEvent(new DownloadCompletedEvent());
+        }
+        assertEquals(1, loads.size());
+
+        loads.get(0).sendResult(Collections.emptyList());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(1, changeCount);
+        // The reloads requested meanwhile are done in a single one
+        assertEquals(2, loads.size());
+
+        loads.get(1).sendResult(Arrays.asList(
+                createEntry(video1, DownloadEntry.DownloadedState.DOWNLOADING),
+                createEntry(video3, DownloadEntry.DownloadedState.DOWNLOADING)));
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(2, changeCount);
+        assertEquals(2, loads.size());
+        assertSectionState(index.getSectionState(course), 3, 0, 2);
+    }
+
+    private static void assertSectionState(DownloadStateIndex.SectionState state, int downloadable,
+                                           int downloaded, int downloading) {
+        assertEquals(downloadable, state.downloadableCount);
+        assertEquals(downloaded, state.downloadedCount);
+        assertEquals(downloading, state.downloadingCount);
+    }
+
+    private static BlockModel createBlock(BlockType type, String id) {
+        final BlockModel block = new BlockModel();
+        block.type = type;
+        block.id = id;
+        block.displayName = id;
+        return block;
+    }
+
+    private static VideoBlockModel createVideo(String id, CourseComponent parent) {
+        final VideoInfo info = new VideoInfo();
+        info.url = "https://example.com/" + id + ".mp4";
+        final VideoData data = new VideoData();
+        data.encodedVideos = new EncodedVideos();
+        data.encodedVideos.mobileLow = info;
+        final BlockModel block = createBlock(BlockType.VIDEO, id);
+        block.data = data;
+        return new VideoBlockModel(block, parent);
+    }
+
+    private static DownloadEntry createEntry(VideoBlockModel video,
+                                             DownloadEntry.DownloadedState state) {
+        final DownloadEntry entry = new DownloadEntry();
+        entry.videoId = video.getId();
+        entry.eid = "courseId";
+        entry.downloaded = state;
+        return entry;
+    }
+}
@@ -0,0 +1,42 @@
+package org.edx.mobile.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+public class CaptionRendererTest extends BaseTestCase {
+    private static final String SRT = "1\n00:00:01,000 --> 00:00:02,000\nDon&amp;#39;t panic\n\n" +
+            "2\n00:00:03,000 --> 00:00:04,000\nFish &amp; chips\n\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRenderDecodesEntitiesAndDropsLineBreak() {
+        assertEquals("Don't panic", CaptionRenderer.render("Don&amp;#39;t panic<br />").toString());
+        assertEquals("Plain caption", CaptionRenderer.render("Plain caption").toString());
+    }
+
+    @Test
+    public void testCaptionsAreRenderedOnce() throws Exception {
+        final File file = folder.newFile();
+        CompactTranscript.convertSrt(
+                new ByteArrayInputStream(SRT.getBytes(StandardCharsets.UTF_8)), file);
+        final CompactTranscript transcript = CompactTranscript.open(file);
+        final CaptionRenderer renderer = new CaptionRenderer();
+        renderer.prerender(transcript);
+
+        assertEquals("Don't panic", renderer.get(transcript, 0).toString());
+        assertEquals("Fish & chips", renderer.get(transcript, 1).toString());
+        assertSame(renderer.get(transcript, 0), renderer.get(transcript, 0));
+        assertSame(renderer.get(transcript, 1), renderer.get(transcript, 1));
+    }
+}
@@ -0,0 +1,162 @@
+package org.edx.mobile.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import subtitleFile.Caption;
+import subtitleFile.FormatSRT;
+import subtitleFile.TimedTextObject;
+
+/**
+ * Checks that transcripts saved in the {@link CompactTranscript} format hold the same captions as
+ * the SRT files they're converted from, for generated transcripts of various lengths, that those
+ * converted as they're read match the ones parsed by {@link FormatSRT}, and that looking them up
+ * during playback finds the same captions.
+ */
+public class CompactTranscriptTest {
+    private static final int[] CUE_COUNTS = {1, 100, 5000};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCompactAndSrtTranscriptsHaveSameCaptions() throws Exception {
+        for (int cueCount : CUE_COUNTS) {
+            final File srtFile = folder.newFile(cueCount + ".srt");
+            Files.write(srtFile.toPath(), generateSrt(cueCount).getBytes(StandardCharsets.UTF_8));
+            final File compactFile = folder.newFile(cueCount + ".cues");
+            CompactTranscript.write(parseSrt(srtFile).captions.values(), compactFile);
+
+            final List<Caption> expected = new ArrayList<>(parseSrt(srtFile).captions.values());
+            final CompactTranscript actual = CompactTranscript.open(compactFile);
+            assertEquals(cueCount, actual.size());
+            for (int i = 0; i < cueCount; i++) {
+                assertEquals(expected.get(i).start.getMseconds(), actual.getStart(i));
+                assertEquals(expected.get(i).end.getMseconds(), actual.getEnd(i));
+                assertEquals(expected.get(i).content, actual.getText(i));
+                assertEquals(expected.get(i).content, actual.getCaption(i).content);
+            }
+        }
+    }
+
+    @Test
+    public void testConvertedSrtHasSameCaptionsAsParsedSrt() throws Exception {
+        final String srt = "\uFEFF1\r\n00:00:05,000 --> 00:00:06,000\r\nOut of order\r\n\r\n" +
+                "2\n00:00:01,000 --> 00:00:02,000\n  Trimmed  \nSecond line\n\n" +
+                "3\nnot a time\nSkipped\n\n" +
+                "5\n00:00:07,000 --> 00:00:08,000\nOut of sequence\n\n" +
+                "4\n00:00:09,000 --> 00:00:10,000\n\n" +
+                "5\n00:00:11,000 --> 00:00:12,000\nLast\n\n";
+        assertConvertedSrtMatches(srt, 3);
+        for (int cueCount : CUE_COUNTS) {
+            assertConvertedSrtMatches(generateSrt(cueCount), cueCount);
+        }
+    }
+
+    @Test
+    public void testTimelinesOfCompactAndSrtTranscriptsMatch() throws Exception {
+        final File srtFile = folder.newFile("lecture.srt");
+        Files.write(srtFile.toPath(), generateSrt(1000).getBytes(StandardCharsets.UTF_8));
+        final File compactFile = folder.newFile("lecture.cues");
+        CompactTranscript.write(parseSrt(srtFile).captions.values(), compactFile);
+
+        final TranscriptTimeline expected = new TranscriptTimeline(
+                parseSrt(srtFile).captions.values());
+        final TranscriptTimeline actual = new TranscriptTimeline(
+                CompactTranscript.open(compactFile));
+        assertEquals(expected.size(), actual.size());
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final long position = random.nextInt(expected.getCaption(expected.size() - 1)
+                    .end.getMseconds() + 1000);
+            final int index = expected.indexAt(position);
+            assertEquals("Position " + position, index, actual.indexAt(position));
+            if (index >= 0) {
+                assertEquals(expected.getCaption(index).content,
+                        actual.getCaption(index).content);
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsRejected() throws Exception {
+        final File srtFile = folder.newFile("truncated.srt");
+        Files.write(srtFile.toPath(), generateSrt(10).getBytes(StandardCharsets.UTF_8));
+        final File compactFile = folder.newFile("truncated.cues");
+        CompactTranscript.write(parseSrt(srtFile).captions.values(), compactFile);
+        try (RandomAccessFile file = new RandomAccessFile(compactFile, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        try {
+            CompactTranscript.open(compactFile);
+            fail("A truncated transcript file was opened");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    private void assertConvertedSrtMatches(String srt, int cueCount) throws IOException {
+        final File srtFile = folder.newFile();
+        Files.write(srtFile.toPath(), srt.getBytes(StandardCharsets.UTF_8));
+        final File compactFile = folder.newFile();
+        try (InputStream input = new FileInputStream(srtFile)) {
+            CompactTranscript.convertSrt(input, compactFile);
+        }
+
+        final List<Caption> expected = new ArrayList<>(parseSrt(srtFile).captions.values());
+        final CompactTranscript actual = CompactTranscript.open(compactFile);
+        assertEquals(cueCount, expected.size());
+        assertEquals(cueCount, actual.size());
+        for (int i = 0; i < cueCount; i++) {
+            assertEquals(expected.get(i).start.getMseconds(), actual.getStart(i));
+            assertEquals(expected.get(i).end.getMseconds(), actual.getEnd(i));
+            assertEquals(expected.get(i).content, actual.getText(i));
+        }
+    }
+
+    private static TimedTextObject parseSrt(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return new FormatSRT().parseFile("test.srt", input);
+        }
+    }
+
+    private static String generateSrt(int cueCount) {
+        final Random random = new Random(cueCount);
+        final StringBuilder srt = new StringBuilder();
+        int time = 0;
+        for (int i = 1; i <= cueCount; i++) {
+            time += random.nextInt(1000);
+            final int end = time + 1000 + random.nextInt(4000);
+            srt.append(i).append('\n')
+                    .append(formatTime(time)).append(" --> ").append(formatTime(end)).append('\n')
+                    .append("Caption ").append(i).append(" of the lecture, déjà vu\n");
+            if (random.nextBoolean()) {
+                srt.append("with a second line, 字幕\n");
+            }
+            srt.append('\n');
+            time = end;
+        }
+        return srt.toString();
+    }
+
+    private static String formatTime(int ms) {
+        return String.format(Locale.US, "%02d:%02d:%02d,%03d",
+                ms / 3600000, ms / 60000 % 60, ms / 1000 % 60, ms % 1000);
+    }
+}
@@ -0,0 +1,186 @@
+package org.edx.mobile.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class TranscriptFetcherTest extends BaseTestCase {
+    private static final String COURSE_ID = "course-v1:edX+DemoX+Demo_Course";
+    private static final String OTHER_COURSE_ID = "course-v1:edX+Other+2021";
+    private static final String SRT = "1\n00:00:01,000 --> 00:00:02,500\nWelcome to the course\n\n";
+    private static final String BLOCKING_PATH = "/blocking.srt";
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private TranscriptFetcher fetcher;
+    /* The paths of the requests in the order the server received them */
+    private final List<String> requestedPaths = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blockingRequestStarted = new CountDownLatch(1);
+    private final CountDownLatch blockingRequestReleased = new CountDownLatch(1);
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                requestedPaths.add(request.getPath());
+                if (BLOCKING_PATH.equals(request.getPath())) {
+                    blockingRequestStarted.countDown();
+                    blockingRequestReleased.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } else if (request.getPath().startsWith("/missing")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse().setBody(SRT).setHeadersDelay(50, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        // A single worker, so that the order of the fetches is deterministic
+        fetcher = new TranscriptFetcher(new OkHttpClient(), (url, srt) -> {
+            final File file = folder.newFile();
+            CompactTranscript.convertSrt(srt, file);
+            return CompactTranscript.open(file);
+        }, Runnable::run, 1);
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        fetcher.cancelAll();
+        server.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testConcurrentRequestsForSameTranscriptAreDeduplicated() throws Exception {
+        final CountDownLatch fetched = new CountDownLatch(3);
+        final List<CompactTranscript> transcripts = Collections.synchronizedList(new ArrayList<>());
+        final TranscriptManager.OnTranscriptDownloadListener listener = transcript -> {
+            transcripts.add(transcript);
+            fetched.countDown();
+        };
+        fetcher.fetch(url("/en.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, listener);
+        fetcher.fetch(url("/en.srt"), OTHER_COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, listener);
+        fetcher.fetch(url("/en.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PLAYING, listener);
+
+        assertTrue(fetched.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(3, transcripts.size());
+        assertEquals("Welcome to the course", transcripts.get(0).getText(0));
+        awaitIdle();
+    }
+
+    @Test
+    public void testPlayingTranscriptIsFetchedFirst() throws Exception {
+        blockWorker();
+        fetcher.fetch(url("/es.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        fetcher.fetch(url("/fr.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        fetcher.fetch(url("/de.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFERRED_LANGUAGE, null);
+        fetcher.fetch(url("/en.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PLAYING, null);
+        blockingRequestReleased.countDown();
+
+        awaitIdle();
+        assertEquals(Arrays.asList(BLOCKING_PATH, "/en.srt", "/de.srt", "/es.srt", "/fr.srt"),
+                requestedPaths);
+    }
+
+    @Test
+    public void testPendingFetchIsRaisedToHigherPriority() throws Exception {
+        blockWorker();
+        fetcher.fetch(url("/es.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        fetcher.fetch(url("/en.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        fetcher.fetch(url("/en.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PLAYING, null);
+        blockingRequestReleased.countDown();
+
+        awaitIdle();
+        assertEquals(Arrays.asList(BLOCKING_PATH, "/en.srt", "/es.srt"), requestedPaths);
+    }
+
+    @Test
+    public void testCancelTranscriptsOfCourse() throws Exception {
+        blockWorker();
+        final CountDownLatch fetched = new CountDownLatch(1);
+        fetcher.fetch(url("/es.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        fetcher.fetch(url("/fr.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        // Of a video that isn't removed
+        fetcher.fetch(url("/it.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        // Shared with another course
+        fetcher.fetch(url("/de.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        fetcher.fetch(url("/de.srt"), OTHER_COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        // Waited for by the player
+        fetcher.fetch(url("/en.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PLAYING,
+                transcript -> fetched.countDown());
+        fetcher.cancel(COURSE_ID, Arrays.asList(url("/es.srt"), url("/fr.srt"), url("/de.srt"),
+                url("/en.srt")));
+        blockingRequestReleased.countDown();
+
+        assertTrue(fetched.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        awaitIdle();
+        assertEquals(Arrays.asList(BLOCKING_PATH, "/en.srt", "/it.srt", "/de.srt"),
+                requestedPaths);
+    }
+
+    @Test
+    public void testFailedFetchIsNotDelivered() throws Exception {
+        final CountDownLatch fetched = new CountDownLatch(1);
+        fetcher.fetch(url("/missing.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PLAYING,
+                transcript -> fetched.countDown());
+
+        awaitIdle();
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, fetched.getCount());
+        // It can be fetched again
+        fetcher.fetch(url("/missing.srt"), COURSE_ID, TranscriptFetcher.PRIORITY_PLAYING, null);
+        awaitIdle();
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @NonNull
+    private String url(@NonNull String path) {
+        return server.url(path).toString();
+    }
+
+    /**
+     * Keeps the only worker busy, so that the fetches requested next are queued.
+     */
+    private void blockWorker() throws InterruptedException {
+        fetcher.fetch(url(BLOCKING_PATH), OTHER_COURSE_ID, TranscriptFetcher.PRIORITY_PREFETCH, null);
+        assertTrue(blockingRequestStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (fetcher.getPendingCount() > 0) {
+            assertTrue("Fetches still pending", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
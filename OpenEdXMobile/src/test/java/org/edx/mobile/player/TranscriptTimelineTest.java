@@ -0,0 +1,141 @@
+package org.edx.mobile.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import subtitleFile.Caption;
+import subtitleFile.FormatSRT;
+import subtitleFile.TimedTextObject;
+
+public class TranscriptTimelineTest {
+
+    @Test
+    public void testEmptyTranscript() {
+        final TranscriptTimeline timeline = new TranscriptTimeline(new ArrayList<>());
+        assertEquals(0, timeline.size());
+        assertEquals(-1, timeline.indexAt(0));
+        assertEquals(-1, timeline.indexAt(1000));
+    }
+
+    @Test
+    public void testLookupWithGaps() throws IOException {
+        final TranscriptTimeline timeline = new TranscriptTimeline(parse(
+                1000, 2000,
+                3000, 4000,
+                4000, 5000));
+        assertEquals(3, timeline.size());
+        assertEquals(-1, timeline.indexAt(0));
+        assertEquals(-1, timeline.indexAt(999));
+        assertEquals(0, timeline.indexAt(1000));
+        assertEquals(0, timeline.indexAt(2000));
+        assertEquals(-1, timeline.indexAt(2001));
+        assertEquals(1, timeline.indexAt(3500));
+        // Both ends are included, so the earlier caption wins on a shared boundary
+        assertEquals(1, timeline.indexAt(4000));
+        assertEquals(2, timeline.indexAt(4001));
+        assertEquals(2, timeline.indexAt(5000));
+        assertEquals(-1, timeline.indexAt(5001));
+        assertEquals(-1, timeline.indexAt(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testOverlappingCaptions() throws IOException {
+        final TranscriptTimeline timeline = new TranscriptTimeline(parse(
+                0, 10000,
+                1000, 2000,
+                3000, 4000,
+                12000, 13000));
+        // The long caption covers the short ones, and comes first
+        assertEquals(0, timeline.indexAt(1500));
+        assertEquals(0, timeline.indexAt(3500));
+        assertEquals(-1, timeline.indexAt(11000));
+        assertEquals(3, timeline.indexAt(12500));
+        // Seeking back into the overlapped range
+        assertEquals(0, timeline.indexAt(1500));
+    }
+
+    @Test
+    public void testGetCaptionAt() throws IOException {
+        final TimedTextObject transcript = parse(1000, 2000, 3000, 4000);
+        final TranscriptTimeline timeline = new TranscriptTimeline(transcript.captions.values());
+        final List<Caption> captions = new ArrayList<>(transcript.captions.values());
+        assertSame(captions.get(1), timeline.getCaptionAt(3001));
+        assertSame(captions.get(1), timeline.getCaption(1));
+        assertNull(timeline.getCaptionAt(2500));
+    }
+
+    /**
+     * Plays through a long generated transcript with occasional seeks, and checks every lookup
+     * against a scan of the captions in order.
+     */
+    @Test
+    public void testMatchesLinearScan() throws IOException {
+        final Random random = new Random(42);
+        final int[] times = new int[3000 * 2];
+        int time = 0;
+        for (int i = 0; i < times.length; i += 2) {
+            time += random.nextInt(500);
+            times[i] = time;
+            // A few captions overlap the following ones
+            times[i + 1] = time + (random.nextInt(20) == 0 ? 8000 : 500 + random.nextInt(3000));
+            time += random.nextInt(2500);
+        }
+        final TimedTextObject transcript = parse(times);
+        final List<Caption> captions = new ArrayList<>(transcript.captions.values());
+        final TranscriptTimeline timeline = new TranscriptTimeline(transcript.captions.values());
+        assertEquals(captions.size(), timeline.size());
+
+        long position = 0;
+        final long duration = time + 5000;
+        while (position < duration) {
+            assertEquals("Position " + position,
+                    scan(captions, position), timeline.indexAt(position));
+            if (random.nextInt(200) == 0) {
+                position = random.nextInt((int) duration);
+            } else {
+                position += 100;
+            }
+        }
+    }
+
+    private static int scan(List<Caption> captions, long position) {
+        for (int i = 0; i < captions.size(); i++) {
+            final Caption caption = captions.get(i);
+            if (position >= caption.start.getMseconds() && position <= caption.end.getMseconds()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param times The start and end times of the captions, in milliseconds.
+     */
+    private static TimedTextObject parse(int... times) throws IOException {
+        final StringBuilder srt = new StringBuilder();
+        for (int i = 0; i < times.length; i += 2) {
+            srt.append(i / 2 + 1).append('\n')
+                    .append(formatTime(times[i])).append(" --> ")
+                    .append(formatTime(times[i + 1])).append('\n')
+                    .append("Caption ").append(i / 2 + 1).append("\n\n");
+        }
+        return new FormatSRT().parseFile("test.srt",
+                new ByteArrayInputStream(srt.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String formatTime(int ms) {
+        return String.format(Locale.US, "%02d:%02d:%02d,%03d",
+                ms / 3600000, ms / 60000 % 60, ms / 1000 % 60, ms % 1000);
+    }
+}
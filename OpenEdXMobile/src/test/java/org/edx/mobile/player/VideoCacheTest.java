@@ -0,0 +1,107 @@
+package org.edx.mobile.player;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+
+import org.edx.mobile.base.BaseTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+public class VideoCacheTest extends BaseTestCase {
+    private static final int VIDEO_SIZE = 64 * 1024;
+
+    private MockWebServer server;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        server.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testStreamedVideoIsReplayedFromCache() throws Exception {
+        final byte[] video = new byte[VIDEO_SIZE];
+        new Random(VIDEO_SIZE).nextBytes(video);
+        server.enqueue(new MockResponse().setBody(new Buffer().write(video)));
+        final Uri uri = Uri.parse(server.url("/video.mp4").toString());
+        final VideoCache videoCache = new VideoCache(context, config);
+
+        assertArrayEquals(video, read(videoCache, uri));
+        assertEquals(VIDEO_SIZE, videoCache.getNetworkBytes());
+        assertEquals(0, videoCache.getCachedBytes());
+
+        // Replayed offline
+        server.shutdown();
+        assertArrayEquals(video, read(videoCache, uri));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(VIDEO_SIZE, videoCache.getCachedBytes());
+        assertEquals(0.5, videoCache.getHitRatio(), 0.001);
+    }
+
+    @Test
+    public void testCacheKeysOfAllEncodingsAreMatched() {
+        final List<String> urls = Arrays.asList("https://edx-video.net/abc/abc_mobile_low.mp4",
+                "https://edx-video.net/abc/hls/abc.m3u8");
+
+        assertTrue(VideoCache.isCacheKeyOf("https://edx-video.net/abc/abc_mobile_low.mp4", urls));
+        assertTrue(VideoCache.isCacheKeyOf("https://edx-video.net/abc/hls/abc_720p.m3u8", urls));
+        assertTrue(VideoCache.isCacheKeyOf("https://edx-video.net/abc/hls/720p/segment_1.ts",
+                urls));
+        assertFalse(VideoCache.isCacheKeyOf("https://edx-video.net/abc/abc_desktop.mp4", urls));
+        assertFalse(VideoCache.isCacheKeyOf("https://edx-video.net/def/hls/def.m3u8", urls));
+        // A playlist at the root of its host doesn't match the other videos of the host
+        assertFalse(VideoCache.isCacheKeyOf("https://cdn.example.com/other_segment.ts",
+                Collections.singletonList("https://cdn.example.com/playlist.m3u8")));
+    }
+
+    @NonNull
+    private static byte[] read(@NonNull VideoCache videoCache, @NonNull Uri uri)
+            throws IOException {
+        final DataSource dataSource = videoCache.getDataSourceFactory(
+                new DefaultHttpDataSource.Factory()).createDataSource();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            dataSource.open(new DataSpec(uri));
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                output.write(buffer, 0, count);
+            }
+        } finally {
+            dataSource.close();
+        }
+        return output.toByteArray();
+    }
+}
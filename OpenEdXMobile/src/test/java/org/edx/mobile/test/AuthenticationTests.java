@@ -9,6 +9,7 @@ import com.google.gson.JsonObject;
 import org.edx.mobile.base.BaseTestCase;
 import org.edx.mobile.base.Injector;
 import org.edx.mobile.http.HttpStatus;
+import org.edx.mobile.http.authenticator.AccessTokenManager;
 import org.edx.mobile.http.authenticator.OauthRefreshTokenAuthenticator;
 import org.edx.mobile.model.authentication.AuthResponse;
 import org.edx.mobile.module.prefs.LoginPrefs;
@@ -52,9 +53,11 @@ public final class AuthenticationTests extends BaseTestCase {
         loginPrefs = new LoginPrefs(context);
         loginPrefs.storeAuthTokenResponse(MockDataUtil.getMockResponse("post_oauth2_access_token", AuthResponse.class), LoginPrefs.AuthBackend.PASSWORD);
         oauthRefreshTokenAuthenticator = new OauthRefreshTokenAuthenticator(
-                () -> config,
-                injector::getRetrofitProvider,
-                () -> loginPrefs);
+                () -> loginPrefs,
+                new AccessTokenManager(
+                        () -> config,
+                        injector::getRetrofitProvider,
+                        () -> loginPrefs));
     }
 
     @Override
@@ -10,6 +10,8 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
@@ -186,6 +188,83 @@ public class CourseComponentTest {
 
     }
 
+    @Test
+    public void testFetchAllLeafComponentsKeepsTreeOrder() throws Exception {
+        List<CourseComponent> leaves = new ArrayList<>();
+        course.fetchAllLeafComponents(leaves, EnumSet.of(BlockType.VIDEO, BlockType.HTML));
+        assertTrue("fetchAllLeafComponents failed", leaves.equals(Arrays.asList(unit1, unit2, unit3, unit4)));
+
+        leaves.clear();
+        chapter2.fetchAllLeafComponents(leaves, EnumSet.of(BlockType.VIDEO, BlockType.HTML));
+        assertTrue("fetchAllLeafComponents failed", leaves.equals(Arrays.asList(unit3, unit4)));
+
+        leaves.clear();
+        unit1.fetchAllLeafComponents(leaves, EnumSet.of(BlockType.VIDEO));
+        assertTrue("fetchAllLeafComponents failed", leaves.equals(Collections.singletonList(unit1)));
+    }
+
+    @Test
+    public void testGetComponentById() throws Exception {
+        assertTrue("getComponentById failed", course.getComponentById(unit3.getId()) == unit3);
+        assertTrue("getComponentById failed", course.getComponentById(course.getId()) == course);
+        assertTrue("getComponentById failed", chapter2.getComponentById(unit4.getId()) == unit4);
+        // Components outside of the subtree aren't found
+        assertTrue("getComponentById failed", chapter2.getComponentById(unit1.getId()) == null);
+        assertTrue("getComponentById failed", course.getComponentById("unknown") == null);
+    }
+
+    @Test
+    public void testIndexIsUpdatedWhenComponentIsAdded() throws Exception {
+        assertTrue("getVideos failed", vertical2.getVideos().size() == 1);
+
+        BlockModel bm = Mockito.mock(BlockModel.class);
+        bm.type = BlockType.VIDEO;
+        bm.id = UUID.randomUUID().toString();
+        CourseComponent unit5 = new VideoBlockModel(bm, vertical2);
+
+        assertTrue("getVideos failed", vertical2.getVideos().size() == 2);
+        assertTrue("getVideos failed", course.getVideos().size() == 3);
+        assertTrue("getComponentById failed", course.getComponentById(unit5.getId()) == unit5);
+    }
+
+    @Test
+    public void testIndexedLookupsOnLargeCourse() throws Exception {
+        // Synthetic course of 10 chapters x 10 sections x 10 verticals x 10 units = 11111 nodes
+        CourseComponent largeCourse = new CourseComponent(newBlock(BlockType.COURSE), null);
+        List<CourseComponent> units = new ArrayList<>();
+        for (int c = 0; c < 10; c++) {
+            CourseComponent chapter = new CourseComponent(newBlock(BlockType.CHAPTER), largeCourse);
+            for (int s = 0; s < 10; s++) {
+                CourseComponent section = new CourseComponent(newBlock(BlockType.SEQUENTIAL), chapter);
+                for (int v = 0; v < 10; v++) {
+                    CourseComponent vertical = new CourseComponent(newBlock(BlockType.VERTICAL), section);
+                    for (int u = 0; u < 10; u++) {
+                        units.add(u % 2 == 0 ?
+                                new VideoBlockModel(newBlock(BlockType.VIDEO), vertical) :
+                                new CourseComponent(newBlock(BlockType.HTML), vertical));
+                    }
+                }
+            }
+        }
+
+        for (final CourseComponent unit : units) {
+            assertTrue("getComponentById failed", largeCourse.getComponentById(unit.getId()) == unit);
+            assertTrue("getComponentById failed", unit.getComponentById(unit.getId()) == unit);
+        }
+        assertTrue("getVideos failed", largeCourse.getVideos().size() == units.size() / 2);
+
+        List<CourseComponent> leaves = new ArrayList<>();
+        largeCourse.fetchAllLeafComponents(leaves, EnumSet.of(BlockType.VIDEO, BlockType.HTML));
+        assertTrue("fetchAllLeafComponents failed", leaves.equals(units));
+    }
+
+    private static BlockModel newBlock(BlockType type) {
+        BlockModel bm = new BlockModel();
+        bm.type = type;
+        bm.id = UUID.randomUUID().toString();
+        return bm;
+    }
+
     @Test
     public void testGetCourseId() throws Exception {
         String courseId = course.getCourseId();
@@ -4,6 +4,9 @@ import org.edx.mobile.base.BaseTestCase;
 import org.edx.mobile.base.Injector;
 import org.edx.mobile.model.VideoModel;
 import org.edx.mobile.model.api.ProfileModel;
+import org.edx.mobile.model.course.BlockModel;
+import org.edx.mobile.model.course.BlockType;
+import org.edx.mobile.model.course.CourseComponent;
 import org.edx.mobile.model.db.DownloadEntry;
 import org.edx.mobile.model.db.DownloadEntry.DownloadedState;
 import org.edx.mobile.model.db.DownloadEntry.WatchedState;
@@ -13,7 +16,12 @@ import org.edx.mobile.module.db.impl.DatabaseFactory;
 import org.edx.mobile.module.prefs.LoginPrefs;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -94,6 +102,168 @@ public class DbTests extends BaseTestCase {
         lock();
     }
 
+    @Test
+    public void testAsyncReadObservesPrecedingAsyncWrite() throws Exception {
+        db.clearDataByUser(username);
+        final DownloadEntry de = getDummyVideoModel();
+        final AtomicReference<VideoModel> readResult = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        // The update is queued on the writer thread, the read on a reader thread, the read must
+        // still see the result of the write that was enqueued before it.
+        db.addVideoData(de, null);
+        db.updateVideoLastPlayedOffset(de.videoId, 42, new DataCallback<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+            }
+        });
+        db.getVideoEntryByVideoId(de.videoId, new DataCallback<VideoModel>() {
+            @Override
+            public void onResult(VideoModel result) {
+                readResult.set(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNotNull(readResult.get());
+        assertEquals(42L, readResult.get().getLastPlayedOffset());
+    }
+
+    @Test
+    public void testGetVideosByVideoIdsForLargeCourse() throws Exception {
+        db.clearDataByUser(username);
+        // More video blocks than SQLite allows bound parameters in a single query
+        final int videoCount = 5000;
+        final List<DownloadEntry> videos = new ArrayList<>();
+        final List<CourseComponent> videoComponents = new ArrayList<>();
+        for (int i = 0; i < videoCount; i++) {
+            final DownloadEntry de = getDummyVideoModel();
+            de.videoId = "videoId-" + i;
+            de.downloaded = i % 2 == 0 ? DownloadedState.DOWNLOADED : DownloadedState.DOWNLOADING;
+            videos.add(de);
+
+            final BlockModel blockModel = new BlockModel();
+            blockModel.id = de.videoId;
+            blockModel.type = BlockType.VIDEO;
+            videoComponents.add(new CourseComponent(blockModel, null));
+        }
+        assertEquals(videoCount, (int) db.addVideosBatch(videos, null, null));
+
+        final List<VideoModel> allVideos = db.getVideosByVideoIds(videoComponents, null, null);
+        assertEquals(videoCount, allVideos.size());
+
+        final List<VideoModel> downloadedVideos = db.getVideosByVideoIds(videoComponents,
+                DownloadedState.DOWNLOADED, null);
+        assertEquals(videoCount / 2, downloadedVideos.size());
+        for (VideoModel video : downloadedVideos) {
+            assertEquals(DownloadedState.DOWNLOADED.ordinal(), video.getDownloadedStateOrdinal());
+        }
+
+        // A partial last chunk must not duplicate results
+        final List<VideoModel> someVideos = db.getVideosByVideoIds(
+                videoComponents.subList(0, 1001), null, null);
+        assertEquals(1001, someVideos.size());
+    }
+
+    @Test
+    public void testGetDownloadsByVideoUrls() throws Exception {
+        db.clearDataByUser(username);
+        final DownloadEntry downloading = getDummyVideoModel();
+        downloading.videoId = "downloading";
+        downloading.url = "http://fake/downloading";
+        downloading.downloaded = DownloadedState.DOWNLOADING;
+        final DownloadEntry online = getDummyVideoModel();
+        online.videoId = "online";
+        online.url = "http://fake/online";
+        online.downloaded = DownloadedState.ONLINE;
+        db.addVideoData(downloading, null);
+        db.addVideoData(online, null);
+
+        final List<VideoModel> downloads = db.getDownloadsByVideoUrls(Arrays.asList(
+                "http://fake/downloading", "http://fake/online", "http://fake/missing"), null);
+        assertEquals(1, downloads.size());
+        assertEquals("downloading", downloads.get(0).getVideoId());
+    }
+
+    @Test
+    public void testAddVideosBatchUpdatesOnlyFilteredVideos() throws Exception {
+        db.clearDataByUser(username);
+        final DownloadEntry mapped = getDummyVideoModel();
+        mapped.videoId = "mapped";
+        mapped.url = "http://fake/mapped";
+        final DownloadEntry failed = getDummyVideoModel();
+        failed.videoId = "failed";
+        failed.url = "http://fake/failed";
+        db.addVideoData(mapped, null);
+        db.addVideoData(failed, null);
+
+        mapped.dmId = 7;
+        failed.dmId = 9;
+        final DownloadEntry added = getDummyVideoModel();
+        added.videoId = "added";
+        added.url = "http://fake/failed";
+        final List<DownloadEntry> videos = new ArrayList<>();
+        videos.add(mapped);
+        videos.add(failed);
+        videos.add(added);
+
+        final int count = db.addVideosBatch(videos, video -> video != failed, null);
+
+        assertEquals(2, count);
+        assertEquals(7, db.getVideoEntryByVideoId("mapped", null).getDmId());
+        assertNotEquals(9, db.getVideoEntryByVideoId("failed", null).getDmId());
+        // Inserted even though the filter rejects it
+        assertNotNull(db.getVideoEntryByVideoId("added", null));
+    }
+
+    @Test
+    public void testAsyncReadDoesNotObserveFollowingAsyncWrite() throws Exception {
+        db.clearDataByUser(username);
+        final DownloadEntry de = getDummyVideoModel();
+        final AtomicReference<VideoModel> readResult = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        // The write is enqueued after the read, so the read must not see its result.
+        db.addVideoData(de, null);
+        db.getVideoEntryByVideoId(de.videoId, new DataCallback<VideoModel>() {
+            @Override
+            public void onResult(VideoModel result) {
+                readResult.set(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                latch.countDown();
+            }
+        });
+        db.updateVideoLastPlayedOffset(de.videoId, 42, new DataCallback<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Exception ex) {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNotNull(readResult.get());
+        assertEquals(de.lastPlayedOffset, readResult.get().getLastPlayedOffset());
+    }
+
     @Test
     public void testPrintTable() throws Exception {
         db.getAllVideos("shahid", new DataCallback<List<VideoModel>>() {